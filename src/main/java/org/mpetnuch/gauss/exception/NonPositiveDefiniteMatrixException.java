@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `NonPositiveDefiniteMatrixException.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.exception;
+
+import java.text.MessageFormat;
+
+/**
+ * @author Michael Petnuch
+ */
+public class NonPositiveDefiniteMatrixException extends ArithmeticException {
+    private static final long serialVersionUID = -2186347913587620159L;
+
+    private final int minor;
+
+    public NonPositiveDefiniteMatrixException(int minor) {
+        this.minor = minor;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageFormat.format("matrix is not positive definite, leading minor of order {0} is not positive",
+                minor + 1);
+    }
+}
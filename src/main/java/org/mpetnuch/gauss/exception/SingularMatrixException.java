@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `SingularMatrixException.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.exception;
+
+import java.text.MessageFormat;
+
+/**
+ * @author Michael Petnuch
+ */
+public class SingularMatrixException extends ArithmeticException {
+    private static final long serialVersionUID = 4410826528164939032L;
+
+    private final int pivot;
+
+    public SingularMatrixException(int pivot) {
+        this.pivot = pivot;
+    }
+
+    public int getPivot() {
+        return pivot;
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageFormat.format("matrix is singular, pivot {0} is exactly zero", pivot);
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ChunkedArrayFile.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.array.ArrayStore;
+import org.mpetnuch.gauss.store.array.ArrayStoreAnyD;
+import org.mpetnuch.gauss.structure.Dimension;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * N-dimensional array stored on disk as a regular grid of chunks, each compressed on its own in the spirit of Zarr,
+ * so that reading a slice only loads and inflates the chunks the slice touches. Chunks are loaded in parallel and
+ * kept in a least recently used cache, repeated reads of nearby slices do not touch the file again.
+ * <p>
+ * The file holds a little-endian header (the magic bytes <tt>GCAF</tt>, version, shape and chunk shape), an index
+ * with the offset and compressed length of every chunk, and the chunks themselves. A chunk holds the elements of
+ * its block in row-major order, edge chunks are padded with zeros to the full chunk shape. Before deflating, the
+ * bytes of the chunk are shuffled so that the <tt>k</tt>-th bytes of all elements are next to each other, which
+ * groups the slowly varying sign and exponent bytes and compresses floating point data considerably better.
+ *
+ * @author Michael Petnuch
+ */
+public final class ChunkedArrayFile implements AutoCloseable {
+    private static final byte[] MAGIC = {'G', 'C', 'A', 'F'};
+    private static final int VERSION = 1;
+
+    private final FileChannel channel;
+    private final ForkJoinPool pool;
+    private final Map<Integer, double[]> cache;
+    private final int[] shape, chunkShape, gridShape;
+    private final long[] chunkOffsets;
+    private final int[] chunkLengths;
+    private final int chunkSize;
+
+    private ChunkedArrayFile(Path path, ForkJoinPool pool, int cacheSize) throws IOException {
+        this.pool = pool;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 8416327731092471541L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+                return size() > cacheSize;
+            }
+        });
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final ByteBuffer preamble = read(0, 12);
+            for (byte b : MAGIC) {
+                if (preamble.get() != b) {
+                    throw new StreamCorruptedException("Not a chunked array file, bad magic bytes");
+                }
+            }
+
+            final int version = preamble.getInt(), rank = preamble.getInt();
+            if (version != VERSION || rank < 1) {
+                throw new StreamCorruptedException("Unsupported chunked array file version " + version);
+            }
+
+            final ByteBuffer header = read(12, 8 * rank);
+            this.shape = new int[rank];
+            this.chunkShape = new int[rank];
+            header.asIntBuffer().get(shape).get(chunkShape);
+
+            this.gridShape = gridShape(shape, chunkShape);
+            this.chunkSize = Arrays.stream(chunkShape).reduce(1, (product, n) -> product * n);
+
+            final int chunkCount = Arrays.stream(gridShape).reduce(1, (product, n) -> product * n);
+            final ByteBuffer index = read(12 + 8 * rank, 12 * chunkCount);
+            this.chunkOffsets = new long[chunkCount];
+            this.chunkLengths = new int[chunkCount];
+            index.asLongBuffer().get(chunkOffsets);
+            index.position(8 * chunkCount);
+            index.asIntBuffer().get(chunkLengths);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static ChunkedArrayFile open(Path path) throws IOException {
+        return new ChunkedArrayFileBuilder(path).createChunkedArrayFile();
+    }
+
+    /**
+     * Writes the store in chunks of the given shape, compressing the chunks in parallel on the common pool.
+     *
+     * @throws DimensionMismatchException if the chunk shape does not have one length per dimension of the store
+     */
+    public static void write(Path path, Store store, int... chunkShape) throws IOException {
+        final int[] shape = store.structure().shape();
+        final int rank = shape.length;
+        if (chunkShape.length != rank) {
+            throw new DimensionMismatchException(chunkShape.length, rank);
+        }
+
+        if (Arrays.stream(chunkShape).anyMatch(n -> n < 1)) {
+            throw new IllegalArgumentException("Chunk lengths must be positive, found " + Arrays.toString(chunkShape));
+        }
+
+        final double[] elements = store.toArray();
+        final int[] gridShape = gridShape(shape, chunkShape);
+        final int chunkCount = Arrays.stream(gridShape).reduce(1, (product, n) -> product * n);
+        final int chunkSize = Arrays.stream(chunkShape).reduce(1, (product, n) -> product * n);
+        final int[] strides = rowMajorStrides(shape);
+
+        final byte[][] chunks = IntStream.range(0, chunkCount).parallel().mapToObj(chunk -> {
+            final int[] origin = unravel(chunk, gridShape);
+            for (int d = 0; d < rank; d++) {
+                origin[d] *= chunkShape[d];
+            }
+
+            // copy the block row by row, anything past the edge of the array stays zero
+            final double[] block = new double[chunkSize];
+            final int last = rank - 1, rowLength = Math.min(chunkShape[last], shape[last] - origin[last]);
+            for (int row = 0; row < chunkSize / chunkShape[last]; row++) {
+                final int[] position = unravel(row * chunkShape[last], chunkShape);
+                int source = 0;
+                boolean inside = true;
+                for (int d = 0; d < rank; d++) {
+                    inside = inside && origin[d] + position[d] < shape[d];
+                    source += (origin[d] + position[d]) * strides[d];
+                }
+
+                if (inside) {
+                    System.arraycopy(elements, source, block, row * chunkShape[last], rowLength);
+                }
+            }
+
+            return deflate(block);
+        }).toArray(byte[][]::new);
+
+        final int headerLength = 12 + 8 * rank + 12 * chunkCount;
+        final ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).putInt(rank);
+        Arrays.stream(shape).forEach(header::putInt);
+        Arrays.stream(chunkShape).forEach(header::putInt);
+
+        long offset = headerLength;
+        for (byte[] chunk : chunks) {
+            header.putLong(offset);
+            offset += chunk.length;
+        }
+
+        for (byte[] chunk : chunks) {
+            header.putInt(chunk.length);
+        }
+
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (byte[] chunk : chunks) {
+                writeFully(channel, ByteBuffer.wrap(chunk));
+            }
+        }
+    }
+
+    public int[] shape() {
+        return shape.clone();
+    }
+
+    public int[] chunkShape() {
+        return chunkShape.clone();
+    }
+
+    /**
+     * Reads the whole array.
+     */
+    public ArrayStore read() throws IOException {
+        return slice();
+    }
+
+    /**
+     * Reads the elements selected by the slices into a new array store, loading only the chunks that hold them.
+     * Dimensions without a slice are read in full, as with {@link ArrayStoreAnyD#slice(Slice...)}.
+     */
+    public ArrayStore slice(Slice... slices) throws IOException {
+        final int rank = shape.length;
+        if (slices.length > rank) {
+            throw new DimensionMismatchException(slices.length, rank);
+        }
+
+        // for every dimension, the chunk and the position within the chunk of each selected index
+        final int[] lengths = new int[rank];
+        final int[][] chunkIndices = new int[rank][], chunkPositions = new int[rank][];
+        final ArrayStructureAnyD structure = new ArrayStructureAnyD(shape);
+        for (int d = 0; d < rank; d++) {
+            final Dimension dimension = structure.dimension(d);
+            final Slice slice = d < slices.length ? slices[d] : Slice.All();
+            final int start = slice.start(dimension), step = slice.step();
+            lengths[d] = (Math.max(0, slice.stop(dimension) - start) + step - 1) / step;
+
+            chunkIndices[d] = new int[lengths[d]];
+            chunkPositions[d] = new int[lengths[d]];
+            for (int i = 0; i < lengths[d]; i++) {
+                chunkIndices[d][i] = (start + i * step) / chunkShape[d];
+                chunkPositions[d][i] = (start + i * step) % chunkShape[d];
+            }
+        }
+
+        final int size = Arrays.stream(lengths).reduce(1, (product, n) -> product * n);
+        final double[] elements = new double[size];
+        if (size > 0) {
+            final double[][] chunks = load(chunkIndices);
+            final int[] gridStrides = rowMajorStrides(gridShape), chunkStrides = rowMajorStrides(chunkShape);
+            final int last = rank - 1;
+            final int[] counter = new int[rank];
+            for (int position = 0; position < size; ) {
+                int chunkBase = 0, positionBase = 0;
+                for (int d = 0; d < last; d++) {
+                    chunkBase += chunkIndices[d][counter[d]] * gridStrides[d];
+                    positionBase += chunkPositions[d][counter[d]] * chunkStrides[d];
+                }
+
+                for (int i = 0; i < lengths[last]; i++) {
+                    elements[position++] = chunks[chunkBase + chunkIndices[last][i]][positionBase + chunkPositions[last][i]];
+                }
+
+                for (int d = last - 1; d >= 0 && ++counter[d] == lengths[d]; d--) {
+                    counter[d] = 0;
+                }
+            }
+        }
+
+        return ArrayStore.of(elements, lengths);
+    }
+
+    // loads every chunk in the product of the per-dimension chunk indices in parallel, indexed by chunk number
+    private double[][] load(int[][] chunkIndices) throws IOException {
+        final int rank = shape.length;
+        final int[] gridStrides = rowMajorStrides(gridShape);
+        BitSet needed = new BitSet();
+        needed.set(0);
+        for (int d = 0; d < rank; d++) {
+            final BitSet next = new BitSet();
+            for (int base = needed.nextSetBit(0); base >= 0; base = needed.nextSetBit(base + 1)) {
+                for (int i : chunkIndices[d]) {
+                    next.set(base + i * gridStrides[d]);
+                }
+            }
+
+            needed = next;
+        }
+
+        final double[][] chunks = new double[chunkOffsets.length][];
+        final CompletableFuture<?>[] futures = needed.stream()
+                .mapToObj(chunk -> CompletableFuture.runAsync(() -> chunks[chunk] = chunk(chunk), pool))
+                .toArray(CompletableFuture<?>[]::new);
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+
+            throw e;
+        }
+
+        return chunks;
+    }
+
+    private double[] chunk(int chunk) {
+        final double[] cached = cache.get(chunk);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            final double[] elements = inflate(read(chunkOffsets[chunk], chunkLengths[chunk]).array(), chunkSize);
+            cache.put(chunk, elements);
+            return elements;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int cachedChunkCount() {
+        return cache.size();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of chunked array file");
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] deflate(double[] elements) {
+        final int n = elements.length;
+        final byte[] shuffled = new byte[n * Double.BYTES];
+        for (int i = 0; i < n; i++) {
+            final long bits = Double.doubleToRawLongBits(elements[i]);
+            for (int b = 0; b < Double.BYTES; b++) {
+                shuffled[b * n + i] = (byte) (bits >>> (8 * b));
+            }
+        }
+
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(shuffled);
+            deflater.finish();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1 << 14];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static double[] inflate(byte[] compressed, int n) throws IOException {
+        final byte[] shuffled = new byte[n * Double.BYTES];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            for (int position = 0; position < shuffled.length; ) {
+                final int count = inflater.inflate(shuffled, position, shuffled.length - position);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new StreamCorruptedException("Truncated chunk in chunked array file");
+                }
+
+                position += count;
+            }
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("Corrupt chunk in chunked array file: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        final double[] elements = new double[n];
+        for (int i = 0; i < n; i++) {
+            long bits = 0;
+            for (int b = 0; b < Double.BYTES; b++) {
+                bits |= (shuffled[b * n + i] & 0xFFL) << (8 * b);
+            }
+
+            elements[i] = Double.longBitsToDouble(bits);
+        }
+
+        return elements;
+    }
+
+    private static int[] gridShape(int[] shape, int[] chunkShape) {
+        return IntStream.range(0, shape.length).map(d -> (shape[d] + chunkShape[d] - 1) / chunkShape[d]).toArray();
+    }
+
+    private static int[] rowMajorStrides(int[] shape) {
+        final int[] strides = new int[shape.length];
+        strides[shape.length - 1] = 1;
+        for (int d = shape.length - 2; d >= 0; d--) {
+            strides[d] = strides[d + 1] * shape[d + 1];
+        }
+
+        return strides;
+    }
+
+    private static int[] unravel(int ordinal, int[] shape) {
+        final int[] indices = new int[shape.length];
+        for (int d = shape.length - 1; d >= 0; d--) {
+            indices[d] = ordinal % shape[d];
+            ordinal /= shape[d];
+        }
+
+        return indices;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static class ChunkedArrayFileBuilder {
+        private final Path path;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int cacheSize = 64;
+
+        public ChunkedArrayFileBuilder(Path path) {
+            this.path = path;
+        }
+
+        public ChunkedArrayFileBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of decompressed chunks kept in memory, 64 by default.
+         */
+        public ChunkedArrayFileBuilder setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public ChunkedArrayFile createChunkedArrayFile() throws IOException {
+            return new ChunkedArrayFile(path, pool, cacheSize);
+        }
+    }
+}
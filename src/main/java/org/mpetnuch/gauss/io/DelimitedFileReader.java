@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DelimitedFileReader.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel reader for numeric CSV, TSV and other delimited text files. The file is mapped and split into byte
+ * ranges that start on line boundaries; a first parallel pass counts the lines of every range so that the matrix
+ * can be allocated up front, and a second pass parses the fields of each range straight from the mapped bytes into
+ * its rows of the matrix, without creating a <tt>String</tt> per field.
+ * <p>
+ * Columns are selected and rows filtered while parsing. Blank lines are skipped, missing and empty fields read as
+ * <tt>NaN</tt>, and surrounding spaces and quotes are ignored; quoted fields containing the delimiter are not
+ * supported.
+ *
+ * @author Michael Petnuch
+ */
+public final class DelimitedFileReader {
+    private static final int MAX_RANGE_LENGTH = 1 << 30;
+    private static final int MIN_RANGE_LENGTH = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final double[] POWERS_OF_TEN = IntStream.rangeClosed(0, 22).mapToDouble(n -> Double.parseDouble("1e" + n)).toArray();
+
+    private final byte delimiter;
+    private final boolean skipHeader;
+    private final int[] columns;
+    private final Predicate<double[]> rowFilter;
+    private final ForkJoinPool pool;
+
+    private DelimitedFileReader(char delimiter, boolean skipHeader, int[] columns, Predicate<double[]> rowFilter,
+                                ForkJoinPool pool) {
+        this.delimiter = (byte) delimiter;
+        this.skipHeader = skipHeader;
+        this.columns = columns;
+        this.rowFilter = rowFilter;
+        this.pool = pool;
+    }
+
+    /**
+     * Reads the selected columns of every row that passes the filter into a new row-major matrix.
+     *
+     * @throws IOException           if the file cannot be read, has no data rows or has a line longer than 1 MiB
+     * @throws NumberFormatException if a selected field is not a number
+     */
+    public DenseGeneralMatrix read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_LINE_LENGTH));
+            final int dataStart = skipHeader ? nextLine(head, 0) : 0;
+            if (dataStart < 0 && head.limit() == size) {
+                throw new IOException(path + " has no data rows");
+            } else if (dataStart < 0) {
+                throw new IOException("Header line of " + path + " is longer than " + MAX_LINE_LENGTH + " bytes");
+            }
+
+            final int columnCount = columns != null ? columns.length
+                    : fieldCount(head, firstRow(head, dataStart, path));
+            final int[] targets = targets(columnCount);
+
+            final ByteBuffer[] ranges = split(channel, path, dataStart, pool.getParallelism());
+            final int[] lineCounts = new int[ranges.length];
+            forEach(pool, ranges.length, k -> lineCounts[k] = lineCount(ranges[k]));
+
+            final int[] rowOffsets = new int[ranges.length + 1];
+            for (int k = 0; k < ranges.length; k++) {
+                rowOffsets[k + 1] = rowOffsets[k] + lineCounts[k];
+            }
+
+            if ((long) rowOffsets[ranges.length] * columnCount > Integer.MAX_VALUE) {
+                throw new IOException(path + " has too many elements for a single matrix");
+            }
+
+            final double[] elements = new double[rowOffsets[ranges.length] * columnCount];
+            final int[] rowCounts = new int[ranges.length];
+            forEach(pool, ranges.length,
+                    k -> rowCounts[k] = parse(ranges[k], elements, rowOffsets[k], columnCount, targets));
+
+            // close the gaps left by blank and filtered out lines
+            int rowCount = 0;
+            for (int k = 0; k < ranges.length; k++) {
+                if (rowCount != rowOffsets[k]) {
+                    System.arraycopy(elements, rowOffsets[k] * columnCount, elements, rowCount * columnCount,
+                            rowCounts[k] * columnCount);
+                }
+
+                rowCount += rowCounts[k];
+            }
+
+            if (rowCount == 0) {
+                throw new IOException(path + " has no data rows");
+            }
+
+            return new DenseGeneralMatrix(new ArrayStore2D(elements, new ArrayStructure2D(rowCount, columnCount)));
+        }
+    }
+
+    /**
+     * Maps the file from <tt>dataStart</tt> on in byte ranges that start on line boundaries, about four per thread
+     * unless the file is small.
+     */
+    static ByteBuffer[] split(FileChannel channel, Path path, long dataStart, int parallelism) throws IOException {
+        final long size = channel.size();
+        final long dataLength = size - dataStart;
+        final int rangeCount = (int) Math.max((dataLength + MAX_RANGE_LENGTH - 1) / MAX_RANGE_LENGTH,
+                Math.min(dataLength / MIN_RANGE_LENGTH, 4L * parallelism));
+
+        final long[] bounds = new long[Math.max(rangeCount, 1) + 1];
+        bounds[0] = dataStart;
+        bounds[bounds.length - 1] = size;
+        for (int k = 1; k < bounds.length - 1; k++) {
+            final long nominal = Math.max(bounds[k - 1], dataStart + dataLength * k / rangeCount);
+            final ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, nominal,
+                    Math.min(size - nominal, MAX_LINE_LENGTH));
+            final int next = nominal == bounds[k - 1] ? 0 : nextLine(window, 0);
+            if (next < 0 && window.limit() == MAX_LINE_LENGTH) {
+                throw new IOException("Line in " + path + " is longer than " + MAX_LINE_LENGTH + " bytes");
+            }
+
+            bounds[k] = next < 0 ? size : nominal + next;
+        }
+
+        final ByteBuffer[] ranges = new ByteBuffer[bounds.length - 1];
+        for (int k = 0; k < ranges.length; k++) {
+            ranges[k] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[k], bounds[k + 1] - bounds[k]);
+        }
+
+        return ranges;
+    }
+
+    static void forEach(ForkJoinPool pool, int rangeCount, IntConsumer action) {
+        try {
+            CompletableFuture.allOf(IntStream.range(0, rangeCount)
+                    .mapToObj(k -> CompletableFuture.runAsync(() -> action.accept(k), pool))
+                    .toArray(CompletableFuture<?>[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    // maps each field of a line to its column in the matrix, or -1 if the field is not selected
+    private int[] targets(int columnCount) {
+        if (columns == null) {
+            return IntStream.range(0, columnCount).toArray();
+        }
+
+        final int[] targets = new int[Arrays.stream(columns).max().orElse(-1) + 1];
+        Arrays.fill(targets, -1);
+        for (int column = 0; column < columns.length; column++) {
+            targets[columns[column]] = column;
+        }
+
+        return targets;
+    }
+
+    // returns the start of the first line from start on that is not blank, which the column count is taken from
+    private static int firstRow(ByteBuffer bytes, int start, Path path) throws IOException {
+        for (int lineStart = start; lineStart < bytes.limit(); ) {
+            final int next = nextLine(bytes, lineStart);
+            final int lineEnd = next < 0 ? bytes.limit() : next;
+            if (!isBlankLine(bytes, lineStart, lineEnd)) {
+                return lineStart;
+            }
+
+            lineStart = lineEnd;
+        }
+
+        throw new IOException(path + " has no data rows in its first " + MAX_LINE_LENGTH + " bytes");
+    }
+
+    private int fieldCount(ByteBuffer bytes, int start) {
+        int count = 1;
+        for (int p = start; p < bytes.limit() && bytes.get(p) != '\n'; p++) {
+            if (bytes.get(p) == delimiter) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private int parse(ByteBuffer bytes, double[] elements, int rowOffset, int columnCount, int[] targets) {
+        final double[] row = new double[columnCount];
+        final int limit = bytes.limit();
+        int rowCount = 0;
+        for (int p = 0; p < limit; ) {
+            Arrays.fill(row, Double.NaN);
+
+            final int lineStart = p;
+            for (int field = 0; ; field++) {
+                final int start = p;
+                while (p < limit && bytes.get(p) != delimiter && bytes.get(p) != '\n') {
+                    p++;
+                }
+
+                if (field < targets.length && targets[field] >= 0) {
+                    row[targets[field]] = parseDouble(bytes, start, p);
+                }
+
+                if (p == limit || bytes.get(p++) == '\n') {
+                    break;
+                }
+            }
+
+            if (!isBlankLine(bytes, lineStart, p) && (rowFilter == null || rowFilter.test(row))) {
+                System.arraycopy(row, 0, elements, (rowOffset + rowCount++) * columnCount, columnCount);
+            }
+        }
+
+        return rowCount;
+    }
+
+    static int lineCount(ByteBuffer bytes) {
+        final int limit = bytes.limit();
+        int count = 0;
+        for (int p = 0; p < limit; p++) {
+            if (bytes.get(p) == '\n') {
+                count++;
+            }
+        }
+
+        return limit > 0 && bytes.get(limit - 1) != '\n' ? count + 1 : count;
+    }
+
+    // returns the position just past the next newline, or -1 if there is none
+    static int nextLine(ByteBuffer bytes, int start) {
+        for (int p = start; p < bytes.limit(); p++) {
+            if (bytes.get(p) == '\n') {
+                return p + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    // true if bytes[start, end) holds nothing but spaces, tabs and line endings
+    static boolean isBlankLine(ByteBuffer bytes, int start, int end) {
+        for (int p = start; p < end; p++) {
+            final byte c = bytes.get(p);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '"';
+    }
+
+    /**
+     * Parses the decimal number in <tt>bytes[start, end)</tt>. Numbers with at most 15 significant digits and a
+     * decimal exponent of at most 22 are computed exactly with a single rounding, anything else falls back on
+     * {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(ByteBuffer bytes, int start, int end) {
+        while (start < end && isBlank(bytes.get(start))) {
+            start++;
+        }
+
+        while (end > start && isBlank(bytes.get(end - 1))) {
+            end--;
+        }
+
+        if (start == end) {
+            return Double.NaN;
+        }
+
+        int p = start;
+        final boolean negative = bytes.get(p) == '-';
+        if (negative || bytes.get(p) == '+') {
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false;
+        for (byte c; p < end && (c = bytes.get(p)) >= '0' && c <= '9'; p++, any = true) {
+            if (digits < 19) {
+                mantissa = 10 * mantissa + (c - '0');
+                digits += mantissa == 0 ? 0 : 1;
+            } else {
+                exponent++;
+            }
+        }
+
+        if (p < end && bytes.get(p) == '.') {
+            for (byte c; ++p < end && (c = bytes.get(p)) >= '0' && c <= '9'; any = true) {
+                if (digits < 19) {
+                    mantissa = 10 * mantissa + (c - '0');
+                    digits += mantissa == 0 ? 0 : 1;
+                    exponent--;
+                }
+            }
+        }
+
+        if (any && p < end && (bytes.get(p) == 'e' || bytes.get(p) == 'E')) {
+            p++;
+            final boolean negativeExponent = p < end && bytes.get(p) == '-';
+            if (p < end && (negativeExponent || bytes.get(p) == '+')) {
+                p++;
+            }
+
+            int e = 0;
+            any = p < end;
+            for (byte c; p < end && (c = bytes.get(p)) >= '0' && c <= '9'; p++) {
+                e = Math.min(10 * e + (c - '0'), 100000);
+            }
+
+            exponent += negativeExponent ? -e : e;
+        }
+
+        if (any && p == end && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            final double value = exponent < 0 ?
+                    mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        final byte[] text = new byte[end - start];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = bytes.get(start + i);
+        }
+
+        final String number = new String(text, StandardCharsets.ISO_8859_1);
+        switch (number.toLowerCase()) {
+            case "nan":
+                return Double.NaN;
+            case "inf":
+            case "+inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return Double.parseDouble(number);
+        }
+    }
+
+    public static class DelimitedFileReaderBuilder {
+        private char delimiter = ',';
+        private boolean skipHeader = false;
+        private int[] columns;
+        private Predicate<double[]> rowFilter;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        /**
+         * Sets the field delimiter, a comma by default; use <tt>'\t'</tt> for TSV files.
+         */
+        public DelimitedFileReaderBuilder setDelimiter(char delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public DelimitedFileReaderBuilder setSkipHeader(boolean skipHeader) {
+            this.skipHeader = skipHeader;
+            return this;
+        }
+
+        /**
+         * Selects the fields, by zero based index, that make up the columns of the matrix and their order. By
+         * default every field of the first data line is a column.
+         */
+        public DelimitedFileReaderBuilder setColumns(int... columns) {
+            this.columns = columns.clone();
+            return this;
+        }
+
+        /**
+         * Sets a filter on the selected columns of each row, rows it rejects are left out of the matrix. The array
+         * passed to the filter is reused for every row of a range.
+         */
+        public DelimitedFileReaderBuilder setRowFilter(Predicate<double[]> rowFilter) {
+            this.rowFilter = rowFilter;
+            return this;
+        }
+
+        public DelimitedFileReaderBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public DelimitedFileReader createDelimitedFileReader() {
+            return new DelimitedFileReader(delimiter, skipHeader, columns, rowFilter, pool);
+        }
+    }
+}
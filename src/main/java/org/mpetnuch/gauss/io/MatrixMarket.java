@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `MatrixMarket.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.matrix.sparse.SparseMatrix;
+import org.mpetnuch.gauss.store.sparse.CompressedStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * Reads and writes real matrices in the Matrix Market exchange format. Coordinate files are read into a
+ * {@link SparseMatrix} in compressed sparse row format, array files into a column-major {@link DenseMatrix}, or a
+ * packed {@link DenseSymmetricMatrix} for the <tt>symmetric</tt> qualifier, whose lower triangle is already laid
+ * out the way LAPACK packs it. Symmetric and skew-symmetric coordinate files are expanded to both triangles.
+ * <p>
+ * The data section is split into byte ranges and parsed in parallel straight into the arrays of the result, see
+ * {@link DelimitedFileReader}; writing formats blocks of lines in parallel and writes them in order.
+ * <tt>integer</tt> and <tt>pattern</tt> files are read as real matrices, <tt>complex</tt> ones are not supported.
+ *
+ * @author Michael Petnuch
+ */
+public final class MatrixMarket {
+    private static final String BANNER = "%%MatrixMarket";
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private MatrixMarket() {
+    }
+
+    private enum Symmetry {
+        General, Symmetric, SkewSymmetric
+    }
+
+    public static Matrix read(Path path) throws IOException {
+        return read(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads a Matrix Market file, parsing its data section in parallel on the given pool.
+     *
+     * @throws IOException if the file cannot be read, is malformed or holds a complex or hermitian matrix
+     */
+    public static Matrix read(Path path, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), Integer.MAX_VALUE));
+
+            int position = DelimitedFileReader.nextLine(head, 0);
+            final String[] banner = line(head, 0, position).toLowerCase(Locale.ROOT).split("\\s+");
+            if (banner.length != 5 || !BANNER.toLowerCase(Locale.ROOT).equals(banner[0]) || !"matrix".equals(banner[1])) {
+                throw new IOException(path + " is not a Matrix Market matrix file");
+            }
+
+            final boolean coordinate = "coordinate".equals(banner[2]);
+            if (!coordinate && !"array".equals(banner[2])) {
+                throw new IOException("Unknown Matrix Market format " + banner[2]);
+            }
+
+            final boolean pattern = "pattern".equals(banner[3]);
+            if (!"real".equals(banner[3]) && !"integer".equals(banner[3]) && !(pattern && coordinate)) {
+                throw new IOException("Unsupported Matrix Market field " + banner[3]);
+            }
+
+            final Symmetry symmetry;
+            switch (banner[4]) {
+                case "general":
+                    symmetry = Symmetry.General;
+                    break;
+                case "symmetric":
+                    symmetry = Symmetry.Symmetric;
+                    break;
+                case "skew-symmetric":
+                    symmetry = Symmetry.SkewSymmetric;
+                    break;
+                default:
+                    throw new IOException("Unsupported Matrix Market symmetry " + banner[4]);
+            }
+
+            // skip the comments, the first other line holds the size
+            String sizeLine = "";
+            while (position > 0 && position < head.limit()) {
+                final int next = DelimitedFileReader.nextLine(head, position);
+                final String line = line(head, position, next < 0 ? head.limit() : next).trim();
+                position = next < 0 ? head.limit() : next;
+                if (!line.isEmpty() && line.charAt(0) != '%') {
+                    sizeLine = line;
+                    break;
+                }
+            }
+
+            final String[] size = sizeLine.split("\\s+");
+            if (size.length != (coordinate ? 3 : 2)) {
+                throw new IOException("Malformed Matrix Market size line '" + sizeLine + "'");
+            }
+
+            final int rowCount = Integer.parseInt(size[0]), columnCount = Integer.parseInt(size[1]);
+            if (Symmetry.General != symmetry && rowCount != columnCount) {
+                throw new IOException("Matrix Market " + banner[4] + " matrix is not square");
+            }
+
+            final ByteBuffer[] ranges = DelimitedFileReader.split(channel, path, position, pool.getParallelism());
+            try {
+                return coordinate ?
+                        readCoordinate(ranges, pool, rowCount, columnCount, Integer.parseInt(size[2]), pattern, symmetry) :
+                        readArray(ranges, pool, rowCount, columnCount, symmetry);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed Matrix Market data in " + path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static SparseMatrix readCoordinate(ByteBuffer[] ranges, ForkJoinPool pool, int rowCount, int columnCount,
+                                               int entryCount, boolean pattern, Symmetry symmetry) throws IOException {
+        final int[] offsets = offsets(ranges, pool);
+        final int capacity = offsets[ranges.length];
+        final int[] rows = new int[capacity], columns = new int[capacity];
+        final double[] values = new double[capacity];
+
+        final int[] counts = new int[ranges.length];
+        DelimitedFileReader.forEach(pool, ranges.length, k -> {
+            final ByteBuffer bytes = ranges[k];
+            int count = offsets[k];
+            for (int p = 0, limit = bytes.limit(); p < limit; p++) {
+                final int lineEnd = lineEnd(bytes, p);
+                int start = skipBlanks(bytes, p, lineEnd);
+                if (start < lineEnd && bytes.get(start) != '%') {
+                    int end = tokenEnd(bytes, start, lineEnd);
+                    rows[count] = parseIndex(bytes, start, end, rowCount);
+                    start = skipBlanks(bytes, end, lineEnd);
+                    end = tokenEnd(bytes, start, lineEnd);
+                    columns[count] = parseIndex(bytes, start, end, columnCount);
+                    values[count++] = pattern ? 1.0 : parseValue(bytes, skipBlanks(bytes, end, lineEnd), lineEnd);
+                }
+
+                p = lineEnd;
+            }
+
+            counts[k] = count - offsets[k];
+        });
+
+        final int count = compact(offsets, counts, rows, columns, values);
+        if (count != entryCount) {
+            throw new IOException("Expected " + entryCount + " Matrix Market entries, found " + count);
+        }
+
+        // a counting sort by column followed by a stable one by row leaves every row sorted by column
+        final double sign = Symmetry.SkewSymmetric == symmetry ? -1.0 : 1.0;
+        final boolean mirrored = Symmetry.General != symmetry;
+        final int[] columnPointers = new int[columnCount + 1];
+        final int[] rowPointers = new int[rowCount + 1];
+        for (int e = 0; e < count; e++) {
+            columnPointers[columns[e] + 1]++;
+            rowPointers[rows[e] + 1]++;
+            if (mirrored && rows[e] != columns[e]) {
+                columnPointers[rows[e] + 1]++;
+                rowPointers[columns[e] + 1]++;
+            }
+        }
+
+        for (int j = 0; j < columnCount; j++) {
+            columnPointers[j + 1] += columnPointers[j];
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+
+        final int nonZeroCount = rowPointers[rowCount];
+        final int[] byColumnRows = new int[nonZeroCount];
+        final double[] byColumnValues = new double[nonZeroCount];
+        final int[] nextInColumn = columnPointers.clone();
+        for (int e = 0; e < count; e++) {
+            final int target = nextInColumn[columns[e]]++;
+            byColumnRows[target] = rows[e];
+            byColumnValues[target] = values[e];
+            if (mirrored && rows[e] != columns[e]) {
+                final int mirror = nextInColumn[rows[e]]++;
+                byColumnRows[mirror] = columns[e];
+                byColumnValues[mirror] = sign * values[e];
+            }
+        }
+
+        final int[] columnIndices = new int[nonZeroCount];
+        final double[] rowValues = new double[nonZeroCount];
+        final int[] nextInRow = rowPointers.clone();
+        for (int j = 0; j < columnCount; j++) {
+            for (int p = columnPointers[j]; p < columnPointers[j + 1]; p++) {
+                final int target = nextInRow[byColumnRows[p]]++;
+                columnIndices[target] = j;
+                rowValues[target] = byColumnValues[p];
+            }
+        }
+
+        return SparseMatrix.csr(rowCount, columnCount, rowPointers, columnIndices, rowValues);
+    }
+
+    private static DenseMatrix readArray(ByteBuffer[] ranges, ForkJoinPool pool, int rowCount, int columnCount,
+                                         Symmetry symmetry) throws IOException {
+        final int[] offsets = offsets(ranges, pool);
+        final double[] values = new double[offsets[ranges.length]];
+        final int[] counts = new int[ranges.length];
+        DelimitedFileReader.forEach(pool, ranges.length, k -> {
+            final ByteBuffer bytes = ranges[k];
+            int count = offsets[k];
+            for (int p = 0, limit = bytes.limit(); p < limit; p++) {
+                final int lineEnd = lineEnd(bytes, p);
+                final int start = skipBlanks(bytes, p, lineEnd);
+                if (start < lineEnd && bytes.get(start) != '%') {
+                    values[count++] = parseValue(bytes, start, lineEnd);
+                }
+
+                p = lineEnd;
+            }
+
+            counts[k] = count - offsets[k];
+        });
+
+        final int count = compact(offsets, counts, null, null, values);
+        final int n = rowCount;
+        final long expected;
+        switch (symmetry) {
+            case Symmetric:
+                expected = (long) n * (n + 1) / 2;
+                break;
+            case SkewSymmetric:
+                expected = (long) n * (n - 1) / 2;
+                break;
+            default:
+                expected = (long) rowCount * columnCount;
+        }
+
+        if (count != expected) {
+            throw new IOException("Expected " + expected + " Matrix Market values, found " + count);
+        }
+
+        switch (symmetry) {
+            case Symmetric:
+                return DenseSymmetricMatrix.fromPacked(count == values.length ? values :
+                        Arrays.copyOf(values, count), n, Triangle.Lower);
+            case SkewSymmetric:
+                if ((long) n * n > Integer.MAX_VALUE) {
+                    throw new IOException("Skew-symmetric Matrix Market array of order " + n + " is too large");
+                }
+
+                final double[] full = new double[n * n];
+                for (int j = 0, position = 0; j < n; j++) {
+                    for (int i = j + 1; i < n; i++, position++) {
+                        full[i + j * n] = values[position];
+                        full[j + i * n] = -values[position];
+                    }
+                }
+
+                return DenseMatrix.from(full, n, n, StorageOrder.ColumnMajor);
+            default:
+                return DenseMatrix.from(count == values.length ? values : Arrays.copyOf(values, count),
+                        rowCount, columnCount, StorageOrder.ColumnMajor);
+        }
+    }
+
+    public static void write(Path path, SparseMatrix matrix) throws IOException {
+        write(path, matrix, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Writes the matrix in coordinate format with the <tt>general</tt> qualifier, formatting on the given pool.
+     */
+    public static void write(Path path, SparseMatrix matrix, ForkJoinPool pool) throws IOException {
+        final CompressedStore2D store = matrix.getStore();
+        final CompressedStructure2D structure = store.structure();
+        final boolean rowMajor = Orientation.Row == store.orientation();
+        final int majorCount = structure.majorCount();
+        final int linesPerBlock = Math.max(1, (int) ((long) BLOCK_SIZE * majorCount / Math.max(1, store.nonZeroCount())));
+
+        final String header = BANNER + " matrix coordinate real general\n" +
+                matrix.getNumberOfRows() + " " + matrix.getNumberOfColumns() + " " + store.nonZeroCount() + "\n";
+
+        write(path, header, (majorCount + linesPerBlock - 1) / linesPerBlock, block -> {
+            final StringBuilder text = new StringBuilder();
+            for (int major = block * linesPerBlock; major < Math.min(majorCount, (block + 1) * linesPerBlock); major++) {
+                for (int position = structure.start(major), end = structure.end(major); position < end; position++) {
+                    final int minor = structure.minor(position);
+                    text.append(rowMajor ? major + 1 : minor + 1).append(' ')
+                            .append(rowMajor ? minor + 1 : major + 1).append(' ')
+                            .append(store.getStored(position)).append('\n');
+                }
+            }
+
+            return text.toString().getBytes(StandardCharsets.ISO_8859_1);
+        }, pool);
+    }
+
+    public static void write(Path path, DenseMatrix matrix) throws IOException {
+        write(path, matrix, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Writes the matrix in array format, symmetric matrices with the <tt>symmetric</tt> qualifier and only their
+     * lower triangle, formatting on the given pool.
+     */
+    public static void write(Path path, DenseMatrix matrix, ForkJoinPool pool) throws IOException {
+        final boolean symmetric = matrix instanceof DenseSymmetricMatrix;
+        final int rowCount = matrix.getNumberOfRows(), columnCount = matrix.getNumberOfColumns();
+        final int columnsPerBlock = Math.max(1, BLOCK_SIZE / Math.max(1, rowCount));
+
+        final String header = BANNER + " matrix array real " + (symmetric ? "symmetric" : "general") + "\n" +
+                rowCount + " " + columnCount + "\n";
+
+        write(path, header, (columnCount + columnsPerBlock - 1) / columnsPerBlock, block -> {
+            final StringBuilder text = new StringBuilder();
+            for (int j = block * columnsPerBlock; j < Math.min(columnCount, (block + 1) * columnsPerBlock); j++) {
+                for (int i = symmetric ? j : 0; i < rowCount; i++) {
+                    text.append(matrix.get(i, j)).append('\n');
+                }
+            }
+
+            return text.toString().getBytes(StandardCharsets.ISO_8859_1);
+        }, pool);
+    }
+
+    // formats the blocks in parallel, keeping a bounded number in flight, and writes them in order
+    private static void write(Path path, String header, int blockCount, IntFunction<byte[]> format,
+                              ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1)));
+
+            final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+            for (int block = 0; block < blockCount || !pending.isEmpty(); ) {
+                while (block < blockCount && pending.size() < 2 * pool.getParallelism()) {
+                    final int next = block++;
+                    pending.add(CompletableFuture.supplyAsync(() -> format.apply(next), pool));
+                }
+
+                writeFully(channel, ByteBuffer.wrap(pending.poll().join()));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // counts the lines of each range in parallel and returns where the entries of each range start
+    private static int[] offsets(ByteBuffer[] ranges, ForkJoinPool pool) throws IOException {
+        final int[] lineCounts = new int[ranges.length];
+        DelimitedFileReader.forEach(pool, ranges.length, k -> lineCounts[k] = DelimitedFileReader.lineCount(ranges[k]));
+
+        final int[] offsets = new int[ranges.length + 1];
+        for (int k = 0; k < ranges.length; k++) {
+            if ((long) offsets[k] + lineCounts[k] > Integer.MAX_VALUE) {
+                throw new IOException("Matrix Market file has too many entries");
+            }
+
+            offsets[k + 1] = offsets[k] + lineCounts[k];
+        }
+
+        return offsets;
+    }
+
+    // moves the entries of each range down so that they follow those of the previous range
+    private static int compact(int[] offsets, int[] counts, int[] rows, int[] columns, double[] values) {
+        int count = 0;
+        for (int k = 0; k < counts.length; k++) {
+            if (count != offsets[k]) {
+                if (rows != null) {
+                    System.arraycopy(rows, offsets[k], rows, count, counts[k]);
+                    System.arraycopy(columns, offsets[k], columns, count, counts[k]);
+                }
+
+                System.arraycopy(values, offsets[k], values, count, counts[k]);
+            }
+
+            count += counts[k];
+        }
+
+        return count;
+    }
+
+    private static String line(ByteBuffer bytes, int start, int end) {
+        final byte[] line = new byte[Math.max(0, end - start)];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = bytes.get(start + i);
+        }
+
+        return new String(line, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    private static int lineEnd(ByteBuffer bytes, int start) {
+        int p = start;
+        while (p < bytes.limit() && bytes.get(p) != '\n') {
+            p++;
+        }
+
+        return p;
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static int skipBlanks(ByteBuffer bytes, int start, int end) {
+        while (start < end && isWhitespace(bytes.get(start))) {
+            start++;
+        }
+
+        return start;
+    }
+
+    private static int tokenEnd(ByteBuffer bytes, int start, int end) {
+        while (start < end && !isWhitespace(bytes.get(start))) {
+            start++;
+        }
+
+        return start;
+    }
+
+    // parses a one based index into a zero based one
+    private static int parseIndex(ByteBuffer bytes, int start, int end, int bound) {
+        if (start == end) {
+            throw new NumberFormatException("missing index");
+        }
+
+        long index = 0;
+        for (int p = start; p < end; p++) {
+            final byte c = bytes.get(p);
+            if (c < '0' || c > '9' || index > bound) {
+                throw new NumberFormatException("bad index " + line(bytes, start, end));
+            }
+
+            index = 10 * index + (c - '0');
+        }
+
+        if (index < 1 || index > bound) {
+            throw new NumberFormatException("index " + index + " out of range [1, " + bound + "]");
+        }
+
+        return (int) index - 1;
+    }
+
+    private static double parseValue(ByteBuffer bytes, int start, int lineEnd) {
+        final int end = tokenEnd(bytes, start, lineEnd);
+        if (start == end) {
+            throw new NumberFormatException("missing value");
+        }
+
+        return DelimitedFileReader.parseDouble(bytes, start, end);
+    }
+}
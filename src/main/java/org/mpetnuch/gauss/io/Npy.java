@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `Npy.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.array.ArrayStore;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.mapped.MappedStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Reads and writes <tt>float64</tt> arrays in the NumPy <tt>.npy</tt> format (versions 1.0 to 3.0) and
+ * <tt>.npz</tt> archives of such arrays. The header's shape and <tt>fortran_order</tt> are translated into the
+ * strides of the array store of matching rank (see {@link ArrayStore#of(double[], int[], int[], int)}), so the
+ * payload is read with a single bulk copy into the array backing the store and is never reordered or scanned; use
+ * {@link #map(Path, boolean)} to work on a two dimensional <tt>.npy</tt> file in place without reading it at all.
+ *
+ * @author Michael Petnuch
+ */
+public final class Npy {
+    private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y'};
+    private static final int ALIGNMENT = 64;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final Pattern DESCR = Pattern.compile("'descr'\\s*:\\s*'([^']*)'");
+    private static final Pattern FORTRAN_ORDER = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+    private static final Pattern SHAPE = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+    private Npy() {
+    }
+
+    public static ArrayStore read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Reads one array from the channel, which is left positioned right after the array.
+     */
+    public static ArrayStore read(ReadableByteChannel channel) throws IOException {
+        final Header header = Header.read(channel);
+        final long size = Arrays.stream(header.shape).asLongStream().reduce(1, (product, n) -> product * n);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Array of shape " + Arrays.toString(header.shape) +
+                    " does not fit in a single array, map it instead");
+        }
+
+        final double[] array = new double[(int) size];
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(header.byteOrder);
+        for (int position = 0; position < array.length; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, (long) (array.length - position) * Double.BYTES));
+            readFully(channel, buffer);
+            buffer.flip();
+
+            final int count = buffer.remaining() / Double.BYTES;
+            buffer.asDoubleBuffer().get(array, position, count);
+            position += count;
+        }
+
+        final int[] shape = header.shape;
+        switch (shape.length) {
+            case 1:
+                return new ArrayStore1D(array, new ArrayStructure1D(shape[0]));
+            case 2:
+                final StorageOrder storageOrder = header.fortranOrder ? StorageOrder.ColumnMajor : StorageOrder.RowMajor;
+                return new ArrayStore2D(array, new ArrayStructure2D(shape[0], shape[1], storageOrder));
+            default:
+                final int[] strides = new int[shape.length];
+                if (header.fortranOrder) {
+                    strides[0] = 1;
+                    for (int i = 1; i < shape.length; i++) {
+                        strides[i] = strides[i - 1] * shape[i - 1];
+                    }
+                } else {
+                    strides[shape.length - 1] = 1;
+                    for (int i = shape.length - 2; i >= 0; i--) {
+                        strides[i] = strides[i + 1] * shape[i + 1];
+                    }
+                }
+
+                return ArrayStore.of(array, shape, strides, 0);
+        }
+    }
+
+    /**
+     * Maps the payload of a one or two dimensional, little-endian <tt>.npy</tt> file without reading it; one
+     * dimensional arrays are mapped as a single row. Arrays in Fortran order are mapped as the transpose of their
+     * column-major payload.
+     *
+     * @throws IOException              if the payload is not little-endian
+     * @throws IllegalArgumentException if the array has more than two dimensions
+     */
+    public static MappedStore2D map(Path path, boolean writable) throws IOException {
+        final Header header;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            header = Header.read(channel);
+        }
+
+        if (ByteOrder.LITTLE_ENDIAN != header.byteOrder) {
+            throw new IOException("Only little-endian arrays can be mapped, found " + header.descr);
+        }
+
+        final int[] shape = header.shape;
+        switch (shape.length) {
+            case 1:
+                return MappedStore2D.open(path, header.length, 1, shape[0], writable);
+            case 2:
+                return header.fortranOrder ?
+                        MappedStore2D.open(path, header.length, shape[1], shape[0], writable).transpose() :
+                        MappedStore2D.open(path, header.length, shape[0], shape[1], writable);
+            default:
+                throw new IllegalArgumentException("Only one and two dimensional arrays can be mapped, found shape " +
+                        Arrays.toString(shape));
+        }
+    }
+
+    public static void write(Path path, Store store) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, store);
+        }
+    }
+
+    /**
+     * Writes the store as a little-endian <tt>float64</tt> array. Column-major array stores are written in Fortran
+     * order, so that their elements are copied in storage order; everything else is written in C order.
+     */
+    public static void write(WritableByteChannel channel, Store store) throws IOException {
+        final boolean fortranOrder = store instanceof ArrayStore2D &&
+                StorageOrder.ColumnMajor == ((ArrayStore2D) store).storageOrder();
+
+        final int[] shape = store.structure().shape();
+        final String shapeText = shape.length == 1 ? "(" + shape[0] + ",)" :
+                Arrays.stream(shape).mapToObj(Integer::toString).collect(Collectors.joining(", ", "(", ")"));
+        final String dictionary = "{'descr': '<f8', 'fortran_order': " + (fortranOrder ? "True" : "False") +
+                ", 'shape': " + shapeText + ", }";
+
+        // the header is padded with spaces and terminated by a newline so that the payload is aligned
+        final int prefixLength = dictionary.length() + 1 + 10 > 0xFFFF ? 12 : 10;
+        final int headerLength = dictionary.length() + 1 +
+                Math.floorMod(-(prefixLength + dictionary.length() + 1), ALIGNMENT);
+
+        final StringBuilder header = new StringBuilder(dictionary);
+        while (header.length() < headerLength - 1) {
+            header.append(' ');
+        }
+
+        header.append('\n');
+
+        final ByteBuffer prefix = ByteBuffer.allocate(prefixLength + headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        prefix.put(MAGIC).put((byte) (prefixLength == 10 ? 1 : 2)).put((byte) 0);
+        if (prefixLength == 10) {
+            prefix.putShort((short) headerLength);
+        } else {
+            prefix.putInt(headerLength);
+        }
+
+        prefix.put(header.toString().getBytes(StandardCharsets.ISO_8859_1));
+        prefix.flip();
+        writeFully(channel, prefix);
+
+        final Spliterator.OfDouble elements = fortranOrder ?
+                ((ArrayStore2D) store).transpose().spliterator() : store.spliterator();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            elements.forEachRemaining((double x) -> {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+
+                buffer.putDouble(x);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * Reads all arrays of an <tt>.npz</tt> archive, compressed or not, keyed by their names without the
+     * <tt>.npy</tt> extension and in the order they appear in the archive.
+     */
+    public static Map<String, ArrayStore> readNpz(Path path) throws IOException {
+        final Map<String, ArrayStore> arrays = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            final ReadableByteChannel channel = Channels.newChannel(zip);
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                final String name = entry.getName();
+                arrays.put(name.endsWith(".npy") ? name.substring(0, name.length() - 4) : name, read(channel));
+            }
+        }
+
+        return arrays;
+    }
+
+    /**
+     * Writes the arrays into an uncompressed <tt>.npz</tt> archive, as <tt>numpy.savez</tt> does.
+     */
+    public static void writeNpz(Path path, Map<String, ? extends Store> arrays) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            final WritableByteChannel channel = Channels.newChannel(zip);
+            for (Map.Entry<String, ? extends Store> entry : arrays.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey() + ".npy"));
+                write(channel, entry.getValue());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            writeFully(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        buffer.clear();
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of .npy data");
+            }
+        }
+    }
+
+    private static final class Header {
+        private final String descr;
+        private final ByteOrder byteOrder;
+        private final boolean fortranOrder;
+        private final int[] shape;
+        private final long length;  // bytes from the start of the file to the payload
+
+        private Header(String descr, ByteOrder byteOrder, boolean fortranOrder, int[] shape, long length) {
+            this.descr = descr;
+            this.byteOrder = byteOrder;
+            this.fortranOrder = fortranOrder;
+            this.shape = shape;
+            this.length = length;
+        }
+
+        private static Header read(ReadableByteChannel channel) throws IOException {
+            final ByteBuffer preamble = ByteBuffer.allocate(MAGIC.length + 2).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, preamble);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (preamble.get(i) != MAGIC[i]) {
+                    throw new IOException("Not a .npy file, bad magic string");
+                }
+            }
+
+            final int majorVersion = preamble.get(MAGIC.length);
+            if (majorVersion < 1 || majorVersion > 3) {
+                throw new IOException("Unsupported .npy format version " + majorVersion);
+            }
+
+            final ByteBuffer headerLength = ByteBuffer.allocate(majorVersion == 1 ? 2 : 4).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, headerLength);
+            final long length = majorVersion == 1 ?
+                    headerLength.getShort(0) & 0xFFFF : headerLength.getInt(0) & 0xFFFFFFFFL;
+
+            final ByteBuffer headerBytes = ByteBuffer.allocate((int) length);
+            readFully(channel, headerBytes);
+            final String header = new String(headerBytes.array(),
+                    majorVersion == 3 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+
+            final String descr = group(DESCR, header);
+            final ByteOrder byteOrder;
+            switch (descr) {
+                case "<f8":
+                    byteOrder = ByteOrder.LITTLE_ENDIAN;
+                    break;
+                case ">f8":
+                    byteOrder = ByteOrder.BIG_ENDIAN;
+                    break;
+                case "=f8":
+                    byteOrder = ByteOrder.nativeOrder();
+                    break;
+                default:
+                    throw new IOException("Unsupported dtype " + descr + ", only float64 arrays are supported");
+            }
+
+            final String shapeText = group(SHAPE, header).trim();
+            final int[] shape = shapeText.isEmpty() ? new int[]{1} : Arrays.stream(shapeText.split(","))
+                    .map(String::trim)
+                    .filter(dimension -> !dimension.isEmpty())
+                    .mapToInt(dimension -> Integer.parseInt(dimension.endsWith("L") ?
+                            dimension.substring(0, dimension.length() - 1) : dimension))
+                    .toArray();
+
+            final boolean fortranOrder = "True".equals(group(FORTRAN_ORDER, header));
+            return new Header(descr, byteOrder, fortranOrder, shape, preamble.capacity() + headerLength.capacity() + length);
+        }
+
+        private static String group(Pattern pattern, String header) throws IOException {
+            final Matcher matcher = pattern.matcher(header);
+            if (!matcher.find()) {
+                throw new IOException("Malformed .npy header: " + header.trim());
+            }
+
+            return matcher.group(1);
+        }
+    }
+}
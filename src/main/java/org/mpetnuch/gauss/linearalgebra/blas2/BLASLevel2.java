@@ -19,11 +19,65 @@
 
 package org.mpetnuch.gauss.linearalgebra.blas2;
 
+import org.mpetnuch.gauss.matrix.*;
+
 /**
  * @author Michael Petnuch
  * @version $Id$
  */
-public interface BLASLevel2 {
+public interface BLASLevel2<General extends Matrix, Triangular extends TriangularMatrix, Symmetric extends SymmetricMatrix, V extends Vector, Builder extends VectorBuilder<? extends V, Builder>> {
+    /**
+     * y := alpha * A * x + beta * y, where A is a general matrix.
+     */
+    void dgemv(double alpha, General a, V x, double beta, Builder y);
+
+    /**
+     * y := alpha * A * x + beta * y, where A is a general matrix ideally stored in band format.
+     */
+    void dgbmv(double alpha, General a, V x, double beta, Builder y);
+
+    /**
+     * y := alpha * A * x + beta * y, where A is symmetric and stored in full.
+     */
+    void dsymv(double alpha, Symmetric a, V x, double beta, Builder y);
+
+    /**
+     * y := A * x, where A is triangular and stored in full.
+     */
+    void dtrmv(Triangular a, V x, Builder y);
+
+    /**
+     * Solves A * y = x, where A is triangular and stored in full.
+     */
+    void dtrsv(Triangular a, V x, Builder y);
+
+    /**
+     * y := alpha * A * x + beta * y, where A is symmetric and ideally stored in packed format.
+     */
+    void dspmv(double alpha, Symmetric a, V x, double beta, Builder y);
+
+    /**
+     * y := A * x, where A is triangular and ideally stored in packed format.
+     */
+    void dtpmv(Triangular a, V x, Builder y);
+
+    /**
+     * Solves A * y = x, where A is triangular and ideally stored in packed format.
+     */
+    void dtpsv(Triangular a, V x, Builder y);
+
+    /**
+     * y := alpha * A * x + beta * y, where A is symmetric and ideally stored in band format.
+     */
+    void dsbmv(double alpha, Symmetric a, V x, double beta, Builder y);
 
+    /**
+     * y := A * x, where A is triangular and ideally stored in band format.
+     */
+    void dtbmv(Triangular a, V x, Builder y);
 
+    /**
+     * Solves A * y = x, where A is triangular and ideally stored in band format.
+     */
+    void dtbsv(Triangular a, V x, Builder y);
 }
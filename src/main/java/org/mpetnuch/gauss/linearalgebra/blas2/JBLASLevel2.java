@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `JBLASLevel2.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.blas2;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.MatrixDiagonalType;
+import org.mpetnuch.gauss.matrix.TriangularMatrixType;
+import org.mpetnuch.gauss.matrix.Vector;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseTriangularMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.matrix.dense.DenseVectorBuilder;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.WindowedStore2D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.store.packed.PackedStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.WindowedStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+import org.mpetnuch.gauss.structure.packed.PackedStructure2D;
+
+/**
+ * Level 2 kernels that work directly against the compressed array when the matrix is backed by a principal
+ * {@link PackedStore2D} window or an aligned {@link BandStore2D} window, and fall back to element access for any
+ * other store. Since the storage format travels with the matrix the full, packed and band entry points share their
+ * implementation, e.g. {@link #dspmv} on a band matrix runs the band kernel and {@link #dsymv} on a full matrix
+ * falls back to element access.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class JBLASLevel2 implements BLASLevel2<DenseMatrix, DenseTriangularMatrix, DenseSymmetricMatrix, DenseVector, DenseVectorBuilder> {
+
+    /**
+     * Returns the store as a triangle of a packed or band matrix whose columns can be walked directly, or
+     * <tt>null</tt> if the kernels have to fall back to element access.
+     */
+    private static WindowedStore2D<?, ?> storedTriangle(Store2D store) {
+        if (store instanceof PackedStore2D) {
+            final PackedStore2D packedStore = (PackedStore2D) store;
+            return packedStore.structure().isPrincipal() ? packedStore : null;
+        } else if (store instanceof BandStore2D) {
+            final BandStructure2D structure = ((BandStore2D) store).structure();
+            final boolean triangle = structure.lowerBandwidth() == 0 || structure.upperBandwidth() == 0;
+            return triangle && structure.isPrincipal() ? (BandStore2D) store : null;
+        }
+
+        return null;
+    }
+
+    private static boolean isUpper(WindowedStructure2D<?> structure) {
+        final Triangle triangle = structure instanceof PackedStructure2D ?
+                ((PackedStructure2D) structure).triangle() : ((BandStructure2D) structure).triangle();
+
+        return Triangle.Upper == triangle;
+    }
+
+    private static int bandwidth(WindowedStructure2D<?> structure) {
+        if (structure instanceof BandStructure2D) {
+            final BandStructure2D bandStructure = (BandStructure2D) structure;
+            return Math.max(bandStructure.lowerBandwidth(), bandStructure.upperBandwidth());
+        }
+
+        return structure.rowCount();
+    }
+
+    private static double[] toArray(Matrix a, Vector x) {
+        if (a.getNumberOfColumns() != x.size()) {
+            throw new DimensionMismatchException(x.size(), a.getNumberOfColumns());
+        }
+
+        return x.toArray();
+    }
+
+    private static void checkLength(Matrix a, DenseVectorBuilder y) {
+        if (a.getNumberOfRows() != y.length()) {
+            throw new DimensionMismatchException(y.length(), a.getNumberOfRows());
+        }
+    }
+
+    private static void update(double alpha, double[] ax, double beta, DenseVectorBuilder y) {
+        y.scale(beta);
+        for (int i = 0; i < ax.length; i++) {
+            y.add(i, alpha * ax[i]);
+        }
+    }
+
+    @Override
+    public void dgemv(double alpha, DenseMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        generalMultiply(alpha, a, x, beta, y);
+    }
+
+    @Override
+    public void dgbmv(double alpha, DenseMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        generalMultiply(alpha, a, x, beta, y);
+    }
+
+    @Override
+    public void dsymv(double alpha, DenseSymmetricMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        symmetricMultiply(alpha, a, x, beta, y);
+    }
+
+    @Override
+    public void dtrmv(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        triangularMultiply(a, x, y);
+    }
+
+    @Override
+    public void dtrsv(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        triangularSolve(a, x, y);
+    }
+
+    @Override
+    public void dspmv(double alpha, DenseSymmetricMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        symmetricMultiply(alpha, a, x, beta, y);
+    }
+
+    @Override
+    public void dsbmv(double alpha, DenseSymmetricMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        symmetricMultiply(alpha, a, x, beta, y);
+    }
+
+    @Override
+    public void dtpmv(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        triangularMultiply(a, x, y);
+    }
+
+    @Override
+    public void dtbmv(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        triangularMultiply(a, x, y);
+    }
+
+    @Override
+    public void dtpsv(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        triangularSolve(a, x, y);
+    }
+
+    @Override
+    public void dtbsv(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        triangularSolve(a, x, y);
+    }
+
+    private static void generalMultiply(double alpha, DenseMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        checkLength(a, y);
+        final int m = a.getNumberOfRows(), n = a.getNumberOfColumns();
+        final double[] xs = toArray(a, x);
+        final double[] ax = new double[m];
+
+        final Store2D store = a.getStore();
+        if (store instanceof BandStore2D && ((BandStore2D) store).structure().isAligned()
+                && !((BandStore2D) store).structure().isSymmetric()) {
+            gbmv((BandStore2D) store, xs, ax);
+        } else if (StorageOrder.ColumnMajor == a.getStorageOrder()) {
+            // walk down the columns so that consecutive reads are adjacent in memory
+            for (int j = 0; j < n; j++) {
+                final double x_j = xs[j];
+                for (int i = 0; i < m; i++) {
+                    ax[i] += a.get(i, j) * x_j;
+                }
+            }
+        } else {
+            for (int i = 0; i < m; i++) {
+                double sum = 0.0;
+                for (int j = 0; j < n; j++) {
+                    sum += a.get(i, j) * xs[j];
+                }
+
+                ax[i] = sum;
+            }
+        }
+
+        update(alpha, ax, beta, y);
+    }
+
+    private static void symmetricMultiply(double alpha, DenseSymmetricMatrix a, DenseVector x, double beta,
+                                          DenseVectorBuilder y) {
+        checkLength(a, y);
+        final int n = a.getNumberOfRows();
+        final double[] xs = toArray(a, x);
+        final double[] ax = new double[n];
+
+        final WindowedStore2D<?, ?> triangle = storedTriangle(a.getStore());
+        if (triangle != null) {
+            symv(triangle, xs, ax);
+        } else {
+            for (int i = 0; i < n; i++) {
+                double sum = 0.0;
+                for (int j = 0; j < n; j++) {
+                    sum += a.get(i, j) * xs[j];
+                }
+
+                ax[i] = sum;
+            }
+        }
+
+        update(alpha, ax, beta, y);
+    }
+
+    private static void triangularMultiply(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        checkLength(a, y);
+        final int n = a.getNumberOfRows();
+        final double[] xs = toArray(a, x);
+        final double[] ax = new double[n];
+        final boolean unit = MatrixDiagonalType.Unit == a.getMatrixDiagonalType();
+
+        final WindowedStore2D<?, ?> triangle = storedTriangle(a.getStore());
+        if (triangle != null) {
+            trmv(triangle, unit, xs, ax);
+        } else {
+            final boolean upper = TriangularMatrixType.UpperTriangular == a.getTriangularMatrixType();
+            for (int i = 0; i < n; i++) {
+                double sum = unit ? xs[i] : a.get(i, i) * xs[i];
+                for (int j = upper ? i + 1 : 0, end = upper ? n : i; j < end; j++) {
+                    sum += a.get(i, j) * xs[j];
+                }
+
+                ax[i] = sum;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            y.set(i, ax[i]);
+        }
+    }
+
+    private static void triangularSolve(DenseTriangularMatrix a, DenseVector x, DenseVectorBuilder y) {
+        checkLength(a, y);
+        final int n = a.getNumberOfRows();
+        final double[] ys = toArray(a, x);
+        final boolean unit = MatrixDiagonalType.Unit == a.getMatrixDiagonalType();
+
+        final WindowedStore2D<?, ?> triangle = storedTriangle(a.getStore());
+        if (triangle != null) {
+            trsv(triangle, unit, ys);
+        } else if (TriangularMatrixType.UpperTriangular == a.getTriangularMatrixType()) {
+            for (int i = n - 1; i >= 0; i--) {
+                double sum = ys[i];
+                for (int j = i + 1; j < n; j++) {
+                    sum -= a.get(i, j) * ys[j];
+                }
+
+                ys[i] = unit ? sum : sum / a.get(i, i);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                double sum = ys[i];
+                for (int j = 0; j < i; j++) {
+                    sum -= a.get(i, j) * ys[j];
+                }
+
+                ys[i] = unit ? sum : sum / a.get(i, i);
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            y.set(i, ys[i]);
+        }
+    }
+
+    /*
+     * The kernels below walk the stored triangle column by column: for column j of the window the stored
+     * elements are the contiguous run stored[base + i] with base = columnStart(offset + j) + offset and i ranging
+     * over [j - bandwidth, j] for the upper triangle or [j, j + bandwidth] for the lower one, clipped to the
+     * window. Packed matrices are simply band matrices whose bandwidth is the order of the matrix.
+     */
+
+    private static void symv(WindowedStore2D<?, ?> a, double[] x, double[] y) {
+        final WindowedStructure2D<?> structure = a.structure();
+        final int n = structure.rowCount(), offset = structure.rowOffset(), bandwidth = bandwidth(structure);
+        final boolean upper = isUpper(structure);
+
+        for (int j = 0; j < n; j++) {
+            final int base = structure.columnStart(offset + j) + offset;
+            final double x_j = x[j];
+
+            double sum = a.getStored(base + j) * x_j;
+            for (int i = upper ? Math.max(0, j - bandwidth) : j + 1, end = upper ? j : Math.min(n, j + bandwidth + 1); i < end; i++) {
+                final double a_ij = a.getStored(base + i);
+                y[i] += a_ij * x_j;
+                sum += a_ij * x[i];
+            }
+
+            y[j] += sum;
+        }
+    }
+
+    private static void trmv(WindowedStore2D<?, ?> a, boolean unit, double[] x, double[] y) {
+        final WindowedStructure2D<?> structure = a.structure();
+        final int n = structure.rowCount(), offset = structure.rowOffset(), bandwidth = bandwidth(structure);
+        final boolean upper = isUpper(structure);
+
+        for (int j = 0; j < n; j++) {
+            final int base = structure.columnStart(offset + j) + offset;
+            final double a_jj = unit ? 1.0 : a.getStored(base + j);
+            final int start = upper ? Math.max(0, j - bandwidth) : j + 1;
+            final int end = upper ? j : Math.min(n, j + bandwidth + 1);
+
+            if (structure.isTransposed()) {
+                // column j of the stored triangle is row j of the transposed matrix
+                double sum = a_jj * x[j];
+                for (int i = start; i < end; i++) {
+                    sum += a.getStored(base + i) * x[i];
+                }
+
+                y[j] = sum;
+            } else {
+                final double x_j = x[j];
+                y[j] += a_jj * x_j;
+                for (int i = start; i < end; i++) {
+                    y[i] += a.getStored(base + i) * x_j;
+                }
+            }
+        }
+    }
+
+    private static void trsv(WindowedStore2D<?, ?> a, boolean unit, double[] y) {
+        final WindowedStructure2D<?> structure = a.structure();
+        final int n = structure.rowCount(), offset = structure.rowOffset(), bandwidth = bandwidth(structure);
+        final boolean upper = isUpper(structure);
+        final boolean transposed = structure.isTransposed();
+
+        // the effective matrix is lower triangular, and so solved by forward substitution, when exactly one of
+        // the stored triangle being lower and the view being transposed holds
+        final boolean forward = upper == transposed;
+        for (int k = 0; k < n; k++) {
+            final int j = forward ? k : n - 1 - k;
+            final int base = structure.columnStart(offset + j) + offset;
+            final int start = upper ? Math.max(0, j - bandwidth) : j + 1;
+            final int end = upper ? j : Math.min(n, j + bandwidth + 1);
+
+            if (transposed) {
+                double sum = y[j];
+                for (int i = start; i < end; i++) {
+                    sum -= a.getStored(base + i) * y[i];
+                }
+
+                y[j] = unit ? sum : sum / a.getStored(base + j);
+            } else {
+                if (!unit) {
+                    y[j] /= a.getStored(base + j);
+                }
+
+                final double y_j = y[j];
+                for (int i = start; i < end; i++) {
+                    y[i] -= a.getStored(base + i) * y_j;
+                }
+            }
+        }
+    }
+
+    private static void gbmv(BandStore2D a, double[] x, double[] y) {
+        final BandStructure2D structure = a.structure();
+        final int offset = structure.rowOffset();
+        final int lowerBandwidth = structure.lowerBandwidth(), upperBandwidth = structure.upperBandwidth();
+        final boolean transposed = structure.isTransposed();
+
+        // the shape of the window as laid out in storage
+        final int m = transposed ? structure.columnCount() : structure.rowCount();
+        final int n = transposed ? structure.rowCount() : structure.columnCount();
+
+        for (int j = 0; j < n; j++) {
+            final int base = structure.columnStart(offset + j) + offset;
+            final int start = Math.max(0, j - upperBandwidth), end = Math.min(m, j + lowerBandwidth + 1);
+
+            if (transposed) {
+                double sum = 0.0;
+                for (int i = start; i < end; i++) {
+                    sum += a.getStored(base + i) * x[i];
+                }
+
+                y[j] = sum;
+            } else {
+                final double x_j = x[j];
+                for (int i = start; i < end; i++) {
+                    y[i] += a.getStored(base + i) * x_j;
+                }
+            }
+        }
+    }
+}
@@ -25,7 +25,11 @@ import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
 import org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder;
 import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
 import org.mpetnuch.gauss.matrix.dense.DenseTriangularMatrix;
+import org.mpetnuch.gauss.store.array.ArrayAccess;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
 
+import java.util.Arrays;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
@@ -114,7 +118,14 @@ public class JBLASLevel3 implements BLASLevel3<DenseMatrix, DenseTriangularMatri
         @Override
         protected void compute() {
             if (largestDimension <= crossoverDimension) {
-                computeDirectly(alpha, a, b, c);
+                if (a.getStore() instanceof ArrayStore2D && b.getStore() instanceof ArrayStore2D) {
+                    computeOnArrays(alpha, ArrayAccess.read((ArrayStore2D) a.getStore()),
+                            ArrayAccess.read((ArrayStore2D) b.getStore()), ArrayAccess.write(c.getStore()));
+                } else if (StorageOrder.ColumnMajor == a.getStorageOrder()) {
+                    computeByColumns(alpha, a, b, c);
+                } else {
+                    computeDirectly(alpha, a, b, c);
+                }
             } else if (M >= Math.max(P, N)) {
                 final int m = M / 2;
                 invokeAll(
@@ -134,6 +145,60 @@ public class JBLASLevel3 implements BLASLevel3<DenseMatrix, DenseTriangularMatri
             }
         }
 
+        /**
+         * Kernel for operands backed by arrays, which runs straight over the arrays. For a column-major <tt>A</tt>
+         * every column of <tt>C</tt> is accumulated as a combination of the columns of <tt>A</tt>, otherwise every
+         * row of <tt>C</tt> as a combination of the rows of <tt>B</tt>.
+         */
+        private void computeOnArrays(double alpha, ArrayAccess a, ArrayAccess b, ArrayAccess c) {
+            final double[] x = a.array(), y = b.array(), z = c.array();
+            final int aRowStride = a.stride(0), bColumnStride = b.stride(1);
+            final int cRowStride = c.stride(0), cColumnStride = c.stride(1);
+
+            if (aRowStride == 1) {
+                for (int j = 0; j < N; j++) {
+                    for (int k = 0; k < P; k++) {
+                        final double b_kj = alpha * y[b.index(k, j)];
+                        int ai = a.index(0, k), ci = c.index(0, j);
+                        for (int i = 0; i < M; i++, ai += aRowStride, ci += cRowStride) {
+                            z[ci] += x[ai] * b_kj;
+                        }
+                    }
+                }
+            } else {
+                for (int i = 0; i < M; i++) {
+                    for (int k = 0; k < P; k++) {
+                        final double a_ik = alpha * x[a.index(i, k)];
+                        int bj = b.index(k, 0), cj = c.index(i, 0);
+                        for (int j = 0; j < N; j++, bj += bColumnStride, cj += cColumnStride) {
+                            z[cj] += a_ik * y[bj];
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Kernel for a column-major <tt>A</tt>: every column of <tt>C</tt> is accumulated as a combination of the
+         * columns of <tt>A</tt>, so the innermost loop walks <tt>A</tt> with unit stride.
+         */
+        private void computeByColumns(double alpha, DenseMatrix a, DenseMatrix b, DenseMatrixBuilder c) {
+            final double[] c_j = new double[M];
+            for (int j = 0; j < N; j++) {
+                Arrays.fill(c_j, 0.0);
+                for (int k = 0; k < P; k++) {
+                    final double b_kj = b.get(k, j);
+                    for (int i = 0; i < M; i++) {
+                        c_j[i] += a.get(i, k) * b_kj;
+                    }
+                }
+
+                for (int i = 0; i < M; i++) {
+                    c.add(i, j, alpha * c_j[i]);
+                }
+            }
+        }
+
         private void computeDirectly(double alpha, DenseMatrix a, DenseMatrix b, DenseMatrixBuilder c) {
             final int m = M / 2, p = P / 2, n = N / 2;
             // todo special logic for smaller matrices
@@ -292,6 +357,8 @@ public class JBLASLevel3 implements BLASLevel3<DenseMatrix, DenseTriangularMatri
 
         private static void computeDirectly(double alpha, DenseTriangularMatrix a, DenseMatrix b, DenseMatrixBuilder c) {
             final int n = a.getNumberOfRows(), p = b.getNumberOfColumns();
+            final ArrayAccess result = ArrayAccess.write(c.getStore());
+            final double[] z = result.array();
 
             final double[] b_j = new double[n];
             for (int j = 0; j < p; j++) {
@@ -303,7 +370,7 @@ public class JBLASLevel3 implements BLASLevel3<DenseMatrix, DenseTriangularMatri
                         sum += a.get(i, k) * b_j[k];
                     }
 
-                    c.add(i, j, alpha * sum);
+                    z[result.index(i, j)] += alpha * sum;
                 }
             }
         }
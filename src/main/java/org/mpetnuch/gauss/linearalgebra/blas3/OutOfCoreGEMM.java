@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OutOfCoreGEMM.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.blas3;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.misc.MathUtils;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.chunked.AbstractChunkedStore2D;
+import org.mpetnuch.gauss.store.mapped.MappedStore2D;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Blocked <tt>C = alpha * A * B + beta * C</tt> for matrices that do not fit in memory, typically
+ * {@link MappedStore2D}s. <tt>C</tt> is computed one tile at a time; the tiles of <tt>A</tt> and <tt>B</tt> needed
+ * for the next step are copied out of their stores on the pool while the current step is multiplied, so page faults
+ * overlap with computation, and every finished tile of <tt>C</tt> is written straight back to its store.
+ * <p>
+ * The tiles of <tt>C</tt> are visited row by row in a serpentine order, and the inner dimension is walked forwards
+ * and backwards on alternate tiles, so that consecutive steps start with the tiles the previous step touched last;
+ * the band of <tt>A</tt> for a row of tiles is reused across the whole row and the band of <tt>B</tt> for a column
+ * of tiles is reused at every turn.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class OutOfCoreGEMM {
+    private final int tileSize;
+    private final ForkJoinPool pool;
+
+    private OutOfCoreGEMM(int tileSize, ForkJoinPool pool) {
+        this.tileSize = tileSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Computes <tt>A * B</tt> into a new matrix mapped from the given file.
+     */
+    public MappedStore2D multiply(Store2D a, Store2D b, Path output) throws IOException {
+        final MappedStore2D c = MappedStore2D.create(output, a.rowCount(), b.columnCount());
+        dgemm(1.0, a, b, 0.0, c);
+        c.force();
+        return c;
+    }
+
+    public void dgemm(double alpha, Store2D a, Store2D b, double beta, AbstractChunkedStore2D<?> c) {
+        if (a.columnCount() != b.rowCount()) {
+            throw new DimensionMismatchException(b.rowCount(), a.columnCount());
+        } else if (a.rowCount() != c.rowCount()) {
+            throw new DimensionMismatchException(c.rowCount(), a.rowCount());
+        } else if (b.columnCount() != c.columnCount()) {
+            throw new DimensionMismatchException(c.columnCount(), b.columnCount());
+        }
+
+        if (a.columnCount() == 0) {
+            c.replaceAll(x -> beta == 0.0 ? 0.0 : beta * x);
+            return;
+        }
+
+        final Schedule schedule = new Schedule(a.rowCount(), a.columnCount(), b.columnCount(), tileSize);
+        Step nextStep = schedule.stepCount() == 0 ? null : schedule.step(0);
+        CompletableFuture<double[][]> next = nextStep == null ? null : load(a, b, nextStep);
+
+        double[] cTile = null;
+        for (long s = 0; s < schedule.stepCount(); s++) {
+            final Step step = nextStep;
+            final double[][] tiles = join(next);
+            nextStep = s + 1 < schedule.stepCount() ? schedule.step(s + 1) : null;
+            next = nextStep == null ? null : load(a, b, nextStep);
+
+            final int rowCount = step.rowEnd - step.rowStart, columnCount = step.columnEnd - step.columnStart;
+            if (step.first) {
+                cTile = beta == 0.0 ? new double[rowCount * columnCount] :
+                        c.slice(step.rowStart, step.rowEnd, step.columnStart, step.columnEnd).toArray();
+                if (beta != 0.0 && beta != 1.0) {
+                    for (int i = 0; i < cTile.length; i++) {
+                        cTile[i] *= beta;
+                    }
+                }
+            }
+
+            pool.invoke(new TileMultiply(alpha, tiles[0], tiles[1], cTile,
+                    step.innerEnd - step.innerStart, columnCount, 0, rowCount));
+
+            if (step.last) {
+                for (int i = 0; i < rowCount; i++) {
+                    for (int j = 0; j < columnCount; j++) {
+                        c.set(step.rowStart + i, step.columnStart + j, cTile[i * columnCount + j]);
+                    }
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<double[][]> load(Store2D a, Store2D b, Step step) {
+        return CompletableFuture.supplyAsync(() -> new double[][]{
+                a.slice(step.rowStart, step.rowEnd, step.innerStart, step.innerEnd).toArray(),
+                b.slice(step.innerStart, step.innerEnd, step.columnStart, step.columnEnd).toArray()
+        }, pool);
+    }
+
+    private static double[][] join(CompletableFuture<double[][]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    public static class OutOfCoreGEMMBuilder {
+        private int tileSize = 1024;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public OutOfCoreGEMMBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the edge length of the square tiles, three tiles of this size are held in memory at a time plus
+         * the two being prefetched.
+         */
+        public OutOfCoreGEMMBuilder setTileSize(int tileSize) {
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("Tile size must be positive");
+            }
+
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        public OutOfCoreGEMM createOutOfCoreGEMM() {
+            return new OutOfCoreGEMM(tileSize, pool);
+        }
+    }
+
+    /**
+     * The serpentine order of the steps, computed from the step index so that only the current and the prefetched
+     * step exist at any time.
+     */
+    private static final class Schedule {
+        private final int m, p, n, tileSize;
+        private final int innerTiles, columnTiles;
+        private final long stepCount;
+
+        private Schedule(int m, int p, int n, int tileSize) {
+            this.m = m;
+            this.p = p;
+            this.n = n;
+            this.tileSize = tileSize;
+            this.innerTiles = MathUtils.ceilDiv(p, tileSize);
+            this.columnTiles = MathUtils.ceilDiv(n, tileSize);
+            this.stepCount = (long) MathUtils.ceilDiv(m, tileSize) * columnTiles * innerTiles;
+        }
+
+        private long stepCount() {
+            return stepCount;
+        }
+
+        private Step step(long index) {
+            // tiles of C row by row, alternating direction, and the inner dimension alternating on every tile
+            final long tile = index / innerTiles;
+            final int s = (int) (index % innerTiles);
+            final int I = (int) (tile / columnTiles), t = (int) (tile % columnTiles);
+            final int J = I % 2 == 0 ? t : columnTiles - 1 - t;
+            final int K = tile % 2 == 0 ? s : innerTiles - 1 - s;
+            return new Step(
+                    I * tileSize, end(I, m),
+                    J * tileSize, end(J, n),
+                    K * tileSize, end(K, p),
+                    s == 0, s == innerTiles - 1);
+        }
+
+        private int end(int tile, int length) {
+            return (int) Math.min(length, (tile + 1L) * tileSize);
+        }
+    }
+
+    private static final class Step {
+        private final int rowStart, rowEnd, columnStart, columnEnd, innerStart, innerEnd;
+        private final boolean first, last;
+
+        private Step(int rowStart, int rowEnd, int columnStart, int columnEnd, int innerStart, int innerEnd,
+                     boolean first, boolean last) {
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.columnStart = columnStart;
+            this.columnEnd = columnEnd;
+            this.innerStart = innerStart;
+            this.innerEnd = innerEnd;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    /**
+     * Multiplies row-major tiles, <tt>c += alpha * a * b</tt>, splitting over the rows of <tt>c</tt>.
+     */
+    private static final class TileMultiply extends RecursiveAction {
+        private static final long serialVersionUID = 6510282393467409127L;
+        private static final int ROW_GRAIN = 64;
+
+        private final double alpha;
+        private final double[] a, b, c;
+        private final int innerCount, columnCount, rowStart, rowEnd;
+
+        private TileMultiply(double alpha, double[] a, double[] b, double[] c,
+                             int innerCount, int columnCount, int rowStart, int rowEnd) {
+            this.alpha = alpha;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.innerCount = innerCount;
+            this.columnCount = columnCount;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart > ROW_GRAIN) {
+                final int middle = (rowStart + rowEnd) >>> 1;
+                invokeAll(new TileMultiply(alpha, a, b, c, innerCount, columnCount, rowStart, middle),
+                        new TileMultiply(alpha, a, b, c, innerCount, columnCount, middle, rowEnd));
+                return;
+            }
+
+            for (int i = rowStart; i < rowEnd; i++) {
+                final int cRow = i * columnCount;
+                for (int k = 0; k < innerCount; k++) {
+                    final double a_ik = alpha * a[i * innerCount + k];
+                    final int bRow = k * columnCount;
+                    for (int j = 0; j < columnCount; j++) {
+                        c[cRow + j] += a_ik * b[bRow + j];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `BandCholeskyDecomposition.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.decomposition;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.NonPositiveDefiniteMatrixException;
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.Vector;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+
+/**
+ * Cholesky decomposition, <tt>A = L * L<sup>T</sup></tt>, of a symmetric positive definite band matrix with
+ * <tt>k</tt> off-diagonals on either side, following LAPACK's <tt>dpbtf2</tt>. Factoring takes
+ * <tt>O(n * k<sup>2</sup>)</tt> operations and every solve <tt>O(n * k)</tt>.
+ * <p>
+ * The factor <tt>L</tt> has the same bandwidth as <tt>A</tt> and is kept in lower band format, element
+ * <tt>(i, j)</tt> living at <tt>i - j + j * (k + 1)</tt>.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public final class BandCholeskyDecomposition {
+    private final int order, bandwidth;
+    private final double[] factor;
+
+    private BandCholeskyDecomposition(int order, int bandwidth) {
+        this.order = order;
+        this.bandwidth = bandwidth;
+        this.factor = new double[BandStructure2D.bandLength(order, bandwidth, 0)];
+    }
+
+    /**
+     * Decomposes <tt>a</tt>, taking the bandwidth from its store when the matrix is stored in band format and
+     * treating it as a full matrix otherwise.
+     *
+     * @throws NonPositiveDefiniteMatrixException if <tt>a</tt> is not positive definite
+     */
+    public static BandCholeskyDecomposition decompose(DenseSymmetricMatrix a) {
+        final Store2D store = a.getStore();
+        if (store instanceof BandStore2D) {
+            return decompose(a, ((BandStore2D) store).structure().windowLowerBandwidth());
+        }
+
+        return decompose(a, a.getNumberOfRows() - 1);
+    }
+
+    /**
+     * Decomposes the symmetric matrix <tt>a</tt>, only the diagonal and the <tt>bandwidth</tt> sub-diagonals of its
+     * lower triangle are read.
+     *
+     * @throws NonPositiveDefiniteMatrixException if <tt>a</tt> is not positive definite
+     */
+    public static BandCholeskyDecomposition decompose(Matrix a, int bandwidth) {
+        final int n = a.getNumberOfRows();
+        if (a.getNumberOfColumns() != n) {
+            throw new DimensionMismatchException(a.getNumberOfColumns(), n);
+        }
+
+        final int k = Math.max(0, Math.min(bandwidth, n - 1));
+        final BandCholeskyDecomposition cholesky = new BandCholeskyDecomposition(n, k);
+        for (int j = 0; j < n; j++) {
+            final int base = cholesky.columnStart(j);
+            for (int i = j, end = Math.min(n, j + k + 1); i < end; i++) {
+                cholesky.factor[base + i] = a.get(i, j);
+            }
+        }
+
+        cholesky.factor();
+        return cholesky;
+    }
+
+    private int columnStart(int column) {
+        return column * bandwidth;
+    }
+
+    private void factor() {
+        final int n = order, k = bandwidth;
+        for (int j = 0; j < n; j++) {
+            final int base = columnStart(j);
+            final double a_jj = factor[base + j];
+            if (!(a_jj > 0.0)) {
+                throw new NonPositiveDefiniteMatrixException(j);
+            }
+
+            final double l_jj = Math.sqrt(a_jj);
+            factor[base + j] = l_jj;
+
+            final int count = Math.min(k, n - 1 - j);
+            for (int t = 1; t <= count; t++) {
+                factor[base + j + t] /= l_jj;
+            }
+
+            // rank one update of the trailing block that is still inside the band
+            for (int c = 1; c <= count; c++) {
+                final int column = columnStart(j + c);
+                final double l_cj = factor[base + j + c];
+                for (int r = c; r <= count; r++) {
+                    factor[column + j + r] -= factor[base + j + r] * l_cj;
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves <tt>A * x = b</tt> for <tt>x</tt>.
+     */
+    public DenseVector solve(Vector b) {
+        if (b.size() != order) {
+            throw new DimensionMismatchException(b.size(), order);
+        }
+
+        final double[] x = b.toArray();
+        solveInPlace(x);
+        return new DenseVector(new ArrayStore1D(x, new ArrayStructure1D(order)));
+    }
+
+    /**
+     * Solves <tt>A * X = B</tt> for <tt>X</tt>, one column of <tt>B</tt> at a time.
+     */
+    public DenseMatrix solve(Matrix b) {
+        if (b.getNumberOfRows() != order) {
+            throw new DimensionMismatchException(b.getNumberOfRows(), order);
+        }
+
+        final int columnCount = b.getNumberOfColumns();
+        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(order, columnCount);
+        final double[] x = new double[order];
+        for (int c = 0; c < columnCount; c++) {
+            for (int i = 0; i < order; i++) {
+                x[i] = b.get(i, c);
+            }
+
+            solveInPlace(x);
+            for (int i = 0; i < order; i++) {
+                resultBuilder.set(i, c, x[i]);
+            }
+        }
+
+        return resultBuilder.build();
+    }
+
+    private void solveInPlace(double[] x) {
+        final int n = order, k = bandwidth;
+
+        // L * y = b
+        for (int j = 0; j < n; j++) {
+            final int base = columnStart(j);
+            x[j] /= factor[base + j];
+
+            final double x_j = x[j];
+            for (int i = j + 1, end = Math.min(n, j + k + 1); i < end; i++) {
+                x[i] -= factor[base + i] * x_j;
+            }
+        }
+
+        // L^T * x = y
+        for (int j = n - 1; j >= 0; j--) {
+            final int base = columnStart(j);
+
+            double sum = x[j];
+            for (int i = j + 1, end = Math.min(n, j + k + 1); i < end; i++) {
+                sum -= factor[base + i] * x[i];
+            }
+
+            x[j] = sum / factor[base + j];
+        }
+    }
+
+    /**
+     * Returns the determinant of <tt>A</tt>, the square of the product of the diagonal of <tt>L</tt>.
+     */
+    public double determinant() {
+        double product = 1.0;
+        for (int j = 0; j < order; j++) {
+            product *= factor[columnStart(j) + j];
+        }
+
+        return product * product;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+}
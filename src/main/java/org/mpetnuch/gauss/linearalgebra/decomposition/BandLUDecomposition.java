@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `BandLUDecomposition.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.decomposition;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.SingularMatrixException;
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.Vector;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+
+/**
+ * LU decomposition with partial pivoting, <tt>P * A = L * U</tt>, of a square band matrix with <tt>kl</tt>
+ * sub-diagonals and <tt>ku</tt> super-diagonals, following LAPACK's <tt>dgbtf2</tt>. Factoring takes
+ * <tt>O(n * kl * (kl + ku))</tt> operations and every solve <tt>O(n * (2 * kl + ku))</tt>.
+ * <p>
+ * The factors are kept in band format with <tt>2 * kl + ku + 1</tt> elements per column: row interchanges let
+ * <tt>U</tt> fill in up to <tt>kl + ku</tt> super-diagonals, while the multipliers of <tt>L</tt> take the
+ * <tt>kl</tt> sub-diagonals.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public final class BandLUDecomposition {
+    private final int order, lowerBandwidth, leadingDimension;
+    // number of super-diagonals of U, including the fill-in caused by pivoting
+    private final int factorBandwidth;
+    private final double[] factors;
+    private final int[] pivots;
+
+    private BandLUDecomposition(int order, int lowerBandwidth, int upperBandwidth) {
+        this.order = order;
+        this.lowerBandwidth = lowerBandwidth;
+        this.factorBandwidth = lowerBandwidth + upperBandwidth;
+        this.leadingDimension = 2 * lowerBandwidth + upperBandwidth + 1;
+        this.factors = new double[BandStructure2D.bandLength(order, lowerBandwidth, lowerBandwidth + upperBandwidth)];
+        this.pivots = new int[order];
+    }
+
+    /**
+     * Decomposes <tt>a</tt>, taking the bandwidths from its store when the matrix is stored in band format and
+     * treating it as a full matrix otherwise.
+     *
+     * @throws SingularMatrixException if a pivot is exactly zero
+     */
+    public static BandLUDecomposition decompose(DenseMatrix a) {
+        final Store2D store = a.getStore();
+        if (store instanceof BandStore2D) {
+            final BandStructure2D structure = ((BandStore2D) store).structure();
+            return decompose(a, structure.windowLowerBandwidth(), structure.windowUpperBandwidth());
+        }
+
+        return decompose(a, a.getNumberOfRows() - 1, a.getNumberOfColumns() - 1);
+    }
+
+    /**
+     * Decomposes <tt>a</tt>, whose elements outside of the given band are assumed to be zero and never read.
+     *
+     * @throws SingularMatrixException if a pivot is exactly zero
+     */
+    public static BandLUDecomposition decompose(Matrix a, int lowerBandwidth, int upperBandwidth) {
+        final int n = a.getNumberOfRows();
+        if (a.getNumberOfColumns() != n) {
+            throw new DimensionMismatchException(a.getNumberOfColumns(), n);
+        }
+
+        final int kl = Math.max(0, Math.min(lowerBandwidth, n - 1));
+        final int ku = Math.max(0, Math.min(upperBandwidth, n - 1));
+        final BandLUDecomposition lu = new BandLUDecomposition(n, kl, ku);
+        for (int j = 0; j < n; j++) {
+            for (int i = Math.max(0, j - ku), end = Math.min(n, j + kl + 1); i < end; i++) {
+                lu.factors[lu.index(i, j)] = a.get(i, j);
+            }
+        }
+
+        lu.factor();
+        return lu;
+    }
+
+    private int index(int row, int column) {
+        return factorBandwidth + row - column + column * leadingDimension;
+    }
+
+    private void factor() {
+        final int n = order, kl = lowerBandwidth;
+
+        // last column touched by the row interchanges so far
+        int lastColumn = 0;
+        for (int j = 0; j < n; j++) {
+            final int diagonal = index(j, j);
+            final int count = Math.min(kl, n - 1 - j);
+
+            int pivot = 0;
+            double max = Math.abs(factors[diagonal]);
+            for (int t = 1; t <= count; t++) {
+                final double candidate = Math.abs(factors[diagonal + t]);
+                if (candidate > max) {
+                    max = candidate;
+                    pivot = t;
+                }
+            }
+
+            pivots[j] = j + pivot;
+            if (factors[diagonal + pivot] == 0.0) {
+                throw new SingularMatrixException(j);
+            }
+
+            lastColumn = Math.max(lastColumn, Math.min(j + factorBandwidth - kl + pivot, n - 1));
+            if (pivot != 0) {
+                for (int c = j; c <= lastColumn; c++) {
+                    final int row = index(j, c);
+                    final double swap = factors[row];
+                    factors[row] = factors[row + pivot];
+                    factors[row + pivot] = swap;
+                }
+            }
+
+            final double inverse = 1.0 / factors[diagonal];
+            for (int t = 1; t <= count; t++) {
+                factors[diagonal + t] *= inverse;
+            }
+
+            for (int c = j + 1; c <= lastColumn; c++) {
+                final int row = index(j, c);
+                final double a_jc = factors[row];
+                if (a_jc != 0.0) {
+                    for (int t = 1; t <= count; t++) {
+                        factors[row + t] -= factors[diagonal + t] * a_jc;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves <tt>A * x = b</tt> for <tt>x</tt>.
+     */
+    public DenseVector solve(Vector b) {
+        if (b.size() != order) {
+            throw new DimensionMismatchException(b.size(), order);
+        }
+
+        final double[] x = b.toArray();
+        solveInPlace(x);
+        return new DenseVector(new ArrayStore1D(x, new ArrayStructure1D(order)));
+    }
+
+    /**
+     * Solves <tt>A * X = B</tt> for <tt>X</tt>, one column of <tt>B</tt> at a time.
+     */
+    public DenseMatrix solve(Matrix b) {
+        if (b.getNumberOfRows() != order) {
+            throw new DimensionMismatchException(b.getNumberOfRows(), order);
+        }
+
+        final int columnCount = b.getNumberOfColumns();
+        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(order, columnCount);
+        final double[] x = new double[order];
+        for (int c = 0; c < columnCount; c++) {
+            for (int i = 0; i < order; i++) {
+                x[i] = b.get(i, c);
+            }
+
+            solveInPlace(x);
+            for (int i = 0; i < order; i++) {
+                resultBuilder.set(i, c, x[i]);
+            }
+        }
+
+        return resultBuilder.build();
+    }
+
+    private void solveInPlace(double[] x) {
+        final int n = order, kl = lowerBandwidth, ku = factorBandwidth;
+
+        // L * y = P * b
+        for (int j = 0; j < n - 1; j++) {
+            final int pivot = pivots[j];
+            if (pivot != j) {
+                final double swap = x[j];
+                x[j] = x[pivot];
+                x[pivot] = swap;
+            }
+
+            final int diagonal = index(j, j);
+            final double x_j = x[j];
+            for (int t = 1, count = Math.min(kl, n - 1 - j); t <= count; t++) {
+                x[j + t] -= factors[diagonal + t] * x_j;
+            }
+        }
+
+        // U * x = y
+        for (int j = n - 1; j >= 0; j--) {
+            final int base = index(0, j);
+            x[j] /= factors[base + j];
+
+            final double x_j = x[j];
+            for (int i = Math.max(0, j - ku); i < j; i++) {
+                x[i] -= factors[base + i] * x_j;
+            }
+        }
+    }
+
+    /**
+     * Returns the determinant of <tt>A</tt>, the product of the diagonal of <tt>U</tt> signed by the parity of
+     * the row interchanges.
+     */
+    public double determinant() {
+        double determinant = 1.0;
+        for (int j = 0; j < order; j++) {
+            determinant *= pivots[j] == j ? factors[index(j, j)] : -factors[index(j, j)];
+        }
+
+        return determinant;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public int[] getPivots() {
+        return pivots.clone();
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `JSparseBLAS.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.sparse;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.matrix.dense.DenseVectorBuilder;
+import org.mpetnuch.gauss.matrix.sparse.SparseMatrix;
+import org.mpetnuch.gauss.store.sparse.CompressedStore2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join implementation of the sparse kernels. Work is split over the major lines of the sparse matrix until
+ * a task holds at most <tt>grainSize</tt> non-zero elements.
+ * <p>
+ * CSR matrices are split by rows, so every task owns a disjoint block of the output. CSC matrices scatter every
+ * column into the whole output: the matrix-vector product sums per task partial results, while the matrix-matrix
+ * product is split over the columns of the output instead.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class JSparseBLAS implements SparseBLAS<SparseMatrix, DenseMatrix, DenseVector, DenseVectorBuilder, DenseMatrixBuilder> {
+    private final int grainSize;
+    private final ForkJoinPool pool;
+
+    private JSparseBLAS(int grainSize, ForkJoinPool pool) {
+        this.grainSize = grainSize;
+        this.pool = pool;
+    }
+
+    @Override
+    public void dusmv(double alpha, SparseMatrix a, DenseVector x, double beta, DenseVectorBuilder y) {
+        if (a.getNumberOfColumns() != x.size()) {
+            throw new DimensionMismatchException(x.size(), a.getNumberOfColumns());
+        } else if (a.getNumberOfRows() != y.length()) {
+            throw new DimensionMismatchException(y.length(), a.getNumberOfRows());
+        }
+
+        final CompressedStore2D store = a.getStore();
+        final double[] xs = x.toArray();
+        y.scale(beta);
+
+        if (Orientation.Row == store.orientation()) {
+            pool.invoke(new RowVectorMultiply(store, alpha, xs, y, 0, store.rowCount(), grainSize));
+        } else {
+            // every task allocates a partial result, so keep their number in line with the parallelism
+            final int grain = Math.max(grainSize, store.nonZeroCount() / (4 * pool.getParallelism()));
+            final double[] ax = pool.invoke(new ColumnVectorMultiply(store, xs, 0, store.columnCount(), grain));
+            for (int i = 0; i < ax.length; i++) {
+                y.add(i, alpha * ax[i]);
+            }
+        }
+    }
+
+    @Override
+    public void dusmm(double alpha, SparseMatrix a, DenseMatrix b, double beta, DenseMatrixBuilder c) {
+        if (a.getNumberOfColumns() != b.getNumberOfRows()) {
+            throw new DimensionMismatchException(b.getNumberOfRows(), a.getNumberOfColumns());
+        } else if (a.getNumberOfRows() != c.getStore().rowCount()) {
+            throw new DimensionMismatchException(c.getStore().rowCount(), a.getNumberOfRows());
+        } else if (b.getNumberOfColumns() != c.getStore().columnCount()) {
+            throw new DimensionMismatchException(c.getStore().columnCount(), b.getNumberOfColumns());
+        }
+
+        final CompressedStore2D store = a.getStore();
+        final int n = b.getNumberOfColumns();
+        final double[] bs = b.getStore().toArray();
+        c.scale(beta);
+
+        if (Orientation.Row == store.orientation()) {
+            pool.invoke(new RowMatrixMultiply(store, alpha, bs, n, c, 0, store.rowCount(), grainSize));
+        } else {
+            pool.invoke(new ColumnMatrixMultiply(store, alpha, bs, n, c, 0, n, grainSize, store.nonZeroCount()));
+        }
+    }
+
+    public static class JSparseBLASBuilder {
+        private int grainSize = 1 << 14;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public JSparseBLASBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public JSparseBLASBuilder setGrainSize(int grainSize) {
+            this.grainSize = grainSize;
+            return this;
+        }
+
+        public JSparseBLAS createJSparseBLAS() {
+            return new JSparseBLAS(grainSize, pool);
+        }
+    }
+
+    // approximate number of non-zero elements of the major lines [from, to), ignoring the minor window
+    private static int nonZeroCount(CompressedStructure2D structure, int from, int to) {
+        return from < to ? structure.end(to - 1) - structure.start(from) : 0;
+    }
+
+    private static final class RowVectorMultiply extends RecursiveAction {
+        private static final long serialVersionUID = 6158216734052915716L;
+
+        private final CompressedStore2D a;
+        private final double alpha;
+        private final double[] x;
+        private final DenseVectorBuilder y;
+        private final int from, to, grainSize;
+
+        private RowVectorMultiply(CompressedStore2D a, double alpha, double[] x, DenseVectorBuilder y,
+                                  int from, int to, int grainSize) {
+            this.a = a;
+            this.alpha = alpha;
+            this.x = x;
+            this.y = y;
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+        }
+
+        @Override
+        protected void compute() {
+            final CompressedStructure2D structure = a.structure();
+            if (to - from > 1 && nonZeroCount(structure, from, to) > grainSize) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RowVectorMultiply(a, alpha, x, y, from, mid, grainSize),
+                        new RowVectorMultiply(a, alpha, x, y, mid, to, grainSize));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                double sum = 0.0;
+                for (int position = structure.start(i), end = structure.end(i); position < end; position++) {
+                    sum += a.getStored(position) * x[structure.minor(position)];
+                }
+
+                y.add(i, alpha * sum);
+            }
+        }
+    }
+
+    private static final class ColumnVectorMultiply extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = -3403497326421906624L;
+
+        private final CompressedStore2D a;
+        private final double[] x;
+        private final int from, to, grainSize;
+
+        private ColumnVectorMultiply(CompressedStore2D a, double[] x, int from, int to, int grainSize) {
+            this.a = a;
+            this.x = x;
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+        }
+
+        @Override
+        protected double[] compute() {
+            final CompressedStructure2D structure = a.structure();
+            if (to - from > 1 && nonZeroCount(structure, from, to) > grainSize) {
+                final int mid = (from + to) >>> 1;
+                final ColumnVectorMultiply left = new ColumnVectorMultiply(a, x, from, mid, grainSize);
+                left.fork();
+
+                final double[] y = new ColumnVectorMultiply(a, x, mid, to, grainSize).compute();
+                final double[] leftY = left.join();
+                for (int i = 0; i < y.length; i++) {
+                    y[i] += leftY[i];
+                }
+
+                return y;
+            }
+
+            final double[] y = new double[structure.minorCount()];
+            for (int j = from; j < to; j++) {
+                final double x_j = x[j];
+                for (int position = structure.start(j), end = structure.end(j); position < end; position++) {
+                    y[structure.minor(position)] += a.getStored(position) * x_j;
+                }
+            }
+
+            return y;
+        }
+    }
+
+    private static final class RowMatrixMultiply extends RecursiveAction {
+        private static final long serialVersionUID = 2839169616236707140L;
+
+        private final CompressedStore2D a;
+        private final double alpha;
+        private final double[] b;
+        private final DenseMatrixBuilder c;
+        private final int n, from, to, grainSize;
+
+        private RowMatrixMultiply(CompressedStore2D a, double alpha, double[] b, int n, DenseMatrixBuilder c,
+                                  int from, int to, int grainSize) {
+            this.a = a;
+            this.alpha = alpha;
+            this.b = b;
+            this.n = n;
+            this.c = c;
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+        }
+
+        @Override
+        protected void compute() {
+            final CompressedStructure2D structure = a.structure();
+            if (to - from > 1 && (long) nonZeroCount(structure, from, to) * n > grainSize) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RowMatrixMultiply(a, alpha, b, n, c, from, mid, grainSize),
+                        new RowMatrixMultiply(a, alpha, b, n, c, mid, to, grainSize));
+                return;
+            }
+
+            final double[] c_i = new double[n];
+            for (int i = from; i < to; i++) {
+                for (int position = structure.start(i), end = structure.end(i); position < end; position++) {
+                    final double a_ik = a.getStored(position);
+                    final int offset = structure.minor(position) * n;
+                    for (int j = 0; j < n; j++) {
+                        c_i[j] += a_ik * b[offset + j];
+                    }
+                }
+
+                for (int j = 0; j < n; j++) {
+                    c.add(i, j, alpha * c_i[j]);
+                    c_i[j] = 0.0;
+                }
+            }
+        }
+    }
+
+    private static final class ColumnMatrixMultiply extends RecursiveAction {
+        private static final long serialVersionUID = -1744939498710093012L;
+
+        private final CompressedStore2D a;
+        private final double alpha;
+        private final double[] b;
+        private final DenseMatrixBuilder c;
+        private final int n, from, to, grainSize, nonZeroCount;
+
+        private ColumnMatrixMultiply(CompressedStore2D a, double alpha, double[] b, int n, DenseMatrixBuilder c,
+                                     int from, int to, int grainSize, int nonZeroCount) {
+            this.a = a;
+            this.alpha = alpha;
+            this.b = b;
+            this.n = n;
+            this.c = c;
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+            this.nonZeroCount = nonZeroCount;
+        }
+
+        @Override
+        protected void compute() {
+            final CompressedStructure2D structure = a.structure();
+            final int width = to - from;
+            if (width > 1 && (long) nonZeroCount * width > grainSize) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ColumnMatrixMultiply(a, alpha, b, n, c, from, mid, grainSize, nonZeroCount),
+                        new ColumnMatrixMultiply(a, alpha, b, n, c, mid, to, grainSize, nonZeroCount));
+                return;
+            }
+
+            // columns [from, to) of C, stored row by row
+            final int m = structure.minorCount();
+            final double[] c_j = new double[m * width];
+            for (int k = 0, p = structure.majorCount(); k < p; k++) {
+                final int offset = k * n + from;
+                for (int position = structure.start(k), end = structure.end(k); position < end; position++) {
+                    final double a_ik = a.getStored(position);
+                    final int row = structure.minor(position) * width;
+                    for (int j = 0; j < width; j++) {
+                        c_j[row + j] += a_ik * b[offset + j];
+                    }
+                }
+            }
+
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < width; j++) {
+                    c.add(i, from + j, alpha * c_j[i * width + j]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `SparseBLAS.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.sparse;
+
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.MatrixBuilder;
+import org.mpetnuch.gauss.matrix.Vector;
+import org.mpetnuch.gauss.matrix.VectorBuilder;
+
+/**
+ * Kernels that multiply a sparse matrix with dense operands, named after their Sparse BLAS counterparts.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public interface SparseBLAS<Sparse extends Matrix, Dense extends Matrix, V extends Vector, VBuilder extends VectorBuilder<? extends V, VBuilder>, MBuilder extends MatrixBuilder<? extends Dense, MBuilder>> {
+    /**
+     * y := alpha * A * x + beta * y, where A is sparse.
+     */
+    void dusmv(double alpha, Sparse a, V x, double beta, VBuilder y);
+
+    /**
+     * C := alpha * A * B + beta * C, where A is sparse and B is dense.
+     */
+    void dusmm(double alpha, Sparse a, Dense b, double beta, MBuilder c);
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DenseDiagonalMatrix.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.dense;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.SingularMatrixException;
+import org.mpetnuch.gauss.matrix.MatrixDiagonalType;
+import org.mpetnuch.gauss.matrix.SymmetricMatrix;
+import org.mpetnuch.gauss.matrix.TriangularMatrixType;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+
+/**
+ * Square matrix whose only non-zero elements are on the diagonal. Only the diagonal is stored, as a band matrix
+ * without any sub- or super-diagonals, and products, solves and the inverse all take a single pass over the
+ * operands.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class DenseDiagonalMatrix extends DenseTriangularMatrix implements SymmetricMatrix {
+    private static final long serialVersionUID = 2096251713395047337L;
+
+    DenseDiagonalMatrix(Store2D store, MatrixDiagonalType matrixDiagonalType) {
+        super(store, TriangularMatrixType.UpperTriangular, matrixDiagonalType);
+    }
+
+    /**
+     * Wraps the given diagonal, the array is not copied.
+     */
+    public static DenseDiagonalMatrix fromDiagonal(double... diagonal) {
+        boolean unit = true;
+        for (double d : diagonal) {
+            unit = unit && d == 1.0;
+        }
+
+        final MatrixDiagonalType matrixDiagonalType = unit ? MatrixDiagonalType.Unit : MatrixDiagonalType.NonUnit;
+        return new DenseDiagonalMatrix(diagonalStore(diagonal), matrixDiagonalType);
+    }
+
+    static BandStore2D diagonalStore(double[] diagonal) {
+        return new BandStore2D(diagonal, new BandStructure2D(diagonal.length, diagonal.length, 0, 0));
+    }
+
+    private double[] diagonal() {
+        final int n = getNumberOfRows();
+        final double[] diagonal = new double[n];
+        for (int i = 0; i < n; i++) {
+            diagonal[i] = store.get(i, i);
+        }
+
+        return diagonal;
+    }
+
+    public DenseVector getDiagonal() {
+        return new DenseVector(new ArrayStore1D(diagonal(), new ArrayStructure1D(getNumberOfRows())));
+    }
+
+    /**
+     * Returns <tt>D * that</tt>, i.e. <tt>that</tt> with its rows scaled by the diagonal.
+     */
+    public DenseMatrix scaleRows(DenseMatrix that) {
+        if (that.getNumberOfRows() != getNumberOfColumns()) {
+            throw new DimensionMismatchException(that.getNumberOfRows(), getNumberOfColumns());
+        }
+
+        final double[] diagonal = diagonal();
+        final int m = that.getNumberOfRows(), n = that.getNumberOfColumns();
+        final StorageOrder storageOrder = that.getStorageOrder();
+        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(m, n, storageOrder);
+        if (StorageOrder.ColumnMajor == storageOrder) {
+            for (int j = 0; j < n; j++) {
+                for (int i = 0; i < m; i++) {
+                    resultBuilder.set(i, j, diagonal[i] * that.get(i, j));
+                }
+            }
+        } else {
+            for (int i = 0; i < m; i++) {
+                final double d_i = diagonal[i];
+                for (int j = 0; j < n; j++) {
+                    resultBuilder.set(i, j, d_i * that.get(i, j));
+                }
+            }
+        }
+
+        return resultBuilder.build();
+    }
+
+    /**
+     * Returns <tt>that * D</tt>, i.e. <tt>that</tt> with its columns scaled by the diagonal.
+     */
+    public DenseMatrix scaleColumns(DenseMatrix that) {
+        if (that.getNumberOfColumns() != getNumberOfRows()) {
+            throw new DimensionMismatchException(that.getNumberOfColumns(), getNumberOfRows());
+        }
+
+        final double[] diagonal = diagonal();
+        final int m = that.getNumberOfRows(), n = that.getNumberOfColumns();
+        final StorageOrder storageOrder = that.getStorageOrder();
+        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(m, n, storageOrder);
+        if (StorageOrder.ColumnMajor == storageOrder) {
+            for (int j = 0; j < n; j++) {
+                final double d_j = diagonal[j];
+                for (int i = 0; i < m; i++) {
+                    resultBuilder.set(i, j, that.get(i, j) * d_j);
+                }
+            }
+        } else {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    resultBuilder.set(i, j, that.get(i, j) * diagonal[j]);
+                }
+            }
+        }
+
+        return resultBuilder.build();
+    }
+
+    @Override
+    public DenseMatrix multiply(DenseMatrix that) {
+        if (that instanceof DenseDiagonalMatrix) {
+            final double[] diagonal = diagonal(), thatDiagonal = ((DenseDiagonalMatrix) that).diagonal();
+            if (diagonal.length != thatDiagonal.length) {
+                throw new DimensionMismatchException(thatDiagonal.length, diagonal.length);
+            }
+
+            for (int i = 0; i < diagonal.length; i++) {
+                diagonal[i] *= thatDiagonal[i];
+            }
+
+            return fromDiagonal(diagonal);
+        }
+
+        return scaleRows(that);
+    }
+
+    @Override
+    public DenseVector multiply(DenseVector x) {
+        if (x.size() != getNumberOfColumns()) {
+            throw new DimensionMismatchException(x.size(), getNumberOfColumns());
+        }
+
+        final double[] y = diagonal();
+        for (int i = 0; i < y.length; i++) {
+            y[i] *= x.get(i);
+        }
+
+        return new DenseVector(new ArrayStore1D(y, new ArrayStructure1D(y.length)));
+    }
+
+    /**
+     * Solves <tt>D * y = b</tt> for <tt>y</tt>.
+     *
+     * @throws SingularMatrixException if the diagonal contains a zero
+     */
+    @Override
+    public DenseVector solve(DenseVector b) {
+        return inverse().multiply(b);
+    }
+
+    /**
+     * Solves <tt>D * Y = B</tt> for <tt>Y</tt>.
+     *
+     * @throws SingularMatrixException if the diagonal contains a zero
+     */
+    public DenseMatrix solve(DenseMatrix b) {
+        return inverse().scaleRows(b);
+    }
+
+    /**
+     * @throws SingularMatrixException if the diagonal contains a zero
+     */
+    public DenseDiagonalMatrix inverse() {
+        final double[] diagonal = diagonal();
+        for (int i = 0; i < diagonal.length; i++) {
+            if (diagonal[i] == 0.0) {
+                throw new SingularMatrixException(i);
+            }
+
+            diagonal[i] = 1.0 / diagonal[i];
+        }
+
+        return new DenseDiagonalMatrix(diagonalStore(diagonal), getMatrixDiagonalType());
+    }
+
+    public double determinant() {
+        double determinant = 1.0;
+        for (double d : diagonal()) {
+            determinant *= d;
+        }
+
+        return determinant;
+    }
+
+    @Override
+    public DenseMatrix slice(int rowStart, int rowEnd, int columnStart, int columnEnd) {
+        if (rowStart == columnStart && rowEnd == columnEnd) {
+            return triangularSlice(rowStart, rowEnd);
+        }
+
+        // any other window is no longer diagonal
+        return new DenseGeneralMatrix(store.slice(rowStart, rowEnd, columnStart, columnEnd));
+    }
+
+    @Override
+    public DenseDiagonalMatrix triangularSlice(int rowStart, int rowEnd) {
+        return create(store.slice(rowStart, rowEnd, rowStart, rowEnd));
+    }
+
+    @Override
+    public DenseDiagonalMatrix transpose() {
+        return this;
+    }
+
+    @Override
+    DenseDiagonalMatrix create(Store2D store) {
+        return new DenseDiagonalMatrix(store, getMatrixDiagonalType());
+    }
+}
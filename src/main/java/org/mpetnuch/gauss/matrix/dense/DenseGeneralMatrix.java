@@ -19,7 +19,10 @@
 
 package org.mpetnuch.gauss.matrix.dense;
 
-import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.matrix.MatrixType;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
 
 /**
  * @author Michael Petnuch
@@ -28,13 +31,39 @@ import org.mpetnuch.gauss.store.array.ArrayStore2D;
 public class DenseGeneralMatrix extends DenseMatrix {
     private static final long serialVersionUID = -1336404666416014744L;
 
-    public DenseGeneralMatrix(ArrayStore2D store) {
+    public DenseGeneralMatrix(Store2D store) {
         super(store);
     }
 
+    /**
+     * Wraps a <tt>rowCount x columnCount</tt> matrix stored in LAPACK band format, the array is not copied.
+     */
+    public static DenseGeneralMatrix fromBand(double[] band, int rowCount, int columnCount,
+                                              int lowerBandwidth, int upperBandwidth) {
+        final BandStructure2D structure = new BandStructure2D(rowCount, columnCount, lowerBandwidth, upperBandwidth);
+        return new DenseGeneralMatrix(new BandStore2D(band, structure));
+    }
+
     @Override
-    DenseGeneralMatrix create(ArrayStore2D store) {
-        return new DenseGeneralMatrix(store);
+    public DenseVector multiply(DenseVector x) {
+        final DenseVectorBuilder resultBuilder = new DenseVectorBuilder(getNumberOfRows());
+
+        if (store instanceof BandStore2D) {
+            blasLevel2.dgbmv(1.0, this, x, 0.0, resultBuilder);
+        } else {
+            blasLevel2.dgemv(1.0, this, x, 0.0, resultBuilder);
+        }
+
+        return resultBuilder.build();
     }
 
+    @Override
+    public MatrixType getMatrixType() {
+        return store instanceof BandStore2D ? MatrixType.GB : MatrixType.GE;
+    }
+
+    @Override
+    DenseGeneralMatrix create(Store2D store) {
+        return new DenseGeneralMatrix(store);
+    }
 }
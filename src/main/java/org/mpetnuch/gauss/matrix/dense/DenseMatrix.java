@@ -19,15 +19,28 @@
 
 package org.mpetnuch.gauss.matrix.dense;
 
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.linearalgebra.blas2.BLASLevel2;
+import org.mpetnuch.gauss.linearalgebra.blas2.JBLASLevel2;
 import org.mpetnuch.gauss.linearalgebra.blas3.BLASLevel3;
 import org.mpetnuch.gauss.linearalgebra.blas3.JBLASLevel3;
 import org.mpetnuch.gauss.matrix.Matrix;
 import org.mpetnuch.gauss.matrix.MatrixDiagonalType;
 import org.mpetnuch.gauss.matrix.MatrixType;
 import org.mpetnuch.gauss.matrix.TriangularMatrixType;
-import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.Store1D;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.array.ArrayAccess;
+import org.mpetnuch.gauss.store.array.ArrayStore;
 import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.array.Reductions;
+import org.mpetnuch.gauss.store.array.Selections;
+import org.mpetnuch.gauss.store.band.BandStore2D;
 import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 
 /**
  * @author Michael Petnuch
@@ -36,11 +49,15 @@ import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
 public abstract class DenseMatrix implements Matrix {
     private static final long serialVersionUID = -7150013139589271348L;
     private static final JBLASLevel3 DEFAULT_BLAS_LEVEL3 = new JBLASLevel3.JBLASLevel3Builder().createJBLASLevel3();
+    private static final JBLASLevel2 DEFAULT_BLAS_LEVEL2 = new JBLASLevel2();
+    private static final Reductions DEFAULT_REDUCTIONS = new Reductions.ReductionsBuilder().createReductions();
+    private static final Selections DEFAULT_SELECTIONS = new Selections.SelectionsBuilder().createSelections();
 
-    protected final ArrayStore2D store;
+    protected final Store2D store;
     protected BLASLevel3<DenseMatrix, DenseTriangularMatrix, DenseSymmetricMatrix, DenseMatrixBuilder> blasLevel3 = DEFAULT_BLAS_LEVEL3;
+    protected BLASLevel2<DenseMatrix, DenseTriangularMatrix, DenseSymmetricMatrix, DenseVector, DenseVectorBuilder> blasLevel2 = DEFAULT_BLAS_LEVEL2;
 
-    DenseMatrix(ArrayStore2D store) {
+    DenseMatrix(Store2D store) {
         this.store = store;
     }
 
@@ -53,10 +70,13 @@ public abstract class DenseMatrix implements Matrix {
             }
         }
 
-        final ArrayStructure2D structure = new ArrayStructure2D(rowCount, columnCount);
+        // the rows are copied anyway, so lay them out with a padded leading dimension
+        final int leadingDimension = ArrayStructure2D.paddedLeadingDimension(columnCount);
+        final ArrayStructure2D structure =
+                new ArrayStructure2D(rowCount, columnCount, StorageOrder.RowMajor, leadingDimension);
         if (rowCount != columnCount) {
-            double[] flattenedArray = new double[rowCount * columnCount];
-            for (int index = 0, rowIndex = 0; rowIndex < rowCount; rowIndex++, index += columnCount) {
+            double[] flattenedArray = new double[(rowCount - 1) * leadingDimension + columnCount];
+            for (int index = 0, rowIndex = 0; rowIndex < rowCount; rowIndex++, index += leadingDimension) {
                 System.arraycopy(matrix[rowIndex], 0, flattenedArray, index, columnCount);
             }
 
@@ -64,12 +84,12 @@ public abstract class DenseMatrix implements Matrix {
             return new DenseGeneralMatrix(arrayStore);
         }
 
-        final double[] elements = new double[rowCount * columnCount];
+        final double[] elements = new double[(rowCount - 1) * leadingDimension + columnCount];
 
         // Special method for square-matrices, try to guess the matrix qualifiers
         boolean diagonal = true, upper = true, lower = true, symmetrical = true, unit = true;
         for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
-            System.arraycopy(matrix[rowIndex], 0, elements, rowIndex * columnCount, columnCount);
+            System.arraycopy(matrix[rowIndex], 0, elements, rowIndex * leadingDimension, columnCount);
 
             for (int j = 0; j <= rowIndex; j++) {
                 if (rowIndex == j) {
@@ -86,6 +106,18 @@ public abstract class DenseMatrix implements Matrix {
             }
         }
 
+        if (diagonal) {
+            final double[] diagonalElements = new double[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                diagonalElements[i] = matrix[i][i];
+            }
+
+            final MatrixDiagonalType matrixDiagonalType = unit ?
+                    MatrixDiagonalType.Unit : MatrixDiagonalType.NonUnit;
+
+            return new DenseDiagonalMatrix(DenseDiagonalMatrix.diagonalStore(diagonalElements), matrixDiagonalType);
+        }
+
         final ArrayStore2D arrayStore = new ArrayStore2D(elements, structure);
         if (upper || lower) {
             final TriangularMatrixType triangularMatrixType = upper ?
@@ -104,29 +136,164 @@ public abstract class DenseMatrix implements Matrix {
         return new DenseGeneralMatrix(arrayStore);
     }
 
-    abstract DenseMatrix create(ArrayStore2D store);
+    /**
+     * Wraps a flat array holding a <tt>rowCount x columnCount</tt> matrix in the given order without copying it, so
+     * column-major data produced by (or destined for) LAPACK style routines can be used as is. The matrix shares
+     * the array, later changes to the array are visible through the matrix.
+     *
+     * @throws DimensionMismatchException if the array does not hold exactly <tt>rowCount * columnCount</tt> elements
+     */
+    public static DenseGeneralMatrix from(double[] elements, int rowCount, int columnCount, StorageOrder storageOrder) {
+        if (elements.length != rowCount * columnCount) {
+            throw new DimensionMismatchException(elements.length, rowCount * columnCount);
+        }
+
+        final ArrayStructure2D structure = new ArrayStructure2D(rowCount, columnCount, storageOrder);
+        return new DenseGeneralMatrix(new ArrayStore2D(elements, structure));
+    }
+
+    /**
+     * Wraps a flat array holding a <tt>rowCount x columnCount</tt> matrix in the given order whose rows (row-major)
+     * or columns (column-major) start <tt>leadingDimension</tt> elements apart, without copying it; this is the
+     * <tt>(A, LDA)</tt> pair of BLAS and LAPACK routines.
+     *
+     * @throws IllegalArgumentException if the leading dimension is too short or the array too small
+     */
+    public static DenseGeneralMatrix from(double[] elements, int rowCount, int columnCount,
+                                          StorageOrder storageOrder, int leadingDimension) {
+        final ArrayStructure2D structure = new ArrayStructure2D(rowCount, columnCount, storageOrder, leadingDimension);
+        return new DenseGeneralMatrix(new ArrayStore2D(elements, structure));
+    }
+
+    abstract DenseMatrix create(Store2D store);
 
     public DenseMatrix multiply(DenseMatrix that) {
+        if (that instanceof DenseDiagonalMatrix) {
+            return ((DenseDiagonalMatrix) that).scaleColumns(this);
+        }
+
         final int M = this.getNumberOfRows(), N = that.getNumberOfColumns();
-        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(M, N);
+        final DenseMatrixBuilder resultBuilder = DenseMatrixBuilder.padded(M, N, getStorageOrder());
 
         blasLevel3.dgemm(1.0, this, that, 0.0, resultBuilder);
         return resultBuilder.build();
     }
 
+    public DenseVector multiply(DenseVector x) {
+        final DenseVectorBuilder resultBuilder = new DenseVectorBuilder(getNumberOfRows());
+
+        blasLevel2.dgemv(1.0, this, x, 0.0, resultBuilder);
+        return resultBuilder.build();
+    }
+
+    /**
+     * Returns a copy of the <tt>lowerBandwidth</tt> sub-diagonals and <tt>upperBandwidth</tt> super-diagonals of
+     * this matrix in band format, anything outside of the band is dropped.
+     */
+    public DenseGeneralMatrix band(int lowerBandwidth, int upperBandwidth) {
+        return new DenseGeneralMatrix(BandStore2D.band(store, lowerBandwidth, upperBandwidth));
+    }
+
+    /**
+     * Returns the maximum absolute column sum of this matrix.
+     */
+    public double norm1() {
+        if (store instanceof ArrayStore2D) {
+            return DEFAULT_REDUCTIONS.norm1((ArrayStore2D) store);
+        }
+
+        return columns().mapToDouble(column -> column.stream().map(Math::abs).sum()).max().orElse(0.0);
+    }
+
+    /**
+     * Returns the maximum absolute row sum of this matrix.
+     */
+    public double normInf() {
+        if (store instanceof ArrayStore2D) {
+            return DEFAULT_REDUCTIONS.normInf((ArrayStore2D) store);
+        }
+
+        return rows().mapToDouble(row -> row.stream().map(Math::abs).sum()).max().orElse(0.0);
+    }
+
+    /**
+     * Returns the square root of the sum of the squares of the elements of this matrix.
+     */
+    public double normFrobenius() {
+        if (store instanceof ArrayStore2D) {
+            return DEFAULT_REDUCTIONS.normFrobenius((ArrayStore2D) store);
+        }
+
+        return Math.sqrt(rows().mapToDouble(row -> row.stream().map(x -> x * x).sum()).sum());
+    }
+
+    /**
+     * Returns a copy of the rows of this matrix at <tt>rowIndices</tt>, in the order given.
+     */
+    public DenseGeneralMatrix takeRows(int... rowIndices) {
+        return select(DEFAULT_SELECTIONS.take(arrayStore(), 0, rowIndices));
+    }
+
+    /**
+     * Returns a copy of the columns of this matrix at <tt>columnIndices</tt>, in the order given.
+     */
+    public DenseGeneralMatrix takeColumns(int... columnIndices) {
+        return select(DEFAULT_SELECTIONS.take(arrayStore(), 1, columnIndices));
+    }
+
+    /**
+     * Returns a copy of the rows of this matrix that are set in <tt>mask</tt>.
+     */
+    public DenseGeneralMatrix compressRows(boolean[] mask) {
+        return select(DEFAULT_SELECTIONS.compress(arrayStore(), 0, mask));
+    }
+
+    /**
+     * Returns a copy of the columns of this matrix that are set in <tt>mask</tt>.
+     */
+    public DenseGeneralMatrix compressColumns(boolean[] mask) {
+        return select(DEFAULT_SELECTIONS.compress(arrayStore(), 1, mask));
+    }
+
+    private ArrayStore2D arrayStore() {
+        if (store instanceof ArrayStore2D) {
+            return (ArrayStore2D) store;
+        }
+
+        return new ArrayStore2D(store.toArray(), new ArrayStructure2D(store.rowCount(), store.columnCount()));
+    }
+
+    // the selection is a fresh copy, so the matrix can take over its array without copying it again
+    private static DenseGeneralMatrix select(ArrayStore selection) {
+        return new DenseGeneralMatrix(new ArrayStore2D(ArrayAccess.read(selection).array(),
+                (ArrayStructure2D) selection.structure()));
+    }
+
     @Override
     public MatrixType getMatrixType() {
         return MatrixType.GE;
     }
 
+    public Store2D getStore() {
+        return store;
+    }
+
+    /**
+     * Returns the order in which the elements of this matrix are laid out in memory; matrices that are not backed
+     * by a two dimensional array report {@link StorageOrder#RowMajor}.
+     */
+    public StorageOrder getStorageOrder() {
+        return store instanceof ArrayStore2D ? ((ArrayStore2D) store).storageOrder() : StorageOrder.RowMajor;
+    }
+
     @Override
     public int getNumberOfRows() {
-        return store.structure().rowCount();
+        return store.rowCount();
     }
 
     @Override
     public int getNumberOfColumns() {
-        return store.structure().columnCount();
+        return store.columnCount();
     }
 
     @Override
@@ -159,14 +326,30 @@ public abstract class DenseMatrix implements Matrix {
         return create(store.compact());
     }
 
+    /**
+     * Replaces the default serialization of the store's object graph by {@link DenseMatrixSerializer}'s binary
+     * format, which writes only the elements of the logical view.
+     */
+    Object writeReplace() {
+        return new DenseMatrixSerializer.SerializedForm(this);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Dense matrices are deserialized through their serialized form");
+    }
+
     public void setBlasLevel3(BLASLevel3<DenseMatrix, DenseTriangularMatrix, DenseSymmetricMatrix, DenseMatrixBuilder> blasLevel3) {
         this.blasLevel3 = blasLevel3;
     }
 
+    public void setBlasLevel2(BLASLevel2<DenseMatrix, DenseTriangularMatrix, DenseSymmetricMatrix, DenseVector, DenseVectorBuilder> blasLevel2) {
+        this.blasLevel2 = blasLevel2;
+    }
+
     private static final class DenseMatrixRow extends DenseVector implements MatrixRow {
         private final int index;
 
-        private DenseMatrixRow(ArrayStore1D store, int index) {
+        private DenseMatrixRow(Store1D store, int index) {
             super(store);
             this.index = index;
         }
@@ -180,7 +363,7 @@ public abstract class DenseMatrix implements Matrix {
     private static final class DenseMatrixColumn extends DenseVector implements MatrixColumn {
         private final int index;
 
-        private DenseMatrixColumn(ArrayStore1D store, int index) {
+        private DenseMatrixColumn(Store1D store, int index) {
             super(store);
             this.index = index;
         }
@@ -21,6 +21,7 @@ package org.mpetnuch.gauss.matrix.dense;
 
 import org.mpetnuch.gauss.matrix.MatrixBuilder;
 import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
 
 /**
  * @author Michael Petnuch
@@ -37,6 +38,30 @@ public class DenseMatrixBuilder implements MatrixBuilder<DenseMatrix, DenseMatri
         this.store = new ArrayStore2D(rowCount, columnCount);
     }
 
+    public DenseMatrixBuilder(int rowCount, int columnCount, StorageOrder storageOrder) {
+        this.store = new ArrayStore2D(rowCount, columnCount, storageOrder);
+    }
+
+    public DenseMatrixBuilder(int rowCount, int columnCount, StorageOrder storageOrder, int leadingDimension) {
+        this.store = new ArrayStore2D(rowCount, columnCount, storageOrder, leadingDimension);
+    }
+
+    /**
+     * Creates a builder whose storage has a padded leading dimension, which keeps column walks over row-major
+     * storage (and row walks over column-major storage) from aliasing in the cache at power of two sizes.
+     */
+    public static DenseMatrixBuilder padded(int rowCount, int columnCount, StorageOrder storageOrder) {
+        return new DenseMatrixBuilder(ArrayStore2D.padded(rowCount, columnCount, storageOrder));
+    }
+
+    /**
+     * The writable store the matrix is built in, for kernels that fill it through an
+     * {@link org.mpetnuch.gauss.store.array.ArrayAccess}.
+     */
+    public ArrayStore2D getStore() {
+        return store;
+    }
+
     @Override
     public DenseMatrixBuilder scale(double alpha) {
         if (Double.compare(alpha, 0.0) == 0) {
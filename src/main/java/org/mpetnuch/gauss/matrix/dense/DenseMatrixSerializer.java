@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DenseMatrixSerializer.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.dense;
+
+import org.mpetnuch.gauss.matrix.MatrixDiagonalType;
+import org.mpetnuch.gauss.matrix.TriangularMatrixType;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.store.packed.PackedStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.WindowedStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+import org.mpetnuch.gauss.structure.packed.PackedStructure2D;
+
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Compact binary format for dense matrices, also used for their Java serialization. A 16 byte little-endian header
+ * holds the magic bytes <tt>GDMX</tt>, the format version, the kind of matrix, the storage order, the triangle and
+ * diagonal type flags and the shape; it is followed by the elements as raw little-endian doubles:
+ * <ul>
+ * <li>general matrices write all elements of the view in its storage order,</li>
+ * <li>symmetric matrices write the lower triangle and triangular matrices their own triangle, row by row,</li>
+ * <li>band matrices write two more header ints, the lower and upper bandwidth, followed by the elements within
+ * the band row by row (symmetric band matrices their lower triangle, triangular ones their own triangle),</li>
+ * <li>diagonal matrices write the diagonal.</li>
+ * </ul>
+ * Only the logical view is written, a slice costs no more than a matrix of its own size. Symmetric and triangular
+ * matrices are read back in packed format and band matrices in band format, whatever they were written from, so
+ * neither is ever expanded to a full square array.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public final class DenseMatrixSerializer {
+    private static final byte[] MAGIC = {'G', 'D', 'M', 'X'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int UPPER_FLAG = 1, UNIT_FLAG = 2;
+
+    private DenseMatrixSerializer() {
+    }
+
+    public static void write(Path path, DenseMatrix matrix) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, matrix);
+        }
+    }
+
+    public static DenseMatrix read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static void write(WritableByteChannel channel, DenseMatrix matrix) throws IOException {
+        final Kind kind = Kind.of(matrix);
+        final StorageOrder storageOrder = matrix.getStorageOrder();
+        int flags = 0;
+        if (matrix instanceof DenseTriangularMatrix) {
+            final DenseTriangularMatrix triangularMatrix = (DenseTriangularMatrix) matrix;
+            flags |= TriangularMatrixType.UpperTriangular == triangularMatrix.getTriangularMatrixType() ? UPPER_FLAG : 0;
+            flags |= MatrixDiagonalType.Unit == triangularMatrix.getMatrixDiagonalType() ? UNIT_FLAG : 0;
+        }
+
+        final Store2D store = matrix.getStore();
+        final int rowCount = store.rowCount(), columnCount = store.columnCount();
+        final boolean upper = (flags & UPPER_FLAG) != 0;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).put(VERSION).put((byte) kind.ordinal()).put((byte) storageOrder.ordinal()).put((byte) flags);
+        buffer.putInt(rowCount).putInt(columnCount);
+
+        // the band written, as sub- and super-diagonals of the rows
+        final int lowerBandwidth, upperBandwidth;
+        if (kind.isBand()) {
+            final BandStructure2D structure = ((BandStore2D) store).structure();
+            final int windowLower = structure.windowLowerBandwidth(), windowUpper = structure.windowUpperBandwidth();
+            if (Kind.GeneralBand == kind) {
+                lowerBandwidth = windowLower;
+                upperBandwidth = windowUpper;
+            } else {
+                final int bandwidth = Kind.SymmetricBand == kind ? Math.max(windowLower, windowUpper) :
+                        upper ? windowUpper : windowLower;
+                lowerBandwidth = upper ? 0 : bandwidth;
+                upperBandwidth = upper ? bandwidth : 0;
+            }
+
+            buffer.putInt(lowerBandwidth).putInt(upperBandwidth);
+        } else {
+            lowerBandwidth = upper ? 0 : Math.max(0, rowCount - 1);
+            upperBandwidth = upper ? Math.max(0, columnCount - 1) : 0;
+        }
+
+        final DoubleConsumer sink = x -> {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                try {
+                    writeFully(channel, buffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                buffer.clear();
+            }
+
+            buffer.putDouble(x);
+        };
+
+        try {
+            switch (kind) {
+                case General:
+                    (StorageOrder.ColumnMajor == storageOrder ? store.transpose() : store).spliterator()
+                            .forEachRemaining(sink);
+                    break;
+                case Diagonal:
+                    for (int i = 0; i < rowCount; i++) {
+                        sink.accept(store.get(i, i));
+                    }
+
+                    break;
+                default:
+                    for (int i = 0; i < rowCount; i++) {
+                        final int end = (int) Math.min(columnCount, (long) i + upperBandwidth + 1);
+                        for (int j = Math.max(0, i - lowerBandwidth); j < end; j++) {
+                            sink.accept(store.get(i, j));
+                        }
+                    }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    public static DenseMatrix read(ReadableByteChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header);
+        header.flip();
+
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new StreamCorruptedException("Not a serialized dense matrix, bad magic bytes");
+            }
+        }
+
+        final byte version = header.get();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported dense matrix format version " + version);
+        }
+
+        final int kindOrdinal = header.get(), storageOrderOrdinal = header.get(), flags = header.get();
+        final int rowCount = header.getInt(), columnCount = header.getInt();
+        if (kindOrdinal < 0 || kindOrdinal >= Kind.values().length ||
+                storageOrderOrdinal < 0 || storageOrderOrdinal >= StorageOrder.values().length ||
+                rowCount < 0 || columnCount < 0) {
+            throw new StreamCorruptedException("Malformed dense matrix header");
+        }
+
+        final Kind kind = Kind.values()[kindOrdinal];
+        if (Kind.General != kind && Kind.GeneralBand != kind && rowCount != columnCount) {
+            throw new StreamCorruptedException("Malformed dense matrix header, " + kind + " matrix is not square");
+        }
+
+        final TriangularMatrixType triangularMatrixType = (flags & UPPER_FLAG) != 0 ?
+                TriangularMatrixType.UpperTriangular : TriangularMatrixType.LowerTriangular;
+        final MatrixDiagonalType matrixDiagonalType = (flags & UNIT_FLAG) != 0 ?
+                MatrixDiagonalType.Unit : MatrixDiagonalType.NonUnit;
+
+        final int n = rowCount;
+        switch (kind) {
+            case General:
+                final double[] elements = readDoubles(channel, (long) rowCount * columnCount);
+                return DenseMatrix.from(elements, rowCount, columnCount, StorageOrder.values()[storageOrderOrdinal]);
+            case Diagonal:
+                return new DenseDiagonalMatrix(DenseDiagonalMatrix.diagonalStore(readDoubles(channel, n)),
+                        matrixDiagonalType);
+            case Symmetric: {
+                final PackedStructure2D structure = new PackedStructure2D(n, Triangle.Lower, true);
+                final double[] packed = new double[packedLength(n)];
+                readBand(channel, packed, structure, n, n, n - 1, 0);
+                return new DenseSymmetricMatrix(new PackedStore2D(packed, structure));
+            }
+            case Triangular: {
+                final boolean upper = TriangularMatrixType.UpperTriangular == triangularMatrixType;
+                final PackedStructure2D structure =
+                        new PackedStructure2D(n, upper ? Triangle.Upper : Triangle.Lower, false);
+                final double[] packed = new double[packedLength(n)];
+                readBand(channel, packed, structure, n, n, upper ? 0 : n - 1, upper ? n - 1 : 0);
+                return new DenseTriangularMatrix(new PackedStore2D(packed, structure), triangularMatrixType,
+                        matrixDiagonalType);
+            }
+            default: {
+                final ByteBuffer bandwidths = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, bandwidths);
+                bandwidths.flip();
+
+                final int lowerBandwidth = bandwidths.getInt(), upperBandwidth = bandwidths.getInt();
+                if (lowerBandwidth < 0 || upperBandwidth < 0 || lowerBandwidth >= Math.max(1, rowCount) ||
+                        upperBandwidth >= Math.max(1, columnCount) ||
+                        (Kind.GeneralBand != kind && lowerBandwidth != 0 && upperBandwidth != 0)) {
+                    throw new StreamCorruptedException("Malformed dense matrix header, bad bandwidths");
+                }
+
+                final BandStructure2D structure;
+                if (Kind.GeneralBand == kind) {
+                    structure = new BandStructure2D(rowCount, columnCount, lowerBandwidth, upperBandwidth);
+                } else {
+                    // symmetric band matrices are always written as their lower triangle
+                    final boolean upper = Kind.TriangularBand == kind &&
+                            TriangularMatrixType.UpperTriangular == triangularMatrixType;
+                    final Triangle triangle = upper ? Triangle.Upper : Triangle.Lower;
+                    final int bandwidth = Math.max(lowerBandwidth, upperBandwidth);
+                    structure = Kind.SymmetricBand == kind ? BandStructure2D.symmetric(n, bandwidth, triangle) :
+                            BandStructure2D.triangular(n, bandwidth, triangle);
+                }
+
+                final double[] band = new double[bandLength(columnCount, structure)];
+                readBand(channel, band, structure, rowCount, columnCount, lowerBandwidth, upperBandwidth);
+
+                final BandStore2D store = new BandStore2D(band, structure);
+                if (Kind.GeneralBand == kind) {
+                    return new DenseGeneralMatrix(store);
+                }
+
+                return Kind.SymmetricBand == kind ? new DenseSymmetricMatrix(store) :
+                        new DenseTriangularMatrix(store, triangularMatrixType, matrixDiagonalType);
+            }
+        }
+    }
+
+    private static int packedLength(int order) throws StreamCorruptedException {
+        try {
+            return PackedStructure2D.packedLength(order);
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException("Serialized dense matrix of order " + order + " is too large");
+        }
+    }
+
+    private static int bandLength(int columnCount, BandStructure2D structure) throws StreamCorruptedException {
+        try {
+            return BandStructure2D.bandLength(columnCount, structure.lowerBandwidth(), structure.upperBandwidth());
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException("Serialized band matrix with " + columnCount + " columns is too large");
+        }
+    }
+
+    /**
+     * Reads the elements within the band, row by row, straight to their places in the packed or band array.
+     */
+    private static void readBand(ReadableByteChannel channel, double[] array, WindowedStructure2D<?> structure,
+                                 int rowCount, int columnCount, int lowerBandwidth, int upperBandwidth)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0);
+        for (int i = 0; i < rowCount; i++) {
+            final int end = (int) Math.min(columnCount, (long) i + upperBandwidth + 1);
+            for (int j = Math.max(0, i - lowerBandwidth); j < end; j++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    buffer.limit(Double.BYTES * Math.min(BUFFER_SIZE / Double.BYTES, end - j));
+                    readFully(channel, buffer);
+                    buffer.flip();
+                }
+
+                array[structure.storageIndex(i, j)] = buffer.getDouble();
+            }
+        }
+    }
+
+    private static double[] readDoubles(ReadableByteChannel channel, long count) throws IOException {
+        if (count > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Serialized dense matrix with " + count + " elements is too large");
+        }
+
+        final double[] elements = new double[(int) count];
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int position = 0; position < elements.length; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, (long) (elements.length - position) * Double.BYTES));
+            readFully(channel, buffer);
+            buffer.flip();
+
+            final int n = buffer.remaining() / Double.BYTES;
+            buffer.asDoubleBuffer().get(elements, position, n);
+            position += n;
+        }
+
+        return elements;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of serialized dense matrix");
+            }
+        }
+    }
+
+    private enum Kind {
+        General, Symmetric, Triangular, Diagonal, GeneralBand, SymmetricBand, TriangularBand;
+
+        private static Kind of(DenseMatrix matrix) {
+            final boolean band = matrix.getStore() instanceof BandStore2D;
+            if (matrix instanceof DenseDiagonalMatrix) {
+                return Diagonal;
+            } else if (matrix instanceof DenseTriangularMatrix) {
+                return band ? TriangularBand : Triangular;
+            } else if (matrix instanceof DenseSymmetricMatrix) {
+                return band ? SymmetricBand : Symmetric;
+            }
+
+            return band ? GeneralBand : General;
+        }
+
+        private boolean isBand() {
+            return GeneralBand == this || SymmetricBand == this || TriangularBand == this;
+        }
+    }
+
+    /**
+     * Serialized form of {@link DenseMatrix}, see {@link DenseMatrix#writeReplace()}.
+     */
+    static final class SerializedForm implements Externalizable {
+        private static final long serialVersionUID = 5062183476925118254L;
+
+        private DenseMatrix matrix;
+
+        public SerializedForm() {
+        }
+
+        SerializedForm(DenseMatrix matrix) {
+            this.matrix = matrix;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            write(Channels.newChannel(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+            }), matrix);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            matrix = read(Channels.newChannel(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return in.read(b, off, len);
+                }
+            }));
+        }
+
+        private Object readResolve() {
+            return matrix;
+        }
+    }
+}
@@ -19,8 +19,14 @@
 
 package org.mpetnuch.gauss.matrix.dense;
 
+import org.mpetnuch.gauss.matrix.MatrixType;
 import org.mpetnuch.gauss.matrix.SymmetricMatrix;
-import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.store.packed.PackedStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+import org.mpetnuch.gauss.structure.packed.PackedStructure2D;
 
 /**
  * @author Michael Petnuch
@@ -29,12 +35,67 @@ import org.mpetnuch.gauss.store.array.ArrayStore2D;
 public class DenseSymmetricMatrix extends DenseMatrix implements SymmetricMatrix {
     private static final long serialVersionUID = -3530723819135774578L;
 
-    DenseSymmetricMatrix(ArrayStore2D store) {
+    DenseSymmetricMatrix(Store2D store) {
         super(store);
     }
 
+    /**
+     * Wraps a symmetric matrix of the given order stored in LAPACK packed format, the array is not copied.
+     */
+    public static DenseSymmetricMatrix fromPacked(double[] packed, int order, Triangle triangle) {
+        return new DenseSymmetricMatrix(new PackedStore2D(packed, new PackedStructure2D(order, triangle, true)));
+    }
+
+    /**
+     * Returns a copy of this matrix that only keeps the requested triangle, in packed format.
+     */
+    public DenseSymmetricMatrix pack(Triangle triangle) {
+        return new DenseSymmetricMatrix(PackedStore2D.pack(store, triangle, true));
+    }
+
+    /**
+     * Wraps a symmetric matrix of the given order stored in LAPACK band format, the array is not copied.
+     */
+    public static DenseSymmetricMatrix fromBand(double[] band, int order, int bandwidth, Triangle triangle) {
+        return new DenseSymmetricMatrix(new BandStore2D(band, BandStructure2D.symmetric(order, bandwidth, triangle)));
+    }
+
+    /**
+     * Returns a copy of <tt>bandwidth</tt> diagonals of the requested triangle of this matrix in band format,
+     * anything outside of the band is dropped.
+     */
+    public DenseSymmetricMatrix band(int bandwidth, Triangle triangle) {
+        return new DenseSymmetricMatrix(BandStore2D.symmetric(store, bandwidth, triangle));
+    }
+
+    @Override
+    public DenseVector multiply(DenseVector x) {
+        final DenseVectorBuilder resultBuilder = new DenseVectorBuilder(getNumberOfRows());
+
+        if (store instanceof PackedStore2D) {
+            blasLevel2.dspmv(1.0, this, x, 0.0, resultBuilder);
+        } else if (store instanceof BandStore2D) {
+            blasLevel2.dsbmv(1.0, this, x, 0.0, resultBuilder);
+        } else {
+            blasLevel2.dsymv(1.0, this, x, 0.0, resultBuilder);
+        }
+
+        return resultBuilder.build();
+    }
+
+    @Override
+    public MatrixType getMatrixType() {
+        if (store instanceof PackedStore2D) {
+            return MatrixType.SP;
+        } else if (store instanceof BandStore2D) {
+            return MatrixType.SB;
+        }
+
+        return MatrixType.SY;
+    }
+
     @Override
-    DenseMatrix create(ArrayStore2D store) {
+    DenseMatrix create(Store2D store) {
         return new DenseSymmetricMatrix(store);
     }
 }
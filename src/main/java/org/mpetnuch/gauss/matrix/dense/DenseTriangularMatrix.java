@@ -21,9 +21,15 @@ package org.mpetnuch.gauss.matrix.dense;
 
 import org.mpetnuch.gauss.matrix.MatrixDiagonalType;
 import org.mpetnuch.gauss.matrix.MatrixSide;
+import org.mpetnuch.gauss.matrix.MatrixType;
 import org.mpetnuch.gauss.matrix.TriangularMatrix;
 import org.mpetnuch.gauss.matrix.TriangularMatrixType;
-import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.store.packed.PackedStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+import org.mpetnuch.gauss.structure.packed.PackedStructure2D;
 
 /**
  * @author Michael Petnuch
@@ -35,30 +41,126 @@ public class DenseTriangularMatrix extends DenseMatrix implements TriangularMatr
     private final TriangularMatrixType triangularMatrixType;
     private final MatrixDiagonalType matrixDiagonalType;
 
-    DenseTriangularMatrix(ArrayStore2D store, TriangularMatrixType triangularMatrixType, MatrixDiagonalType matrixDiagonalType) {
+    DenseTriangularMatrix(Store2D store, TriangularMatrixType triangularMatrixType, MatrixDiagonalType matrixDiagonalType) {
         super(store);
         this.triangularMatrixType = triangularMatrixType;
         this.matrixDiagonalType = matrixDiagonalType;
     }
 
+    /**
+     * Wraps a triangular matrix of the given order stored in LAPACK packed format, the array is not copied.
+     */
+    public static DenseTriangularMatrix fromPacked(double[] packed, int order,
+                                                   TriangularMatrixType triangularMatrixType,
+                                                   MatrixDiagonalType matrixDiagonalType) {
+        final PackedStructure2D structure = new PackedStructure2D(order, triangle(triangularMatrixType), false);
+        return new DenseTriangularMatrix(new PackedStore2D(packed, structure), triangularMatrixType, matrixDiagonalType);
+    }
+
+    /**
+     * Wraps a triangular matrix of the given order stored in LAPACK band format, the array is not copied.
+     */
+    public static DenseTriangularMatrix fromBand(double[] band, int order, int bandwidth,
+                                                 TriangularMatrixType triangularMatrixType,
+                                                 MatrixDiagonalType matrixDiagonalType) {
+        final BandStructure2D structure = BandStructure2D.triangular(order, bandwidth, triangle(triangularMatrixType));
+        return new DenseTriangularMatrix(new BandStore2D(band, structure), triangularMatrixType, matrixDiagonalType);
+    }
+
+    private static Triangle triangle(TriangularMatrixType triangularMatrixType) {
+        return TriangularMatrixType.UpperTriangular == triangularMatrixType ? Triangle.Upper : Triangle.Lower;
+    }
+
+    /**
+     * Returns a copy of this matrix in packed format.
+     */
+    public DenseTriangularMatrix pack() {
+        final PackedStore2D packedStore = PackedStore2D.pack(store, triangle(triangularMatrixType), false);
+        return new DenseTriangularMatrix(packedStore, triangularMatrixType, matrixDiagonalType);
+    }
+
+    /**
+     * Returns a copy of the diagonal and <tt>bandwidth</tt> off-diagonals of this matrix in band format.
+     */
+    public DenseTriangularMatrix band(int bandwidth) {
+        final BandStore2D bandStore = BandStore2D.triangular(store, bandwidth, triangle(triangularMatrixType));
+        return new DenseTriangularMatrix(bandStore, triangularMatrixType, matrixDiagonalType);
+    }
+
+    @Override
     public DenseMatrix multiply(DenseMatrix that) {
+        if (that instanceof DenseDiagonalMatrix) {
+            return ((DenseDiagonalMatrix) that).scaleColumns(this);
+        }
+
         final int M = this.getNumberOfRows(), N = that.getNumberOfColumns();
-        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(M, N);
+        final DenseMatrixBuilder resultBuilder = DenseMatrixBuilder.padded(M, N, getStorageOrder());
 
         blasLevel3.dtrmm(1.0, MatrixSide.LEFT, this, that, 0.0, resultBuilder);
         return resultBuilder.build();
     }
 
+    @Override
+    public DenseVector multiply(DenseVector x) {
+        final DenseVectorBuilder resultBuilder = new DenseVectorBuilder(getNumberOfRows());
+
+        if (store instanceof PackedStore2D) {
+            blasLevel2.dtpmv(this, x, resultBuilder);
+        } else if (store instanceof BandStore2D) {
+            blasLevel2.dtbmv(this, x, resultBuilder);
+        } else {
+            blasLevel2.dtrmv(this, x, resultBuilder);
+        }
+
+        return resultBuilder.build();
+    }
+
+    /**
+     * Solves <tt>A * y = b</tt> for <tt>y</tt> by forward or back substitution.
+     */
+    public DenseVector solve(DenseVector b) {
+        final DenseVectorBuilder resultBuilder = new DenseVectorBuilder(getNumberOfRows());
+
+        if (store instanceof PackedStore2D) {
+            blasLevel2.dtpsv(this, b, resultBuilder);
+        } else if (store instanceof BandStore2D) {
+            blasLevel2.dtbsv(this, b, resultBuilder);
+        } else {
+            blasLevel2.dtrsv(this, b, resultBuilder);
+        }
+
+        return resultBuilder.build();
+    }
+
     @Override
     public DenseTriangularMatrix triangularSlice(int rowStart, int rowEnd) {
         return create(store.slice(rowStart, rowEnd, rowStart, rowEnd));
     }
 
     @Override
-    DenseTriangularMatrix create(ArrayStore2D store) {
+    public DenseTriangularMatrix transpose() {
+        final TriangularMatrixType transposedType = TriangularMatrixType.UpperTriangular == triangularMatrixType ?
+                TriangularMatrixType.LowerTriangular : TriangularMatrixType.UpperTriangular;
+
+        return new DenseTriangularMatrix(store.transpose(), transposedType, matrixDiagonalType);
+    }
+
+    @Override
+    DenseTriangularMatrix create(Store2D store) {
         return new DenseTriangularMatrix(store, triangularMatrixType, matrixDiagonalType);
     }
 
+    @Override
+    public MatrixType getMatrixType() {
+        if (store instanceof PackedStore2D) {
+            return MatrixType.TP;
+        } else if (store instanceof BandStore2D) {
+            return MatrixType.TB;
+        }
+
+        return MatrixType.TR;
+    }
+
     @Override
     public TriangularMatrixType getTriangularMatrixType() {
         return triangularMatrixType;
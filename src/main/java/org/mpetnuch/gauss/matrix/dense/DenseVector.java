@@ -20,7 +20,7 @@
 package org.mpetnuch.gauss.matrix.dense;
 
 import org.mpetnuch.gauss.matrix.Vector;
-import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.Store1D;
 
 import java.util.Spliterator;
 
@@ -29,9 +29,9 @@ import java.util.Spliterator;
  * @version $Id$
  */
 public class DenseVector implements Vector  {
-    private final ArrayStore1D store;
+    private final Store1D store;
 
-    public DenseVector(ArrayStore1D store) {
+    public DenseVector(Store1D store) {
         this.store = store;
     }
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DenseVectorBuilder.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.dense;
+
+import org.mpetnuch.gauss.matrix.VectorBuilder;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+
+/**
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class DenseVectorBuilder implements VectorBuilder<DenseVector, DenseVectorBuilder> {
+    private final ArrayStore1D store;
+
+    private DenseVectorBuilder(ArrayStore1D store) {
+        this.store = store;
+    }
+
+    public DenseVectorBuilder(int length) {
+        this.store = new ArrayStore1D(length);
+    }
+
+    public int length() {
+        return store.length();
+    }
+
+    @Override
+    public DenseVectorBuilder scale(double alpha) {
+        if (Double.compare(alpha, 0.0) == 0) {
+            store.replaceAll(x -> 0.0);
+            return this;
+        } else if (Double.compare(1.0, alpha) == 0) {
+            return this;
+        }
+
+        store.replaceAll(x -> x * alpha);
+        return this;
+    }
+
+    @Override
+    public DenseVectorBuilder add(int index, double alpha) {
+        store.increment(index, alpha);
+        return this;
+    }
+
+    @Override
+    public DenseVectorBuilder set(int index, double alpha) {
+        store.set(index, alpha);
+        return this;
+    }
+
+    @Override
+    public DenseVectorBuilder slice(int startInclusive, int endExclusive) {
+        return new DenseVectorBuilder(store.slice(startInclusive, endExclusive));
+    }
+
+    @Override
+    public DenseVector build() {
+        return new DenseVector(store.immutableCopy());
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `SparseMatrix.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.sparse;
+
+import org.mpetnuch.gauss.linearalgebra.sparse.JSparseBLAS;
+import org.mpetnuch.gauss.linearalgebra.sparse.SparseBLAS;
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.MatrixType;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.matrix.dense.DenseVectorBuilder;
+import org.mpetnuch.gauss.store.Store1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.sparse.CompressedStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+/**
+ * General matrix whose non-zero elements are kept in compressed sparse row or column format.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class SparseMatrix implements Matrix {
+    private static final long serialVersionUID = 5243158236471296042L;
+    private static final JSparseBLAS DEFAULT_SPARSE_BLAS = new JSparseBLAS.JSparseBLASBuilder().createJSparseBLAS();
+
+    protected final CompressedStore2D store;
+    protected SparseBLAS<SparseMatrix, DenseMatrix, DenseVector, DenseVectorBuilder, DenseMatrixBuilder> sparseBLAS = DEFAULT_SPARSE_BLAS;
+
+    public SparseMatrix(CompressedStore2D store) {
+        this.store = store;
+    }
+
+    /**
+     * Wraps a matrix in compressed sparse row format, the arrays are not copied.
+     */
+    public static SparseMatrix csr(int rowCount, int columnCount, int[] rowPointers, int[] columnIndices, double[] values) {
+        final CompressedStructure2D structure =
+                new CompressedStructure2D(Orientation.Row, rowCount, columnCount, rowPointers, columnIndices);
+
+        return new SparseMatrix(new CompressedStore2D(values, structure));
+    }
+
+    /**
+     * Wraps a matrix in compressed sparse column format, the arrays are not copied.
+     */
+    public static SparseMatrix csc(int rowCount, int columnCount, int[] columnPointers, int[] rowIndices, double[] values) {
+        final CompressedStructure2D structure =
+                new CompressedStructure2D(Orientation.Column, rowCount, columnCount, columnPointers, rowIndices);
+
+        return new SparseMatrix(new CompressedStore2D(values, structure));
+    }
+
+    /**
+     * Copies the non-zero elements of a dense matrix into a new sparse matrix with the requested orientation.
+     */
+    public static SparseMatrix from(DenseMatrix matrix, Orientation orientation) {
+        return new SparseMatrix(CompressedStore2D.compress(matrix.getStore(), orientation));
+    }
+
+    public CompressedStore2D getStore() {
+        return store;
+    }
+
+    public Orientation getOrientation() {
+        return store.orientation();
+    }
+
+    public int getNonZeroCount() {
+        return store.nonZeroCount();
+    }
+
+    public DenseVector multiply(DenseVector x) {
+        final DenseVectorBuilder resultBuilder = new DenseVectorBuilder(getNumberOfRows());
+
+        sparseBLAS.dusmv(1.0, this, x, 0.0, resultBuilder);
+        return resultBuilder.build();
+    }
+
+    public DenseMatrix multiply(DenseMatrix that) {
+        final DenseMatrixBuilder resultBuilder = new DenseMatrixBuilder(getNumberOfRows(), that.getNumberOfColumns());
+
+        sparseBLAS.dusmm(1.0, this, that, 0.0, resultBuilder);
+        return resultBuilder.build();
+    }
+
+    public DenseGeneralMatrix toDense() {
+        return new DenseGeneralMatrix(new ArrayStore2D(store.toArray(), new ArrayStructure2D(getNumberOfRows(), getNumberOfColumns())));
+    }
+
+    @Override
+    public int getNumberOfRows() {
+        return store.rowCount();
+    }
+
+    @Override
+    public int getNumberOfColumns() {
+        return store.columnCount();
+    }
+
+    @Override
+    public double get(int rowIndex, int columnIndex) {
+        return store.get(rowIndex, columnIndex);
+    }
+
+    @Override
+    public MatrixRow getRow(int rowIndex) {
+        return new SparseMatrixRow(store.row(rowIndex), rowIndex);
+    }
+
+    @Override
+    public MatrixColumn getColumn(int columnIndex) {
+        return new SparseMatrixColumn(store.column(columnIndex), columnIndex);
+    }
+
+    @Override
+    public SparseMatrix transpose() {
+        return create(store.transpose());
+    }
+
+    @Override
+    public SparseMatrix compact() {
+        return create(store.compact());
+    }
+
+    /**
+     * Returns a compact copy of this matrix in the requested orientation.
+     */
+    public SparseMatrix compact(Orientation orientation) {
+        return create(store.compact(orientation));
+    }
+
+    @Override
+    public SparseMatrix slice(int rowStart, int rowEnd, int columnStart, int columnEnd) {
+        return create(store.slice(rowStart, rowEnd, columnStart, columnEnd));
+    }
+
+    @Override
+    public MatrixType getMatrixType() {
+        return MatrixType.GE;
+    }
+
+    public void setSparseBLAS(SparseBLAS<SparseMatrix, DenseMatrix, DenseVector, DenseVectorBuilder, DenseMatrixBuilder> sparseBLAS) {
+        this.sparseBLAS = sparseBLAS;
+    }
+
+    private SparseMatrix create(CompressedStore2D store) {
+        final SparseMatrix matrix = new SparseMatrix(store);
+        matrix.sparseBLAS = sparseBLAS;
+        return matrix;
+    }
+
+    private static final class SparseMatrixRow extends DenseVector implements MatrixRow {
+        private final int index;
+
+        private SparseMatrixRow(Store1D store, int index) {
+            super(store);
+            this.index = index;
+        }
+
+        @Override
+        public int getRowIndex() {
+            return index;
+        }
+    }
+
+    private static final class SparseMatrixColumn extends DenseVector implements MatrixColumn {
+        private final int index;
+
+        private SparseMatrixColumn(Store1D store, int index) {
+            super(store);
+            this.index = index;
+        }
+
+        @Override
+        public int getColumnIndex() {
+            return index;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `SparseMatrixBuilder.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.sparse;
+
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.matrix.MatrixBuilder;
+import org.mpetnuch.gauss.store.sparse.CompressedStore2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
+import static org.mpetnuch.gauss.structure.Structure2D.ROW_DIMENSION;
+
+/**
+ * Assembles a {@link SparseMatrix} from unordered <tt>(row, column, value)</tt> triplets, the sparse counterpart
+ * of {@link org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder}.
+ * <p>
+ * {@link #add} and {@link #set} may be called concurrently from any number of threads: every thread records its
+ * triplets into a buffer of its own, so recording never contends. The operations recorded by one thread are
+ * applied in the order they were recorded, duplicates being summed, while the relative order of operations on
+ * the same element recorded by different threads is unspecified. {@link #scale} and {@link #build} must not run
+ * concurrently with any other call.
+ * <p>
+ * Building sorts the triplets with a parallel, stable counting sort over the rows, sorts every row by column and
+ * merges the duplicates, yielding a matrix in compressed sparse row format. The buffers of the recording threads
+ * are released by the build; the matrix it returns takes their place, so building again after recording more
+ * triplets adds those to the elements built before.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public class SparseMatrixBuilder implements MatrixBuilder<SparseMatrix, SparseMatrixBuilder> {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int GRAIN_SIZE = 1 << 14;
+
+    private final Assembly assembly;
+    private final int rowOffset, columnOffset, rowCount, columnCount;
+
+    public SparseMatrixBuilder(int rowCount, int columnCount) {
+        this(rowCount, columnCount, ForkJoinPool.commonPool());
+    }
+
+    public SparseMatrixBuilder(int rowCount, int columnCount, ForkJoinPool pool) {
+        this(new Assembly(rowCount, columnCount, pool), 0, 0, rowCount, columnCount);
+    }
+
+    private SparseMatrixBuilder(Assembly assembly, int rowOffset, int columnOffset, int rowCount, int columnCount) {
+        this.assembly = assembly;
+        this.rowOffset = rowOffset;
+        this.columnOffset = columnOffset;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+    }
+
+    private static int index(int position, int dimension, int length) {
+        if (position >= 0 && position < length) {
+            return position;
+        }
+
+        throw new InvalidDimensionRangeException(position, dimension, length);
+    }
+
+    @Override
+    public SparseMatrixBuilder scale(double alpha) {
+        if (Double.compare(1.0, alpha) == 0) {
+            return this;
+        }
+
+        for (TripletBuffer buffer : assembly.pending()) {
+            buffer.scale(alpha, rowOffset, rowOffset + rowCount, columnOffset, columnOffset + columnCount);
+        }
+
+        return this;
+    }
+
+    @Override
+    public SparseMatrixBuilder add(int rowIndex, int columnIndex, double alpha) {
+        assembly.buffer().record(rowOffset + index(rowIndex, ROW_DIMENSION, rowCount),
+                columnOffset + index(columnIndex, COLUMN_DIMENSION, columnCount), alpha, false);
+        return this;
+    }
+
+    @Override
+    public SparseMatrixBuilder set(int rowIndex, int columnIndex, double alpha) {
+        assembly.buffer().record(rowOffset + index(rowIndex, ROW_DIMENSION, rowCount),
+                columnOffset + index(columnIndex, COLUMN_DIMENSION, columnCount), alpha, true);
+        return this;
+    }
+
+    @Override
+    public SparseMatrixBuilder slice(int rowIndexStart, int rowIndexEnd, int columnIndexStart, int columnIndexEnd) {
+        if (rowIndexStart < 0 || rowIndexEnd > rowCount || rowIndexStart > rowIndexEnd) {
+            throw new InvalidDimensionRangeException(rowIndexEnd, ROW_DIMENSION, rowCount);
+        } else if (columnIndexStart < 0 || columnIndexEnd > columnCount || columnIndexStart > columnIndexEnd) {
+            throw new InvalidDimensionRangeException(columnIndexEnd, COLUMN_DIMENSION, columnCount);
+        }
+
+        return new SparseMatrixBuilder(assembly, rowOffset + rowIndexStart, columnOffset + columnIndexStart,
+                rowIndexEnd - rowIndexStart, columnIndexEnd - columnIndexStart);
+    }
+
+    /**
+     * Returns the number of triplets waiting to be built, over all slices of this builder: those recorded since the
+     * last build plus the elements of the matrix it built.
+     */
+    public long tripletCount() {
+        long count = assembly.built != null ? assembly.built.getNonZeroCount() : 0;
+        count += assembly.merged != null ? assembly.merged.size : 0;
+        for (TripletBuffer buffer : assembly.buffers.values()) {
+            count += buffer.size;
+        }
+
+        return count;
+    }
+
+    @Override
+    public SparseMatrix build() {
+        final SparseMatrix matrix = assembly.build();
+        if (rowOffset == 0 && columnOffset == 0
+                && rowCount == assembly.rowCount && columnCount == assembly.columnCount) {
+            return matrix;
+        }
+
+        return matrix.slice(rowOffset, rowOffset + rowCount, columnOffset, columnOffset + columnCount).compact();
+    }
+
+    /**
+     * The state shared by a builder and its slices. Recording threads look their buffers up by thread, and a build
+     * drops them all; the triplets of earlier builds live on in the last matrix built, which is only expanded back
+     * into a buffer when the builder is scaled or built again after more triplets were recorded.
+     */
+    private static final class Assembly {
+        private final int rowCount, columnCount;
+        private final ForkJoinPool pool;
+        private final Map<Thread, TripletBuffer> buffers = new ConcurrentHashMap<>();
+        private TripletBuffer merged;
+        private SparseMatrix built;
+
+        private Assembly(int rowCount, int columnCount, ForkJoinPool pool) {
+            this.rowCount = rowCount;
+            this.columnCount = columnCount;
+            this.pool = pool;
+        }
+
+        private TripletBuffer buffer() {
+            final Thread thread = Thread.currentThread();
+            final TripletBuffer buffer = buffers.get(thread);
+            return buffer != null ? buffer : buffers.computeIfAbsent(thread, t -> new TripletBuffer(INITIAL_CAPACITY));
+        }
+
+        // the buffers to build from, the triplets of earlier builds first so that later operations apply on top
+        private List<TripletBuffer> pending() {
+            final List<TripletBuffer> pending = new ArrayList<>(buffers.size() + 1);
+            if (built != null) {
+                merged = TripletBuffer.from(built.getStore());
+                built = null;
+            }
+
+            if (merged != null) {
+                pending.add(merged);
+            }
+
+            pending.addAll(buffers.values());
+            return pending;
+        }
+
+        private void forEach(int from, int to, IntConsumer action) {
+            pool.invoke(new ForEach(from, to, action));
+        }
+
+        private SparseMatrix build() {
+            if (built != null && buffers.isEmpty()) {
+                return built;
+            }
+
+            final List<TripletBuffer> buffers = pending();
+
+            // stable counting sort over the rows, straight from the buffers: the buffers are cut into blocks, every
+            // block counts its rows in parallel, an exclusive prefix over (row, block) gives every block its write
+            // cursor per row and the blocks then scatter their triplets in parallel
+            long total = 0;
+            for (TripletBuffer buffer : buffers) {
+                total += buffer.size;
+            }
+
+            if (total > Integer.MAX_VALUE) {
+                throw new ArithmeticException("integer overflow");
+            }
+
+            final Block[] blocks = blocks(buffers, (int) total);
+            final int[][] cursors = new int[blocks.length][];
+            forEach(0, blocks.length, b -> {
+                final Block block = blocks[b];
+                final int[] counts = new int[rowCount];
+                for (int k = block.from; k < block.to; k++) {
+                    counts[block.buffer.rows[k]]++;
+                }
+
+                cursors[b] = counts;
+            });
+
+            final int[] rowPointers = new int[rowCount + 1];
+            for (int row = 0, position = 0; row < rowCount; row++) {
+                rowPointers[row] = position;
+                for (int[] counts : cursors) {
+                    final int count = counts[row];
+                    counts[row] = position;
+                    position += count;
+                }
+            }
+
+            rowPointers[rowCount] = (int) total;
+            final int[] sortedColumns = new int[(int) total];
+            final double[] sortedValues = new double[(int) total];
+            forEach(0, blocks.length, b -> {
+                final Block block = blocks[b];
+                final int[] next = cursors[b];
+                for (int k = block.from; k < block.to; k++) {
+                    final int position = next[block.buffer.rows[k]]++;
+                    sortedColumns[position] = block.buffer.columns[k];
+                    sortedValues[position] = block.buffer.values[k];
+                }
+            });
+
+            // the triplets are all sorted, so the buffers can go
+            this.buffers.clear();
+            merged = null;
+
+            // sort every row by column, ties keep the order of recording, and merge the duplicates in place
+            final int[] mergedCounts = new int[rowCount];
+            forEach(0, rowCount, row -> mergedCounts[row] = mergeRow(rowPointers[row], rowPointers[row + 1],
+                    sortedColumns, sortedValues));
+
+            final int[] pointers = new int[rowCount + 1];
+            for (int row = 0; row < rowCount; row++) {
+                pointers[row + 1] = pointers[row] + mergedCounts[row];
+            }
+
+            final int[] indices = new int[pointers[rowCount]];
+            final double[] mergedValues = new double[pointers[rowCount]];
+            forEach(0, rowCount, row -> {
+                System.arraycopy(sortedColumns, rowPointers[row], indices, pointers[row], mergedCounts[row]);
+                System.arraycopy(sortedValues, rowPointers[row], mergedValues, pointers[row], mergedCounts[row]);
+            });
+
+            final CompressedStructure2D structure =
+                    new CompressedStructure2D(Orientation.Row, rowCount, columnCount, pointers, indices);
+
+            built = new SparseMatrix(new CompressedStore2D(mergedValues, structure));
+            return built;
+        }
+
+        /**
+         * Cuts the buffers, in order, into about one block per thread of the pool, and at least one block per
+         * non-empty buffer; the count per row kept for every block bounds how many there may be.
+         */
+        private Block[] blocks(List<TripletBuffer> buffers, int total) {
+            final int target = Math.max(1, Math.min(pool.getParallelism(), total / GRAIN_SIZE));
+            final List<Block> blocks = new ArrayList<>();
+            for (TripletBuffer buffer : buffers) {
+                final int count = (int) Math.min(buffer.size, ((long) buffer.size * target + total - 1) / total);
+                for (int c = 0; c < count; c++) {
+                    blocks.add(new Block(buffer, (int) ((long) buffer.size * c / count),
+                            (int) ((long) buffer.size * (c + 1) / count)));
+                }
+            }
+
+            return blocks.toArray(new Block[0]);
+        }
+
+        /**
+         * Sorts the triplets in <tt>[from, to)</tt> by column and merges the duplicates to the front of the range.
+         *
+         * @return the number of distinct columns
+         */
+        private static int mergeRow(int from, int to, int[] columns, double[] values) {
+            final int length = to - from;
+            if (length == 0) {
+                return 0;
+            }
+
+            // the column in the high word, the position in the low word: sorting keeps ties in recording order
+            final long[] keys = new long[length];
+            final double[] rowValues = Arrays.copyOfRange(values, from, to);
+            final boolean[] overwrites = new boolean[length];
+            for (int k = 0; k < length; k++) {
+                final int column = columns[from + k];
+                overwrites[k] = column < 0;
+                keys[k] = ((long) TripletBuffer.column(column) << 32) | k;
+            }
+
+            Arrays.sort(keys);
+
+            int count = 0;
+            for (int k = 0; k < length; ) {
+                final int column = (int) (keys[k] >>> 32);
+                double value = 0.0;
+                for (; k < length && (int) (keys[k] >>> 32) == column; k++) {
+                    final int position = (int) keys[k];
+                    value = overwrites[position] ? rowValues[position] : value + rowValues[position];
+                }
+
+                columns[from + count] = column;
+                values[from + count] = value;
+                count++;
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Growable triplet buffer owned by a single thread. Overwrites are flagged by storing the complement of the
+     * column index, which is always negative.
+     */
+    private static final class TripletBuffer {
+        private int[] rows;
+        private int[] columns;
+        private double[] values;
+        private int size;
+
+        private TripletBuffer(int capacity) {
+            this.rows = new int[capacity];
+            this.columns = new int[capacity];
+            this.values = new double[capacity];
+        }
+
+        // the elements of a matrix in compressed sparse row format, as plain additions
+        private static TripletBuffer from(CompressedStore2D store) {
+            final CompressedStructure2D structure = store.structure();
+            final TripletBuffer buffer = new TripletBuffer(Math.max(1, store.nonZeroCount()));
+            for (int row = 0; row < structure.rowCount(); row++) {
+                for (int position = structure.start(row); position < structure.end(row); position++) {
+                    buffer.record(row, structure.minor(position), store.getStored(position), false);
+                }
+            }
+
+            return buffer;
+        }
+
+        private static int column(int encodedColumn) {
+            return encodedColumn < 0 ? ~encodedColumn : encodedColumn;
+        }
+
+        private void record(int row, int column, double value, boolean overwrite) {
+            if (size == rows.length) {
+                final int capacity = Math.max(size + 1, (int) Math.min(Integer.MAX_VALUE - 8, 2L * size));
+                rows = Arrays.copyOf(rows, capacity);
+                columns = Arrays.copyOf(columns, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+
+            rows[size] = row;
+            columns[size] = overwrite ? ~column : column;
+            values[size] = value;
+            size++;
+        }
+
+        private void scale(double alpha, int rowStart, int rowEnd, int columnStart, int columnEnd) {
+            for (int k = 0; k < size; k++) {
+                final int column = column(columns[k]);
+                if (rows[k] >= rowStart && rows[k] < rowEnd && column >= columnStart && column < columnEnd) {
+                    values[k] *= alpha;
+                }
+            }
+        }
+    }
+
+    /**
+     * The triplets <tt>[from, to)</tt> of a buffer.
+     */
+    private static final class Block {
+        private final TripletBuffer buffer;
+        private final int from, to;
+
+        private Block(TripletBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class ForEach extends RecursiveAction {
+        private static final long serialVersionUID = -6437364926218810213L;
+
+        private final int from, to;
+        private final IntConsumer action;
+
+        private ForEach(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && getSurplusQueuedTaskCount() <= 3) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ForEach(from, mid, action), new ForEach(mid, to, action));
+            } else {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+            }
+        }
+    }
+}
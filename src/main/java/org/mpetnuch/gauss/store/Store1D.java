@@ -36,4 +36,6 @@ public interface Store1D extends Store {
     Store1D slice(Slice slice);
 
     Store1D slice(int startIndex, int endIndex);
+
+    Store1D compact();
 }
@@ -45,6 +45,8 @@ public interface Store2D extends Store {
 
     Store1D row(int rowIndex);
 
+    Store2D compact();
+
     default double[][] toArray2D() {
         final PrimitiveIterator.OfDouble iterator = iterator();
         final double[][] array = new double[rowCount()][columnCount()];
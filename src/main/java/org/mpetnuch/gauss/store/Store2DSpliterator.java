@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `Store2DSpliterator.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Row major spliterator for stores whose elements are not laid out along a single strided array (packed, band,
+ * ...), elements are read through {@link Store2D#get(int, int)}.
+ *
+ * @author Michael Petnuch
+ */
+public final class Store2DSpliterator implements Spliterator.OfDouble {
+    private final Store2D store;
+    private final int columnCount;
+    private final int fence;  // one past last ordinal
+    private int index;        // current ordinal, modified on advance/split
+
+    public Store2DSpliterator(Store2D store) {
+        this(store, 0, store.rowCount() * store.columnCount());
+    }
+
+    private Store2DSpliterator(Store2D store, int index, int fence) {
+        this.store = store;
+        this.columnCount = store.columnCount();
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public OfDouble trySplit() {
+        final int lo = index, mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            // can't split any more
+            return null;
+        }
+
+        index = mid;
+        return new Store2DSpliterator(store, lo, mid);
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        if (index >= fence) {
+            return false;
+        }
+
+        action.accept(store.get(index / columnCount, index % columnCount));
+        index++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        if (index >= fence) {
+            return;
+        }
+
+        // hoist the division out of the loop and walk the rows directly
+        int row = index / columnCount, column = index % columnCount;
+        for (int i = index; i < fence; i++) {
+            action.accept(store.get(row, column));
+            if (++column == columnCount) {
+                column = 0;
+                row++;
+            }
+        }
+
+        index = fence;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (long) (fence - index);
+    }
+
+    @Override
+    public int characteristics() {
+        return IMMUTABLE | ORDERED | SIZED | SUBSIZED;
+    }
+}
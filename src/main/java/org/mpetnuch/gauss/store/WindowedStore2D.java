@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `WindowedStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.WindowedStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.Spliterator;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * Base class for stores that keep a matrix in a compressed layout described by a {@link WindowedStructure2D}.
+ * Slices and transposes are views onto the same array; rows and columns are in general not evenly strided in
+ * such layouts and are therefore returned as compact copies.
+ *
+ * @author Michael Petnuch
+ */
+public abstract class WindowedStore2D<S extends WindowedStructure2D<S>, T extends WindowedStore2D<S, T>> implements Store2D {
+    private final Set<DataFlag> flags = EnumSet.noneOf(DataFlag.class);
+    protected final S structure;
+    protected final double[] array;
+
+    protected WindowedStore2D(double[] array, S structure) {
+        this.array = array;
+        this.structure = structure;
+    }
+
+    protected abstract T create(S structure);
+
+    @Override
+    public Set<DataFlag> flags() {
+        return flags;
+    }
+
+    @Override
+    public S structure() {
+        return structure;
+    }
+
+    @Override
+    public int rowCount() {
+        return structure.rowCount();
+    }
+
+    @Override
+    public int columnCount() {
+        return structure.columnCount();
+    }
+
+    @Override
+    public double get(int... indices) {
+        if (indices.length != 2) {
+            throw new IllegalArgumentException();
+        }
+
+        return get(indices[0], indices[1]);
+    }
+
+    @Override
+    public double get(int rowIndex, int columnIndex) {
+        final int index = structure.index(rowIndex, columnIndex);
+        return index == WindowedStructure2D.IMPLICIT_ZERO ? 0.0 : array[index];
+    }
+
+    /**
+     * Reads the element at the given position in storage, as computed by
+     * {@link WindowedStructure2D#storageIndex(int, int)}.
+     */
+    public double getStored(int storageIndex) {
+        return array[storageIndex];
+    }
+
+    @Override
+    public ArrayStore1D row(int rowIndex) {
+        final int columnCount = columnCount();
+        final double[] row = new double[columnCount];
+        for (int j = 0; j < columnCount; j++) {
+            row[j] = get(rowIndex, j);
+        }
+
+        return new ArrayStore1D(row, new ArrayStructure1D(columnCount));
+    }
+
+    @Override
+    public ArrayStore1D column(int columnIndex) {
+        final int rowCount = rowCount();
+        final double[] column = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            column[i] = get(i, columnIndex);
+        }
+
+        return new ArrayStore1D(column, new ArrayStructure1D(rowCount));
+    }
+
+    @Override
+    public T slice(Slice... slices) {
+        return create(structure.slice(slices));
+    }
+
+    @Override
+    public T slice(Slice rowSlice, Slice columnSlice) {
+        return create(structure.slice(rowSlice, columnSlice));
+    }
+
+    @Override
+    public T slice(int rowStartInclusive, int rowEndExclusive,
+                   int columnStartInclusive, int columnEndExclusive) {
+        return create(structure.slice(S(rowStartInclusive, rowEndExclusive), S(columnStartInclusive, columnEndExclusive)));
+    }
+
+    @Override
+    public T transpose() {
+        return create(structure.transpose());
+    }
+
+    @Override
+    public T swapAxis(int axis1, int axis2) {
+        return create(structure.swapAxis(axis1, axis2));
+    }
+
+    @Override
+    public ArrayStore1D reshape(int length) {
+        if (size() != length) {
+            throw new DimensionMismatchException(length, size());
+        }
+
+        return new ArrayStore1D(toArray(), new ArrayStructure1D(length));
+    }
+
+    @Override
+    public ArrayStore2D reshape(int rowCount, int columnCount) {
+        if (size() != rowCount * columnCount) {
+            throw new InvalidShapeException(new int[]{rowCount, columnCount}, new int[]{rowCount(), columnCount()});
+        }
+
+        return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount, columnCount));
+    }
+
+    @Override
+    public Store reshape(int... dimensions) {
+        return reshape(size()).reshape(dimensions);
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return new Store2DSpliterator(this);
+    }
+}
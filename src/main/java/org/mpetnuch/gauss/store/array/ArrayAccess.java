@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayAccess.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+
+/**
+ * Low level access to the array behind an array store, for kernels that want to run tight loops instead of going
+ * through {@code get}, {@code set} and {@code increment} for every element. The backing array, offset, lengths and
+ * strides are captured once, so the kernel does no flag or bounds checks of its own: element
+ * <tt>(i<sub>0</sub>, ..., i<sub>n-1</sub>)</tt> lives at <tt>offset + i<sub>0</sub> * stride(0) + ... +
+ * i<sub>n-1</sub> * stride(n - 1)</tt>.
+ * <p>
+ * An access obtained through {@link #write(ArrayStore)} is the capability to write: the store is checked for
+ * {@link DataFlag#Writable} once, when the access is created. A kernel must never write through an access obtained
+ * through {@link #read(ArrayStore)}, nor outside of the elements the store covers, as the array may be shared with
+ * other stores.
+ *
+ * @author Michael Petnuch
+ * @version $Id$
+ */
+public final class ArrayAccess {
+    private final double[] array;
+    private final int offset;
+    private final int[] lengths, strides;
+    private final boolean writable;
+
+    private ArrayAccess(ArrayStore store, boolean writable) {
+        final ArrayStructure structure = store.structure();
+        final int dimension = structure.dimension();
+
+        this.array = ArrayStores.array(store);
+        this.offset = structure.offset();
+        this.lengths = new int[dimension];
+        this.strides = new int[dimension];
+        for (int d = 0; d < dimension; d++) {
+            lengths[d] = structure.dimensionLength(d);
+            strides[d] = structure.stride(d);
+        }
+
+        this.writable = writable;
+    }
+
+    /**
+     * Read only access to the elements of the store.
+     */
+    public static ArrayAccess read(ArrayStore store) {
+        return new ArrayAccess(store, false);
+    }
+
+    /**
+     * Read and write access to the elements of the store.
+     *
+     * @throws IllegalStateException if the store is not writable
+     */
+    public static ArrayAccess write(ArrayStore store) {
+        if (!store.flags().contains(DataFlag.Writable)) {
+            throw new IllegalStateException(store.getClass().getSimpleName() + " is not writable");
+        }
+
+        return new ArrayAccess(store, true);
+    }
+
+    public double[] array() {
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int dimension() {
+        return lengths.length;
+    }
+
+    public int length(int dimension) {
+        return lengths[dimension];
+    }
+
+    public int stride(int dimension) {
+        return strides[dimension];
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * The position of element <tt>(rowIndex, columnIndex)</tt> of a two dimensional store, without any checks.
+     */
+    public int index(int rowIndex, int columnIndex) {
+        return offset + rowIndex * strides[0] + columnIndex * strides[1];
+    }
+}
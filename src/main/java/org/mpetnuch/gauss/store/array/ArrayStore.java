@@ -22,6 +22,11 @@ package org.mpetnuch.gauss.store.array;
 import org.mpetnuch.gauss.store.Store;
 import org.mpetnuch.gauss.structure.Slice;
 import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure3D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure4D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
 import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterator;
 
 /**
@@ -51,4 +56,39 @@ public interface ArrayStore extends Store {
     ArrayStructureSpliterator spliterator();
 
     ArrayStore compact();
+
+    /**
+     * Wraps a row-major array of the given shape in the store specialized for its rank: {@link ArrayStore1D},
+     * {@link ArrayStore2D}, {@link ArrayStore3D}, {@link ArrayStore4D} or otherwise {@link ArrayStoreAnyD}.
+     */
+    static ArrayStore of(double[] array, int... shape) {
+        final int[] strides = new int[shape.length];
+        for (int d = shape.length - 1, stride = 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+
+        return of(array, shape, strides, 0);
+    }
+
+    /**
+     * Wraps an array laid out with the given strides in the store specialized for the rank of the shape.
+     */
+    static ArrayStore of(double[] array, int[] shape, int[] strides, int offset) {
+        switch (shape.length) {
+            case 1:
+                return new ArrayStore1D(array, new ArrayStructure1D(shape[0], strides[0], offset));
+            case 2:
+                return new ArrayStore2D(array, new ArrayStructure2D(shape[0], strides[0], shape[1], strides[1],
+                        offset));
+            case 3:
+                return new ArrayStore3D(array, new ArrayStructure3D(shape[0], strides[0], shape[1], strides[1],
+                        shape[2], strides[2], offset));
+            case 4:
+                return new ArrayStore4D(array, new ArrayStructure4D(shape[0], strides[0], shape[1], strides[1],
+                        shape[2], strides[2], shape[3], strides[3], offset));
+            default:
+                return new ArrayStoreAnyD(array, new ArrayStructureAnyD(shape.clone(), strides.clone(), offset));
+        }
+    }
 }
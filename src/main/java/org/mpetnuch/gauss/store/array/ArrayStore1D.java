@@ -25,10 +25,11 @@ import org.mpetnuch.gauss.store.Store1D;
 import org.mpetnuch.gauss.structure.Slice;
 import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
 import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterator;
-import org.mpetnuch.gauss.structure.array.spliterator.NaturalOrderSpliterator;
+import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterators;
 
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.function.DoubleUnaryOperator;
 
 import static org.mpetnuch.gauss.structure.Slice.S;
 
@@ -40,11 +41,32 @@ public class ArrayStore1D implements ArrayStore, Store1D {
     private final ArrayStructure1D structure;
     private final double[] array;
 
+    public ArrayStore1D(int length) {
+        this.array = new double[length];
+        this.structure = new ArrayStructure1D(length);
+        this.flags.add(DataFlag.Writable);
+        this.flags.add(DataFlag.Contiguous);
+    }
+
     public ArrayStore1D(double[] array, ArrayStructure1D structure) {
         this.array = array;
         this.structure = structure;
     }
 
+    ArrayStore1D(double[] array, ArrayStructure1D structure, Set<DataFlag> parentFlags) {
+        this.array = array;
+        this.structure = structure;
+
+        // views share the backing array, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
     @Override
     public Set<DataFlag> flags() {
         return flags;
@@ -63,12 +85,12 @@ public class ArrayStore1D implements ArrayStore, Store1D {
 
     @Override
     public ArrayStore1D slice(Slice slice) {
-        return new ArrayStore1D(array, structure.slice(slice));
+        return new ArrayStore1D(array, structure.slice(slice), flags);
     }
 
     @Override
     public ArrayStore1D slice(int startInclusive, int endExclusive) {
-        return new ArrayStore1D(array, structure.slice(S(startInclusive, endExclusive)));
+        return new ArrayStore1D(array, structure.slice(S(startInclusive, endExclusive)), flags);
     }
 
     @Override
@@ -80,12 +102,12 @@ public class ArrayStore1D implements ArrayStore, Store1D {
                 return reshape(dimensions[0]);
         }
 
-        return new ArrayStoreAnyD(array, structure.reshape(dimensions));
+        return ArrayStores.reshape(this, dimensions);
     }
 
     @Override
     public ArrayStore2D reshape(int rowCount, int columnCount) {
-        return new ArrayStore2D(array, structure.reshape(rowCount, columnCount));
+        return (ArrayStore2D) ArrayStores.reshape(this, new int[]{rowCount, columnCount});
     }
 
     @Override
@@ -99,12 +121,12 @@ public class ArrayStore1D implements ArrayStore, Store1D {
 
     @Override
     public ArrayStore1D slice(Slice... slices) {
-        return new ArrayStore1D(array, structure.slice(slices));
+        return new ArrayStore1D(array, structure.slice(slices), flags);
     }
 
     @Override
     public ArrayStore1D swapAxis(int axis1, int axis2) {
-        return new ArrayStore1D(array, structure.swapAxis(axis1, axis2));
+        return new ArrayStore1D(array, structure.swapAxis(axis1, axis2), flags);
     }
 
     @Override
@@ -117,8 +139,43 @@ public class ArrayStore1D implements ArrayStore, Store1D {
         return array[structure.index(indices[0])];
     }
 
+    double[] array() {
+        return array;
+    }
+
     @Override
     public ArrayStructureSpliterator spliterator() {
-        return new NaturalOrderSpliterator(structure, array);
+        return ArrayStructureSpliterators.spliterator(structure, array);
+    }
+
+    public ArrayStore1D immutableCopy() {
+        return new ArrayStore1D(toArray(), new ArrayStructure1D(length()));
+    }
+
+    public void increment(int index, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("ArrayStore1D is not writable");
+        }
+
+        array[structure.index(index)] += x;
+    }
+
+    public void set(int index, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("ArrayStore1D is not writable");
+        }
+
+        array[structure.index(index)] = x;
+    }
+
+    public void replaceAll(DoubleUnaryOperator operator) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("ArrayStore1D is not writable");
+        }
+
+        for (int i = 0, length = length(); i < length; i++) {
+            final int index = structure.index(i);
+            array[index] = operator.applyAsDouble(array[index]);
+        }
     }
 }
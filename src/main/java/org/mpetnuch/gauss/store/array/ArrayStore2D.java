@@ -26,11 +26,10 @@ import org.mpetnuch.gauss.store.Store2D;
 import org.mpetnuch.gauss.structure.Slice;
 import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
 import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
-import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
 import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterator;
-import org.mpetnuch.gauss.structure.array.spliterator.NaturalOrderSpliterator;
+import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterators;
 
-import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Set;
 import java.util.function.DoubleUnaryOperator;
@@ -46,19 +45,73 @@ public class ArrayStore2D implements ArrayStore, Store2D {
     private final double[] array;
 
     public ArrayStore2D(int rowCount, int columnCount, DataFlag... flags) {
-        this.array = new double[rowCount * columnCount];
         this.structure = new ArrayStructure2D(rowCount, columnCount);
+        this.array = new double[structure.size()];
         this.flags = EnumSet.of(DataFlag.Writable, DataFlag.Contiguous);
     }
 
+    /**
+     * Allocates a writable, zero filled <tt>rowCount x columnCount</tt> store laid out in the given order.
+     */
+    public ArrayStore2D(int rowCount, int columnCount, StorageOrder storageOrder) {
+        this.structure = new ArrayStructure2D(rowCount, columnCount, storageOrder);
+        this.array = new double[structure.size()];
+        this.flags = EnumSet.of(DataFlag.Writable, DataFlag.Contiguous);
+    }
+
+    /**
+     * Allocates a writable, zero filled <tt>rowCount x columnCount</tt> store laid out in the given order whose
+     * rows (row-major) or columns (column-major) start <tt>leadingDimension</tt> elements apart.
+     *
+     * @see ArrayStructure2D#paddedLeadingDimension(int)
+     */
+    public ArrayStore2D(int rowCount, int columnCount, StorageOrder storageOrder, int leadingDimension) {
+        this.structure = new ArrayStructure2D(rowCount, columnCount, storageOrder, leadingDimension);
+        this.array = new double[structure.size() == 0 ? 0 : structure.lastIndex() + 1];
+        this.flags = EnumSet.of(DataFlag.Writable);
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    /**
+     * Allocates a writable, zero filled store laid out in the given order whose leading dimension is padded to
+     * avoid cache set aliasing when walking along the non unit stride dimension.
+     *
+     * @see ArrayStructure2D#paddedLeadingDimension(int)
+     */
+    public static ArrayStore2D padded(int rowCount, int columnCount, StorageOrder storageOrder) {
+        final int length = StorageOrder.ColumnMajor == storageOrder ? rowCount : columnCount;
+        return new ArrayStore2D(rowCount, columnCount, storageOrder,
+                ArrayStructure2D.paddedLeadingDimension(length));
+    }
+
     public ArrayStore2D(double[] array, ArrayStructure2D structure) {
-        if (array.length < structure.size()) {
+        if (structure.size() > 0 && array.length <= structure.lastIndex()) {
             throw new IllegalArgumentException("Array is incompatible with structure");
         }
 
         this.array = array;
         this.structure = structure;
         this.flags = EnumSet.noneOf(DataFlag.class);
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    ArrayStore2D(double[] array, ArrayStructure2D structure, Set<DataFlag> parentFlags) {
+        this.array = array;
+        this.structure = structure;
+        this.flags = EnumSet.noneOf(DataFlag.class);
+
+        // views share the backing array, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
     }
 
     @Override
@@ -71,9 +124,47 @@ public class ArrayStore2D implements ArrayStore, Store2D {
         return structure;
     }
 
+    public StorageOrder storageOrder() {
+        return structure.storageOrder();
+    }
+
+    /**
+     * Returns a contiguous copy of this store that keeps its storage order.
+     */
     @Override
     public ArrayStore2D compact() {
-        return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount(), columnCount()));
+        return compact(storageOrder());
+    }
+
+    /**
+     * Returns a contiguous copy of this store laid out in the given order.
+     */
+    public ArrayStore2D compact(StorageOrder storageOrder) {
+        // the natural order of the transpose is the column-major order of this store
+        final double[] elements = StorageOrder.ColumnMajor == storageOrder ? transpose().toArray() : toArray();
+        return new ArrayStore2D(elements, new ArrayStructure2D(rowCount(), columnCount(), storageOrder));
+    }
+
+    /**
+     * Returns a copy of this store laid out in the given order with the given leading dimension.
+     */
+    public ArrayStore2D compact(StorageOrder storageOrder, int leadingDimension) {
+        final ArrayStore2D copy = new ArrayStore2D(rowCount(), columnCount(), storageOrder, leadingDimension);
+        if (StorageOrder.ColumnMajor == storageOrder) {
+            for (int j = 0, columnCount = columnCount(); j < columnCount; j++) {
+                for (int i = 0, rowCount = rowCount(); i < rowCount; i++) {
+                    copy.array[copy.structure.index(i, j)] = array[structure.index(i, j)];
+                }
+            }
+        } else {
+            for (int i = 0, rowCount = rowCount(); i < rowCount; i++) {
+                for (int j = 0, columnCount = columnCount(); j < columnCount; j++) {
+                    copy.array[copy.structure.index(i, j)] = array[structure.index(i, j)];
+                }
+            }
+        }
+
+        return new ArrayStore2D(copy.array, copy.structure);
     }
 
     @Override
@@ -102,29 +193,30 @@ public class ArrayStore2D implements ArrayStore, Store2D {
 
     @Override
     public ArrayStore1D column(int columnIndex) {
-        return new ArrayStore1D(array, structure.column(columnIndex));
+        return new ArrayStore1D(array, structure.column(columnIndex), flags);
     }
 
     @Override
     public ArrayStore1D row(int rowIndex) {
-        return new ArrayStore1D(array, structure.row(rowIndex));
+        return new ArrayStore1D(array, structure.row(rowIndex), flags);
     }
 
     @Override
     public ArrayStore2D slice(Slice... slices) {
-        return new ArrayStore2D(array, structure.slice(slices));
+        return new ArrayStore2D(array, structure.slice(slices), flags);
     }
 
     @Override
-    public Store2D slice(Slice rowSlice, Slice columnSlice) {
-        return new ArrayStore2D(array, structure.slice(rowSlice, columnSlice));
+    public ArrayStore2D slice(Slice rowSlice, Slice columnSlice) {
+        return new ArrayStore2D(array, structure.slice(rowSlice, columnSlice), flags);
     }
 
     @Override
     public ArrayStore2D slice(int rowStartInclusive, int rowEndExclusive,
                               int columnStartInclusive, int columnEndExclusive) {
         return new ArrayStore2D(array,
-                structure.slice(S(rowStartInclusive, rowEndExclusive), S(columnStartInclusive, columnEndExclusive)));
+                structure.slice(S(rowStartInclusive, rowEndExclusive), S(columnStartInclusive, columnEndExclusive)),
+                flags);
     }
 
     @Override
@@ -133,19 +225,7 @@ public class ArrayStore2D implements ArrayStore, Store2D {
             throw new DimensionMismatchException(length, size());
         }
 
-        final int offset = structure.offset();
-        final int rowStride = structure.rowStride();
-        final int columnStride = structure.columnStride();
-
-        if (columnStride * columnCount() == rowStride) {
-            // then we can directly reshape the array with out making a copy
-            final ArrayStructure1D reshapedStructure = new ArrayStructure1D(size(), columnStride, offset);
-            return new ArrayStore1D(array, reshapedStructure);
-        } else {
-            // impossible, need to make a copy
-            final ArrayStructure1D reshapedStructure = new ArrayStructure1D(size());
-            return new ArrayStore1D(toArray(), reshapedStructure);
-        }
+        return (ArrayStore1D) ArrayStores.reshape(this, new int[]{length});
     }
 
     @Override
@@ -154,65 +234,31 @@ public class ArrayStore2D implements ArrayStore, Store2D {
             throw new InvalidShapeException(new int[]{rowCount, columnCount}, new int[]{rowCount(), columnCount()});
         }
 
-        final int rowStride = structure.rowStride();
-        final int columnStride = structure.columnStride();
-
-        if (rowStride != columnStride * columnCount()) {
-            // need to make a copy, can't be handled with a single stride
-            final ArrayStructure2D reshapedStructure = new ArrayStructure2D(rowCount, columnCount);
-            return new ArrayStore2D(toArray(), reshapedStructure);
-        }
-
-        // note: rowStride == columnStride * column() => offset == 0
-        final int offset = 0;
-
-        if (columnStride == 1) {
-            final ArrayStructure2D reshapedStructure = new ArrayStructure2D(rowCount, columnCount, offset);
-            return new ArrayStore2D(array, reshapedStructure);
-        }
-
-        if (columnCount() % columnCount == 0) {
-            // the column stride is staying the same, but we need to preserve rowStride == columnStride * columnCount;
-            // note however columnCount is the *new* reshaped columnCount
-            final int reshapedRowStride = columnStride * columnCount;
-            final ArrayStructure2D reshapedStructure =
-                    new ArrayStructure2D(rowCount, reshapedRowStride, columnCount, columnStride, offset);
-            return new ArrayStore2D(array, reshapedStructure);
-        }
-
-        // need to make a copy, can't be handled with a single stride
-        final ArrayStructure2D reshapedStructure = new ArrayStructure2D(rowCount, columnCount);
-        return new ArrayStore2D(toArray(), reshapedStructure);
+        return (ArrayStore2D) ArrayStores.reshape(this, new int[]{rowCount, columnCount});
     }
 
     @Override
     public ArrayStore reshape(int... dimensions) {
-        switch (dimensions.length) {
-            case 2:
-                return reshape(dimensions[0], dimensions[1]);
-            case 1:
-                return reshape(dimensions[0]);
-        }
-
-        // I haven't had time to think about when it's possible to do this without a copy so for now, we will
-        // always make a copy
-        final ArrayStructureAnyD reshapedStructure = new ArrayStructureAnyD(dimensions);
-        return new ArrayStoreAnyD(toArray(), reshapedStructure);
+        return ArrayStores.reshape(this, dimensions);
     }
 
     @Override
     public ArrayStore2D transpose() {
-        return new ArrayStore2D(array, structure.transpose());
+        return new ArrayStore2D(array, structure.transpose(), flags);
     }
 
     @Override
     public ArrayStore2D swapAxis(int axis1, int axis2) {
-        return new ArrayStore2D(array, structure.swapAxis(axis1, axis2));
+        return new ArrayStore2D(array, structure.swapAxis(axis1, axis2), flags);
+    }
+
+    double[] array() {
+        return array;
     }
 
     @Override
     public ArrayStructureSpliterator spliterator() {
-        return new NaturalOrderSpliterator(structure, array);
+        return ArrayStructureSpliterators.spliterator(structure, array);
     }
 
     public ArrayStore2D immutableCopy() {
@@ -240,6 +286,12 @@ public class ArrayStore2D implements ArrayStore, Store2D {
             throw new IllegalStateException("ArrayStore2D is not writable");
         }
 
-        Arrays.setAll(array, operator::applyAsDouble);
+        // only touch the elements visible through this store's structure, as the array may be shared with other views
+        for (int i = 0, rowCount = rowCount(); i < rowCount; i++) {
+            for (int j = 0, columnCount = columnCount(); j < columnCount; j++) {
+                final int index = structure.index(i, j);
+                array[index] = operator.applyAsDouble(array[index]);
+            }
+        }
     }
 }
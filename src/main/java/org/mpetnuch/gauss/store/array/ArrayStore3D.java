@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayStore3D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure3D;
+import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterator;
+import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterators;
+import org.mpetnuch.gauss.structure.array.spliterator.CoalescedSpliterator;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ArrayStore3D implements ArrayStore {
+    private final Set<DataFlag> flags = EnumSet.noneOf(DataFlag.class);
+    private final ArrayStructure3D structure;
+    private final double[] array;
+
+    /**
+     * Allocates a writable, zero filled store of the given shape laid out in row-major order.
+     */
+    public ArrayStore3D(int length0, int length1, int length2) {
+        this.structure = new ArrayStructure3D(length0, length1, length2);
+        this.array = new double[structure.size()];
+        this.flags.add(DataFlag.Writable);
+        this.flags.add(DataFlag.Contiguous);
+    }
+
+    public ArrayStore3D(double[] array, ArrayStructure3D structure) {
+        if (structure.size() > 0 && array.length <= structure.lastIndex()) {
+            throw new IllegalArgumentException("Array is incompatible with structure");
+        }
+
+        this.array = array;
+        this.structure = structure;
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    ArrayStore3D(double[] array, ArrayStructure3D structure, Set<DataFlag> parentFlags) {
+        this.array = array;
+        this.structure = structure;
+
+        // views share the backing array, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    @Override
+    public Set<DataFlag> flags() {
+        return flags;
+    }
+
+    public double get(int index0, int index1, int index2) {
+        return array[structure.index(index0, index1, index2)];
+    }
+
+    @Override
+    public double get(int... indices) {
+        return array[structure.index(indices)];
+    }
+
+    public void set(int index0, int index1, int index2, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("ArrayStore3D is not writable");
+        }
+
+        array[structure.index(index0, index1, index2)] = x;
+    }
+
+    public void increment(int index0, int index1, int index2, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("ArrayStore3D is not writable");
+        }
+
+        array[structure.index(index0, index1, index2)] += x;
+    }
+
+    @Override
+    public ArrayStore1D reshape(int length) {
+        if (size() != length) {
+            throw new InvalidShapeException(length, size());
+        }
+
+        return (ArrayStore1D) ArrayStores.reshape(this, new int[]{length});
+    }
+
+    @Override
+    public ArrayStore2D reshape(int rowCount, int columnCount) {
+        if (size() != rowCount * columnCount) {
+            throw new InvalidShapeException(new int[]{rowCount, columnCount}, structure.shape());
+        }
+
+        return (ArrayStore2D) ArrayStores.reshape(this, new int[]{rowCount, columnCount});
+    }
+
+    @Override
+    public ArrayStore reshape(int... dimensions) {
+        return ArrayStores.reshape(this, dimensions);
+    }
+
+    @Override
+    public ArrayStore3D slice(Slice... slices) {
+        return new ArrayStore3D(array, structure.slice(slices), flags);
+    }
+
+    @Override
+    public ArrayStore3D swapAxis(int axis1, int axis2) {
+        return new ArrayStore3D(array, structure.swapAxis(axis1, axis2), flags);
+    }
+
+    @Override
+    public ArrayStructure3D structure() {
+        return structure;
+    }
+
+    @Override
+    public ArrayStore3D compact() {
+        final int[] shape = structure.shape();
+        return new ArrayStore3D(toArray(), new ArrayStructure3D(shape[0], shape[1], shape[2]));
+    }
+
+    @Override
+    public double[] toArray() {
+        final double[] result = new double[size()];
+        new CoalescedSpliterator(structure, array).copyTo(result, 0);
+        return result;
+    }
+
+    double[] array() {
+        return array;
+    }
+
+    @Override
+    public ArrayStructureSpliterator spliterator() {
+        return ArrayStructureSpliterators.spliterator(structure, array);
+    }
+}
@@ -19,8 +19,6 @@
 
 package org.mpetnuch.gauss.store.array;
 
-import org.mpetnuch.gauss.exception.InvalidShapeException;
-import org.mpetnuch.gauss.misc.MathUtils;
 import org.mpetnuch.gauss.store.DataFlag;
 import org.mpetnuch.gauss.structure.Slice;
 import org.mpetnuch.gauss.structure.array.ArrayStructure;
@@ -28,8 +26,8 @@ import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
 import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
 import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
 import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterator;
-import org.mpetnuch.gauss.structure.array.spliterator.NaturalOrderSpliterator;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructureSpliterators;
+import org.mpetnuch.gauss.structure.array.spliterator.CoalescedSpliterator;
 
 import java.util.EnumSet;
 import java.util.Set;
@@ -43,9 +41,33 @@ public class ArrayStoreAnyD implements ArrayStore {
     private final ArrayStructureAnyD structure;
     private final double[] array;
 
-    protected ArrayStoreAnyD(double[] array, ArrayStructureAnyD structure) {
+    /**
+     * Allocates a writable, zero filled store of the given shape laid out in row-major order.
+     */
+    public ArrayStoreAnyD(int... shape) {
+        this.structure = new ArrayStructureAnyD(shape);
+        this.array = new double[structure.size()];
+        this.flags.add(DataFlag.Writable);
+        this.flags.add(DataFlag.Contiguous);
+    }
+
+    public ArrayStoreAnyD(double[] array, ArrayStructureAnyD structure) {
+        this.array = array;
+        this.structure = structure;
+    }
+
+    ArrayStoreAnyD(double[] array, ArrayStructureAnyD structure, Set<DataFlag> parentFlags) {
         this.array = array;
         this.structure = structure;
+
+        // views share the backing array, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
     }
 
     protected ArrayStoreAnyD(double[] array, ArrayStructure structure) {
@@ -65,38 +87,27 @@ public class ArrayStoreAnyD implements ArrayStore {
 
     @Override
     public ArrayStore1D reshape(int length) {
-        return new ArrayStore1D(toArray(), new ArrayStructure1D(length));
+        return (ArrayStore1D) ArrayStores.reshape(this, new int[]{length});
     }
 
     @Override
     public ArrayStore2D reshape(int rowCount, int columnCount) {
-        return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount, columnCount));
+        return (ArrayStore2D) ArrayStores.reshape(this, new int[]{rowCount, columnCount});
     }
 
     @Override
     public ArrayStore reshape(int... dimensions) {
-        if (MathUtils.product(dimensions) != size()) {
-            throw new InvalidShapeException(dimensions, structure.shape());
-        }
-
-        switch (dimensions.length) {
-            case 2:
-                return reshape(dimensions[0], dimensions[1]);
-            case 1:
-                return reshape(dimensions[1]);
-        }
-
-        return new ArrayStoreAnyD(toArray(), new ArrayStructureAnyD(dimensions));
+        return ArrayStores.reshape(this, dimensions);
     }
 
     @Override
     public ArrayStoreAnyD slice(Slice... slices) {
-        return new ArrayStoreAnyD(array, structure.slice(slices));
+        return new ArrayStoreAnyD(array, ArrayStructureAnyD.from(structure.slice(slices)), flags);
     }
 
     @Override
     public ArrayStoreAnyD swapAxis(int axis1, int axis2) {
-        return new ArrayStoreAnyD(array, structure.swapAxis(axis1, axis2));
+        return new ArrayStoreAnyD(array, structure.swapAxis(axis1, axis2), flags);
     }
 
     @Override
@@ -105,12 +116,23 @@ public class ArrayStoreAnyD implements ArrayStore {
     }
 
     @Override
-    public ArrayStore compact() {
-        throw new NotImplementedException();
+    public ArrayStoreAnyD compact() {
+        return new ArrayStoreAnyD(toArray(), new ArrayStructureAnyD(structure.shape()));
+    }
+
+    @Override
+    public double[] toArray() {
+        final double[] result = new double[size()];
+        new CoalescedSpliterator(structure, array).copyTo(result, 0);
+        return result;
+    }
+
+    double[] array() {
+        return array;
     }
 
     @Override
     public ArrayStructureSpliterator spliterator() {
-        return new NaturalOrderSpliterator(structure, array);
+        return ArrayStructureSpliterators.spliterator(structure, array);
     }
 }
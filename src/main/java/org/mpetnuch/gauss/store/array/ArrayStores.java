@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayStores.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.misc.MathUtils;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure3D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure4D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Access to the arrays behind array stores for the operations in this package.
+ *
+ * @author Michael Petnuch
+ */
+final class ArrayStores {
+    private ArrayStores() {
+    }
+
+    /**
+     * Allocates a writable, zero filled, row-major store of the given shape.
+     */
+    static ArrayStore allocate(int[] shape) {
+        switch (shape.length) {
+            case 1:
+                return new ArrayStore1D(shape[0]);
+            case 2:
+                return new ArrayStore2D(shape[0], shape[1]);
+            case 3:
+                return new ArrayStore3D(shape[0], shape[1], shape[2]);
+            case 4:
+                return new ArrayStore4D(shape[0], shape[1], shape[2], shape[3]);
+            default:
+                return new ArrayStoreAnyD(shape);
+        }
+    }
+
+    /**
+     * Views the array with the given layout in the store specialized for its rank, writable if the flags are.
+     */
+    static ArrayStore view(double[] array, int[] shape, int[] strides, int offset, Set<DataFlag> flags) {
+        switch (shape.length) {
+            case 1:
+                return new ArrayStore1D(array, new ArrayStructure1D(shape[0], strides[0], offset), flags);
+            case 2:
+                return new ArrayStore2D(array, new ArrayStructure2D(shape[0], strides[0], shape[1], strides[1],
+                        offset), flags);
+            case 3:
+                return new ArrayStore3D(array, new ArrayStructure3D(shape[0], strides[0], shape[1], strides[1],
+                        shape[2], strides[2], offset), flags);
+            case 4:
+                return new ArrayStore4D(array, new ArrayStructure4D(shape[0], strides[0], shape[1], strides[1],
+                        shape[2], strides[2], shape[3], strides[3], offset), flags);
+            default:
+                return new ArrayStoreAnyD(array, new ArrayStructureAnyD(shape.clone(), strides.clone(), offset),
+                        flags);
+        }
+    }
+
+    /**
+     * Gives the store the new shape, reading its elements in row-major order. The result is a view of the same
+     * array whenever the strides of the store allow it, and a compacted copy otherwise; either way it is as writable
+     * as the store.
+     */
+    static ArrayStore reshape(ArrayStore store, int[] shape) {
+        final ArrayStructure structure = store.structure();
+        if (MathUtils.product(shape) != structure.size()) {
+            throw new InvalidShapeException(shape, structure.shape());
+        }
+
+        final int[] strides = reshapeStrides(structure, shape);
+        if (strides == null) {
+            return view(store.toArray(), shape, rowMajorStrides(shape), 0, store.flags());
+        }
+
+        return view(array(store), shape, strides, structure.offset(), store.flags());
+    }
+
+    /**
+     * Works out the strides that lay the elements of the structure out in the new shape without moving them, the
+     * way NumPy attempts a reshape without a copy: the axes of length one are dropped, then the old and new axes
+     * are matched up into groups with equal products of lengths. A group of old axes has to be contiguous in
+     * row-major order for the new axes spanning it to get strides of their own, otherwise there are none.
+     *
+     * @return the strides of the new shape, or <tt>null</tt> if the elements have to be copied
+     */
+    static int[] reshapeStrides(ArrayStructure structure, int[] shape) {
+        if (structure.size() == 0) {
+            return rowMajorStrides(shape);
+        }
+
+        final int dimension = structure.dimension();
+        final int[] lengths = new int[dimension], strides = new int[dimension];
+        int count = 0;
+        for (int d = 0; d < dimension; d++) {
+            if (structure.dimensionLength(d) != 1) {
+                lengths[count] = structure.dimensionLength(d);
+                strides[count++] = structure.stride(d);
+            }
+        }
+
+        final int[] reshapedStrides = new int[shape.length];
+        int oi = 0, oj = 1, ni = 0, nj = 1;
+        while (ni < shape.length && oi < count) {
+            long np = shape[ni], op = lengths[oi];
+            while (np != op) {
+                if (np < op) {
+                    np *= shape[nj++];
+                } else {
+                    op *= lengths[oj++];
+                }
+            }
+
+            for (int ok = oi; ok < oj - 1; ok++) {
+                if (strides[ok] != lengths[ok + 1] * strides[ok + 1]) {
+                    return null;
+                }
+            }
+
+            reshapedStrides[nj - 1] = strides[oj - 1];
+            for (int nk = nj - 1; nk > ni; nk--) {
+                reshapedStrides[nk - 1] = reshapedStrides[nk] * shape[nk];
+            }
+
+            ni = nj++;
+            oi = oj++;
+        }
+
+        // whatever is left of the new shape has length one, so any stride will do
+        final int trailingStride = ni > 0 ? reshapedStrides[ni - 1] : 1;
+        for (int nk = ni; nk < shape.length; nk++) {
+            reshapedStrides[nk] = trailingStride;
+        }
+
+        return reshapedStrides;
+    }
+
+    private static int[] rowMajorStrides(int[] shape) {
+        final int[] strides = new int[shape.length];
+        for (int d = shape.length - 1, stride = 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+
+        return strides;
+    }
+
+    static double[] array(ArrayStore store) {
+        if (store instanceof ArrayStore1D) {
+            return ((ArrayStore1D) store).array();
+        } else if (store instanceof ArrayStore2D) {
+            return ((ArrayStore2D) store).array();
+        } else if (store instanceof ArrayStore3D) {
+            return ((ArrayStore3D) store).array();
+        } else if (store instanceof ArrayStore4D) {
+            return ((ArrayStore4D) store).array();
+        } else if (store instanceof ArrayStoreAnyD) {
+            return ((ArrayStoreAnyD) store).array();
+        }
+
+        throw new IllegalArgumentException("Unsupported array store " + store.getClass().getName());
+    }
+
+    /**
+     * Returns the dimensions of the structure ordered from the largest stride to the smallest, which is the order
+     * that walks its elements through memory front to back (for positive strides).
+     */
+    static int[] memoryOrder(ArrayStructure structure) {
+        return IntStream.range(0, structure.dimension()).boxed()
+                .sorted((d1, d2) -> Integer.compare(Math.abs(structure.stride(d2)), Math.abs(structure.stride(d1))))
+                .mapToInt(Integer::intValue).toArray();
+    }
+}
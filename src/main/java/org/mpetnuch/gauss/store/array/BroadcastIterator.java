@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `BroadcastIterator.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+
+import java.util.Arrays;
+
+/**
+ * Iterates several array structures together over a common shape, the first of which is the output. Operands are
+ * broadcast against that shape the way NumPy does it: shapes are aligned on their last dimension, missing leading
+ * dimensions count as length one and a dimension of length one is repeated along the common one by giving it a
+ * stride of zero. Dimensions of length one in the common shape are dropped and neighbouring dimensions are merged
+ * whenever every operand walks them as one, so the work is handed out as long runs along a single dimension.
+ *
+ * @author Michael Petnuch
+ */
+final class BroadcastIterator {
+    /**
+     * Works on one run of elements: element <tt>k</tt> of operand <tt>op</tt> is found at
+     * <tt>positions[op] + k * strides[op]</tt>. The arrays are owned by the iterator and must not be modified.
+     */
+    interface Kernel {
+        void run(int length, int[] positions, int[] strides);
+    }
+
+    private final int size;
+    private final int[] lengths;        // coalesced dimensions, outermost first
+    private final int[][] strides;      // coalesced strides, by dimension then operand
+    private final int[] offsets;
+
+    BroadcastIterator(int[] shape, ArrayStructure... operands) {
+        final int rank = shape.length, operandCount = operands.length;
+        final int[][] broadcastStrides = new int[rank][operandCount];
+        this.offsets = new int[operandCount];
+        for (int op = 0; op < operandCount; op++) {
+            final ArrayStructure operand = operands[op];
+            final int shift = rank - operand.dimension();
+            if (shift < 0) {
+                throw new InvalidShapeException(operand.shape(), shape);
+            }
+
+            for (int d = 0; d < operand.dimension(); d++) {
+                final int length = operand.dimensionLength(d);
+                if (length == shape[d + shift]) {
+                    broadcastStrides[d + shift][op] = operand.stride(d);
+                } else if (length != 1) {
+                    throw new InvalidShapeException(operand.shape(), shape);
+                }
+            }
+
+            offsets[op] = operand.offset();
+        }
+
+        // drop unit dimensions and merge a dimension into the next one when every operand allows it
+        final int[] lengths = new int[Math.max(1, rank)];
+        final int[][] strides = new int[Math.max(1, rank)][];
+        int count = 0, size = 1;
+        for (int d = 0; d < rank; d++) {
+            size *= shape[d];
+            if (shape[d] == 1) {
+                continue;
+            }
+
+            if (count > 0 && mergeable(strides[count - 1], broadcastStrides[d], shape[d])) {
+                lengths[count - 1] *= shape[d];
+                strides[count - 1] = broadcastStrides[d];
+            } else {
+                lengths[count] = shape[d];
+                strides[count++] = broadcastStrides[d];
+            }
+        }
+
+        if (count == 0) {
+            lengths[0] = 1;
+            strides[0] = new int[operandCount];
+            count = 1;
+        }
+
+        this.size = size;
+        this.lengths = Arrays.copyOf(lengths, count);
+        this.strides = Arrays.copyOf(strides, count);
+    }
+
+    private static boolean mergeable(int[] outer, int[] inner, int innerLength) {
+        for (int op = 0; op < outer.length; op++) {
+            if (outer[op] != inner[op] * innerLength) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the shape every operand broadcasts to, or throws if there is none.
+     */
+    static int[] broadcastShape(ArrayStructure... operands) {
+        final int rank = Arrays.stream(operands).mapToInt(ArrayStructure::dimension).max().orElse(0);
+        final int[] shape = new int[rank];
+        Arrays.fill(shape, 1);
+        for (ArrayStructure operand : operands) {
+            for (int d = operand.dimension() - 1, s = rank - 1; d >= 0; d--, s--) {
+                final int length = operand.dimensionLength(d);
+                if (shape[s] == 1) {
+                    shape[s] = length;
+                } else if (length != 1 && length != shape[s]) {
+                    throw new InvalidShapeException(operand.shape(), shape);
+                }
+            }
+        }
+
+        return shape;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the length of the runs handed to kernels, except where a range starts or ends part way through one.
+     */
+    int runLength() {
+        return lengths[lengths.length - 1];
+    }
+
+    /**
+     * Returns a point between <tt>from</tt> and <tt>to</tt> that falls on a run boundary if the range spans more
+     * than one run, or on a cache line otherwise.
+     */
+    int split(int from, int to) {
+        final int innerLength = lengths[lengths.length - 1];
+        final int firstRun = from / innerLength, lastRun = (to - 1) / innerLength;
+        if (firstRun < lastRun) {
+            return ((firstRun + lastRun + 1) >>> 1) * innerLength;
+        }
+
+        final int middle = ((from + to) >>> 1) & -ArrayStructure.CACHE_LINE_LENGTH;
+        return middle > from ? middle : (from + to) >>> 1;
+    }
+
+    /**
+     * Hands the elements with ordinals in <tt>[from, to)</tt> to the kernel, a run at a time.
+     */
+    void forEach(int from, int to, Kernel kernel) {
+        if (from >= to) {
+            return;
+        }
+
+        final int last = lengths.length - 1, innerLength = lengths[last], operandCount = offsets.length;
+        final int[] indices = new int[lengths.length];
+        final int[] positions = offsets.clone();
+        for (int d = last, remainder = from; d >= 0; d--) {
+            indices[d] = remainder % lengths[d];
+            remainder /= lengths[d];
+            for (int op = 0; op < operandCount; op++) {
+                positions[op] += indices[d] * strides[d][op];
+            }
+        }
+
+        final int[] innerStrides = strides[last].clone();
+        for (int i = from; ; ) {
+            final int run = Math.min(innerLength - indices[last], to - i);
+            kernel.run(run, positions, innerStrides);
+            if ((i += run) >= to) {
+                return;
+            }
+
+            // rewind to the start of the run and step the outer dimensions
+            for (int op = 0; op < operandCount; op++) {
+                positions[op] -= indices[last] * innerStrides[op];
+            }
+
+            indices[last] = 0;
+            for (int d = last - 1; d >= 0; d--) {
+                if (++indices[d] < lengths[d]) {
+                    for (int op = 0; op < operandCount; op++) {
+                        positions[op] += strides[d][op];
+                    }
+
+                    break;
+                }
+
+                indices[d] = 0;
+                for (int op = 0; op < operandCount; op++) {
+                    positions[op] -= (lengths[d] - 1) * strides[d][op];
+                }
+            }
+        }
+    }
+}
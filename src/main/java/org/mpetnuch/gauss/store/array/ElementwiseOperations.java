@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ElementwiseOperations.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Element-wise arithmetic over array stores in the style of NumPy's universal functions. Operands of different
+ * shapes are broadcast against each other (see {@link BroadcastIterator}), results are either freshly allocated
+ * stores of the broadcast shape or written into a writable store of exactly that shape, and outputs larger than
+ * the parallel threshold are split into runs of elements computed on the pool.
+ * <p>
+ * An output may be one of the operands (the in-place variants do exactly that), but an output that only
+ * partially overlaps an operand gives undefined results.
+ *
+ * @author Michael Petnuch
+ */
+public class ElementwiseOperations {
+    private static final DoubleBinaryOperator ADD = (x, y) -> x + y;
+    private static final DoubleBinaryOperator SUBTRACT = (x, y) -> x - y;
+    private static final DoubleBinaryOperator MULTIPLY = (x, y) -> x * y;
+    private static final DoubleBinaryOperator DIVIDE = (x, y) -> x / y;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    private ElementwiseOperations(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public ArrayStore add(ArrayStore a, ArrayStore b) {
+        return apply(ADD, a, b);
+    }
+
+    public ArrayStore add(ArrayStore a, double b) {
+        return apply(ADD, a, scalar(b));
+    }
+
+    public ArrayStore subtract(ArrayStore a, ArrayStore b) {
+        return apply(SUBTRACT, a, b);
+    }
+
+    public ArrayStore subtract(ArrayStore a, double b) {
+        return apply(SUBTRACT, a, scalar(b));
+    }
+
+    public ArrayStore multiply(ArrayStore a, ArrayStore b) {
+        return apply(MULTIPLY, a, b);
+    }
+
+    public ArrayStore multiply(ArrayStore a, double b) {
+        return apply(MULTIPLY, a, scalar(b));
+    }
+
+    public ArrayStore divide(ArrayStore a, ArrayStore b) {
+        return apply(DIVIDE, a, b);
+    }
+
+    public ArrayStore divide(ArrayStore a, double b) {
+        return apply(DIVIDE, a, scalar(b));
+    }
+
+    /**
+     * Returns a new store holding <tt>operator(a)</tt> element by element.
+     */
+    public ArrayStore apply(DoubleUnaryOperator operator, ArrayStore a) {
+        return apply(operator, a, ArrayStores.allocate(a.structure().shape()));
+    }
+
+    /**
+     * Writes <tt>operator(a)</tt> into <tt>out</tt>, which <tt>a</tt> must broadcast to, and returns it.
+     */
+    public <S extends ArrayStore> S apply(DoubleUnaryOperator operator, ArrayStore a, S out) {
+        final double[] x = ArrayStores.array(a), z = ArrayStores.array(out);
+        execute(iterator(out, a), (length, positions, strides) -> {
+            final int sz = strides[0], sx = strides[1];
+            if (sz == 1 && sx == 1) {
+                for (int k = 0, iz = positions[0], ix = positions[1]; k < length; k++) {
+                    z[iz + k] = operator.applyAsDouble(x[ix + k]);
+                }
+            } else {
+                for (int k = 0, iz = positions[0], ix = positions[1]; k < length; k++, iz += sz, ix += sx) {
+                    z[iz] = operator.applyAsDouble(x[ix]);
+                }
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Replaces every element of <tt>a</tt> with <tt>operator</tt> applied to it and returns <tt>a</tt>.
+     */
+    public <S extends ArrayStore> S applyInPlace(DoubleUnaryOperator operator, S a) {
+        return apply(operator, a, a);
+    }
+
+    /**
+     * Returns a new store of the broadcast shape of <tt>a</tt> and <tt>b</tt> holding <tt>operator(a, b)</tt>
+     * element by element.
+     */
+    public ArrayStore apply(DoubleBinaryOperator operator, ArrayStore a, ArrayStore b) {
+        final int[] shape = BroadcastIterator.broadcastShape(a.structure(), b.structure());
+        return apply(operator, a, b, ArrayStores.allocate(shape));
+    }
+
+    /**
+     * Writes <tt>operator(a, b)</tt> into <tt>out</tt>, which both operands must broadcast to, and returns it.
+     */
+    public <S extends ArrayStore> S apply(DoubleBinaryOperator operator, ArrayStore a, ArrayStore b, S out) {
+        final double[] x = ArrayStores.array(a), y = ArrayStores.array(b), z = ArrayStores.array(out);
+        execute(iterator(out, a, b), (length, positions, strides) -> {
+            final int sz = strides[0], sx = strides[1], sy = strides[2];
+            if (sz == 1 && sx == 1 && sy == 1) {
+                for (int k = 0, iz = positions[0], ix = positions[1], iy = positions[2]; k < length; k++) {
+                    z[iz + k] = operator.applyAsDouble(x[ix + k], y[iy + k]);
+                }
+            } else {
+                for (int k = 0, iz = positions[0], ix = positions[1], iy = positions[2]; k < length;
+                     k++, iz += sz, ix += sx, iy += sy) {
+                    z[iz] = operator.applyAsDouble(x[ix], y[iy]);
+                }
+            }
+        });
+
+        return out;
+    }
+
+    /**
+     * Replaces <tt>a</tt> with <tt>operator(a, b)</tt> element by element and returns <tt>a</tt>; <tt>b</tt> must
+     * broadcast to the shape of <tt>a</tt>.
+     */
+    public <S extends ArrayStore> S applyInPlace(DoubleBinaryOperator operator, S a, ArrayStore b) {
+        return apply(operator, a, b, a);
+    }
+
+    private BroadcastIterator iterator(ArrayStore out, ArrayStore... operands) {
+        if (!out.flags().contains(DataFlag.Writable)) {
+            throw new IllegalStateException("Output store is not writable");
+        }
+
+        final ArrayStructure[] structures = new ArrayStructure[operands.length + 1];
+        structures[0] = out.structure();
+        for (int op = 0; op < operands.length; op++) {
+            structures[op + 1] = operands[op].structure();
+        }
+
+        return new BroadcastIterator(out.structure().shape(), structures);
+    }
+
+    private void execute(BroadcastIterator iterator, BroadcastIterator.Kernel kernel) {
+        if (iterator.size() < parallelThreshold || pool.getParallelism() == 1) {
+            iterator.forEach(0, iterator.size(), kernel);
+        } else {
+            pool.invoke(new ElementwiseTask(iterator, kernel, parallelThreshold, 0, iterator.size()));
+        }
+    }
+
+    private static ArrayStore scalar(double value) {
+        return new ArrayStore1D(new double[]{value}, new ArrayStructure1D(1));
+    }
+
+    public static class ElementwiseOperationsBuilder {
+        private int parallelThreshold = 1 << 16;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public ElementwiseOperationsBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of output elements below which the work is not split up.
+         */
+        public ElementwiseOperationsBuilder setParallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public ElementwiseOperations createElementwiseOperations() {
+            return new ElementwiseOperations(parallelThreshold, pool);
+        }
+    }
+
+    private static final class ElementwiseTask extends RecursiveAction {
+        private static final long serialVersionUID = 4410470155712839823L;
+
+        private final BroadcastIterator iterator;
+        private final BroadcastIterator.Kernel kernel;
+        private final int threshold, from, to;
+
+        ElementwiseTask(BroadcastIterator iterator, BroadcastIterator.Kernel kernel, int threshold, int from, int to) {
+            this.iterator = iterator;
+            this.kernel = kernel;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                iterator.forEach(from, to, kernel);
+            } else {
+                final int split = iterator.split(from, to);
+                invokeAll(new ElementwiseTask(iterator, kernel, threshold, from, split),
+                        new ElementwiseTask(iterator, kernel, threshold, split, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `Reductions.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Reductions of array stores along an axis, or over all of their elements, and the matrix norms built from them.
+ * Reducing along an axis returns a store of one lower rank (a one dimensional store of length one for a one
+ * dimensional input).
+ * <p>
+ * The elements are visited in the order they are laid out in memory rather than in their logical order: the
+ * dimensions are walked from the largest stride to the smallest, so the column sums of a row-major matrix
+ * stream through its rows and accumulate each row into the (small, cache resident) vector of sums. Inputs larger
+ * than the parallel threshold are cut into ranges reduced on the pool: when the outermost dimension in memory is
+ * kept each range reduces straight into its own slice of the result, otherwise the ranges are reduced into private
+ * partial results that are then combined.
+ *
+ * @author Michael Petnuch
+ */
+public class Reductions {
+    private static final int ALL_AXES = -1;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    private Reductions(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public ArrayStore sum(ArrayStore store, int axis) {
+        return reduce(store, axis, DoubleUnaryOperator.identity(), Double::sum, 0.0);
+    }
+
+    public ArrayStore min(ArrayStore store, int axis) {
+        return reduce(store, axis, DoubleUnaryOperator.identity(), Math::min, Double.POSITIVE_INFINITY);
+    }
+
+    public ArrayStore max(ArrayStore store, int axis) {
+        return reduce(store, axis, DoubleUnaryOperator.identity(), Math::max, Double.NEGATIVE_INFINITY);
+    }
+
+    public ArrayStore mean(ArrayStore store, int axis) {
+        final ArrayStore sum = sum(store, axis);
+        final double[] sums = ArrayStores.array(sum);
+        final int length = store.dimensionLength(axis);
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] /= length;
+        }
+
+        return sum;
+    }
+
+    public double sum(ArrayStore store) {
+        return reduce(store, DoubleUnaryOperator.identity(), Double::sum, 0.0);
+    }
+
+    public double min(ArrayStore store) {
+        return reduce(store, DoubleUnaryOperator.identity(), Math::min, Double.POSITIVE_INFINITY);
+    }
+
+    public double max(ArrayStore store) {
+        return reduce(store, DoubleUnaryOperator.identity(), Math::max, Double.NEGATIVE_INFINITY);
+    }
+
+    public double mean(ArrayStore store) {
+        return sum(store) / store.size();
+    }
+
+    /**
+     * Returns the maximum absolute column sum of the matrix.
+     */
+    public double norm1(ArrayStore2D matrix) {
+        return max(reduce(matrix, 0, Math::abs, Double::sum, 0.0));
+    }
+
+    /**
+     * Returns the maximum absolute row sum of the matrix.
+     */
+    public double normInf(ArrayStore2D matrix) {
+        return max(reduce(matrix, 1, Math::abs, Double::sum, 0.0));
+    }
+
+    /**
+     * Returns the square root of the sum of the squares of the elements of the matrix.
+     */
+    public double normFrobenius(ArrayStore2D matrix) {
+        return Math.sqrt(reduce(matrix, x -> x * x, Double::sum, 0.0));
+    }
+
+    /**
+     * Combines <tt>mapper</tt> applied to every element along <tt>axis</tt>, starting from <tt>identity</tt>.
+     * The combiner must be associative and <tt>identity</tt> its identity, since partial results of ranges
+     * reduced in parallel are combined with it as well.
+     */
+    public ArrayStore reduce(ArrayStore store, int axis, DoubleUnaryOperator mapper, DoubleBinaryOperator combiner,
+                             double identity) {
+        final int rank = store.structure().dimension();
+        if (axis < 0 || axis >= rank) {
+            throw new InvalidDimensionRangeException(axis, 0, rank - 1);
+        }
+
+        final int[] shape = IntStream.range(0, rank).filter(d -> d != axis).map(store::dimensionLength).toArray();
+        final ArrayStore result = ArrayStores.allocate(shape.length == 0 ? new int[]{1} : shape);
+        reduce(store, axis, mapper, combiner, identity, ArrayStores.array(result));
+        return result;
+    }
+
+    /**
+     * Combines <tt>mapper</tt> applied to every element of the store, starting from <tt>identity</tt>.
+     */
+    public double reduce(ArrayStore store, DoubleUnaryOperator mapper, DoubleBinaryOperator combiner,
+                         double identity) {
+        final double[] result = new double[1];
+        reduce(store, ALL_AXES, mapper, combiner, identity, result);
+        return result[0];
+    }
+
+    private void reduce(ArrayStore store, int axis, DoubleUnaryOperator mapper, DoubleBinaryOperator combiner,
+                        double identity, double[] result) {
+        final ArrayStructure structure = store.structure();
+        final int rank = structure.dimension();
+
+        // the result is row-major over the dimensions that are kept, and does not move along the reduced ones
+        final int[] resultStrides = new int[rank];
+        for (int d = rank - 1, stride = 1; d >= 0; d--) {
+            if (axis != ALL_AXES && d != axis) {
+                resultStrides[d] = stride;
+                stride *= structure.dimensionLength(d);
+            }
+        }
+
+        // walk the dimensions in the order they are laid out in memory
+        final int[] order = ArrayStores.memoryOrder(structure);
+        final int[] lengths = new int[rank], strides = new int[rank], targetStrides = new int[rank];
+        for (int d = 0; d < rank; d++) {
+            lengths[d] = structure.dimensionLength(order[d]);
+            strides[d] = structure.stride(order[d]);
+            targetStrides[d] = resultStrides[order[d]];
+        }
+
+        final BroadcastIterator iterator = new BroadcastIterator(lengths,
+                new ArrayStructureAnyD(lengths, targetStrides, 0),
+                new ArrayStructureAnyD(lengths, strides, structure.offset()));
+        final double[] x = ArrayStores.array(store);
+        final int size = iterator.size();
+
+        final int rangeCount = (int) Math.min(pool.getParallelism(),
+                (size + (long) parallelThreshold - 1) / parallelThreshold);
+        Arrays.fill(result, identity);
+        if (rangeCount <= 1) {
+            iterator.forEach(0, size, kernel(x, result, mapper, combiner));
+            return;
+        }
+
+        if (targetStrides[0] != 0 && lengths[0] >= rangeCount) {
+            // the outermost dimension is kept, so ranges of it write to disjoint slices of the result
+            final int block = size / lengths[0];
+            CompletableFuture.allOf(IntStream.range(0, rangeCount).mapToObj(k -> CompletableFuture.runAsync(() -> {
+                final int from = (int) ((long) lengths[0] * k / rangeCount) * block;
+                final int to = (int) ((long) lengths[0] * (k + 1) / rangeCount) * block;
+                iterator.forEach(from, to, kernel(x, result, mapper, combiner));
+            }, pool)).toArray(CompletableFuture<?>[]::new)).join();
+            return;
+        }
+
+        // cut the elements into ranges of whole runs, each reduced into its own partial result
+        final int runLength = iterator.runLength();
+        final int[] bounds = new int[rangeCount + 1];
+        for (int k = 1; k <= rangeCount; k++) {
+            final int bound = (int) ((long) size * k / rangeCount);
+            bounds[k] = k == rangeCount || runLength > size / rangeCount ? bound : bound - bound % runLength;
+        }
+
+        final double[][] partials = new double[rangeCount][];
+        CompletableFuture.allOf(IntStream.range(0, rangeCount).mapToObj(k -> CompletableFuture.runAsync(() -> {
+            final double[] partial = new double[result.length];
+            Arrays.fill(partial, identity);
+            iterator.forEach(bounds[k], bounds[k + 1], kernel(x, partial, mapper, combiner));
+            partials[k] = partial;
+        }, pool)).toArray(CompletableFuture<?>[]::new)).join();
+
+        for (double[] partial : partials) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = combiner.applyAsDouble(result[i], partial[i]);
+            }
+        }
+    }
+
+    private static BroadcastIterator.Kernel kernel(double[] x, double[] target, DoubleUnaryOperator mapper,
+                                                   DoubleBinaryOperator combiner) {
+        return (length, positions, strides) -> {
+            final int st = strides[0], sx = strides[1];
+            if (st == 0) {
+                // the run is along a reduced dimension, so it all goes into one element of the target
+                double accumulator = target[positions[0]];
+                for (int k = 0, ix = positions[1]; k < length; k++, ix += sx) {
+                    accumulator = combiner.applyAsDouble(accumulator, mapper.applyAsDouble(x[ix]));
+                }
+
+                target[positions[0]] = accumulator;
+            } else {
+                for (int k = 0, it = positions[0], ix = positions[1]; k < length; k++, it += st, ix += sx) {
+                    target[it] = combiner.applyAsDouble(target[it], mapper.applyAsDouble(x[ix]));
+                }
+            }
+        };
+    }
+
+    public static class ReductionsBuilder {
+        private int parallelThreshold = 1 << 16;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public ReductionsBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of input elements each range reduced in parallel should at least cover.
+         */
+        public ReductionsBuilder setParallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public Reductions createReductions() {
+            return new Reductions(parallelThreshold, pool);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `Scans.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Inclusive prefix scans of array stores along an axis: element <tt>k</tt> along the axis of the result combines
+ * elements <tt>0</tt> to <tt>k</tt> of the input. Inputs may be any view, and the result may be the input itself.
+ * <p>
+ * A scan walks the elements in the order they are laid out in memory, as {@link Reductions} does, combining each
+ * slab across the axis with the slab before it. Large inputs are scanned in parallel. When the axis is long it is
+ * cut into blocks which are scanned independently, then the last slabs of the blocks are scanned in order to give
+ * each block its carry, and finally every block but the first combines its carry into its elements. When the axis
+ * is short the scan is instead split across the other dimensions, whose lines are independent.
+ *
+ * @author Michael Petnuch
+ */
+public class Scans {
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    private Scans(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public ArrayStore cumulativeSum(ArrayStore store, int axis) {
+        return scan(store, axis, Double::sum);
+    }
+
+    public ArrayStore cumulativeProduct(ArrayStore store, int axis) {
+        return scan(store, axis, (x, y) -> x * y);
+    }
+
+    public ArrayStore cumulativeMin(ArrayStore store, int axis) {
+        return scan(store, axis, Math::min);
+    }
+
+    public ArrayStore cumulativeMax(ArrayStore store, int axis) {
+        return scan(store, axis, Math::max);
+    }
+
+    /**
+     * Returns a new store of the same shape holding the scan of <tt>store</tt> along <tt>axis</tt>.
+     */
+    public ArrayStore scan(ArrayStore store, int axis, DoubleBinaryOperator operator) {
+        return scan(store, axis, operator, ArrayStores.allocate(store.structure().shape()));
+    }
+
+    /**
+     * Writes the scan of <tt>store</tt> along <tt>axis</tt> into <tt>out</tt>, which must have the same shape, and
+     * returns it. The operator must be associative for the parallel scan to agree with the sequential one.
+     */
+    public <S extends ArrayStore> S scan(ArrayStore store, int axis, DoubleBinaryOperator operator, S out) {
+        final ArrayStructure structure = store.structure();
+        final int rank = structure.dimension();
+        if (axis < 0 || axis >= rank) {
+            throw new InvalidDimensionRangeException(axis, 0, rank - 1);
+        } else if (!Arrays.equals(structure.shape(), out.structure().shape())) {
+            throw new InvalidShapeException(out.structure().shape(), structure.shape());
+        } else if (!out.flags().contains(DataFlag.Writable)) {
+            throw new IllegalStateException("Output store is not writable");
+        }
+
+        final Scan scan = new Scan(store, out, axis, operator);
+        final int length = structure.dimensionLength(axis), size = structure.size();
+        final int parallelism = (int) Math.min(pool.getParallelism(),
+                (size + (long) parallelThreshold - 1) / parallelThreshold);
+        final int[] shape = structure.shape(), lo = new int[rank];
+        if (parallelism <= 1 || length == 0) {
+            scan.scan(lo, shape);
+        } else if (length >= 2 * parallelism) {
+            final int[] bounds = IntStream.rangeClosed(0, parallelism)
+                    .map(b -> (int) ((long) length * b / parallelism)).toArray();
+
+            // scan the blocks, carry their last slabs through in order, then fold the carries into the blocks
+            forEach(parallelism, b -> scan.scan(bounds[b], bounds[b + 1], lo, shape));
+            for (int b = 1; b < parallelism; b++) {
+                scan.carry(bounds[b] - 1, bounds[b + 1] - 1, bounds[b + 1], lo, shape);
+            }
+
+            forEach(parallelism - 1, b -> scan.carry(bounds[b + 1] - 1, bounds[b + 1], bounds[b + 2] - 1, lo, shape));
+        } else {
+            // the lines along the axis are independent, so split them up along the longest other dimension
+            final int split = IntStream.range(0, rank).filter(d -> d != axis).boxed()
+                    .max((d1, d2) -> Integer.compare(shape[d1], shape[d2])).orElse(axis);
+            final int chunks = split == axis ? 1 : Math.min(parallelism, shape[split]);
+            forEach(chunks, c -> {
+                final int[] chunkLo = lo.clone(), chunkShape = shape.clone();
+                chunkLo[split] = (int) ((long) shape[split] * c / chunks);
+                chunkShape[split] = (int) ((long) shape[split] * (c + 1) / chunks) - chunkLo[split];
+                scan.scan(chunkLo, chunkShape);
+            });
+        }
+
+        return out;
+    }
+
+    private void forEach(int count, IntConsumer action) {
+        if (count == 1) {
+            action.accept(0);
+        } else if (count > 1) {
+            CompletableFuture.allOf(IntStream.range(0, count)
+                    .mapToObj(k -> CompletableFuture.runAsync(() -> action.accept(k), pool))
+                    .toArray(CompletableFuture<?>[]::new)).join();
+        }
+    }
+
+    public static class ScansBuilder {
+        private int parallelThreshold = 1 << 16;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public ScansBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of elements each part of a scan done in parallel should at least cover.
+         */
+        public ScansBuilder setParallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public Scans createScans() {
+            return new Scans(parallelThreshold, pool);
+        }
+    }
+
+    /**
+     * Scans boxes of an input into an output, both seen through their dimensions in memory order.
+     */
+    private static final class Scan {
+        private final ArrayStructure in, out;
+        private final double[] x, z;
+        private final int axis;
+        private final int[] order;
+        private final DoubleBinaryOperator operator;
+
+        Scan(ArrayStore in, ArrayStore out, int axis, DoubleBinaryOperator operator) {
+            this.in = in.structure();
+            this.out = out.structure();
+            this.x = ArrayStores.array(in);
+            this.z = ArrayStores.array(out);
+            this.axis = axis;
+            this.order = ArrayStores.memoryOrder(this.in);
+            this.operator = operator;
+        }
+
+        // scans the box starting at lo with the given lengths along the axis
+        void scan(int[] lo, int[] lengths) {
+            scan(lo[axis], lo[axis] + lengths[axis], lo, lengths);
+        }
+
+        // scans positions [from, to) along the axis of the box
+        void scan(int from, int to, int[] lo, int[] lengths) {
+            if (from >= to) {
+                return;
+            }
+
+            final int[] first = box(lo, lengths, from, from + 1);
+            final BroadcastIterator copy = new BroadcastIterator(first, view(out, lo, first, from, false),
+                    view(in, lo, first, from, false));
+            copy.forEach(0, copy.size(), (length, positions, strides) -> {
+                final int sz = strides[0], sx = strides[1];
+                for (int k = 0, iz = positions[0], ix = positions[1]; k < length; k++, iz += sz, ix += sx) {
+                    z[iz] = x[ix];
+                }
+            });
+
+            final int[] rest = box(lo, lengths, from + 1, to);
+            final BroadcastIterator iterator = new BroadcastIterator(rest, view(out, lo, rest, from + 1, false),
+                    view(out, lo, rest, from, false), view(in, lo, rest, from + 1, false));
+            iterator.forEach(0, iterator.size(), (length, positions, strides) -> {
+                final int sz = strides[0], sy = strides[1], sx = strides[2];
+                int iz = positions[0], iy = positions[1], ix = positions[2];
+                if (sy == sz && iy + sz == iz) {
+                    // the run is along the axis, so carry the running value in a register
+                    double running = z[iy];
+                    for (int k = 0; k < length; k++, iz += sz, ix += sx) {
+                        z[iz] = running = operator.applyAsDouble(running, x[ix]);
+                    }
+                } else {
+                    for (int k = 0; k < length; k++, iz += sz, iy += sy, ix += sx) {
+                        z[iz] = operator.applyAsDouble(z[iy], x[ix]);
+                    }
+                }
+            });
+        }
+
+        // combines the result at position carry along the axis into the results at positions [from, to)
+        void carry(int carry, int from, int to, int[] lo, int[] lengths) {
+            if (from >= to) {
+                return;
+            }
+
+            final int[] box = box(lo, lengths, from, to);
+            final BroadcastIterator iterator = new BroadcastIterator(box, view(out, lo, box, from, false),
+                    view(out, lo, box, carry, true));
+            iterator.forEach(0, iterator.size(), (length, positions, strides) -> {
+                final int sz = strides[0], sc = strides[1];
+                for (int k = 0, iz = positions[0], ic = positions[1]; k < length; k++, iz += sz, ic += sc) {
+                    z[iz] = operator.applyAsDouble(z[ic], z[iz]);
+                }
+            });
+        }
+
+        // the lengths of the box in memory order, spanning [from, to) along the axis
+        private int[] box(int[] lo, int[] lengths, int from, int to) {
+            final int[] box = new int[order.length];
+            for (int d = 0; d < order.length; d++) {
+                box[d] = order[d] == axis ? to - from : lengths[order[d]];
+            }
+
+            return box;
+        }
+
+        // the structure starting at lo and at position along the axis, in memory order; pinned repeats that position
+        private ArrayStructureAnyD view(ArrayStructure structure, int[] lo, int[] box, int position, boolean pinned) {
+            final int[] strides = new int[order.length];
+            int offset = structure.offset();
+            for (int d = 0; d < order.length; d++) {
+                final int dimension = order[d];
+                final boolean isAxis = dimension == axis;
+                strides[d] = isAxis && pinned ? 0 : structure.stride(dimension);
+                offset += (isAxis ? position : lo[dimension]) * structure.stride(dimension);
+            }
+
+            return new ArrayStructureAnyD(box, strides, offset);
+        }
+    }
+}
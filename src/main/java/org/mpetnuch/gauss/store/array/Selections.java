@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `Selections.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Selection of arbitrary positions along an axis of an array store, in the style of NumPy's <tt>take</tt>,
+ * <tt>put</tt> and <tt>compress</tt>: {@link #take} gathers the sub-arrays at the given indices (negative indices
+ * count from the end) into a freshly allocated row-major store, {@link #compress} does the same for the positions
+ * a boolean mask selects and {@link #put} scatters the sub-arrays of a store back to the given positions.
+ * <p>
+ * When the axis is the one with the smallest stride each run of the other dimensions gathers all of the indices
+ * at once; otherwise every index copies a whole sub-array, as contiguous runs with {@link System#arraycopy} where
+ * both sides have unit stride (the rows of a row-major matrix, say). Selections larger than the parallel threshold
+ * are split up over the pool.
+ *
+ * @author Michael Petnuch
+ */
+public class Selections {
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    private Selections(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns a new store holding the sub-arrays of <tt>store</tt> at <tt>indices</tt> along <tt>axis</tt>, in
+     * the order given; indices may repeat.
+     */
+    public ArrayStore take(ArrayStore store, int axis, int... indices) {
+        final int[] shape = store.structure().shape();
+        checkAxis(axis, shape.length);
+        final int[] selected = normalize(indices, axis, shape[axis]);
+
+        shape[axis] = selected.length;
+        final ArrayStore result = ArrayStores.allocate(shape);
+        transfer(store, axis, selected, result, axis, identity(selected.length));
+        return result;
+    }
+
+    /**
+     * Returns a new store holding the sub-arrays of <tt>store</tt> along <tt>axis</tt> whose positions are set in
+     * <tt>mask</tt>.
+     */
+    public ArrayStore compress(ArrayStore store, int axis, boolean[] mask) {
+        checkAxis(axis, store.structure().dimension());
+        return take(store, axis, indices(mask, store.dimensionLength(axis)));
+    }
+
+    /**
+     * Writes the sub-arrays of <tt>values</tt> along <tt>axis</tt> to positions <tt>indices</tt> of
+     * <tt>target</tt> and returns <tt>target</tt>. The shape of <tt>values</tt> is that of <tt>target</tt> with
+     * <tt>indices.length</tt> along the axis. The indices should be distinct, as which of the values sent to a
+     * repeated index lands there is unspecified.
+     */
+    public <S extends ArrayStore> S put(S target, int axis, int[] indices, ArrayStore values) {
+        if (!target.flags().contains(DataFlag.Writable)) {
+            throw new IllegalStateException("Target store is not writable");
+        }
+
+        final int[] shape = target.structure().shape();
+        checkAxis(axis, shape.length);
+        final int[] selected = normalize(indices, axis, shape[axis]);
+
+        shape[axis] = selected.length;
+        if (!Arrays.equals(shape, values.structure().shape())) {
+            throw new InvalidShapeException(values.structure().shape(), shape);
+        }
+
+        transfer(values, axis, identity(selected.length), target, axis, selected);
+        return target;
+    }
+
+    /**
+     * Writes the sub-arrays of <tt>values</tt> along <tt>axis</tt>, in order, to the positions of <tt>target</tt>
+     * set in <tt>mask</tt> and returns <tt>target</tt>.
+     */
+    public <S extends ArrayStore> S put(S target, int axis, boolean[] mask, ArrayStore values) {
+        checkAxis(axis, target.structure().dimension());
+        return put(target, axis, indices(mask, target.dimensionLength(axis)), values);
+    }
+
+    // copies sub-array source[k] along the axis of x to sub-array target[k] along the axis of z for every k
+    private void transfer(ArrayStore x, int xAxis, int[] source, ArrayStore z, int zAxis, int[] target) {
+        if (source.length == 0) {
+            return;
+        }
+
+        final ArrayStructure xStructure = x.structure(), zStructure = z.structure();
+        final int[] shape = zStructure.shape();
+        shape[zAxis] = 1;
+
+        final Transfer transfer = new Transfer(ArrayStores.array(x), offsets(source, xStructure.stride(xAxis)),
+                ArrayStores.array(z), offsets(target, zStructure.stride(zAxis)),
+                new BroadcastIterator(shape, along(zStructure, zAxis), along(xStructure, xAxis)),
+                isInnermost(xStructure, xAxis));
+
+        if ((long) transfer.size() * transfer.grain() < parallelThreshold || pool.getParallelism() == 1) {
+            transfer.run(0, transfer.size());
+        } else {
+            pool.invoke(new TransferTask(transfer, Math.max(1, parallelThreshold / transfer.grain()), 0,
+                    transfer.size()));
+        }
+    }
+
+    // the structure of the sub-array at position zero along the axis
+    private static ArrayStructure along(ArrayStructure structure, int axis) {
+        final int rank = structure.dimension();
+        final int[] shape = structure.shape(), strides = new int[rank];
+        for (int d = 0; d < rank; d++) {
+            strides[d] = structure.stride(d);
+        }
+
+        shape[axis] = 1;
+        return new ArrayStructureAnyD(shape, strides, structure.offset());
+    }
+
+    private static boolean isInnermost(ArrayStructure structure, int axis) {
+        final int stride = Math.abs(structure.stride(axis));
+        return IntStream.range(0, structure.dimension())
+                .filter(d -> d != axis && structure.dimensionLength(d) > 1)
+                .allMatch(d -> Math.abs(structure.stride(d)) > stride);
+    }
+
+    private static int[] offsets(int[] indices, int stride) {
+        final int[] offsets = new int[indices.length];
+        for (int k = 0; k < indices.length; k++) {
+            offsets[k] = indices[k] * stride;
+        }
+
+        return offsets;
+    }
+
+    private static int[] normalize(int[] indices, int axis, int length) {
+        final int[] normalized = new int[indices.length];
+        for (int k = 0; k < indices.length; k++) {
+            final int index = indices[k] < 0 ? indices[k] + length : indices[k];
+            if (index < 0 || index >= length) {
+                throw new InvalidDimensionRangeException(indices[k], axis, length);
+            }
+
+            normalized[k] = index;
+        }
+
+        return normalized;
+    }
+
+    private static int[] indices(boolean[] mask, int length) {
+        if (mask.length != length) {
+            throw new DimensionMismatchException(mask.length, length);
+        }
+
+        return IntStream.range(0, length).filter(i -> mask[i]).toArray();
+    }
+
+    private static int[] identity(int length) {
+        return IntStream.range(0, length).toArray();
+    }
+
+    private static void checkAxis(int axis, int rank) {
+        if (axis < 0 || axis >= rank) {
+            throw new InvalidDimensionRangeException(axis, 0, rank - 1);
+        }
+    }
+
+    public static class SelectionsBuilder {
+        private int parallelThreshold = 1 << 16;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public SelectionsBuilder setPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets the number of elements moved below which the work is not split up.
+         */
+        public SelectionsBuilder setParallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public Selections createSelections() {
+            return new Selections(parallelThreshold, pool);
+        }
+    }
+
+    /**
+     * Moves the selected sub-arrays, the range being either one of selected indices (a whole sub-array each) or,
+     * when the axis has the smallest stride, one of elements of the sub-arrays (every index each).
+     */
+    private static final class Transfer {
+        private final double[] x, z;
+        private final int[] xOffsets, zOffsets;
+        private final BroadcastIterator iterator;
+        private final boolean byElement;
+
+        private Transfer(double[] x, int[] xOffsets, double[] z, int[] zOffsets, BroadcastIterator iterator,
+                         boolean byElement) {
+            this.x = x;
+            this.xOffsets = xOffsets;
+            this.z = z;
+            this.zOffsets = zOffsets;
+            this.iterator = iterator;
+            this.byElement = byElement;
+        }
+
+        int size() {
+            return byElement ? iterator.size() : xOffsets.length;
+        }
+
+        // the number of elements moved per position of the range
+        int grain() {
+            return Math.max(1, byElement ? xOffsets.length : iterator.size());
+        }
+
+        int split(int from, int to) {
+            return byElement ? iterator.split(from, to) : (from + to) >>> 1;
+        }
+
+        void run(int from, int to) {
+            if (byElement) {
+                iterator.forEach(from, to, (length, positions, strides) -> {
+                    final int sz = strides[0], sx = strides[1], count = xOffsets.length;
+                    for (int k = 0, iz = positions[0], ix = positions[1]; k < length; k++, iz += sz, ix += sx) {
+                        for (int s = 0; s < count; s++) {
+                            z[iz + zOffsets[s]] = x[ix + xOffsets[s]];
+                        }
+                    }
+                });
+            } else {
+                for (int s = from; s < to; s++) {
+                    final int dz = zOffsets[s], dx = xOffsets[s];
+                    iterator.forEach(0, iterator.size(), (length, positions, strides) -> {
+                        final int sz = strides[0], sx = strides[1];
+                        if (sz == 1 && sx == 1) {
+                            System.arraycopy(x, positions[1] + dx, z, positions[0] + dz, length);
+                        } else {
+                            for (int k = 0, iz = positions[0] + dz, ix = positions[1] + dx; k < length;
+                                 k++, iz += sz, ix += sx) {
+                                z[iz] = x[ix];
+                            }
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    private static final class TransferTask extends RecursiveAction {
+        private static final long serialVersionUID = -2712479307420213652L;
+
+        private final Transfer transfer;
+        private final int threshold, from, to;
+
+        TransferTask(Transfer transfer, int threshold, int from, int to) {
+            this.transfer = transfer;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                transfer.run(from, to);
+            } else {
+                final int split = transfer.split(from, to);
+                invokeAll(new TransferTask(transfer, threshold, from, split),
+                        new TransferTask(transfer, threshold, split, to));
+            }
+        }
+    }
+}
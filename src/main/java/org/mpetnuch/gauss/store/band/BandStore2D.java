@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `BandStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.band;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.WindowedStore2D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.band.BandStructure2D;
+
+/**
+ * General, symmetric or triangular band matrix, see {@link BandStructure2D} for the layout.
+ *
+ * @author Michael Petnuch
+ */
+public final class BandStore2D extends WindowedStore2D<BandStructure2D, BandStore2D> {
+
+    public BandStore2D(double[] array, BandStructure2D structure) {
+        super(array, structure);
+        final int bandLength = BandStructure2D.bandLength(structure.fullColumnCount(),
+                structure.lowerBandwidth(), structure.upperBandwidth());
+        if (array.length < bandLength) {
+            throw new IllegalArgumentException("Array is incompatible with structure");
+        }
+    }
+
+    /**
+     * Copies the band of <tt>store</tt> with the requested bandwidths into a new array, anything outside of the
+     * band is dropped.
+     */
+    public static BandStore2D band(Store2D store, int lowerBandwidth, int upperBandwidth) {
+        return copy(store, new BandStructure2D(store.rowCount(), store.columnCount(), lowerBandwidth, upperBandwidth));
+    }
+
+    /**
+     * Copies <tt>bandwidth</tt> diagonals of the requested triangle of a square store into a new symmetric band store.
+     */
+    public static BandStore2D symmetric(Store2D store, int bandwidth, Triangle triangle) {
+        checkSquare(store);
+        return copy(store, BandStructure2D.symmetric(store.rowCount(), bandwidth, triangle));
+    }
+
+    /**
+     * Copies <tt>bandwidth</tt> diagonals of the requested triangle of a square store into a new triangular band
+     * store.
+     */
+    public static BandStore2D triangular(Store2D store, int bandwidth, Triangle triangle) {
+        checkSquare(store);
+        return copy(store, BandStructure2D.triangular(store.rowCount(), bandwidth, triangle));
+    }
+
+    private static void checkSquare(Store2D store) {
+        if (store.rowCount() != store.columnCount()) {
+            throw new DimensionMismatchException(store.columnCount(), store.rowCount());
+        }
+    }
+
+    private static BandStore2D copy(Store2D store, BandStructure2D structure) {
+        final int rowCount = structure.fullRowCount(), columnCount = structure.fullColumnCount();
+        final int lowerBandwidth = structure.lowerBandwidth(), upperBandwidth = structure.upperBandwidth();
+
+        final double[] band = new double[BandStructure2D.bandLength(columnCount, lowerBandwidth, upperBandwidth)];
+        for (int j = 0; j < columnCount; j++) {
+            final int columnStart = structure.columnStart(j);
+            for (int i = Math.max(0, j - upperBandwidth), end = Math.min(rowCount, j + lowerBandwidth + 1); i < end; i++) {
+                band[columnStart + i] = store.get(i, j);
+            }
+        }
+
+        return new BandStore2D(band, structure);
+    }
+
+    @Override
+    protected BandStore2D create(BandStructure2D structure) {
+        return new BandStore2D(array, structure);
+    }
+
+    /**
+     * Windows aligned with the diagonal are copied into a new band store of their own size, any other window
+     * is copied into a dense row major store.
+     */
+    @Override
+    public Store2D compact() {
+        if (!structure.isAligned()) {
+            return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount(), columnCount()));
+        }
+
+        final int rowCount = rowCount(), columnCount = columnCount();
+        if (structure.isSymmetric()) {
+            final int bandwidth = Math.max(structure.lowerBandwidth(), structure.upperBandwidth());
+            return structure.isPrincipal() ?
+                    copy(this, BandStructure2D.symmetric(rowCount, bandwidth, structure.triangle())) :
+                    copy(this, new BandStructure2D(rowCount, columnCount, bandwidth, bandwidth));
+        }
+
+        // transposing swaps the sub-diagonals with the super-diagonals
+        final boolean transposed = structure.isTransposed();
+        final int lowerBandwidth = transposed ? structure.upperBandwidth() : structure.lowerBandwidth();
+        final int upperBandwidth = transposed ? structure.lowerBandwidth() : structure.upperBandwidth();
+
+        return copy(this, new BandStructure2D(rowCount, columnCount, lowerBandwidth, upperBandwidth));
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `AbstractChunkedStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.chunked;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.chunked.ChunkedStructure2D;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * Base class for stores whose elements are addressed by the <tt>long</tt> positions of a {@link ChunkedStructure2D},
+ * subclasses only have to read and write the element at a position. Slices and transposes are views onto the same
+ * storage; rows and columns always fit in an array and are returned as {@link ArrayStore1D} copies.
+ *
+ * @author Michael Petnuch
+ */
+public abstract class AbstractChunkedStore2D<T extends AbstractChunkedStore2D<T>> implements Store2D {
+    protected final ChunkedStructure2D structure;
+    private final Set<DataFlag> flags = EnumSet.noneOf(DataFlag.class);
+
+    protected AbstractChunkedStore2D(ChunkedStructure2D structure, Set<DataFlag> parentFlags) {
+        this.structure = structure;
+
+        // views share the storage, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    protected abstract T create(ChunkedStructure2D structure, Set<DataFlag> flags);
+
+    protected abstract double element(long index);
+
+    protected abstract void setElement(long index, double x);
+
+    /**
+     * Passes the <tt>count</tt> elements stored at consecutive positions starting at <tt>index</tt> to the action;
+     * subclasses override this to read whole runs out of their chunks.
+     */
+    protected void forEachInRun(long index, int count, DoubleConsumer action) {
+        for (int i = 0; i < count; i++) {
+            action.accept(element(index + i));
+        }
+    }
+
+    @Override
+    public Set<DataFlag> flags() {
+        return flags;
+    }
+
+    @Override
+    public ChunkedStructure2D structure() {
+        return structure;
+    }
+
+    public long longSize() {
+        return structure.longSize();
+    }
+
+    @Override
+    public int rowCount() {
+        return structure.rowCount();
+    }
+
+    @Override
+    public int columnCount() {
+        return structure.columnCount();
+    }
+
+    @Override
+    public double get(int... indices) {
+        if (indices.length != 2) {
+            throw new IllegalArgumentException();
+        }
+
+        return get(indices[0], indices[1]);
+    }
+
+    @Override
+    public double get(int rowIndex, int columnIndex) {
+        return element(structure.index(rowIndex, columnIndex));
+    }
+
+    /**
+     * Returns the element with the given row-major ordinal.
+     */
+    public double getOrdinal(long ordinal) {
+        return element(structure.index(ordinal));
+    }
+
+    public void set(int rowIndex, int columnIndex, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is not writable");
+        }
+
+        setElement(structure.index(rowIndex, columnIndex), x);
+    }
+
+    public void increment(int rowIndex, int columnIndex, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is not writable");
+        }
+
+        final long index = structure.index(rowIndex, columnIndex);
+        setElement(index, element(index) + x);
+    }
+
+    public void replaceAll(DoubleUnaryOperator operator) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is not writable");
+        }
+
+        // only touch the elements visible through this store's structure, as the storage may be shared with other views
+        for (int i = 0, rowCount = rowCount(); i < rowCount; i++) {
+            for (int j = 0, columnCount = columnCount(); j < columnCount; j++) {
+                final long index = structure.index(i, j);
+                setElement(index, operator.applyAsDouble(element(index)));
+            }
+        }
+    }
+
+    @Override
+    public ArrayStore1D row(int rowIndex) {
+        final double[] row = new double[columnCount()];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = get(rowIndex, j);
+        }
+
+        return new ArrayStore1D(row, new ArrayStructure1D(row.length));
+    }
+
+    @Override
+    public ArrayStore1D column(int columnIndex) {
+        final double[] column = new double[rowCount()];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = get(i, columnIndex);
+        }
+
+        return new ArrayStore1D(column, new ArrayStructure1D(column.length));
+    }
+
+    @Override
+    public T slice(Slice... slices) {
+        return create(structure.slice(slices), flags);
+    }
+
+    @Override
+    public T slice(Slice rowSlice, Slice columnSlice) {
+        return create(structure.slice(rowSlice, columnSlice), flags);
+    }
+
+    @Override
+    public T slice(int rowStartInclusive, int rowEndExclusive, int columnStartInclusive, int columnEndExclusive) {
+        return slice(S(rowStartInclusive, rowEndExclusive), S(columnStartInclusive, columnEndExclusive));
+    }
+
+    @Override
+    public T transpose() {
+        return create(structure.transpose(), flags);
+    }
+
+    @Override
+    public T swapAxis(int axis1, int axis2) {
+        return create(structure.swapAxis(axis1, axis2), flags);
+    }
+
+    /**
+     * Copies this store into a single array.
+     *
+     * @throws DimensionMismatchException if <tt>length</tt> is not the number of elements of this store
+     */
+    @Override
+    public ArrayStore1D reshape(int length) {
+        if (longSize() != length) {
+            throw new DimensionMismatchException(length, size());
+        }
+
+        return new ArrayStore1D(toArray(), new ArrayStructure1D(length));
+    }
+
+    @Override
+    public ArrayStore2D reshape(int rowCount, int columnCount) {
+        if (longSize() != (long) rowCount * columnCount) {
+            throw new InvalidShapeException(new int[]{rowCount, columnCount}, new int[]{rowCount(), columnCount()});
+        }
+
+        return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount, columnCount));
+    }
+
+    @Override
+    public Store reshape(int... dimensions) {
+        return reshape(size()).reshape(dimensions);
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return new ChunkedStore2DSpliterator(this);
+    }
+}
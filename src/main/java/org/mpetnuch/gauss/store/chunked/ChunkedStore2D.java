@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ChunkedStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.chunked;
+
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.structure.chunked.ChunkedStructure2D;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Two dimensional store whose elements are spread over a sequence of equally sized <tt>double[]</tt> chunks and
+ * addressed by <tt>long</tt> positions, for matrices with more than <tt>Integer.MAX_VALUE</tt> elements. Keeping
+ * the chunks small also keeps them below the G1 humongous object threshold, so large matrices are allocated and
+ * collected like any other object; the default chunk of <tt>2^17</tt> doubles (1 MiB) is below the threshold for
+ * every region size of 2 MiB and up.
+ *
+ * @author Michael Petnuch
+ */
+public final class ChunkedStore2D extends AbstractChunkedStore2D<ChunkedStore2D> {
+    public static final int DEFAULT_CHUNK_SHIFT = 17;
+
+    private final double[][] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+
+    public ChunkedStore2D(int rowCount, int columnCount) {
+        this(rowCount, columnCount, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * Allocates a writable, zero filled, row-major <tt>rowCount x columnCount</tt> store made of chunks of
+     * <tt>2^chunkShift</tt> elements.
+     *
+     * @throws IllegalArgumentException if the chunk shift is not within <tt>[3, 30]</tt> or the store would need
+     *                                  more than <tt>Integer.MAX_VALUE</tt> chunks
+     */
+    public ChunkedStore2D(int rowCount, int columnCount, int chunkShift) {
+        super(new ChunkedStructure2D(rowCount, columnCount), EnumSet.of(DataFlag.Writable));
+        if (chunkShift < 3 || chunkShift > 30) {
+            throw new IllegalArgumentException("Chunk shift must be within [3, 30], got " + chunkShift);
+        }
+
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+
+        final long size = structure.longSize();
+        final long chunkCount = (size + chunkMask) >>> chunkShift;
+        if (chunkCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Store of " + size + " elements needs too many chunks of 2^" + chunkShift);
+        }
+
+        this.chunks = new double[(int) chunkCount][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            final long remaining = size - ((long) chunk << chunkShift);
+            chunks[chunk] = new double[(int) Math.min(remaining, 1L << chunkShift)];
+        }
+    }
+
+    private ChunkedStore2D(double[][] chunks, int chunkShift, ChunkedStructure2D structure, Set<DataFlag> parentFlags) {
+        super(structure, parentFlags);
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+    }
+
+    /**
+     * Copies the given store into a new chunked store with the default chunk length.
+     */
+    public static ChunkedStore2D copyOf(Store2D store) {
+        final ChunkedStore2D copy = new ChunkedStore2D(store.rowCount(), store.columnCount());
+        for (int i = 0, rowCount = store.rowCount(); i < rowCount; i++) {
+            for (int j = 0, columnCount = store.columnCount(); j < columnCount; j++) {
+                copy.set(i, j, store.get(i, j));
+            }
+        }
+
+        return copy;
+    }
+
+    @Override
+    protected ChunkedStore2D create(ChunkedStructure2D structure, Set<DataFlag> flags) {
+        return new ChunkedStore2D(chunks, chunkShift, structure, flags);
+    }
+
+    public int chunkShift() {
+        return chunkShift;
+    }
+
+    @Override
+    protected double element(long index) {
+        return chunks[(int) (index >>> chunkShift)][(int) (index & chunkMask)];
+    }
+
+    @Override
+    protected void setElement(long index, double x) {
+        chunks[(int) (index >>> chunkShift)][(int) (index & chunkMask)] = x;
+    }
+
+    @Override
+    protected void forEachInRun(long index, int count, DoubleConsumer action) {
+        // the run may span several chunks, read each part straight out of its chunk
+        for (int remaining = count; remaining > 0; ) {
+            final double[] chunk = chunks[(int) (index >>> chunkShift)];
+            final int start = (int) (index & chunkMask);
+            final int end = (int) Math.min(chunk.length, (long) start + remaining);
+            for (int position = start; position < end; position++) {
+                action.accept(chunk[position]);
+            }
+
+            remaining -= end - start;
+            index += end - start;
+        }
+    }
+
+    /**
+     * Copies the elements of this view into a new contiguous, row-major chunked store with the same chunk length.
+     */
+    @Override
+    public ChunkedStore2D compact() {
+        final ChunkedStore2D copy = new ChunkedStore2D(rowCount(), columnCount(), chunkShift);
+        final long[] ordinal = new long[1];
+        spliterator().forEachRemaining((double x) -> copy.setElement(ordinal[0]++, x));
+
+        return new ChunkedStore2D(copy.chunks, chunkShift, copy.structure, EnumSet.noneOf(DataFlag.class));
+    }
+}
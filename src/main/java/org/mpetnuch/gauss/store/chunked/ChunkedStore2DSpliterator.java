@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ChunkedStore2DSpliterator.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.chunked;
+
+import org.mpetnuch.gauss.structure.chunked.ChunkedStructure2D;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Row major spliterator over an {@link AbstractChunkedStore2D} that tracks its range with <tt>long</tt> ordinals,
+ * so it can cover and split stores with more than <tt>Integer.MAX_VALUE</tt> elements. Rows with unit column
+ * stride are handed to the store as runs of consecutive positions.
+ *
+ * @author Michael Petnuch
+ */
+final class ChunkedStore2DSpliterator implements Spliterator.OfDouble {
+    private final AbstractChunkedStore2D<?> store;
+    private final ChunkedStructure2D structure;
+    private final int columnCount;
+    private final long fence;  // one past last ordinal
+    private long ordinal;      // current ordinal, modified on advance/split
+
+    ChunkedStore2DSpliterator(AbstractChunkedStore2D<?> store) {
+        this(store, 0, store.longSize());
+    }
+
+    private ChunkedStore2DSpliterator(AbstractChunkedStore2D<?> store, long ordinal, long fence) {
+        this.store = store;
+        this.structure = store.structure();
+        this.columnCount = structure.columnCount();
+        this.ordinal = ordinal;
+        this.fence = fence;
+    }
+
+    @Override
+    public OfDouble trySplit() {
+        final long lo = ordinal, mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            // can't split any more
+            return null;
+        }
+
+        ordinal = mid;
+        return new ChunkedStore2DSpliterator(store, lo, mid);
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        if (ordinal >= fence) {
+            return false;
+        }
+
+        action.accept(store.element(structure.index(ordinal)));
+        ordinal++;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        final long rowStride = structure.rowStride(), columnStride = structure.columnStride();
+        while (ordinal < fence) {
+            final long row = ordinal / columnCount;
+            final int column = (int) (ordinal % columnCount);
+            final int count = (int) Math.min(columnCount - column, fence - ordinal);
+
+            final long index = structure.offset() + row * rowStride + column * columnStride;
+            if (columnStride == 1) {
+                store.forEachInRun(index, count, action);
+            } else {
+                for (int j = 0; j < count; j++) {
+                    action.accept(store.element(index + j * columnStride));
+                }
+            }
+
+            ordinal += count;
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - ordinal;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `MappedStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.mapped;
+
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.chunked.AbstractChunkedStore2D;
+import org.mpetnuch.gauss.store.chunked.ChunkedStore2D;
+import org.mpetnuch.gauss.structure.chunked.ChunkedStructure2D;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Two dimensional store backed by a memory-mapped file holding the elements of a <tt>rowCount x columnCount</tt>
+ * matrix in row-major order as little-endian doubles, without any header. A single mapping is limited to 2 GiB, so
+ * the file is mapped in chunks of <tt>2^27</tt> elements (1 GiB) and elements are addressed by <tt>long</tt>
+ * positions; matrices may be larger than the available memory, the operating system pages them in on demand.
+ * <p>
+ * Slices and transposes are views onto the same mapping. Writes through a writable store reach the file once the
+ * pages are written back by the operating system or {@link #force()} is called.
+ *
+ * @author Michael Petnuch
+ */
+public final class MappedStore2D extends AbstractChunkedStore2D<MappedStore2D> {
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] mappings;
+    private final DoubleBuffer[] chunks;
+
+    private MappedStore2D(MappedByteBuffer[] mappings, DoubleBuffer[] chunks,
+                          ChunkedStructure2D structure, Set<DataFlag> parentFlags) {
+        super(structure, parentFlags);
+        this.mappings = mappings;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Creates (or truncates) the file and maps it as a writable, zero filled <tt>rowCount x columnCount</tt> store.
+     */
+    public static MappedStore2D create(Path path, int rowCount, int columnCount) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return map(channel, 0, rowCount, columnCount, true);
+        }
+    }
+
+    /**
+     * Maps an existing file holding a <tt>rowCount x columnCount</tt> matrix.
+     *
+     * @throws IllegalArgumentException if the size of the file does not match the shape
+     */
+    public static MappedStore2D open(Path path, int rowCount, int columnCount, boolean writable) throws IOException {
+        return open(path, 0, rowCount, columnCount, writable);
+    }
+
+    /**
+     * Maps the <tt>rowCount x columnCount</tt> matrix that follows a header of <tt>offset</tt> bytes in an existing
+     * file, e.g. the payload of a NumPy <tt>.npy</tt> file.
+     *
+     * @throws IllegalArgumentException if the size of the file does not match the offset and the shape
+     */
+    public static MappedStore2D open(Path path, long offset, int rowCount, int columnCount,
+                                     boolean writable) throws IOException {
+        final StandardOpenOption[] options = writable ?
+                new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE} :
+                new StandardOpenOption[]{StandardOpenOption.READ};
+
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            final long expectedSize = offset + (long) rowCount * columnCount * Double.BYTES;
+            if (channel.size() != expectedSize) {
+                throw new IllegalArgumentException("File " + path + " holds " + channel.size() +
+                        " bytes, a " + rowCount + " x " + columnCount + " matrix at offset " + offset +
+                        " needs " + expectedSize);
+            }
+
+            return map(channel, offset, rowCount, columnCount, writable);
+        }
+    }
+
+    private static MappedStore2D map(FileChannel channel, long offset, int rowCount, int columnCount,
+                                     boolean writable) throws IOException {
+        final ChunkedStructure2D structure = new ChunkedStructure2D(rowCount, columnCount);
+        final long size = structure.longSize();
+        final int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+        final MappedByteBuffer[] mappings = new MappedByteBuffer[chunkCount];
+        final DoubleBuffer[] chunks = new DoubleBuffer[chunkCount];
+        final FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            final long start = (long) chunk << CHUNK_SHIFT;
+            final long length = Math.min(size - start, 1L << CHUNK_SHIFT);
+            mappings[chunk] = channel.map(mode, offset + start * Double.BYTES, length * Double.BYTES);
+            chunks[chunk] = mappings[chunk].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+
+        final Set<DataFlag> flags = writable ? EnumSet.of(DataFlag.Writable) : EnumSet.noneOf(DataFlag.class);
+        return new MappedStore2D(mappings, chunks, structure, flags);
+    }
+
+    @Override
+    protected MappedStore2D create(ChunkedStructure2D structure, Set<DataFlag> flags) {
+        return new MappedStore2D(mappings, chunks, structure, flags);
+    }
+
+    @Override
+    protected double element(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    @Override
+    protected void setElement(long index, double x) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), x);
+    }
+
+    @Override
+    protected void forEachInRun(long index, int count, DoubleConsumer action) {
+        for (int remaining = count; remaining > 0; ) {
+            final DoubleBuffer chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+            final int start = (int) (index & CHUNK_MASK);
+            final int end = (int) Math.min(chunk.capacity(), (long) start + remaining);
+            for (int position = start; position < end; position++) {
+                action.accept(chunk.get(position));
+            }
+
+            remaining -= end - start;
+            index += end - start;
+        }
+    }
+
+    /**
+     * Writes any changes made through this store, or any other view of the same mapping, back to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Copies the elements of this view into memory, see {@link ChunkedStore2D}.
+     */
+    @Override
+    public ChunkedStore2D compact() {
+        return ChunkedStore2D.copyOf(this);
+    }
+}
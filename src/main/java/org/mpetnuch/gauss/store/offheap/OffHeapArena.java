@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OffHeapArena.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.offheap;
+
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.Store1D;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Allocates stores in native memory, outside of the Java heap, and bounds their lifetime: every store allocated
+ * by an arena, and every view taken from such a store, becomes unusable once the arena is closed. Long-lived data
+ * kept off-heap does not have to be traced or copied by the garbage collector.
+ * <p>
+ * The memory is backed by direct buffers, closing the arena frees it right away instead of waiting for the garbage
+ * collector to find the buffers unreachable. A single store holds at most <tt>2^28 - 1</tt> elements (just under
+ * 2 GiB). Arenas must be closed by the thread that owns them, after all work on their stores is done: closing an
+ * arena while another thread still reads or writes one of its stores may touch freed memory.
+ *
+ * @author Michael Petnuch
+ */
+public final class OffHeapArena implements AutoCloseable {
+    private final List<OffHeapSegment> segments = new ArrayList<>();
+    private long allocatedBytes;
+    private boolean closed;
+
+    public OffHeapStore1D allocate(int length) {
+        return new OffHeapStore1D(segment(length), new ArrayStructure1D(length),
+                EnumSet.of(DataFlag.Writable, DataFlag.Contiguous));
+    }
+
+    public OffHeapStore2D allocate(int rowCount, int columnCount) {
+        return allocate(rowCount, columnCount, StorageOrder.RowMajor);
+    }
+
+    public OffHeapStore2D allocate(int rowCount, int columnCount, StorageOrder storageOrder) {
+        final ArrayStructure2D structure = new ArrayStructure2D(rowCount, columnCount, storageOrder);
+        return new OffHeapStore2D(segment(structure.size()), structure,
+                EnumSet.of(DataFlag.Writable, DataFlag.Contiguous));
+    }
+
+    /**
+     * Copies the given store into a new, writable off-heap store of this arena.
+     */
+    public OffHeapStore1D copyOf(Store1D store) {
+        final OffHeapStore1D copy = allocate(store.length());
+        for (int i = 0, length = store.length(); i < length; i++) {
+            copy.set(i, store.get(i));
+        }
+
+        return copy;
+    }
+
+    /**
+     * Copies the given store into a new, writable, row-major off-heap store of this arena.
+     */
+    public OffHeapStore2D copyOf(Store2D store) {
+        final OffHeapStore2D copy = allocate(store.rowCount(), store.columnCount());
+        for (int i = 0, rowCount = store.rowCount(); i < rowCount; i++) {
+            for (int j = 0, columnCount = store.columnCount(); j < columnCount; j++) {
+                copy.set(i, j, store.get(i, j));
+            }
+        }
+
+        return copy;
+    }
+
+    synchronized OffHeapSegment segment(int length) {
+        if (closed) {
+            throw new IllegalStateException("Arena has been closed");
+        }
+
+        final OffHeapSegment segment = new OffHeapSegment(this, length);
+        segments.add(segment);
+        allocatedBytes += (long) length * Double.BYTES;
+        return segment;
+    }
+
+    /**
+     * Returns the number of bytes allocated by this arena that have not been released yet.
+     */
+    public synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Releases all stores allocated by this arena, closing an arena more than once has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        segments.forEach(OffHeapSegment::release);
+        segments.clear();
+        allocatedBytes = 0;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OffHeapSegment.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.offheap;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.function.Consumer;
+
+/**
+ * A block of native memory owned by an {@link OffHeapArena}, shared by a store and all of its views. Once the arena
+ * is closed the segment drops its buffer, so any further access fails instead of reading released memory, and frees
+ * the memory right away through the cleaner of the direct buffer. Where the running JVM gives no access to the
+ * cleaner the memory is left to the garbage collector, as for any other direct buffer.
+ *
+ * @author Michael Petnuch
+ */
+final class OffHeapSegment {
+    private final OffHeapArena arena;
+    private static final Consumer<ByteBuffer> DEALLOCATOR = deallocator();
+
+    private final int length;
+    private ByteBuffer memory;
+    private DoubleBuffer buffer;
+
+    OffHeapSegment(OffHeapArena arena, int length) {
+        if (length < 0 || length > Integer.MAX_VALUE / Double.BYTES) {
+            throw new IllegalArgumentException("Off-heap segments hold at most " +
+                    Integer.MAX_VALUE / Double.BYTES + " doubles, requested " + length);
+        }
+
+        this.arena = arena;
+        this.length = length;
+        this.memory = ByteBuffer.allocateDirect(length * Double.BYTES).order(ByteOrder.nativeOrder());
+        this.buffer = memory.asDoubleBuffer();
+    }
+
+    /**
+     * Looks up the cleaner of direct buffers, <tt>sun.misc.Unsafe#invokeCleaner</tt> on Java 9 and later and
+     * <tt>DirectBuffer#cleaner()</tt> on Java 8, or returns a no-op if neither is accessible.
+     */
+    private static Consumer<ByteBuffer> deallocator() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return memory -> invoke(invokeCleaner, unsafe, memory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not Java 9 or later, try the Java 8 cleaner
+        }
+
+        try {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return memory -> invoke(clean, invoke(cleaner, memory));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return memory -> {
+            };
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... arguments) {
+        try {
+            return method.invoke(target, arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not free off-heap memory", e);
+        }
+    }
+
+    OffHeapArena arena() {
+        return arena;
+    }
+
+    int length() {
+        return length;
+    }
+
+    DoubleBuffer buffer() {
+        final DoubleBuffer buffer = this.buffer;
+        if (buffer == null) {
+            throw new IllegalStateException("The arena owning this store has been closed");
+        }
+
+        return buffer;
+    }
+
+    double get(int index) {
+        return buffer().get(index);
+    }
+
+    void set(int index, double x) {
+        buffer().put(index, x);
+    }
+
+    /**
+     * Frees the memory of this segment, which must no longer be in use by any thread.
+     */
+    void release() {
+        final ByteBuffer memory = this.memory;
+        this.memory = null;
+        this.buffer = null;
+        if (memory != null) {
+            DEALLOCATOR.accept(memory);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OffHeapSpliterator.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.offheap;
+
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Natural order spliterator over the elements an {@link ArrayStructure} selects from an {@link OffHeapSegment}.
+ *
+ * @author Michael Petnuch
+ */
+final class OffHeapSpliterator implements Spliterator.OfDouble {
+    private final ArrayStructure structure;
+    private final OffHeapSegment segment;
+    private final int fence;  // one past last ordinal
+    private int ordinal;      // current ordinal, modified on advance/split
+
+    OffHeapSpliterator(ArrayStructure structure, OffHeapSegment segment) {
+        this(structure, segment, 0, structure.size());
+    }
+
+    private OffHeapSpliterator(ArrayStructure structure, OffHeapSegment segment, int ordinal, int fence) {
+        this.structure = structure;
+        this.segment = segment;
+        this.ordinal = ordinal;
+        this.fence = fence;
+    }
+
+    @Override
+    public OfDouble trySplit() {
+        final int lo = ordinal, mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            // can't split any more
+            return null;
+        }
+
+        ordinal = mid;
+        return new OffHeapSpliterator(structure, segment, lo, mid);
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        if (ordinal >= fence) {
+            return false;
+        }
+
+        action.accept(segment.get(structure.index(ordinal++)));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        // read through the segment, an action closing the arena must not leave us reading freed memory
+        for (; ordinal < fence; ordinal++) {
+            action.accept(segment.get(structure.index(ordinal)));
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - ordinal;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OffHeapStore1D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.offheap;
+
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.Store1D;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * One dimensional store in native memory allocated by an {@link OffHeapArena}, it follows the stride semantics of
+ * {@link ArrayStore1D} so slices and reshapes are views onto the same memory.
+ *
+ * @author Michael Petnuch
+ */
+public final class OffHeapStore1D implements Store1D {
+    private final OffHeapSegment segment;
+    private final ArrayStructure1D structure;
+    private final Set<DataFlag> flags = EnumSet.noneOf(DataFlag.class);
+
+    OffHeapStore1D(OffHeapSegment segment, ArrayStructure1D structure, Set<DataFlag> parentFlags) {
+        this.segment = segment;
+        this.structure = structure;
+
+        // views share the segment, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    public OffHeapArena arena() {
+        return segment.arena();
+    }
+
+    @Override
+    public Set<DataFlag> flags() {
+        return flags;
+    }
+
+    @Override
+    public ArrayStructure1D structure() {
+        return structure;
+    }
+
+    @Override
+    public double get(int index) {
+        return segment.get(structure.index(index));
+    }
+
+    @Override
+    public double get(int... indices) {
+        return get(indices[0]);
+    }
+
+    public void set(int index, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("OffHeapStore1D is not writable");
+        }
+
+        segment.set(structure.index(index), x);
+    }
+
+    public void increment(int index, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("OffHeapStore1D is not writable");
+        }
+
+        final int position = structure.index(index);
+        segment.set(position, segment.get(position) + x);
+    }
+
+    public void replaceAll(DoubleUnaryOperator operator) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("OffHeapStore1D is not writable");
+        }
+
+        for (int i = 0, length = length(); i < length; i++) {
+            final int position = structure.index(i);
+            segment.set(position, operator.applyAsDouble(segment.get(position)));
+        }
+    }
+
+    @Override
+    public OffHeapStore1D slice(Slice slice) {
+        return new OffHeapStore1D(segment, structure.slice(slice), flags);
+    }
+
+    @Override
+    public OffHeapStore1D slice(int startInclusive, int endExclusive) {
+        return slice(S(startInclusive, endExclusive));
+    }
+
+    @Override
+    public OffHeapStore1D slice(Slice... slices) {
+        return new OffHeapStore1D(segment, structure.slice(slices), flags);
+    }
+
+    @Override
+    public OffHeapStore1D swapAxis(int axis1, int axis2) {
+        return new OffHeapStore1D(segment, structure.swapAxis(axis1, axis2), flags);
+    }
+
+    /**
+     * Copies the elements of this view into a new contiguous store of the same arena.
+     */
+    @Override
+    public OffHeapStore1D compact() {
+        final OffHeapStore1D copy = arena().copyOf(this);
+        return new OffHeapStore1D(copy.segment, copy.structure, EnumSet.noneOf(DataFlag.class));
+    }
+
+    @Override
+    public OffHeapStore1D reshape(int length) {
+        if (length() == length) {
+            return this;
+        }
+
+        throw new InvalidShapeException(length, length());
+    }
+
+    @Override
+    public OffHeapStore2D reshape(int rowCount, int columnCount) {
+        return new OffHeapStore2D(segment, structure.reshape(rowCount, columnCount), flags);
+    }
+
+    /**
+     * Reshapes this store into one or two dimensions as a view, stores of higher dimension are copied onto the
+     * heap.
+     */
+    @Override
+    public Store reshape(int... dimensions) {
+        switch (dimensions.length) {
+            case 2:
+                return reshape(dimensions[0], dimensions[1]);
+            case 1:
+                return reshape(dimensions[0]);
+        }
+
+        return new ArrayStore1D(toArray(), new ArrayStructure1D(length())).reshape(dimensions);
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return new OffHeapSpliterator(structure, segment);
+    }
+}
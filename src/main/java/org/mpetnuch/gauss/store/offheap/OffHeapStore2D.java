@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OffHeapStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.offheap;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * Two dimensional store in native memory allocated by an {@link OffHeapArena}. It follows the stride semantics of
+ * {@link ArrayStore2D}, so slices, rows, columns and transposes are views onto the same memory, and it can back any
+ * dense matrix, e.g. <tt>new DenseGeneralMatrix(arena.copyOf(store))</tt> runs dgemm straight out of native memory.
+ *
+ * @author Michael Petnuch
+ */
+public final class OffHeapStore2D implements Store2D {
+    private final OffHeapSegment segment;
+    private final ArrayStructure2D structure;
+    private final Set<DataFlag> flags = EnumSet.noneOf(DataFlag.class);
+
+    OffHeapStore2D(OffHeapSegment segment, ArrayStructure2D structure, Set<DataFlag> parentFlags) {
+        this.segment = segment;
+        this.structure = structure;
+
+        // views share the segment, so they inherit the writability of the store they were taken from
+        if (parentFlags.contains(DataFlag.Writable)) {
+            this.flags.add(DataFlag.Writable);
+        }
+
+        if (structure.isContiguous()) {
+            this.flags.add(DataFlag.Contiguous);
+        }
+    }
+
+    public OffHeapArena arena() {
+        return segment.arena();
+    }
+
+    @Override
+    public Set<DataFlag> flags() {
+        return flags;
+    }
+
+    @Override
+    public ArrayStructure2D structure() {
+        return structure;
+    }
+
+    public StorageOrder storageOrder() {
+        return structure.storageOrder();
+    }
+
+    @Override
+    public int rowCount() {
+        return structure.rowCount();
+    }
+
+    @Override
+    public int columnCount() {
+        return structure.columnCount();
+    }
+
+    @Override
+    public double get(int... indices) {
+        if (indices.length != 2) {
+            throw new IllegalArgumentException();
+        }
+
+        return get(indices[0], indices[1]);
+    }
+
+    @Override
+    public double get(int rowIndex, int columnIndex) {
+        return segment.get(structure.index(rowIndex, columnIndex));
+    }
+
+    public void set(int rowIndex, int columnIndex, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("OffHeapStore2D is not writable");
+        }
+
+        segment.set(structure.index(rowIndex, columnIndex), x);
+    }
+
+    public void increment(int rowIndex, int columnIndex, double x) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("OffHeapStore2D is not writable");
+        }
+
+        final int position = structure.index(rowIndex, columnIndex);
+        segment.set(position, segment.get(position) + x);
+    }
+
+    public void replaceAll(DoubleUnaryOperator operator) {
+        if (!flags.contains(DataFlag.Writable)) {
+            throw new IllegalStateException("OffHeapStore2D is not writable");
+        }
+
+        // only touch the elements visible through this store's structure, as the segment may be shared with other views
+        for (int i = 0, rowCount = rowCount(); i < rowCount; i++) {
+            for (int j = 0, columnCount = columnCount(); j < columnCount; j++) {
+                final int position = structure.index(i, j);
+                segment.set(position, operator.applyAsDouble(segment.get(position)));
+            }
+        }
+    }
+
+    @Override
+    public OffHeapStore1D row(int rowIndex) {
+        return new OffHeapStore1D(segment, structure.row(rowIndex), flags);
+    }
+
+    @Override
+    public OffHeapStore1D column(int columnIndex) {
+        return new OffHeapStore1D(segment, structure.column(columnIndex), flags);
+    }
+
+    @Override
+    public OffHeapStore2D slice(Slice... slices) {
+        return new OffHeapStore2D(segment, structure.slice(slices), flags);
+    }
+
+    @Override
+    public OffHeapStore2D slice(Slice rowSlice, Slice columnSlice) {
+        return new OffHeapStore2D(segment, structure.slice(rowSlice, columnSlice), flags);
+    }
+
+    @Override
+    public OffHeapStore2D slice(int rowStartInclusive, int rowEndExclusive,
+                                int columnStartInclusive, int columnEndExclusive) {
+        return slice(S(rowStartInclusive, rowEndExclusive), S(columnStartInclusive, columnEndExclusive));
+    }
+
+    @Override
+    public OffHeapStore2D transpose() {
+        return new OffHeapStore2D(segment, structure.transpose(), flags);
+    }
+
+    @Override
+    public OffHeapStore2D swapAxis(int axis1, int axis2) {
+        return new OffHeapStore2D(segment, structure.swapAxis(axis1, axis2), flags);
+    }
+
+    /**
+     * Copies the elements of this view into a new contiguous store of the same arena that keeps the storage order.
+     */
+    @Override
+    public OffHeapStore2D compact() {
+        return copy(storageOrder());
+    }
+
+    private OffHeapStore2D copy(StorageOrder storageOrder) {
+        final OffHeapStore2D copy = arena().allocate(rowCount(), columnCount(), storageOrder);
+        for (int i = 0, rowCount = rowCount(); i < rowCount; i++) {
+            for (int j = 0, columnCount = columnCount(); j < columnCount; j++) {
+                copy.set(i, j, get(i, j));
+            }
+        }
+
+        return new OffHeapStore2D(copy.segment, copy.structure, EnumSet.noneOf(DataFlag.class));
+    }
+
+    @Override
+    public OffHeapStore1D reshape(int length) {
+        if (size() != length) {
+            throw new DimensionMismatchException(length, size());
+        }
+
+        final int columnStride = structure.columnStride();
+        if (columnStride * columnCount() == structure.rowStride()) {
+            // the rows follow each other with a single stride, reshape without making a copy
+            return new OffHeapStore1D(segment, new ArrayStructure1D(length, columnStride, structure.offset()), flags);
+        }
+
+        return copy(StorageOrder.RowMajor).reshape(length);
+    }
+
+    @Override
+    public OffHeapStore2D reshape(int rowCount, int columnCount) {
+        if (size() != rowCount * columnCount) {
+            throw new InvalidShapeException(new int[]{rowCount, columnCount}, new int[]{rowCount(), columnCount()});
+        }
+
+        return reshape(size()).reshape(rowCount, columnCount);
+    }
+
+    /**
+     * Reshapes this store into one or two dimensions, as a view whenever the strides allow it; stores of higher
+     * dimension are copied onto the heap.
+     */
+    @Override
+    public Store reshape(int... dimensions) {
+        switch (dimensions.length) {
+            case 2:
+                return reshape(dimensions[0], dimensions[1]);
+            case 1:
+                return reshape(dimensions[0]);
+        }
+
+        return reshape(size()).reshape(dimensions);
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return new OffHeapSpliterator(structure, segment);
+    }
+}
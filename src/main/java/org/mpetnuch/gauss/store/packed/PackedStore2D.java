@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `PackedStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.packed;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.WindowedStore2D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.packed.PackedStructure2D;
+
+/**
+ * Symmetric or triangular matrix of which only one triangle is stored, see {@link PackedStructure2D} for the
+ * layout.
+ *
+ * @author Michael Petnuch
+ */
+public final class PackedStore2D extends WindowedStore2D<PackedStructure2D, PackedStore2D> {
+
+    public PackedStore2D(double[] array, PackedStructure2D structure) {
+        super(array, structure);
+        if (array.length < PackedStructure2D.packedLength(structure.order())) {
+            throw new IllegalArgumentException("Array is incompatible with structure");
+        }
+    }
+
+    /**
+     * Packs the requested triangle of a square store into a new array.
+     *
+     * @param store     the square store to pack
+     * @param triangle  the triangle of <tt>store</tt> to keep
+     * @param symmetric whether the other triangle mirrors the kept one, otherwise it is taken to be zero
+     */
+    public static PackedStore2D pack(Store2D store, Triangle triangle, boolean symmetric) {
+        final int order = store.rowCount();
+        if (order != store.columnCount()) {
+            throw new DimensionMismatchException(store.columnCount(), order);
+        }
+
+        final PackedStructure2D structure = new PackedStructure2D(order, triangle, symmetric);
+        final double[] packed = new double[PackedStructure2D.packedLength(order)];
+        for (int j = 0; j < order; j++) {
+            final int columnStart = structure.columnStart(j);
+            final int start = Triangle.Upper == triangle ? 0 : j;
+            final int end = Triangle.Upper == triangle ? j + 1 : order;
+            for (int i = start; i < end; i++) {
+                packed[columnStart + i] = store.get(i, j);
+            }
+        }
+
+        return new PackedStore2D(packed, structure);
+    }
+
+    @Override
+    protected PackedStore2D create(PackedStructure2D structure) {
+        return new PackedStore2D(array, structure);
+    }
+
+    /**
+     * Principal windows are repacked into a new packed array of their own order, any other window is no longer
+     * symmetric or triangular and is copied into a dense row major store.
+     */
+    @Override
+    public Store2D compact() {
+        if (!structure.isPrincipal()) {
+            return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount(), columnCount()));
+        }
+
+        // a transposed triangle is stored in the opposite triangle, a symmetric one can keep its own
+        final Triangle triangle = structure.isTransposed() && !structure.isSymmetric() ?
+                structure.triangle().flip() : structure.triangle();
+
+        return pack(this, triangle, structure.isSymmetric());
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `CompressedStore2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.sparse;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.Store2D;
+import org.mpetnuch.gauss.store.Store2DSpliterator;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.Dimension;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.Spliterator;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
+import static org.mpetnuch.gauss.structure.Structure2D.ROW_DIMENSION;
+
+/**
+ * Sparse matrix in compressed sparse row or column format, see {@link CompressedStructure2D} for the layout.
+ * Transposes and slices with unit step are views onto the same arrays, slices with any other step are copied.
+ * Rows and columns are returned as dense copies.
+ *
+ * @author Michael Petnuch
+ */
+public final class CompressedStore2D implements Store2D {
+    private final Set<DataFlag> flags = EnumSet.noneOf(DataFlag.class);
+    private final CompressedStructure2D structure;
+    private final double[] values;
+
+    public CompressedStore2D(double[] values, CompressedStructure2D structure) {
+        this.values = values;
+        this.structure = structure;
+    }
+
+    /**
+     * Compresses the non-zero elements of <tt>store</tt> into a new store with the requested orientation.
+     */
+    public static CompressedStore2D compress(Store2D store, Orientation orientation) {
+        final boolean rowMajor = Orientation.Row == orientation;
+        final int rowCount = store.rowCount(), columnCount = store.columnCount();
+        final int majorCount = rowMajor ? rowCount : columnCount, minorCount = rowMajor ? columnCount : rowCount;
+
+        final int[] pointers = new int[majorCount + 1];
+        for (int major = 0; major < majorCount; major++) {
+            int count = 0;
+            for (int minor = 0; minor < minorCount; minor++) {
+                if ((rowMajor ? store.get(major, minor) : store.get(minor, major)) != 0.0) {
+                    count++;
+                }
+            }
+
+            pointers[major + 1] = pointers[major] + count;
+        }
+
+        final int[] indices = new int[pointers[majorCount]];
+        final double[] values = new double[pointers[majorCount]];
+        for (int major = 0, position = 0; major < majorCount; major++) {
+            for (int minor = 0; minor < minorCount; minor++) {
+                final double value = rowMajor ? store.get(major, minor) : store.get(minor, major);
+                if (value != 0.0) {
+                    indices[position] = minor;
+                    values[position++] = value;
+                }
+            }
+        }
+
+        return new CompressedStore2D(values, new CompressedStructure2D(orientation, rowCount, columnCount, pointers, indices));
+    }
+
+    @Override
+    public Set<DataFlag> flags() {
+        return flags;
+    }
+
+    @Override
+    public CompressedStructure2D structure() {
+        return structure;
+    }
+
+    public Orientation orientation() {
+        return structure.orientation();
+    }
+
+    public int nonZeroCount() {
+        return structure.nonZeroCount();
+    }
+
+    @Override
+    public int rowCount() {
+        return structure.rowCount();
+    }
+
+    @Override
+    public int columnCount() {
+        return structure.columnCount();
+    }
+
+    @Override
+    public double get(int... indices) {
+        if (indices.length != 2) {
+            throw new IllegalArgumentException();
+        }
+
+        return get(indices[0], indices[1]);
+    }
+
+    @Override
+    public double get(int rowIndex, int columnIndex) {
+        final int position = structure.index(rowIndex, columnIndex);
+        return position == CompressedStructure2D.NOT_STORED ? 0.0 : values[position];
+    }
+
+    /**
+     * Reads the value stored at the given position, see {@link CompressedStructure2D#start(int)}.
+     */
+    public double getStored(int position) {
+        return values[position];
+    }
+
+    @Override
+    public ArrayStore1D row(int rowIndex) {
+        return Orientation.Row == orientation() ? line(rowIndex) : cross(rowIndex);
+    }
+
+    @Override
+    public ArrayStore1D column(int columnIndex) {
+        return Orientation.Column == orientation() ? line(columnIndex) : cross(columnIndex);
+    }
+
+    // scatters a major line of the window into a dense array
+    private ArrayStore1D line(int index) {
+        final int major = structure.dimension(Orientation.Row == orientation() ? ROW_DIMENSION : COLUMN_DIMENSION).index(index);
+        final double[] line = new double[structure.minorCount()];
+        for (int position = structure.start(major), end = structure.end(major); position < end; position++) {
+            line[structure.minor(position)] = values[position];
+        }
+
+        return new ArrayStore1D(line, new ArrayStructure1D(line.length));
+    }
+
+    // gathers a minor line of the window, one search per major line
+    private ArrayStore1D cross(int index) {
+        final boolean rowMajor = Orientation.Row == orientation();
+        final double[] line = new double[structure.majorCount()];
+        for (int major = 0; major < line.length; major++) {
+            line[major] = rowMajor ? get(major, index) : get(index, major);
+        }
+
+        return new ArrayStore1D(line, new ArrayStructure1D(line.length));
+    }
+
+    @Override
+    public CompressedStore2D slice(Slice... slices) {
+        switch (slices.length) {
+            case 2:
+                return slice(slices[0], slices[1]);
+            case 1:
+                return slice(slices[0], Slice.All());
+            default:
+                throw new DimensionMismatchException(slices.length, 2);
+        }
+    }
+
+    @Override
+    public CompressedStore2D slice(Slice rowSlice, Slice columnSlice) {
+        if (rowSlice.step() == 1 && columnSlice.step() == 1) {
+            return new CompressedStore2D(values, structure.slice(rowSlice, columnSlice));
+        }
+
+        // cover the slice with a view of unit step and pick every step-th line out of it
+        final Dimension rowDimension = structure.dimension(ROW_DIMENSION);
+        final Dimension columnDimension = structure.dimension(COLUMN_DIMENSION);
+        final CompressedStore2D cover = slice(
+                S(rowSlice.start(rowDimension), rowSlice.stop(rowDimension)),
+                S(columnSlice.start(columnDimension), columnSlice.stop(columnDimension)));
+
+        return Orientation.Row == orientation() ?
+                cover.copy(rowSlice.step(), columnSlice.step()) : cover.copy(columnSlice.step(), rowSlice.step());
+    }
+
+    @Override
+    public CompressedStore2D slice(int rowStartInclusive, int rowEndExclusive,
+                                   int columnStartInclusive, int columnEndExclusive) {
+        return slice(S(rowStartInclusive, rowEndExclusive), S(columnStartInclusive, columnEndExclusive));
+    }
+
+    @Override
+    public CompressedStore2D transpose() {
+        return new CompressedStore2D(values, structure.transpose());
+    }
+
+    @Override
+    public CompressedStore2D swapAxis(int axis1, int axis2) {
+        return new CompressedStore2D(values, structure.swapAxis(axis1, axis2));
+    }
+
+    /**
+     * Copies the window into new arrays of its own size, keeping the orientation.
+     */
+    @Override
+    public CompressedStore2D compact() {
+        return copy(1, 1);
+    }
+
+    /**
+     * Copies the window into new arrays with the requested orientation. Switching orientation is a counting sort
+     * over the minor indices and takes <tt>O(nnz + majorCount + minorCount)</tt> operations.
+     */
+    public CompressedStore2D compact(Orientation orientation) {
+        if (orientation == orientation()) {
+            return compact();
+        }
+
+        final int majorCount = structure.majorCount(), minorCount = structure.minorCount();
+        final int[] pointers = new int[minorCount + 1];
+        for (int major = 0; major < majorCount; major++) {
+            for (int position = structure.start(major), end = structure.end(major); position < end; position++) {
+                pointers[structure.minor(position) + 1]++;
+            }
+        }
+
+        for (int minor = 0; minor < minorCount; minor++) {
+            pointers[minor + 1] += pointers[minor];
+        }
+
+        final int[] next = Arrays.copyOf(pointers, minorCount);
+        final int[] indices = new int[pointers[minorCount]];
+        final double[] values = new double[pointers[minorCount]];
+
+        // walking the major lines in order keeps the new minor indices sorted
+        for (int major = 0; major < majorCount; major++) {
+            for (int position = structure.start(major), end = structure.end(major); position < end; position++) {
+                final int target = next[structure.minor(position)]++;
+                indices[target] = major;
+                values[target] = this.values[position];
+            }
+        }
+
+        final CompressedStructure2D compactStructure =
+                new CompressedStructure2D(orientation, rowCount(), columnCount(), pointers, indices);
+
+        return new CompressedStore2D(values, compactStructure);
+    }
+
+    private CompressedStore2D copy(int majorStep, int minorStep) {
+        final int majorCount = (structure.majorCount() + majorStep - 1) / majorStep;
+        final int minorCount = (structure.minorCount() + minorStep - 1) / minorStep;
+
+        final int[] pointers = new int[majorCount + 1];
+        for (int major = 0; major < majorCount; major++) {
+            int count = 0;
+            for (int position = structure.start(major * majorStep), end = structure.end(major * majorStep); position < end; position++) {
+                if (structure.minor(position) % minorStep == 0) {
+                    count++;
+                }
+            }
+
+            pointers[major + 1] = pointers[major] + count;
+        }
+
+        final int[] indices = new int[pointers[majorCount]];
+        final double[] values = new double[pointers[majorCount]];
+        for (int major = 0, target = 0; major < majorCount; major++) {
+            for (int position = structure.start(major * majorStep), end = structure.end(major * majorStep); position < end; position++) {
+                final int minor = structure.minor(position);
+                if (minor % minorStep == 0) {
+                    indices[target] = minor / minorStep;
+                    values[target++] = this.values[position];
+                }
+            }
+        }
+
+        final boolean rowMajor = Orientation.Row == orientation();
+        final CompressedStructure2D compactStructure = new CompressedStructure2D(orientation(),
+                rowMajor ? majorCount : minorCount, rowMajor ? minorCount : majorCount, pointers, indices);
+
+        return new CompressedStore2D(values, compactStructure);
+    }
+
+    @Override
+    public ArrayStore1D reshape(int length) {
+        if (size() != length) {
+            throw new DimensionMismatchException(length, size());
+        }
+
+        return new ArrayStore1D(toArray(), new ArrayStructure1D(length));
+    }
+
+    @Override
+    public ArrayStore2D reshape(int rowCount, int columnCount) {
+        if (size() != rowCount * columnCount) {
+            throw new InvalidShapeException(new int[]{rowCount, columnCount}, new int[]{rowCount(), columnCount()});
+        }
+
+        return new ArrayStore2D(toArray(), new ArrayStructure2D(rowCount, columnCount));
+    }
+
+    @Override
+    public Store reshape(int... dimensions) {
+        return reshape(size()).reshape(dimensions);
+    }
+
+    @Override
+    public Spliterator.OfDouble spliterator() {
+        return new Store2DSpliterator(this);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `WindowedStructure2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.misc.MathUtils;
+
+import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
+import static org.mpetnuch.gauss.structure.Structure2D.ROW_DIMENSION;
+
+/**
+ * Base class for structures that store a full matrix in some compressed layout (packed, band, ...) and describe
+ * a strided, possibly transposed, window onto it. Subclasses only have to map an element of the full matrix to
+ * its position in storage, elements that are not stored map to {@link #IMPLICIT_ZERO}.
+ *
+ * @author Michael Petnuch
+ */
+public abstract class WindowedStructure2D<S extends WindowedStructure2D<S>> implements Structure {
+    public static final int IMPLICIT_ZERO = -1;
+
+    protected final boolean transposed;
+
+    // the window is expressed in the coordinates of the full matrix
+    protected final int rowOffset, rowStride, rowCount;
+    protected final int columnOffset, columnStride, columnCount;
+
+    protected WindowedStructure2D(boolean transposed,
+                                  int rowOffset, int rowStride, int rowCount,
+                                  int columnOffset, int columnStride, int columnCount) {
+        this.transposed = transposed;
+
+        this.rowOffset = rowOffset;
+        this.rowStride = rowStride;
+        this.rowCount = rowCount;
+
+        this.columnOffset = columnOffset;
+        this.columnStride = columnStride;
+        this.columnCount = columnCount;
+    }
+
+    /**
+     * Returns the position in storage of the element <tt>(row, column)</tt> of the full matrix, ignoring the window
+     * described by this structure.
+     *
+     * @return the storage position or {@link #IMPLICIT_ZERO} if the element is not stored
+     */
+    public abstract int storageIndex(int row, int column);
+
+    /**
+     * Returns the position in storage that corresponds to row zero of the given column of the full matrix; the
+     * stored elements of the column are then found at <tt>columnStart(column) + row</tt>.
+     */
+    public abstract int columnStart(int column);
+
+    protected abstract S window(boolean transposed,
+                                int rowOffset, int rowStride, int rowCount,
+                                int columnOffset, int columnStride, int columnCount);
+
+    /**
+     * Returns the position in storage of the element <tt>(rowIndex, columnIndex)</tt> of this window.
+     *
+     * @return the storage position or {@link #IMPLICIT_ZERO} if the element is not stored
+     */
+    public final int index(int rowIndex, int columnIndex) {
+        final int row = rowOffset + rowStride * index(rowIndex, ROW_DIMENSION, rowCount);
+        final int column = columnOffset + columnStride * index(columnIndex, COLUMN_DIMENSION, columnCount);
+
+        return transposed ? storageIndex(column, row) : storageIndex(row, column);
+    }
+
+    private static int index(int position, int dimension, int length) {
+        final int index = position < 0 ? position + length : position;
+        if (index >= 0 && index < length) {
+            return index;
+        }
+
+        throw new InvalidDimensionRangeException(position, dimension, length);
+    }
+
+    public S transpose() {
+        return window(!transposed,
+                columnOffset, columnStride, columnCount,
+                rowOffset, rowStride, rowCount);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public S swapAxis(int axis1, int axis2) {
+        final int axis1DimensionIndex = dimension(axis1).dimensionIndex();
+        final int axis2DimensionIndex = dimension(axis2).dimensionIndex();
+        if (axis1DimensionIndex == axis2DimensionIndex) {
+            return (S) this;
+        } else {
+            return transpose();
+        }
+    }
+
+    @Override
+    public S slice(Slice... slices) {
+        switch (slices.length) {
+            case 2:
+                return slice(slices[0], slices[1]);
+            case 1:
+                return slice(slices[0], Slice.All());
+            default:
+                throw new DimensionMismatchException(slices.length, 2);
+        }
+    }
+
+    public S slice(Slice rowSlice, Slice columnSlice) {
+        final Dimension rowDimension = dimension(ROW_DIMENSION);
+        final int rowWidth = Math.max(0, rowSlice.stop(rowDimension) - rowSlice.start(rowDimension));
+        final int rowSliceOffset = rowOffset + rowStride * rowSlice.start(rowDimension);
+        final int rowSliceCount = MathUtils.ceilDiv(rowWidth, rowSlice.step());
+
+        final Dimension columnDimension = dimension(COLUMN_DIMENSION);
+        final int columnWidth = Math.max(0, columnSlice.stop(columnDimension) - columnSlice.start(columnDimension));
+        final int columnSliceOffset = columnOffset + columnStride * columnSlice.start(columnDimension);
+        final int columnSliceCount = MathUtils.ceilDiv(columnWidth, columnSlice.step());
+
+        return window(transposed,
+                rowSliceOffset, rowStride * rowSlice.step(), rowSliceCount,
+                columnSliceOffset, columnStride * columnSlice.step(), columnSliceCount);
+    }
+
+    /**
+     * A window is aligned when it has unit strides and starts on the diagonal of the full matrix, so that the
+     * diagonal of the window is part of the diagonal of the full matrix; kernels can then work on storage directly.
+     */
+    public boolean isAligned() {
+        return rowOffset == columnOffset && rowStride == 1 && columnStride == 1;
+    }
+
+    /**
+     * A window is principal when it is an aligned square block.
+     */
+    public boolean isPrincipal() {
+        return isAligned() && rowCount == columnCount;
+    }
+
+    public boolean isTransposed() {
+        return transposed;
+    }
+
+    public int rowOffset() {
+        return rowOffset;
+    }
+
+    public int columnOffset() {
+        return columnOffset;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public int size() {
+        return rowCount * columnCount;
+    }
+
+    @Override
+    public int dimension() {
+        return 2;
+    }
+
+    @Override
+    public int dimensionLength(int dimension) {
+        switch (dimension) {
+            case ROW_DIMENSION:
+                return rowCount;
+            case COLUMN_DIMENSION:
+                return columnCount;
+        }
+
+        throw new InvalidDimensionRangeException(dimension, 0, 2);
+    }
+}
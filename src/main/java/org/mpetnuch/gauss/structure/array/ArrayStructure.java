@@ -28,6 +28,9 @@ import org.mpetnuch.gauss.structure.Structure;
  */
 public interface ArrayStructure extends Structure {
     int NO_UNIT_STRIDE_DIMENSION = 1;
+    // number of doubles in a 64 byte cache line
+    int CACHE_LINE_LENGTH = 8;
+
     @Override
     ArrayStructure swapAxis(int axis1, int axis2);
 
@@ -26,7 +26,6 @@ import org.mpetnuch.gauss.structure.Dimension;
 import org.mpetnuch.gauss.structure.Slice;
 import org.mpetnuch.gauss.structure.Structure1D;
 
-import java.util.Arrays;
 
 import static org.mpetnuch.gauss.structure.Slice.S;
 
@@ -142,7 +141,7 @@ public class ArrayStructure1D implements ArrayStructure, Structure1D {
                 return reshape(dimensions[0]);
         }
 
-        final int size = Arrays.stream(dimensions).reduce(0, (product, n) -> product * n);
+        final int size = MathUtils.product(dimensions);
         if (size() != size) {
             throw new DimensionMismatchException(size, size());
         }
@@ -155,7 +154,16 @@ public class ArrayStructure1D implements ArrayStructure, Structure1D {
             strides[i] = dimensions[i + 1] * strides[i + 1];
         }
 
-        return new ArrayStructureAnyD(dimensions, strides, offset);
+        switch (n) {
+            case 3:
+                return new ArrayStructure3D(dimensions[0], strides[0], dimensions[1], strides[1],
+                        dimensions[2], strides[2], offset);
+            case 4:
+                return new ArrayStructure4D(dimensions[0], strides[0], dimensions[1], strides[1],
+                        dimensions[2], strides[2], dimensions[3], strides[3], offset);
+            default:
+                return new ArrayStructureAnyD(dimensions, strides, offset);
+        }
     }
 
     public ArrayStructure2D reshape(int rowCount, int columnCount) {
@@ -30,6 +30,8 @@ import org.mpetnuch.gauss.structure.Structure2D;
  * @author Michael Petnuch
  */
 public final class ArrayStructure2D implements ArrayStructure, Structure2D {
+    // arrays with shorter rows (or columns) than this are never padded, the wasted space would outweigh the gain
+    private static final int PADDING_THRESHOLD = 64;
 
     private final int rowStride, columnStride;
     private final int rowCount, columnCount;
@@ -44,7 +46,14 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
         this.columnStride = columnStride;
 
         this.offset = offset;
-        this.size = rowCount * columnCount;
+
+        final long size = (long) rowCount * columnCount;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A " + rowCount + " x " + columnCount +
+                    " array does not fit in a single double[], see ChunkedStore2D");
+        }
+
+        this.size = (int) size;
     }
 
     public ArrayStructure2D(int rowCount, int columnCount, int offset) {
@@ -55,6 +64,59 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
         this(rowCount, columnCount, columnCount, 1, 0);
     }
 
+    /**
+     * Creates the structure of a contiguous <tt>rowCount x columnCount</tt> array laid out in the given order.
+     */
+    public ArrayStructure2D(int rowCount, int columnCount, StorageOrder storageOrder) {
+        this(rowCount, columnCount, storageOrder,
+                StorageOrder.ColumnMajor == storageOrder ? rowCount : columnCount);
+    }
+
+    /**
+     * Creates the structure of a <tt>rowCount x columnCount</tt> array laid out in the given order, where
+     * consecutive rows (row-major) or columns (column-major) start <tt>leadingDimension</tt> elements apart, i.e.
+     * the <tt>LDA</tt> argument of BLAS and LAPACK routines.
+     *
+     * @throws IllegalArgumentException if the leading dimension is shorter than a row (row-major) or a column
+     *                                  (column-major), or if the array would not fit in a single <tt>double[]</tt>
+     */
+    public ArrayStructure2D(int rowCount, int columnCount, StorageOrder storageOrder, int leadingDimension) {
+        this(rowCount, StorageOrder.ColumnMajor == storageOrder ? 1 : leadingDimension,
+                columnCount, StorageOrder.ColumnMajor == storageOrder ? leadingDimension : 1, 0);
+
+        final int majorCount = StorageOrder.ColumnMajor == storageOrder ? columnCount : rowCount;
+        final int minorCount = StorageOrder.ColumnMajor == storageOrder ? rowCount : columnCount;
+        if (leadingDimension < minorCount) {
+            throw new IllegalArgumentException("Leading dimension " + leadingDimension + " is less than " + minorCount);
+        }
+
+        if (majorCount > 0 && (long) (majorCount - 1) * leadingDimension + minorCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Array with leading dimension " + leadingDimension + " and " +
+                    majorCount + " rows or columns does not fit in an array");
+        }
+    }
+
+    /**
+     * Returns a leading dimension of at least <tt>length</tt> elements that is a whole, odd number of cache lines.
+     * With a power of two leading dimension every element of a column (row-major) maps to the same few cache sets,
+     * so walking it evicts its own lines; an odd number of cache lines spreads the walk over all sets.
+     */
+    public static int paddedLeadingDimension(int length) {
+        if (length < PADDING_THRESHOLD) {
+            return length;
+        }
+
+        final int cacheLines = MathUtils.ceilDiv(length, CACHE_LINE_LENGTH);
+        return CACHE_LINE_LENGTH * ((cacheLines & 1) == 0 ? cacheLines + 1 : cacheLines);
+    }
+
+    /**
+     * Returns the distance between the starts of consecutive rows (row-major) or columns (column-major).
+     */
+    public int leadingDimension() {
+        return StorageOrder.ColumnMajor == storageOrder() ? columnStride : rowStride;
+    }
+
     public int rowStride() {
         return rowStride;
     }
@@ -63,6 +125,15 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
         return columnStride;
     }
 
+    /**
+     * Returns the order in which the elements of this structure are laid out, i.e. {@link StorageOrder#ColumnMajor}
+     * when consecutive elements of a column are closer together in memory than consecutive elements of a row.
+     * Kernels use this to pick the loop order that walks the array with the smallest stride.
+     */
+    public StorageOrder storageOrder() {
+        return Math.abs(rowStride) < Math.abs(columnStride) ? StorageOrder.ColumnMajor : StorageOrder.RowMajor;
+    }
+
     @Override
     public boolean hasUnitStrideDimension() {
         return columnStride == 1 || rowStride == 1;
@@ -86,9 +157,7 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
     }
 
     public ArrayStructure2D swapAxis(int axis1, int axis2) {
-        final int axis1DimensionIndex = dimension(axis1).dimensionIndex();
-        final int axis2DimensionIndex = dimension(axis2).dimensionIndex();
-        if (axis1DimensionIndex == axis2DimensionIndex) {
+        if (dimensionIndex(axis1) == dimensionIndex(axis2)) {
             return this;
         } else {
             return transpose();
@@ -135,20 +204,18 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
 
     @Override
     public ArrayStructure1D row(int rowIndex) {
-        return new ArrayStructure1D(columnCount, columnStride,
-                offset + rowStride * dimension(ROW_DIMENSION).index(rowIndex));
+        return new ArrayStructure1D(columnCount, columnStride, offset + rowStride * rowPosition(rowIndex));
     }
 
     @Override
     public ArrayStructure1D column(int columnIndex) {
-        return new ArrayStructure1D(rowCount, rowStride,
-                offset + columnStride * dimension(COLUMN_DIMENSION).index(columnIndex));
+        return new ArrayStructure1D(rowCount, rowStride, offset + columnStride * columnPosition(columnIndex));
     }
 
     @Override
     public int index(int relativeOrdinal) {
         final int ordinal = relativeOrdinal < 0 ? relativeOrdinal + size : relativeOrdinal;
-        if (ordinal >= size) {
+        if (ordinal < 0 || ordinal >= size) {
             throw new InvalidDimensionRangeException(relativeOrdinal, 0, size);
         }
 
@@ -156,15 +223,45 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
                 (ordinal % columnCount) * columnStride;
     }
 
+    /**
+     * Returns the position in the array of the element at <tt>(rowIndex, columnIndex)</tt>, where negative indices
+     * count back from the end of their dimension. This is the path every element access goes through, so it works
+     * on the cached counts and strides alone and never allocates.
+     */
     public int index(int rowIndex, int columnIndex) {
-        final Dimension rowDimension = dimension(ROW_DIMENSION);
-        final Dimension columnDimension = dimension(ROW_DIMENSION);
-        return rowDimension.index(rowIndex) * rowStride + columnDimension.index(columnIndex) * columnStride + offset;
+        return offset + rowPosition(rowIndex) * rowStride + columnPosition(columnIndex) * columnStride;
+    }
+
+    private int rowPosition(int rowIndex) {
+        final int position = rowIndex < 0 ? rowIndex + rowCount : rowIndex;
+        if (position >= 0 && position < rowCount) {
+            return position;
+        }
+
+        throw new InvalidDimensionRangeException(rowIndex, ROW_DIMENSION, rowCount);
+    }
+
+    private int columnPosition(int columnIndex) {
+        final int position = columnIndex < 0 ? columnIndex + columnCount : columnIndex;
+        if (position >= 0 && position < columnCount) {
+            return position;
+        }
+
+        throw new InvalidDimensionRangeException(columnIndex, COLUMN_DIMENSION, columnCount);
+    }
+
+    private static int dimensionIndex(int dimension) {
+        final int dimensionIndex = dimension < 0 ? dimension + 2 : dimension;
+        if (dimensionIndex < 0 || dimensionIndex > 1) {
+            throw new InvalidDimensionRangeException(dimension, 0, 2);
+        }
+
+        return dimensionIndex;
     }
 
     @Override
     public int lastIndex() {
-        return index(rowCount() - 1, columnCount() - 1);
+        return offset + (rowCount - 1) * rowStride + (columnCount - 1) * columnStride;
     }
 
     @Override
@@ -192,14 +289,8 @@ public final class ArrayStructure2D implements ArrayStructure, Structure2D {
 
     @Override
     public int backstride(int dimension) {
-        switch (dimension(dimension).dimensionIndex()) {
-            case ROW_DIMENSION:
-                return (rowCount - 1) * rowStride;
-            case COLUMN_DIMENSION:
-                return (columnCount - 1) * columnStride;
-            default:
-                throw new InvalidDimensionRangeException(dimension, 0, 1);
-        }
+        return dimensionIndex(dimension) == ROW_DIMENSION ?
+                (rowCount - 1) * rowStride : (columnCount - 1) * columnStride;
     }
 
     @Override
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayStructure4D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.array;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.misc.MathUtils;
+import org.mpetnuch.gauss.structure.Dimension;
+import org.mpetnuch.gauss.structure.Slice;
+
+import static org.mpetnuch.gauss.structure.array.ArrayStructure3D.position;
+
+/**
+ * Four dimensional array structure, see {@link ArrayStructure3D}.
+ *
+ * @author Michael Petnuch
+ */
+public final class ArrayStructure4D implements ArrayStructure {
+    private final int length0, length1, length2, length3;
+    private final int stride0, stride1, stride2, stride3;
+    private final int offset;
+    private final int size;
+
+    public ArrayStructure4D(int length0, int stride0, int length1, int stride1, int length2, int stride2,
+                            int length3, int stride3, int offset) {
+        this.length0 = length0;
+        this.length1 = length1;
+        this.length2 = length2;
+        this.length3 = length3;
+        this.stride0 = stride0;
+        this.stride1 = stride1;
+        this.stride2 = stride2;
+        this.stride3 = stride3;
+        this.offset = offset;
+
+        final long size = (long) length0 * length1 * length2 * length3;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A " + length0 + " x " + length1 + " x " + length2 + " x " + length3 +
+                    " array does not fit in a single double[]");
+        }
+
+        this.size = (int) size;
+    }
+
+    /**
+     * Creates the structure of a contiguous array laid out in row-major order.
+     */
+    public ArrayStructure4D(int length0, int length1, int length2, int length3) {
+        this(length0, length1 * length2 * length3, length1, length2 * length3, length2, length3, length3, 1, 0);
+    }
+
+    public int index(int index0, int index1, int index2, int index3) {
+        return offset + position(index0, length0, 0) * stride0 + position(index1, length1, 1) * stride1 +
+                position(index2, length2, 2) * stride2 + position(index3, length3, 3) * stride3;
+    }
+
+    @Override
+    public int index(int... indices) {
+        if (indices.length != 4) {
+            throw new DimensionMismatchException(indices.length, 4);
+        }
+
+        return index(indices[0], indices[1], indices[2], indices[3]);
+    }
+
+    @Override
+    public int index(int relativeOrdinal) {
+        final int ordinal = relativeOrdinal < 0 ? relativeOrdinal + size : relativeOrdinal;
+        if (ordinal < 0 || ordinal >= size) {
+            throw new InvalidDimensionRangeException(relativeOrdinal, 0, size);
+        }
+
+        final int index3 = ordinal % length3, rest3 = ordinal / length3;
+        final int index2 = rest3 % length2, rest2 = rest3 / length2;
+        return offset + (rest2 / length1) * stride0 + (rest2 % length1) * stride1 + index2 * stride2 +
+                index3 * stride3;
+    }
+
+    @Override
+    public int[] indices(int relativeOrdinal) {
+        final int ordinal = relativeOrdinal < 0 ? relativeOrdinal + size : relativeOrdinal;
+        if (ordinal < 0 || ordinal >= size) {
+            throw new InvalidDimensionRangeException(relativeOrdinal, 0, size);
+        }
+
+        final int rest3 = ordinal / length3, rest2 = rest3 / length2;
+        return new int[]{rest2 / length1, rest2 % length1, rest3 % length2, ordinal % length3};
+    }
+
+    @Override
+    public int ordinal(int... indices) {
+        if (indices.length != 4) {
+            throw new DimensionMismatchException(indices.length, 4);
+        }
+
+        return ((indices[0] * length1 + indices[1]) * length2 + indices[2]) * length3 + indices[3];
+    }
+
+    @Override
+    public int lastIndex() {
+        return offset + (length0 - 1) * stride0 + (length1 - 1) * stride1 + (length2 - 1) * stride2 +
+                (length3 - 1) * stride3;
+    }
+
+    @Override
+    public int offset() {
+        return offset;
+    }
+
+    @Override
+    public int stride(int dimension) {
+        switch (dimensionIndex(dimension)) {
+            case 0:
+                return stride0;
+            case 1:
+                return stride1;
+            case 2:
+                return stride2;
+            default:
+                return stride3;
+        }
+    }
+
+    @Override
+    public int backstride(int dimension) {
+        return (dimensionLength(dimension) - 1) * stride(dimension);
+    }
+
+    private static int dimensionIndex(int dimension) {
+        final int dimensionIndex = dimension < 0 ? dimension + 4 : dimension;
+        if (dimensionIndex < 0 || dimensionIndex > 3) {
+            throw new InvalidDimensionRangeException(dimension, 0, 4);
+        }
+
+        return dimensionIndex;
+    }
+
+    @Override
+    public boolean isContiguous() {
+        // row-major without gaps, dimensions of length one can have any stride
+        return (length3 <= 1 || stride3 == 1) && (length2 <= 1 || stride2 == length3) &&
+                (length1 <= 1 || stride1 == length2 * length3) &&
+                (length0 <= 1 || stride0 == length1 * length2 * length3);
+    }
+
+    @Override
+    public int unitStrideDimension() {
+        if (stride0 == 1) {
+            return 0;
+        } else if (stride1 == 1) {
+            return 1;
+        } else if (stride2 == 1) {
+            return 2;
+        } else if (stride3 == 1) {
+            return 3;
+        }
+
+        return NO_UNIT_STRIDE_DIMENSION;
+    }
+
+    @Override
+    public int dimension() {
+        return 4;
+    }
+
+    @Override
+    public int dimensionLength(int dimension) {
+        switch (dimensionIndex(dimension)) {
+            case 0:
+                return length0;
+            case 1:
+                return length1;
+            case 2:
+                return length2;
+            default:
+                return length3;
+        }
+    }
+
+    @Override
+    public int[] shape() {
+        return new int[]{length0, length1, length2, length3};
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ArrayStructure4D swapAxis(int axis1, int axis2) {
+        final int dimension1 = dimensionIndex(axis1), dimension2 = dimensionIndex(axis2);
+        if (dimension1 == dimension2) {
+            return this;
+        }
+
+        final int[] lengths = shape(), strides = {stride0, stride1, stride2, stride3};
+        MathUtils.swap(lengths, dimension1, dimension2);
+        MathUtils.swap(strides, dimension1, dimension2);
+        return new ArrayStructure4D(lengths[0], strides[0], lengths[1], strides[1], lengths[2], strides[2],
+                lengths[3], strides[3], offset);
+    }
+
+    @Override
+    public ArrayStructure4D slice(Slice... slices) {
+        if (slices.length > 4) {
+            throw new DimensionMismatchException(slices.length, 4);
+        }
+
+        final int[] lengths = new int[4], strides = new int[4];
+        int sliceOffset = offset;
+        for (int d = 0; d < 4; d++) {
+            final Dimension dimension = dimension(d);
+            final Slice slice = d < slices.length ? slices[d] : Slice.All();
+            final int start = slice.start(dimension);
+            lengths[d] = MathUtils.ceilDiv(Math.max(0, slice.stop(dimension) - start), slice.step());
+            strides[d] = stride(d) * slice.step();
+            sliceOffset += start * stride(d);
+        }
+
+        return new ArrayStructure4D(lengths[0], strides[0], lengths[1], strides[1], lengths[2], strides[2],
+                lengths[3], strides[3], sliceOffset);
+    }
+}
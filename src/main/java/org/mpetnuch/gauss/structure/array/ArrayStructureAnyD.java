@@ -86,8 +86,18 @@ public class ArrayStructureAnyD implements ArrayStructure {
         return new ArrayStructureAnyD(dimensions, strides, structure.offset());
     }
 
+    // contiguous in row-major order, dimensions of length one can have any stride
     private static boolean isContiguous(int[] dimensions, int[] strides, int dimension) {
-        return false;
+        int stride = 1;
+        for (int i = dimension - 1; i >= 0; i--) {
+            if (dimensions[i] > 1 && strides[i] != stride) {
+                return false;
+            }
+
+            stride *= dimensions[i];
+        }
+
+        return true;
     }
 
     private static int[] computeFactors(int[] dimensions) {
@@ -96,7 +106,7 @@ public class ArrayStructureAnyD implements ArrayStructure {
 
         factors[n - 1] = 1;
         for (int i = n - 2; i >= 0; i--) {
-            factors[i] = dimensions[i] * factors[i + 1];
+            factors[i] = dimensions[i + 1] * factors[i + 1];
         }
 
         return factors;
@@ -153,15 +163,10 @@ public class ArrayStructureAnyD implements ArrayStructure {
             throw new InvalidDimensionRangeException(relativeOrdinal, 0, size);
         }
 
-        final int[] l = new int[dimension];
-        l[0] = ordinal;
-        for (int i = 1; i < dimension; i++) {
-            l[i] = l[i - 1] % factors[i - 1];
-        }
-
         int position = offset;
-        for (int i = 0; i < dimension; i++) {
-            position += Math.floorDiv(l[i], factors[i]) * strides[i];
+        for (int i = dimension - 1, remainder = ordinal; i >= 0; i--) {
+            position += (remainder % dimensions[i]) * strides[i];
+            remainder /= dimensions[i];
         }
 
         return position;
@@ -178,7 +183,7 @@ public class ArrayStructureAnyD implements ArrayStructure {
         MathUtils.swap(swappedDimensions, axis1DimensionIndex, axis2DimensionIndex);
 
         final int[] swappedStrides = strides.clone();
-        MathUtils.swap(swappedStrides, axis1DimensionIndex, axis1DimensionIndex);
+        MathUtils.swap(swappedStrides, axis1DimensionIndex, axis2DimensionIndex);
 
         return new ArrayStructureAnyD(swappedDimensions, swappedStrides, offset);
     }
@@ -239,7 +244,11 @@ public class ArrayStructureAnyD implements ArrayStructure {
 
     @Override
     public int dimensionLength(int dimension) {
-        return dimensions[dimension(dimension).dimensionIndex()];
+        if (dimension < 0 || dimension >= this.dimension) {
+            throw new InvalidDimensionRangeException(dimension, 0, this.dimension);
+        }
+
+        return dimensions[dimension];
     }
 
     @Override
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `StorageOrder.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.array;
+
+/**
+ * The order in which the elements of a two dimensional array are laid out in memory: {@link #RowMajor} (C order)
+ * keeps the elements of a row next to each other while {@link #ColumnMajor} (Fortran order) keeps the elements of a
+ * column next to each other, which is the layout expected by BLAS and LAPACK style routines.
+ *
+ * @author Michael Petnuch
+ */
+public enum StorageOrder {
+    RowMajor, ColumnMajor
+}
@@ -39,7 +39,10 @@ public final class ArrayStructure1DWithNonUnitStride extends AbstractArrayStruct
     public OfDouble trySplit() {
         final int lo = index, mid = (lo + fence) >>> 1;
         if (lo < mid) {
-            return new ArrayStructure1DWithNonUnitStride(structure, array, lo, mid);
+            final OfDouble prefix = new ArrayStructure1DWithNonUnitStride(structure, array, lo, mid);
+            arrayIndex += (mid - lo) * stride;
+            index = mid;
+            return prefix;
         } else {
             // can't split any more
             return null;
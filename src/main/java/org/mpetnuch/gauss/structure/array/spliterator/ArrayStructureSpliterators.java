@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayStructureSpliterators.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.array.spliterator;
+
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+
+import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
+
+/**
+ * Picks the fastest spliterator over an array for a given structure:
+ * <ul>
+ * <li>{@link ContiguousStructureUnitStrideDimensionSpliterator} when the elements are stored without gaps in the
+ * order they are visited, which is then a plain range of the array,</li>
+ * <li>{@link ArrayStructure1DWithNonUnitStride} for any other one dimensional structure,</li>
+ * <li>{@link NonContiguousStructureUnitStrideDimensionSpliterator} for two dimensional structures whose rows are
+ * contiguous runs of the array,</li>
+ * <li>{@link CoalescedSpliterator} otherwise, which merges whatever dimensions it can into long strided runs.</li>
+ * </ul>
+ *
+ * @author Michael Petnuch
+ */
+public final class ArrayStructureSpliterators {
+    private ArrayStructureSpliterators() {
+    }
+
+    public static ArrayStructureSpliterator spliterator(ArrayStructure structure, double[] array) {
+        if (isFlat(structure)) {
+            return new ContiguousStructureUnitStrideDimensionSpliterator(structure, array);
+        } else if (structure instanceof ArrayStructure1D) {
+            return new ArrayStructure1DWithNonUnitStride((ArrayStructure1D) structure, array);
+        } else if (structure instanceof ArrayStructure2D && structure.stride(COLUMN_DIMENSION) == 1) {
+            return new NonContiguousStructureUnitStrideDimensionSpliterator((ArrayStructure2D) structure, array);
+        }
+
+        return new CoalescedSpliterator(structure, array);
+    }
+
+    // true if visiting the elements in natural order walks the array one element at a time
+    private static boolean isFlat(ArrayStructure structure) {
+        int stride = 1;
+        for (int dimension = structure.dimension() - 1; dimension >= 0; dimension--) {
+            final int length = structure.dimensionLength(dimension);
+            if (length > 1 && structure.stride(dimension) != stride) {
+                return false;
+            }
+
+            stride *= length;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `CoalescedSpliterator.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.array.spliterator;
+
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Spliterator over any array structure in natural (row-major) order, in the manner of NumPy's <tt>nditer</tt>.
+ * Dimensions of length one are dropped and neighbouring dimensions are merged whenever the stride of the outer one
+ * is the length times the stride of the inner one, so that a contiguous block or a slice of whole rows becomes a
+ * single long run. The elements are then visited as runs along the innermost remaining dimension with a tight
+ * strided loop, and only the few outer dimensions step an odometer, once per run.
+ *
+ * @author Michael Petnuch
+ */
+public final class CoalescedSpliterator extends AbstractArrayStructureSpliterator<ArrayStructure> {
+    private final int[] lengths, strides;  // coalesced dimensions, outermost first
+    private final int innerLength, innerStride;
+    private final int offset;
+    private final int[] indices;
+
+    public CoalescedSpliterator(ArrayStructure structure, double[] array) {
+        this(structure, array, coalesce(structure), 0, structure.size());
+    }
+
+    private CoalescedSpliterator(ArrayStructure structure, double[] array, int[][] coalesced, int index, int fence) {
+        super(structure, array, index, fence);
+        this.lengths = coalesced[0];
+        this.strides = coalesced[1];
+        this.innerLength = lengths[lengths.length - 1];
+        this.innerStride = strides[strides.length - 1];
+        this.offset = structure.offset();
+        this.indices = new int[lengths.length];
+        if (index < fence) {
+            arrayIndex = unravel(index);
+        }
+    }
+
+    /**
+     * Returns the lengths and strides of the coalesced dimensions of the structure, outermost first; there is
+     * always at least one dimension.
+     */
+    static int[][] coalesce(ArrayStructure structure) {
+        final int dimension = structure.dimension();
+        final int[] lengths = new int[Math.max(1, dimension)], strides = new int[Math.max(1, dimension)];
+        int count = 0;
+        for (int i = 0; i < dimension; i++) {
+            final int length = structure.dimensionLength(i), stride = structure.stride(i);
+            if (length == 1) {
+                continue;
+            }
+
+            if (count > 0 && strides[count - 1] == length * stride) {
+                lengths[count - 1] *= length;
+                strides[count - 1] = stride;
+            } else {
+                lengths[count] = length;
+                strides[count++] = stride;
+            }
+        }
+
+        if (count == 0) {
+            lengths[0] = 1;
+            strides[0] = 1;
+            count = 1;
+        }
+
+        return new int[][]{Arrays.copyOf(lengths, count), Arrays.copyOf(strides, count)};
+    }
+
+    // moves the odometer to the given ordinal and returns its array index
+    private int unravel(int ordinal) {
+        int arrayIndex = offset;
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            indices[i] = ordinal % lengths[i];
+            ordinal /= lengths[i];
+            arrayIndex += indices[i] * strides[i];
+        }
+
+        return arrayIndex;
+    }
+
+    @Override
+    public OfDouble trySplit() {
+        final int lo = index;
+        if (fence - lo < 2) {
+            return null;
+        }
+
+        // split between runs if there is more than one, otherwise in the middle of the run
+        final int firstRun = lo / innerLength, lastRun = (fence - 1) / innerLength;
+        final int split = firstRun < lastRun ? ((firstRun + lastRun + 1) >>> 1) * innerLength : (lo + fence) >>> 1;
+
+        final OfDouble prefix = new CoalescedSpliterator(structure, array, new int[][]{lengths, strides}, lo, split);
+        index = split;
+        arrayIndex = unravel(split);
+        return prefix;
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        int i = index;
+        if (i >= fence) {
+            return;
+        }
+
+        index = fence;
+        final int last = lengths.length - 1;
+        for (int runStart = arrayIndex - indices[last] * innerStride, inner = indices[last]; ; inner = 0) {
+            final int run = Math.min(innerLength - inner, fence - i);
+            if (innerStride == 1) {
+                for (int a = runStart + inner, end = a + run; a < end; a++) {
+                    action.accept(array[a]);
+                }
+            } else {
+                for (int k = 0, a = runStart + inner * innerStride; k < run; k++, a += innerStride) {
+                    action.accept(array[a]);
+                }
+            }
+
+            if ((i += run) >= fence) {
+                return;
+            }
+
+            runStart = nextRun(runStart);
+        }
+    }
+
+    /**
+     * Copies the remaining elements into <tt>target</tt> from <tt>position</tt> on, a run at a time.
+     */
+    public void copyTo(double[] target, int position) {
+        int i = index;
+        if (i >= fence) {
+            return;
+        }
+
+        index = fence;
+        final int last = lengths.length - 1;
+        for (int runStart = arrayIndex - indices[last] * innerStride, inner = indices[last]; ; inner = 0) {
+            final int run = Math.min(innerLength - inner, fence - i);
+            if (innerStride == 1) {
+                System.arraycopy(array, runStart + inner, target, position, run);
+            } else {
+                for (int k = 0, a = runStart + inner * innerStride; k < run; k++, a += innerStride) {
+                    target[position + k] = array[a];
+                }
+            }
+
+            position += run;
+            if ((i += run) >= fence) {
+                return;
+            }
+
+            runStart = nextRun(runStart);
+        }
+    }
+
+    // steps the outer dimensions of the odometer and returns the array index of the start of the next run
+    private int nextRun(int runStart) {
+        for (int i = lengths.length - 2; i >= 0; i--) {
+            if (++indices[i] < lengths[i]) {
+                return runStart + strides[i];
+            }
+
+            indices[i] = 0;
+            runStart -= (lengths[i] - 1) * strides[i];
+        }
+
+        return runStart;
+    }
+
+    @Override
+    int nextArrayIndex(int currentArrayIndex) {
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            if (++indices[i] < lengths[i]) {
+                return currentArrayIndex + strides[i];
+            }
+
+            indices[i] = 0;
+            currentArrayIndex -= (lengths[i] - 1) * strides[i];
+        }
+
+        return currentArrayIndex;
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
  *
- * This file `ContiguousStructureUnitStrideDimensionSpliterator.java` is part of Gauss.
+ * This file `NaturalOrderSpliterator.java` is part of Gauss.
  *
  * Gauss is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -21,7 +21,15 @@ package org.mpetnuch.gauss.structure.array.spliterator;
 
 import org.mpetnuch.gauss.structure.array.ArrayStructure;
 
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+
+import static org.mpetnuch.gauss.structure.array.ArrayStructure.CACHE_LINE_LENGTH;
+
 /**
+ * Spliterator over a structure whose elements, in natural order, are a plain range of the array. Splits fall on
+ * cache line boundaries of the array so that no two threads write to the same line.
+ *
  * @author Michael Petnuch
  */
 public final class ContiguousStructureUnitStrideDimensionSpliterator extends AbstractArrayStructureSpliterator<ArrayStructure> {
@@ -36,14 +44,32 @@ public final class ContiguousStructureUnitStrideDimensionSpliterator extends Abs
     @Override
     public OfDouble trySplit() {
         final int lo = index, mid = (lo + fence) >>> 1;
-        if (lo < mid) {
-            return new ContiguousStructureUnitStrideDimensionSpliterator(structure, array, lo, mid);
+        final int split = mid - Math.floorMod(arrayIndex + (mid - lo), CACHE_LINE_LENGTH);
+        if (lo < split) {
+            final OfDouble prefix = new ContiguousStructureUnitStrideDimensionSpliterator(structure, array, lo, split);
+            arrayIndex += split - lo;
+            index = split;
+            return prefix;
         } else {
             // can't split any more
             return null;
         }
     }
 
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        final int from = arrayIndex, to = arrayIndex + (fence - index);
+        if (index < fence) {
+            index = fence;
+            arrayIndex = to;
+            for (int i = from; i < to; i++) {
+                action.accept(array[i]);
+            }
+        }
+    }
+
     @Override
     int nextArrayIndex(int currentArrayIndex) {
         return currentArrayIndex + 1;
@@ -22,19 +22,41 @@ package org.mpetnuch.gauss.structure.array.spliterator;
 import org.mpetnuch.gauss.structure.array.ArrayStructure;
 
 /**
+ * Spliterator over any array structure, visiting the elements in natural (row-major) order. The shape and strides
+ * are copied out of the structure up front, so stepping to the next element is a few array reads.
+ *
  * @author Michael Petnuch
  */
 public final class NaturalOrderSpliterator extends AbstractArrayStructureSpliterator<ArrayStructure> {
-    private int[] indices;
+    private final int[] lengths, strides, backstrides;
+    private final int[] indices;
 
     public NaturalOrderSpliterator(ArrayStructure structure, double[] array) {
-        super(structure, array);
-        this.indices = new int[structure.dimension()];
+        this(structure, array, 0, structure.size());
     }
 
     private NaturalOrderSpliterator(ArrayStructure structure, double[] array, int index, int fence) {
         super(structure, array, index, fence);
-        this.indices = structure.indices(index);
+
+        final int dimension = structure.dimension();
+        this.lengths = new int[dimension];
+        this.strides = new int[dimension];
+        this.backstrides = new int[dimension];
+        for (int i = 0; i < dimension; i++) {
+            lengths[i] = structure.dimensionLength(i);
+            strides[i] = structure.stride(i);
+            backstrides[i] = structure.backstride(i);
+        }
+
+        this.indices = new int[dimension];
+        unravel(index);
+    }
+
+    private void unravel(int ordinal) {
+        for (int i = lengths.length - 1; i >= 0 && lengths[i] > 0; i--) {
+            indices[i] = ordinal % lengths[i];
+            ordinal /= lengths[i];
+        }
     }
 
     @Override
@@ -45,23 +67,26 @@ public final class NaturalOrderSpliterator extends AbstractArrayStructureSpliter
             return null;
         }
 
+        final NaturalOrderSpliterator prefix = new NaturalOrderSpliterator(structure, array, lo, mid);
+
         // update the current spliterators index and indices to reflect
         // that it has been split in half
-        indices = structure.indices(index = mid);
+        index = mid;
+        arrayIndex = structure.index(mid);
+        unravel(mid);
 
-        return new NaturalOrderSpliterator(structure, array, lo, mid);
+        return prefix;
     }
 
     @Override
     int nextArrayIndex(int currentArrayIndex) {
-        for (int i = structure.dimension() - 1; i >= 0; i--) {
-            if (++indices[i] < structure.dimensionLength(i)) {
-                currentArrayIndex += structure.stride(i);
-                return currentArrayIndex;
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            if (++indices[i] < lengths[i]) {
+                return currentArrayIndex + strides[i];
             }
 
             indices[i] = 0;
-            currentArrayIndex -= structure.backstride(i);
+            currentArrayIndex -= backstrides[i];
         }
 
         return currentArrayIndex;
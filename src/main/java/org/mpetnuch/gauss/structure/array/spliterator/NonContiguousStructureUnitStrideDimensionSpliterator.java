@@ -1,7 +1,7 @@
 /*
  * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
  *
- * This file `NonContiguousStructureUnitStrideDimensionSpliterator.java` is part of Gauss.
+ * This file `NaturalOrderSpliterator.java` is part of Gauss.
  *
  * Gauss is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -21,63 +21,102 @@ package org.mpetnuch.gauss.structure.array.spliterator;
 
 import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
 
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+
 import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
 import static org.mpetnuch.gauss.structure.Structure2D.ROW_DIMENSION;
+import static org.mpetnuch.gauss.structure.array.ArrayStructure.CACHE_LINE_LENGTH;
 
 /**
+ * Spliterator over a two dimensional structure whose rows are contiguous runs of the array, such as a slice of a
+ * row-major matrix or a padded one. Each row is visited with a plain loop; splits fall on row boundaries, or on
+ * cache line boundaries within a single row.
+ *
  * @author Michael Petnuch
  */
 public final class NonContiguousStructureUnitStrideDimensionSpliterator extends AbstractArrayStructureSpliterator<ArrayStructure2D> {
-    private final int nonUnitStriddedDimension;
-    private final int nonUnitStridedDimensionLength;
-    private final int nonUnitStriddedDimensionOffset;
-    private int nonUnitStriddedDimensionIndex;
+    private final int columnCount;
+    private final int rowStride;
+    private final int offset;
+    private int columnIndex;
 
     private NonContiguousStructureUnitStrideDimensionSpliterator(ArrayStructure2D structure, double[] array, int index, int fence) {
         super(structure, array, index, fence);
 
-        final int unitStrideDimension = structure.unitStrideDimension();
-        switch (unitStrideDimension) {
-            case ROW_DIMENSION:
-                this.nonUnitStriddedDimension = COLUMN_DIMENSION;
-                break;
-            case COLUMN_DIMENSION:
-                this.nonUnitStriddedDimension = ROW_DIMENSION;
-                break;
-            default:
-                throw new AssertionError(String.format(
-                        "ArrayStructure2D had unexpected unit stride dimensionLength: %d", unitStrideDimension));
+        if (structure.stride(COLUMN_DIMENSION) != 1) {
+            throw new IllegalArgumentException("Rows of the structure are not contiguous");
         }
 
-        this.nonUnitStriddedDimensionIndex = structure.indices(index)[nonUnitStriddedDimension];
-        this.nonUnitStridedDimensionLength = structure.dimensionLength(nonUnitStriddedDimension);
-        this.nonUnitStriddedDimensionOffset = structure.stride(nonUnitStriddedDimension) +
-                structure.backstride(nonUnitStriddedDimension);
+        this.columnCount = structure.dimensionLength(COLUMN_DIMENSION);
+        this.rowStride = structure.stride(ROW_DIMENSION);
+        this.offset = structure.offset();
+        this.columnIndex = columnCount > 0 ? index % columnCount : 0;
     }
 
     public NonContiguousStructureUnitStrideDimensionSpliterator(ArrayStructure2D structure, double[] array) {
-        this(structure, array, 0, structure.lastIndex());
+        this(structure, array, 0, structure.size());
+    }
+
+    private int arrayIndex(int ordinal) {
+        return offset + (ordinal / columnCount) * rowStride + ordinal % columnCount;
     }
 
     @Override
     public OfDouble trySplit() {
-        final int lo = index, mid = (lo + fence) >>> 1;
-        if (lo < mid) {
-            this.nonUnitStriddedDimensionIndex = structure.indices(mid)[nonUnitStriddedDimension];
-            return new NonContiguousStructureUnitStrideDimensionSpliterator(structure, array, lo, mid);
+        final int lo = index;
+        if (lo >= fence) {
+            return null;
+        }
+
+        final int firstRow = lo / columnCount, lastRow = (fence - 1) / columnCount;
+        final int split;
+        if (firstRow < lastRow) {
+            split = ((firstRow + lastRow + 1) >>> 1) * columnCount;
+        } else {
+            final int mid = (lo + fence) >>> 1;
+            split = mid - Math.floorMod(arrayIndex(mid), CACHE_LINE_LENGTH);
+        }
+
+        if (lo < split) {
+            final OfDouble prefix = new NonContiguousStructureUnitStrideDimensionSpliterator(structure, array, lo, split);
+            index = split;
+            arrayIndex = arrayIndex(split);
+            columnIndex = split % columnCount;
+            return prefix;
         } else {
             // can't split any more
             return null;
         }
     }
 
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+
+        int i = index, column = columnIndex, rowStart = arrayIndex - columnIndex;
+        if (i < fence) {
+            index = fence;
+            while (i < fence) {
+                final int run = Math.min(columnCount - column, fence - i);
+                for (int a = rowStart + column, end = a + run; a < end; a++) {
+                    action.accept(array[a]);
+                }
+
+                i += run;
+                column = 0;
+                rowStart += rowStride;
+            }
+        }
+    }
+
     @Override
     int nextArrayIndex(int currentArrayIndex) {
-        if (++nonUnitStriddedDimensionIndex < nonUnitStridedDimensionLength) {
+        if (++columnIndex < columnCount) {
             return currentArrayIndex + 1;
         }
 
-        nonUnitStriddedDimensionIndex = 0;
-        return currentArrayIndex + nonUnitStriddedDimensionOffset;
+        columnIndex = 0;
+        return currentArrayIndex + 1 - columnCount + rowStride;
     }
 }
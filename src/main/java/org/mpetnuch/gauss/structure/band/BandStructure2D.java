@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `BandStructure2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.band;
+
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.WindowedStructure2D;
+
+/**
+ * Describes a window onto an <tt>m x n</tt> matrix with <tt>kl</tt> sub-diagonals and <tt>ku</tt> super-diagonals,
+ * stored column by column using the LAPACK band layout: element <tt>(i, j)</tt> with <tt>-ku &lt;= i - j &lt;= kl</tt>
+ * lives at <tt>ku + i - j + j * (kl + ku + 1)</tt>, so each column occupies <tt>kl + ku + 1</tt> consecutive elements.
+ * <p>
+ * Symmetric band matrices only store one triangle, i.e. either <tt>kl</tt> or <tt>ku</tt> is zero, and the elements
+ * outside of that triangle mirror the stored ones. For all other band matrices the elements outside of the band
+ * are implicit zeros.
+ *
+ * @author Michael Petnuch
+ */
+public final class BandStructure2D extends WindowedStructure2D<BandStructure2D> {
+    private final int fullRowCount, fullColumnCount;
+    private final int lowerBandwidth, upperBandwidth;
+    private final boolean symmetric;
+
+    public BandStructure2D(int rowCount, int columnCount, int lowerBandwidth, int upperBandwidth) {
+        this(rowCount, columnCount, lowerBandwidth, upperBandwidth, false, false,
+                0, 1, rowCount, 0, 1, columnCount);
+    }
+
+    private BandStructure2D(int fullRowCount, int fullColumnCount, int lowerBandwidth, int upperBandwidth,
+                            boolean symmetric, boolean transposed,
+                            int rowOffset, int rowStride, int rowCount,
+                            int columnOffset, int columnStride, int columnCount) {
+        super(transposed, rowOffset, rowStride, rowCount, columnOffset, columnStride, columnCount);
+        if (lowerBandwidth < 0 || upperBandwidth < 0) {
+            throw new IllegalArgumentException("Bandwidths must be non-negative");
+        }
+
+        this.fullRowCount = fullRowCount;
+        this.fullColumnCount = fullColumnCount;
+        this.lowerBandwidth = lowerBandwidth;
+        this.upperBandwidth = upperBandwidth;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Creates the structure of a symmetric band matrix of the given order that stores <tt>bandwidth</tt> diagonals
+     * of the requested triangle next to the main diagonal.
+     */
+    public static BandStructure2D symmetric(int order, int bandwidth, Triangle triangle) {
+        final int lowerBandwidth = Triangle.Lower == triangle ? bandwidth : 0;
+        final int upperBandwidth = Triangle.Upper == triangle ? bandwidth : 0;
+
+        return new BandStructure2D(order, order, lowerBandwidth, upperBandwidth, true, false,
+                0, 1, order, 0, 1, order);
+    }
+
+    /**
+     * Creates the structure of a triangular band matrix of the given order that stores <tt>bandwidth</tt> diagonals
+     * of the requested triangle next to the main diagonal.
+     */
+    public static BandStructure2D triangular(int order, int bandwidth, Triangle triangle) {
+        final int lowerBandwidth = Triangle.Lower == triangle ? bandwidth : 0;
+        final int upperBandwidth = Triangle.Upper == triangle ? bandwidth : 0;
+
+        return new BandStructure2D(order, order, lowerBandwidth, upperBandwidth);
+    }
+
+    /**
+     * Returns the number of elements required to store the band of a matrix with the given number of columns.
+     *
+     * @throws IllegalArgumentException if the band does not fit in a single array
+     */
+    public static int bandLength(int columnCount, int lowerBandwidth, int upperBandwidth) {
+        final long length = (long) columnCount * (lowerBandwidth + upperBandwidth + 1);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Band matrix with " + columnCount + " columns does not fit in an array");
+        }
+
+        return (int) length;
+    }
+
+    @Override
+    protected BandStructure2D window(boolean transposed,
+                                     int rowOffset, int rowStride, int rowCount,
+                                     int columnOffset, int columnStride, int columnCount) {
+        return new BandStructure2D(fullRowCount, fullColumnCount, lowerBandwidth, upperBandwidth,
+                symmetric, transposed, rowOffset, rowStride, rowCount, columnOffset, columnStride, columnCount);
+    }
+
+    @Override
+    public int storageIndex(int row, int column) {
+        if (isStored(row, column)) {
+            return columnStart(column) + row;
+        } else if (symmetric && isStored(column, row)) {
+            return columnStart(row) + column;
+        }
+
+        return IMPLICIT_ZERO;
+    }
+
+    private boolean isStored(int row, int column) {
+        final int diagonal = row - column;
+        return diagonal <= lowerBandwidth && -diagonal <= upperBandwidth;
+    }
+
+    @Override
+    public int columnStart(int column) {
+        return upperBandwidth + column * (lowerBandwidth + upperBandwidth);
+    }
+
+    public int fullRowCount() {
+        return fullRowCount;
+    }
+
+    public int fullColumnCount() {
+        return fullColumnCount;
+    }
+
+    public int lowerBandwidth() {
+        return lowerBandwidth;
+    }
+
+    public int upperBandwidth() {
+        return upperBandwidth;
+    }
+
+    /**
+     * Returns the number of sub-diagonals of this window that may hold non-zero elements, windows with non-unit
+     * strides are conservatively treated as full.
+     */
+    public int windowLowerBandwidth() {
+        if (rowStride != 1 || columnStride != 1) {
+            return Math.max(0, rowCount - 1);
+        }
+
+        final int lower = symmetric ? Math.max(lowerBandwidth, upperBandwidth) : lowerBandwidth;
+        final int upper = symmetric ? lower : upperBandwidth;
+        final int bandwidth = transposed ? upper + columnOffset - rowOffset : lower + columnOffset - rowOffset;
+        return Math.max(0, Math.min(bandwidth, rowCount - 1));
+    }
+
+    /**
+     * Returns the number of super-diagonals of this window that may hold non-zero elements, windows with non-unit
+     * strides are conservatively treated as full.
+     */
+    public int windowUpperBandwidth() {
+        if (rowStride != 1 || columnStride != 1) {
+            return Math.max(0, columnCount - 1);
+        }
+
+        final int lower = symmetric ? Math.max(lowerBandwidth, upperBandwidth) : lowerBandwidth;
+        final int upper = symmetric ? lower : upperBandwidth;
+        final int bandwidth = transposed ? lower + rowOffset - columnOffset : upper + rowOffset - columnOffset;
+        return Math.max(0, Math.min(bandwidth, columnCount - 1));
+    }
+
+    /**
+     * Returns the triangle stored by a symmetric or triangular band structure.
+     */
+    public Triangle triangle() {
+        return lowerBandwidth == 0 ? Triangle.Upper : Triangle.Lower;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ChunkedStructure2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.chunked;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.misc.MathUtils;
+import org.mpetnuch.gauss.structure.Dimension;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.Structure;
+
+import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
+import static org.mpetnuch.gauss.structure.Structure2D.ROW_DIMENSION;
+
+/**
+ * Strided view onto a <tt>rowCount x columnCount</tt> matrix whose elements are addressed by <tt>long</tt>
+ * positions, so that the matrix may hold more than <tt>Integer.MAX_VALUE</tt> elements; e.g. a 60k x 60k matrix
+ * has 3.6e9 elements. Each dimension still fits in an <tt>int</tt>, only positions, strides and the total number
+ * of elements are <tt>long</tt>. As described by {@link Structure#size()}, {@link #size()} saturates at
+ * <tt>Integer.MAX_VALUE</tt>, use {@link #longSize()} for the exact count.
+ *
+ * @author Michael Petnuch
+ */
+public final class ChunkedStructure2D implements Structure {
+    private final int rowCount, columnCount;
+    private final long rowStride, columnStride;
+    private final long offset;
+
+    /**
+     * Creates the structure of a contiguous row-major <tt>rowCount x columnCount</tt> matrix.
+     */
+    public ChunkedStructure2D(int rowCount, int columnCount) {
+        this(rowCount, columnCount, columnCount, 1, 0);
+    }
+
+    public ChunkedStructure2D(int rowCount, long rowStride, int columnCount, long columnStride, long offset) {
+        if (rowCount < 0 || columnCount < 0) {
+            throw new IllegalArgumentException("Dimensions must be non-negative");
+        }
+
+        this.rowCount = rowCount;
+        this.rowStride = rowStride;
+        this.columnCount = columnCount;
+        this.columnStride = columnStride;
+        this.offset = offset;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return columnCount;
+    }
+
+    public long rowStride() {
+        return rowStride;
+    }
+
+    public long columnStride() {
+        return columnStride;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * Returns the exact number of elements of this structure.
+     */
+    public long longSize() {
+        return (long) rowCount * columnCount;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, longSize());
+    }
+
+    @Override
+    public int dimension() {
+        return 2;
+    }
+
+    @Override
+    public int dimensionLength(int dimension) {
+        switch (dimension) {
+            case ROW_DIMENSION:
+                return rowCount;
+            case COLUMN_DIMENSION:
+                return columnCount;
+        }
+
+        throw new InvalidDimensionRangeException(dimension, 0, 2);
+    }
+
+    public long index(int rowIndex, int columnIndex) {
+        return offset + rowPosition(rowIndex) * rowStride + columnPosition(columnIndex) * columnStride;
+    }
+
+    private int rowPosition(int rowIndex) {
+        final int position = rowIndex < 0 ? rowIndex + rowCount : rowIndex;
+        if (position >= 0 && position < rowCount) {
+            return position;
+        }
+
+        throw new InvalidDimensionRangeException(rowIndex, ROW_DIMENSION, rowCount);
+    }
+
+    private int columnPosition(int columnIndex) {
+        final int position = columnIndex < 0 ? columnIndex + columnCount : columnIndex;
+        if (position >= 0 && position < columnCount) {
+            return position;
+        }
+
+        throw new InvalidDimensionRangeException(columnIndex, COLUMN_DIMENSION, columnCount);
+    }
+
+    /**
+     * Returns the position of the element with the given row-major ordinal.
+     */
+    public long index(long ordinal) {
+        if (ordinal < 0 || ordinal >= longSize()) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " is out of range [0, " + longSize() + ")");
+        }
+
+        return offset + (ordinal / columnCount) * rowStride + (ordinal % columnCount) * columnStride;
+    }
+
+    /**
+     * Returns the largest position addressed by this structure, or <tt>-1</tt> if it is empty.
+     */
+    public long lastIndex() {
+        if (rowCount == 0 || columnCount == 0) {
+            return -1;
+        }
+
+        return offset + Math.max(0, (rowCount - 1) * rowStride) + Math.max(0, (columnCount - 1) * columnStride);
+    }
+
+    public boolean isContiguous() {
+        return (columnStride == 1 && rowStride == columnCount) || (rowStride == 1 && columnStride == rowCount);
+    }
+
+    public ChunkedStructure2D transpose() {
+        return new ChunkedStructure2D(columnCount, columnStride, rowCount, rowStride, offset);
+    }
+
+    @Override
+    public ChunkedStructure2D swapAxis(int axis1, int axis2) {
+        final int axis1DimensionIndex = dimension(axis1).dimensionIndex();
+        final int axis2DimensionIndex = dimension(axis2).dimensionIndex();
+        if (axis1DimensionIndex == axis2DimensionIndex) {
+            return this;
+        } else {
+            return transpose();
+        }
+    }
+
+    @Override
+    public ChunkedStructure2D slice(Slice... slices) {
+        switch (slices.length) {
+            case 2:
+                return slice(slices[0], slices[1]);
+            case 1:
+                return slice(slices[0], Slice.All());
+            default:
+                throw new DimensionMismatchException(slices.length, 2);
+        }
+    }
+
+    public ChunkedStructure2D slice(Slice rowSlice, Slice columnSlice) {
+        final Dimension rowDimension = dimension(ROW_DIMENSION);
+        final int rowStart = rowSlice.start(rowDimension);
+        final int rowWidth = Math.max(0, rowSlice.stop(rowDimension) - rowStart);
+
+        final Dimension columnDimension = dimension(COLUMN_DIMENSION);
+        final int columnStart = columnSlice.start(columnDimension);
+        final int columnWidth = Math.max(0, columnSlice.stop(columnDimension) - columnStart);
+
+        return new ChunkedStructure2D(
+                MathUtils.ceilDiv(rowWidth, rowSlice.step()), rowStride * rowSlice.step(),
+                MathUtils.ceilDiv(columnWidth, columnSlice.step()), columnStride * columnSlice.step(),
+                offset + rowStart * rowStride + columnStart * columnStride);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `PackedStructure2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.packed;
+
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.WindowedStructure2D;
+
+/**
+ * Describes a window onto a square matrix of order <tt>n</tt> of which only one triangle is stored, packed column
+ * by column into <tt>n * (n + 1) / 2</tt> elements using the LAPACK layout:
+ * <ul>
+ * <li>{@link Triangle#Upper}: element <tt>(i, j)</tt> with <tt>i &lt;= j</tt> lives at <tt>i + j * (j + 1) / 2</tt></li>
+ * <li>{@link Triangle#Lower}: element <tt>(i, j)</tt> with <tt>i &gt;= j</tt> lives at
+ * <tt>i + (2 * n - j - 1) * j / 2</tt></li>
+ * </ul>
+ * Elements of the other triangle are either the mirror of a stored element (symmetric matrices) or an implicit
+ * zero (triangular matrices).
+ *
+ * @author Michael Petnuch
+ */
+public final class PackedStructure2D extends WindowedStructure2D<PackedStructure2D> {
+    private final int order;
+    private final Triangle triangle;
+    private final boolean symmetric;
+
+    public PackedStructure2D(int order, Triangle triangle, boolean symmetric) {
+        this(order, triangle, symmetric, false, 0, 1, order, 0, 1, order);
+    }
+
+    private PackedStructure2D(int order, Triangle triangle, boolean symmetric, boolean transposed,
+                              int rowOffset, int rowStride, int rowCount,
+                              int columnOffset, int columnStride, int columnCount) {
+        super(transposed, rowOffset, rowStride, rowCount, columnOffset, columnStride, columnCount);
+        this.order = order;
+        this.triangle = triangle;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Returns the number of elements required to pack one triangle of a square matrix of the given order.
+     *
+     * @param order the order of the square matrix
+     * @return <tt>order * (order + 1) / 2</tt>
+     * @throws IllegalArgumentException if the packed triangle does not fit in a single array
+     */
+    public static int packedLength(int order) {
+        final long length = ((long) order * (order + 1)) >>> 1;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Packed matrix of order " + order + " does not fit in an array");
+        }
+
+        return (int) length;
+    }
+
+    @Override
+    protected PackedStructure2D window(boolean transposed,
+                                       int rowOffset, int rowStride, int rowCount,
+                                       int columnOffset, int columnStride, int columnCount) {
+        return new PackedStructure2D(order, triangle, symmetric, transposed,
+                rowOffset, rowStride, rowCount, columnOffset, columnStride, columnCount);
+    }
+
+    @Override
+    public int storageIndex(int row, int column) {
+        if (isStored(row, column)) {
+            return columnStart(column) + row;
+        } else if (symmetric) {
+            return columnStart(row) + column;
+        }
+
+        return IMPLICIT_ZERO;
+    }
+
+    private boolean isStored(int row, int column) {
+        return Triangle.Upper == triangle ? row <= column : row >= column;
+    }
+
+    @Override
+    public int columnStart(int column) {
+        if (Triangle.Upper == triangle) {
+            return (int) (((long) column * (column + 1)) >>> 1);
+        } else {
+            return (int) (((long) (2 * order - column - 1) * column) >>> 1);
+        }
+    }
+
+    public int order() {
+        return order;
+    }
+
+    public Triangle triangle() {
+        return triangle;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `CompressedStructure2D.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.structure.sparse;
+
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.structure.Dimension;
+import org.mpetnuch.gauss.structure.Slice;
+import org.mpetnuch.gauss.structure.Structure;
+
+import static org.mpetnuch.gauss.structure.Structure2D.COLUMN_DIMENSION;
+import static org.mpetnuch.gauss.structure.Structure2D.ROW_DIMENSION;
+
+/**
+ * Describes the sparsity pattern of a matrix in compressed sparse row (CSR) or compressed sparse column (CSC)
+ * format, together with a rectangular window onto it. The elements of major line <tt>k</tt> (a row for CSR, a
+ * column for CSC) are stored at positions <tt>pointers[k]</tt> up to <tt>pointers[k + 1]</tt>, and
+ * <tt>indices</tt> holds their minor index in strictly increasing order.
+ * <p>
+ * The same pattern read with the other orientation is the pattern of the transposed matrix, so transposing is
+ * free and turns a CSR view into a CSC view and vice versa.
+ *
+ * @author Michael Petnuch
+ */
+public final class CompressedStructure2D implements Structure {
+    public static final int NOT_STORED = -1;
+
+    public enum Orientation {
+        Row, Column;
+
+        public Orientation flip() {
+            return Row == this ? Column : Row;
+        }
+    }
+
+    private final Orientation orientation;
+    private final int majorLength, minorLength;
+    private final int[] pointers, indices;
+
+    // the window is expressed in major and minor coordinates of the full pattern
+    private final int majorOffset, majorCount;
+    private final int minorOffset, minorCount;
+
+    /**
+     * Creates the structure of a <tt>rowCount x columnCount</tt> matrix, the arrays are not copied.
+     *
+     * @throws IllegalArgumentException if the arrays do not describe a valid compressed pattern
+     */
+    public CompressedStructure2D(Orientation orientation, int rowCount, int columnCount, int[] pointers, int[] indices) {
+        this(orientation,
+                Orientation.Row == orientation ? rowCount : columnCount,
+                Orientation.Row == orientation ? columnCount : rowCount,
+                pointers, indices,
+                0, Orientation.Row == orientation ? rowCount : columnCount,
+                0, Orientation.Row == orientation ? columnCount : rowCount);
+
+        validate();
+    }
+
+    private CompressedStructure2D(Orientation orientation, int majorLength, int minorLength, int[] pointers, int[] indices,
+                                  int majorOffset, int majorCount, int minorOffset, int minorCount) {
+        this.orientation = orientation;
+        this.majorLength = majorLength;
+        this.minorLength = minorLength;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.majorOffset = majorOffset;
+        this.majorCount = majorCount;
+        this.minorOffset = minorOffset;
+        this.minorCount = minorCount;
+    }
+
+    private void validate() {
+        if (pointers.length != majorLength + 1) {
+            throw new DimensionMismatchException(pointers.length, majorLength + 1);
+        } else if (pointers[0] != 0 || pointers[majorLength] > indices.length) {
+            throw new IllegalArgumentException("Pointers must start at zero and end within the indices");
+        }
+
+        for (int major = 0; major < majorLength; major++) {
+            final int start = pointers[major], end = pointers[major + 1];
+            if (end < start) {
+                throw new IllegalArgumentException("Pointers must be non-decreasing, see line " + major);
+            }
+
+            for (int position = start, previous = -1; position < end; previous = indices[position++]) {
+                if (indices[position] <= previous || indices[position] >= minorLength) {
+                    throw new IllegalArgumentException("Indices of line " + major + " must be increasing and in range");
+                }
+            }
+        }
+    }
+
+    public Orientation orientation() {
+        return orientation;
+    }
+
+    /**
+     * Returns the number of major lines of this window, i.e. its rows for CSR and its columns for CSC.
+     */
+    public int majorCount() {
+        return majorCount;
+    }
+
+    public int minorCount() {
+        return minorCount;
+    }
+
+    public int rowCount() {
+        return Orientation.Row == orientation ? majorCount : minorCount;
+    }
+
+    public int columnCount() {
+        return Orientation.Row == orientation ? minorCount : majorCount;
+    }
+
+    /**
+     * Returns the first storage position of the given major line of this window.
+     */
+    public int start(int major) {
+        final int line = majorOffset + major;
+        return minorOffset == 0 ? pointers[line] : lowerBound(pointers[line], pointers[line + 1], minorOffset);
+    }
+
+    /**
+     * Returns one past the last storage position of the given major line of this window.
+     */
+    public int end(int major) {
+        final int line = majorOffset + major;
+        return minorOffset + minorCount == minorLength ?
+                pointers[line + 1] : lowerBound(pointers[line], pointers[line + 1], minorOffset + minorCount);
+    }
+
+    /**
+     * Returns the minor index, relative to this window, of the element stored at the given position.
+     */
+    public int minor(int position) {
+        return indices[position] - minorOffset;
+    }
+
+    private int lowerBound(int from, int to, int minor) {
+        int low = from, high = to;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (indices[mid] < minor) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the storage position of the element <tt>(rowIndex, columnIndex)</tt> of this window.
+     *
+     * @return the storage position or {@link #NOT_STORED} if the element is an implicit zero
+     */
+    public int index(int rowIndex, int columnIndex) {
+        final int row = index(rowIndex, ROW_DIMENSION, rowCount());
+        final int column = index(columnIndex, COLUMN_DIMENSION, columnCount());
+
+        final int line = majorOffset + (Orientation.Row == orientation ? row : column);
+        final int minor = minorOffset + (Orientation.Row == orientation ? column : row);
+        final int position = lowerBound(pointers[line], pointers[line + 1], minor);
+
+        return position < pointers[line + 1] && indices[position] == minor ? position : NOT_STORED;
+    }
+
+    private static int index(int position, int dimension, int length) {
+        final int index = position < 0 ? position + length : position;
+        if (index >= 0 && index < length) {
+            return index;
+        }
+
+        throw new InvalidDimensionRangeException(position, dimension, length);
+    }
+
+    /**
+     * Returns the number of elements stored in this window.
+     */
+    public int nonZeroCount() {
+        if (minorOffset == 0 && minorCount == minorLength) {
+            return pointers[majorOffset + majorCount] - pointers[majorOffset];
+        }
+
+        int count = 0;
+        for (int major = 0; major < majorCount; major++) {
+            count += end(major) - start(major);
+        }
+
+        return count;
+    }
+
+    public CompressedStructure2D transpose() {
+        return new CompressedStructure2D(orientation.flip(), majorLength, minorLength, pointers, indices,
+                majorOffset, majorCount, minorOffset, minorCount);
+    }
+
+    @Override
+    public CompressedStructure2D swapAxis(int axis1, int axis2) {
+        final int axis1DimensionIndex = dimension(axis1).dimensionIndex();
+        final int axis2DimensionIndex = dimension(axis2).dimensionIndex();
+        return axis1DimensionIndex == axis2DimensionIndex ? this : transpose();
+    }
+
+    @Override
+    public CompressedStructure2D slice(Slice... slices) {
+        switch (slices.length) {
+            case 2:
+                return slice(slices[0], slices[1]);
+            case 1:
+                return slice(slices[0], Slice.All());
+            default:
+                throw new DimensionMismatchException(slices.length, 2);
+        }
+    }
+
+    /**
+     * Returns a window onto the same pattern, compressed patterns only support slices with unit step.
+     *
+     * @throws IllegalArgumentException if either of the slices does not have a unit step
+     */
+    public CompressedStructure2D slice(Slice rowSlice, Slice columnSlice) {
+        if (rowSlice.step() != 1 || columnSlice.step() != 1) {
+            throw new IllegalArgumentException("Compressed structures only support slices with unit step");
+        }
+
+        final Dimension rowDimension = dimension(ROW_DIMENSION);
+        final int rowStart = rowSlice.start(rowDimension);
+        final int rowCount = Math.max(0, rowSlice.stop(rowDimension) - rowStart);
+
+        final Dimension columnDimension = dimension(COLUMN_DIMENSION);
+        final int columnStart = columnSlice.start(columnDimension);
+        final int columnCount = Math.max(0, columnSlice.stop(columnDimension) - columnStart);
+
+        if (Orientation.Row == orientation) {
+            return new CompressedStructure2D(orientation, majorLength, minorLength, pointers, indices,
+                    majorOffset + rowStart, rowCount, minorOffset + columnStart, columnCount);
+        } else {
+            return new CompressedStructure2D(orientation, majorLength, minorLength, pointers, indices,
+                    majorOffset + columnStart, columnCount, minorOffset + rowStart, rowCount);
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) majorCount * minorCount);
+    }
+
+    @Override
+    public int dimension() {
+        return 2;
+    }
+
+    @Override
+    public int dimensionLength(int dimension) {
+        switch (dimension) {
+            case ROW_DIMENSION:
+                return rowCount();
+            case COLUMN_DIMENSION:
+                return columnCount();
+        }
+
+        throw new InvalidDimensionRangeException(dimension, 0, 2);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ChunkedArrayFileTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.array.ArrayStoreAnyD;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.mpetnuch.gauss.structure.Slice.All;
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ChunkedArrayFileTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSlice() throws IOException {
+        final int[] shape = {7, 9, 5, 4};
+        final ArrayStoreAnyD store = new ArrayStoreAnyD(new Random(7).doubles(7 * 9 * 5 * 4).toArray(),
+                new ArrayStructureAnyD(shape));
+
+        final Path path = folder.newFile().toPath();
+        ChunkedArrayFile.write(path, store, 3, 4, 2, 4);
+        try (ChunkedArrayFile file = ChunkedArrayFile.open(path)) {
+            Assert.assertArrayEquals(shape, file.shape());
+            Assert.assertArrayEquals(store.toArray(), file.read().toArray(), 0.0);
+        }
+
+        try (ChunkedArrayFile file = new ChunkedArrayFile.ChunkedArrayFileBuilder(path).setCacheSize(100)
+                .createChunkedArrayFile()) {
+            // rows 3 and 4 sit in the second chunk along the first axis, columns 1 to 6 in the first two
+            Assert.assertArrayEquals(store.slice(S(3, 5), S(1, 7, 2)).toArray(),
+                    file.slice(S(3, 5), S(1, 7, 2)).toArray(), 0.0);
+            Assert.assertEquals(2 * 3, file.cachedChunkCount());
+
+            Assert.assertArrayEquals(store.slice(All(2), S(8, 9), S(1, 4), S(2, 3)).toArray(),
+                    file.slice(All(2), S(8, 9), S(1, 4), S(2, 3)).toArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testCompression() throws IOException {
+        final double[] data = new double[256 * 256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 256;
+        }
+
+        final ArrayStore2D store = new ArrayStore2D(data, new ArrayStructure2D(256, 256));
+        final Path path = folder.newFile().toPath();
+        ChunkedArrayFile.write(path, store, 64, 64);
+        Assert.assertTrue(Files.size(path) < 8L * data.length / 20);
+
+        try (ChunkedArrayFile file = ChunkedArrayFile.open(path)) {
+            Assert.assertArrayEquals(store.slice(S(100, 200), S(10, 20)).toArray(),
+                    file.slice(S(100, 200), S(10, 20)).toArray(), 0.0);
+        }
+    }
+}
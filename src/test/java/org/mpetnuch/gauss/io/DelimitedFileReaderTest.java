@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DelimitedFileReaderTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Michael Petnuch
+ */
+public class DelimitedFileReaderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String text) throws IOException {
+        final Path path = folder.newFile().toPath();
+        Files.write(path, text.getBytes(StandardCharsets.ISO_8859_1));
+        return path;
+    }
+
+    @Test
+    public void testParseDouble() {
+        final Random random = new Random(11);
+        for (int i = 0; i < 10000; i++) {
+            final double x = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            for (String text : new String[]{Double.toString(x), String.format(Locale.ROOT, "%.6f", x),
+                    String.format(Locale.ROOT, "%.4e", x), Long.toString((long) x)}) {
+                final ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+                Assert.assertEquals(text, Double.parseDouble(text),
+                        DelimitedFileReader.parseDouble(bytes, 0, bytes.limit()), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        final Path path = write("a,b,c\r\n1,2.5,-3e2\r\n\r\n4, \"5\" ,nan\r\n7,8\r\n");
+        final DenseGeneralMatrix all = new DelimitedFileReader.DelimitedFileReaderBuilder().setSkipHeader(true)
+                .createDelimitedFileReader().read(path);
+        Assert.assertArrayEquals(new double[]{1, 2.5, -300, 4, 5, Double.NaN, 7, 8, Double.NaN}, all.toArray(), 0.0);
+
+        final DenseGeneralMatrix selected = new DelimitedFileReader.DelimitedFileReaderBuilder().setSkipHeader(true)
+                .setColumns(1, 0).setRowFilter(row -> row[1] > 1).createDelimitedFileReader().read(path);
+        Assert.assertArrayEquals(new double[]{5, 4, 8, 7}, selected.toArray(), 0.0);
+
+        // blank lines with bare line feeds, including the one the column count would otherwise come from
+        final DenseGeneralMatrix unix = new DelimitedFileReader.DelimitedFileReaderBuilder().setSkipHeader(true)
+                .createDelimitedFileReader().read(write("a,b,c\n\n1,2,3\n\n \t\n4,5,6\n"));
+        Assert.assertEquals(3, unix.getNumberOfColumns());
+        Assert.assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6}, unix.toArray(), 0.0);
+        Assert.assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6}, new DelimitedFileReader.DelimitedFileReaderBuilder()
+                .createDelimitedFileReader().read(write("1,2,3\n\n4,5,6\n")).toArray(), 0.0);
+    }
+
+    @Test
+    public void testNoDataRows() throws IOException {
+        for (String text : new String[]{"a,b,c", "a,b,c\n", "a,b,c\n\n\r\n"}) {
+            try {
+                new DelimitedFileReader.DelimitedFileReaderBuilder().setSkipHeader(true).createDelimitedFileReader()
+                        .read(write(text));
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("has no data rows"));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelRead() throws IOException {
+        final int rowCount = 20000, columnCount = 6;
+        final double[] data = new Random(rowCount).doubles(rowCount * columnCount).toArray();
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                text.append(j == 0 ? "" : "\t").append(data[i * columnCount + j]);
+            }
+
+            text.append('\n');
+        }
+
+        final DenseGeneralMatrix matrix = new DelimitedFileReader.DelimitedFileReaderBuilder().setDelimiter('\t')
+                .setPool(new ForkJoinPool(4)).setRowFilter(row -> row[0] < 0.5)
+                .createDelimitedFileReader().read(write(text.toString()));
+
+        int row = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (data[i * columnCount] < 0.5) {
+                for (int j = 0; j < columnCount; j++) {
+                    Assert.assertEquals(data[i * columnCount + j], matrix.get(row, j), 0.0);
+                }
+
+                row++;
+            }
+        }
+
+        Assert.assertEquals(row, matrix.getNumberOfRows());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `MatrixMarketTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mpetnuch.gauss.matrix.Matrix;
+import org.mpetnuch.gauss.matrix.MatrixType;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.matrix.sparse.SparseMatrix;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Michael Petnuch
+ */
+public class MatrixMarketTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String text) throws IOException {
+        final Path path = folder.newFile().toPath();
+        Files.write(path, text.getBytes(StandardCharsets.ISO_8859_1));
+        return path;
+    }
+
+    private static DenseMatrix generateSparse(int m, int n, double density) {
+        final Random random = new Random(m * n);
+        final double[][] data = new double[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                data[i][j] = random.nextDouble() < density ? random.nextGaussian() : 0.0;
+            }
+        }
+
+        return DenseMatrix.from(data);
+    }
+
+    @Test
+    public void testCoordinate() throws IOException {
+        final SparseMatrix symmetric = (SparseMatrix) MatrixMarket.read(write(
+                "%%MatrixMarket matrix coordinate real symmetric\n% a comment\n\n3 3 4\n" +
+                        "1 1 2.0\n3 1 -1.5\r\n\n2 2 4e0\n3 2 1\n"));
+        Assert.assertArrayEquals(new double[]{2, 0, -1.5, 0, 4, 1, -1.5, 1, 0}, symmetric.toArray(), 0.0);
+
+        final SparseMatrix skew = (SparseMatrix) MatrixMarket.read(write(
+                "%%MatrixMarket matrix coordinate pattern skew-symmetric\n2 2 1\n2 1\n"));
+        Assert.assertArrayEquals(new double[]{0, -1, 1, 0}, skew.toArray(), 0.0);
+
+        for (Orientation orientation : Orientation.values()) {
+            final SparseMatrix sparse = SparseMatrix.from(generateSparse(300, 200, 0.2), orientation);
+            final Path path = folder.newFile().toPath();
+            MatrixMarket.write(path, sparse, new ForkJoinPool(3));
+
+            final SparseMatrix read = (SparseMatrix) MatrixMarket.read(path, new ForkJoinPool(3));
+            Assert.assertEquals(sparse.getNonZeroCount(), read.getNonZeroCount());
+            Assert.assertArrayEquals(sparse.toArray(), read.toArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testArray() throws IOException {
+        final Matrix general = MatrixMarket.read(write(
+                "%%MatrixMarket matrix array integer general\n2 3\n1\n2\n3\n4\n5\n6\n"));
+        Assert.assertEquals(StorageOrder.ColumnMajor, ((DenseMatrix) general).getStorageOrder());
+        Assert.assertArrayEquals(new double[]{1, 3, 5, 2, 4, 6}, general.toArray(), 0.0);
+
+        final DenseMatrix dense = generateSparse(40, 30, 1.0);
+        final Path path = folder.newFile().toPath();
+        MatrixMarket.write(path, dense);
+        Assert.assertArrayEquals(dense.toArray(), MatrixMarket.read(path).toArray(), 0.0);
+
+        final double[][] data = dense.slice(0, 30, 0, 30).toArray2D();
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < i; j++) {
+                data[j][i] = data[i][j];
+            }
+        }
+
+        final DenseSymmetricMatrix symmetric = (DenseSymmetricMatrix) DenseMatrix.from(data);
+        MatrixMarket.write(path, symmetric);
+
+        final Matrix read = MatrixMarket.read(path);
+        Assert.assertEquals(MatrixType.SP, read.getMatrixType());
+        Assert.assertArrayEquals(symmetric.toArray(), read.toArray(), 0.0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformed() throws IOException {
+        MatrixMarket.read(write("%%MatrixMarket matrix coordinate real general\n2 2 1\n3 1 1.0\n"));
+    }
+}
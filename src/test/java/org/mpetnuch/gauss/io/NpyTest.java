@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `NpyTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mpetnuch.gauss.store.Store;
+import org.mpetnuch.gauss.store.array.ArrayStore;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.array.ArrayStoreAnyD;
+import org.mpetnuch.gauss.store.mapped.MappedStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @author Michael Petnuch
+ */
+public class NpyTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static double[] generate(int n) {
+        return new Random(n).doubles(n).toArray();
+    }
+
+    // writes a version 1.0 file the way numpy would, with the payload in the given byte order
+    private Path write(String header, double[] payload, ByteOrder byteOrder) throws IOException {
+        final byte[] headerBytes = header.getBytes(StandardCharsets.ISO_8859_1);
+        final ByteBuffer buffer = ByteBuffer.allocate(10 + headerBytes.length + 8 * payload.length).order(byteOrder);
+        buffer.put(new byte[]{(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0});
+        buffer.put((byte) headerBytes.length).put((byte) (headerBytes.length >> 8)).put(headerBytes);
+        buffer.asDoubleBuffer().put(payload);
+
+        final Path path = folder.newFile().toPath();
+        Files.write(path, buffer.array());
+        return path;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final double[] data = generate(6 * 7);
+        final Store[] stores = {
+                new ArrayStore1D(data, new ArrayStructure1D(data.length)),
+                new ArrayStore2D(data, new ArrayStructure2D(6, 7)),
+                new ArrayStore2D(data, new ArrayStructure2D(6, 7, StorageOrder.ColumnMajor)),
+                new ArrayStore2D(data, new ArrayStructure2D(6, 7)).transpose(),
+                new ArrayStoreAnyD(data, new ArrayStructureAnyD(new int[]{2, 3, 7}))};
+
+        for (Store store : stores) {
+            final Path path = folder.newFile().toPath();
+            Npy.write(path, store);
+            Assert.assertEquals(0, (Files.size(path) - 8L * data.length) % 64);
+
+            final ArrayStore read = Npy.read(path);
+            Assert.assertArrayEquals(store.structure().shape(), read.structure().shape());
+            Assert.assertArrayEquals(store.toArray(), read.toArray(), 0.0);
+        }
+
+        final Path path = folder.newFile().toPath();
+        Npy.write(path, stores[2]);
+        Assert.assertEquals(StorageOrder.ColumnMajor, ((ArrayStore2D) Npy.read(path)).storageOrder());
+    }
+
+    @Test
+    public void testReadNumPyLayouts() throws IOException {
+        final double[] data = generate(2 * 3 * 4);
+        final ArrayStore fortran = Npy.read(write(
+                "{'descr': '<f8', 'fortran_order': True, 'shape': (2, 3, 4), }     \n", data, ByteOrder.LITTLE_ENDIAN));
+        Assert.assertEquals(data[1 + 2 * 2 + 6 * 3], fortran.get(1, 2, 3), 0.0);
+
+        final ArrayStore bigEndian = Npy.read(write(
+                "{'descr': '>f8', 'fortran_order': False, 'shape': (4, 6), }\n", data, ByteOrder.BIG_ENDIAN));
+        Assert.assertArrayEquals(data, bigEndian.toArray(), 0.0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedDtype() throws IOException {
+        Npy.read(write("{'descr': '<i4', 'fortran_order': False, 'shape': (2,), }\n", new double[1],
+                ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        final double[] data = generate(5 * 9);
+        final ArrayStore2D columnMajor = new ArrayStore2D(data, new ArrayStructure2D(5, 9, StorageOrder.ColumnMajor));
+        final Path path = folder.newFile().toPath();
+        Npy.write(path, columnMajor);
+
+        final MappedStore2D mapped = Npy.map(path, true);
+        Assert.assertArrayEquals(columnMajor.toArray(), mapped.toArray(), 0.0);
+        mapped.set(4, 1, -1.0);
+        mapped.force();
+        Assert.assertEquals(-1.0, Npy.read(path).get(4, 1), 0.0);
+    }
+
+    @Test
+    public void testNpz() throws IOException {
+        final Map<String, Store> arrays = new LinkedHashMap<>();
+        arrays.put("x", new ArrayStore1D(generate(11), new ArrayStructure1D(11)));
+        arrays.put("a", new ArrayStore2D(generate(12), new ArrayStructure2D(3, 4, StorageOrder.ColumnMajor)));
+
+        final Path path = folder.newFile().toPath();
+        Npy.writeNpz(path, arrays);
+        final Map<String, ArrayStore> read = Npy.readNpz(path);
+        Assert.assertEquals(arrays.keySet(), read.keySet());
+        for (String name : arrays.keySet()) {
+            Assert.assertArrayEquals(arrays.get(name).toArray(), read.get(name).toArray(), 0.0);
+        }
+    }
+}
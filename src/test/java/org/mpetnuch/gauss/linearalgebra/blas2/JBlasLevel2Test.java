@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `JBlasLevel2Test.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.blas2;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.matrix.MatrixType;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseTriangularMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.Random;
+
+/**
+ * @author Michael Petnuch
+ */
+public class JBlasLevel2Test {
+    private static final int N = 37;
+
+    private static double[][] generateSymmetric(int n) {
+        final Random random = new Random(n);
+        final double[][] data = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                data[i][j] = data[j][i] = random.nextDouble();
+            }
+        }
+
+        return data;
+    }
+
+    private static double[][] generateTriangular(int n, boolean upper) {
+        final Random random = new Random(n);
+        final double[][] data = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = upper ? i : 0; j < (upper ? n : i + 1); j++) {
+                // keep the diagonal away from zero so that the solves are well conditioned
+                data[i][j] = i == j ? 1.0 + random.nextDouble() : random.nextDouble() / n;
+            }
+        }
+
+        return data;
+    }
+
+    private static double[][] generateBand(int m, int n, int lowerBandwidth, int upperBandwidth) {
+        final Random random = new Random(m * n);
+        final double[][] data = new double[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = Math.max(0, i - lowerBandwidth); j < Math.min(n, i + upperBandwidth + 1); j++) {
+                data[i][j] = random.nextDouble();
+            }
+        }
+
+        return data;
+    }
+
+    private static DenseVector generateVector(int n) {
+        return new DenseVector(new ArrayStore1D(new Random(n + 1).doubles(n).toArray(), new ArrayStructure1D(n)));
+    }
+
+    private static double[] multiply(DenseMatrix a, DenseVector x) {
+        final double[] y = new double[a.getNumberOfRows()];
+        for (int i = 0; i < y.length; i++) {
+            for (int j = 0; j < x.size(); j++) {
+                y[i] += a.get(i, j) * x.get(j);
+            }
+        }
+
+        return y;
+    }
+
+    @Test
+    public void testDgemvColumnMajor() {
+        final double[][] data = generateBand(N, N - 5, N, N);
+        final DenseMatrix a = DenseMatrix.from(data);
+        final DenseMatrix columnMajor = DenseMatrix.from(
+                a.transpose().toArray(), N, N - 5, StorageOrder.ColumnMajor);
+        Assert.assertEquals(StorageOrder.ColumnMajor, columnMajor.getStorageOrder());
+        Assert.assertArrayEquals(a.toArray(), columnMajor.toArray(), 0.0);
+
+        final DenseVector x = generateVector(N - 5);
+        Assert.assertArrayEquals(multiply(a, x), columnMajor.multiply(x).toArray(), 1.0e-12);
+        Assert.assertArrayEquals(a.toArray(), columnMajor.getStore().compact().toArray(), 0.0);
+    }
+
+    @Test
+    public void testDspmv() {
+        final DenseSymmetricMatrix a = (DenseSymmetricMatrix) DenseMatrix.from(generateSymmetric(N));
+        final DenseVector x = generateVector(N);
+        final double[] expected = multiply(a, x);
+
+        for (Triangle triangle : Triangle.values()) {
+            final DenseSymmetricMatrix packed = a.pack(triangle);
+            Assert.assertEquals(MatrixType.SP, packed.getMatrixType());
+            Assert.assertArrayEquals(a.toArray(), packed.toArray(), 0.0);
+            Assert.assertArrayEquals(expected, packed.multiply(x).toArray(), 1.0e-12);
+        }
+    }
+
+    @Test
+    public void testDtpmvAndDtpsv() {
+        final DenseVector x = generateVector(N);
+        for (boolean upper : new boolean[]{true, false}) {
+            final DenseTriangularMatrix a = (DenseTriangularMatrix) DenseMatrix.from(generateTriangular(N, upper));
+            final DenseTriangularMatrix packed = a.pack();
+            Assert.assertEquals(MatrixType.TP, packed.getMatrixType());
+
+            for (DenseTriangularMatrix m : new DenseTriangularMatrix[]{packed, packed.transpose(),
+                    packed.triangularSlice(5, 30), packed.transpose().triangularSlice(5, 30)}) {
+                final DenseVector v = (DenseVector) x.slice(0, m.getNumberOfRows());
+                Assert.assertArrayEquals(multiply(m, v), m.multiply(v).toArray(), 1.0e-12);
+                Assert.assertArrayEquals(v.toArray(), m.multiply(m.solve(v)).toArray(), 1.0e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testDsymvDtrmvAndDtrsv() {
+        final DenseVector x = generateVector(N);
+        final DenseSymmetricMatrix symmetric = (DenseSymmetricMatrix) DenseMatrix.from(generateSymmetric(N));
+        Assert.assertEquals(MatrixType.SY, symmetric.getMatrixType());
+        Assert.assertArrayEquals(multiply(symmetric, x), symmetric.multiply(x).toArray(), 1.0e-12);
+
+        for (boolean upper : new boolean[]{true, false}) {
+            final DenseTriangularMatrix a = (DenseTriangularMatrix) DenseMatrix.from(generateTriangular(N, upper));
+            Assert.assertEquals(MatrixType.TR, a.getMatrixType());
+
+            for (DenseTriangularMatrix m : new DenseTriangularMatrix[]{a, a.transpose(), a.triangularSlice(5, 30)}) {
+                final DenseVector v = (DenseVector) x.slice(0, m.getNumberOfRows());
+                Assert.assertArrayEquals(multiply(m, v), m.multiply(v).toArray(), 1.0e-12);
+                Assert.assertArrayEquals(v.toArray(), m.multiply(m.solve(v)).toArray(), 1.0e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testDgbmv() {
+        final DenseMatrix a = DenseMatrix.from(generateBand(N, N - 5, 3, 2));
+        final DenseGeneralMatrix band = a.band(3, 2);
+        Assert.assertEquals(MatrixType.GB, band.getMatrixType());
+        Assert.assertArrayEquals(a.toArray(), band.toArray(), 0.0);
+
+        for (DenseMatrix m : new DenseMatrix[]{band, band.transpose(), band.slice(4, 20, 4, 30),
+                band.transpose().slice(4, 20, 4, 30)}) {
+            final DenseVector v = (DenseVector) generateVector(N).slice(0, m.getNumberOfColumns());
+            Assert.assertArrayEquals(multiply(m, v), m.multiply(v).toArray(), 1.0e-12);
+        }
+    }
+
+    @Test
+    public void testDsbmv() {
+        final DenseSymmetricMatrix a = (DenseSymmetricMatrix) DenseMatrix.from(generateSymmetric(N));
+        final DenseVector x = generateVector(N);
+
+        for (Triangle triangle : Triangle.values()) {
+            final DenseSymmetricMatrix band = a.band(4, triangle);
+            Assert.assertEquals(MatrixType.SB, band.getMatrixType());
+            Assert.assertEquals(a.get(10, 14), band.get(14, 10), 0.0);
+            Assert.assertEquals(0.0, band.get(10, 15), 0.0);
+            Assert.assertArrayEquals(multiply(band, x), band.multiply(x).toArray(), 1.0e-12);
+        }
+    }
+
+    @Test
+    public void testDtbmvAndDtbsv() {
+        final DenseVector x = generateVector(N);
+        for (boolean upper : new boolean[]{true, false}) {
+            final DenseTriangularMatrix a = (DenseTriangularMatrix) DenseMatrix.from(generateTriangular(N, upper));
+            final DenseTriangularMatrix band = a.band(3);
+            Assert.assertEquals(MatrixType.TB, band.getMatrixType());
+
+            for (DenseTriangularMatrix m : new DenseTriangularMatrix[]{band, band.transpose(),
+                    band.triangularSlice(5, 30), band.transpose().triangularSlice(5, 30)}) {
+                final DenseVector v = (DenseVector) x.slice(0, m.getNumberOfRows());
+                Assert.assertArrayEquals(multiply(m, v), m.multiply(v).toArray(), 1.0e-12);
+                Assert.assertArrayEquals(v.toArray(), m.multiply(m.solve(v)).toArray(), 1.0e-10);
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -89,4 +90,30 @@ public class JBlasLevel3Test {
             }
         }
     }
+
+    @Test
+    public void testDgemmColumnMajor() {
+        final double[][] data = generateData(M, P);
+        final double[] columnMajor = new double[M * P];
+        for (int j = 0; j < P; j++) {
+            for (int i = 0; i < M; i++) {
+                columnMajor[i + j * M] = data[i][j];
+            }
+        }
+
+        final DenseMatrix a = DenseMatrix.from(columnMajor, M, P, StorageOrder.ColumnMajor);
+        final DenseMatrix b = DenseMatrix.from(generateData(P, N));
+        Assert.assertEquals(data[M - 1][1], a.get(M - 1, 1), 0.0);
+
+        final DenseMatrix c = a.multiply(b);
+        Assert.assertEquals(StorageOrder.ColumnMajor, c.getStorageOrder());
+
+        final Array2DRowRealMatrix cc = new Array2DRowRealMatrix(data).multiply(
+                new Array2DRowRealMatrix(generateData(P, N)));
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                Assert.assertEquals(c.get(i, j), cc.getEntry(i, j), 1.0e-6);
+            }
+        }
+    }
 }
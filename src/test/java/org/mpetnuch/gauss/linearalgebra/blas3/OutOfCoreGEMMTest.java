@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OutOfCoreGEMMTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.blas3;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.mapped.MappedStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class OutOfCoreGEMMTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static ArrayStore2D generate(int m, int n) {
+        return new ArrayStore2D(new Random(m * n).doubles(m * n).toArray(), new ArrayStructure2D(m, n));
+    }
+
+    private MappedStore2D map(ArrayStore2D store) throws IOException {
+        final MappedStore2D mapped = MappedStore2D.create(folder.newFile().toPath(), store.rowCount(), store.columnCount());
+        for (int i = 0; i < store.rowCount(); i++) {
+            for (int j = 0; j < store.columnCount(); j++) {
+                mapped.set(i, j, store.get(i, j));
+            }
+        }
+
+        return mapped;
+    }
+
+    @Test
+    public void testMappedStore() throws IOException {
+        final ArrayStore2D array = generate(37, 23);
+        final MappedStore2D mapped = map(array);
+        Assert.assertArrayEquals(array.toArray(), mapped.toArray(), 0.0);
+        Assert.assertArrayEquals(array.transpose().slice(S(2, 20, 3), S(1, 30)).toArray(),
+                mapped.transpose().slice(S(2, 20, 3), S(1, 30)).toArray(), 0.0);
+        mapped.force();
+
+        final Path path = folder.newFile().toPath();
+        MappedStore2D.create(path, 3, 4).slice(1, 2, 0, 4).set(0, 2, 5.0);
+        final MappedStore2D reopened = MappedStore2D.open(path, 3, 4, false);
+        Assert.assertEquals(5.0, reopened.get(1, 2), 0.0);
+        Assert.assertEquals(0.0, reopened.get(2, 2), 0.0);
+    }
+
+    @Test
+    public void testDgemm() throws IOException {
+        final ArrayStore2D a = generate(70, 50), b = generate(50, 45), c = generate(70, 45);
+        final double[] ab = new DenseGeneralMatrix(a).multiply(new DenseGeneralMatrix(b)).toArray();
+        final OutOfCoreGEMM gemm = new OutOfCoreGEMM.OutOfCoreGEMMBuilder().setTileSize(16).createOutOfCoreGEMM();
+
+        final MappedStore2D product = gemm.multiply(map(a), map(b), folder.newFile().toPath());
+        Assert.assertArrayEquals(ab, product.toArray(), 1.0e-12);
+
+        final MappedStore2D mappedC = map(c);
+        gemm.dgemm(2.0, map(a), map(b), -1.0, mappedC);
+        final double[] expected = c.toArray();
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = 2.0 * ab[i] - expected[i];
+        }
+
+        Assert.assertArrayEquals(expected, mappedC.toArray(), 1.0e-12);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `BandDecompositionTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.decomposition;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.exception.NonPositiveDefiniteMatrixException;
+import org.mpetnuch.gauss.exception.SingularMatrixException;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+
+import java.util.Random;
+
+/**
+ * @author Michael Petnuch
+ */
+public class BandDecompositionTest {
+    private static final int N = 1000;
+
+    private static DenseVector generateVector(int n) {
+        return new DenseVector(new ArrayStore1D(new Random(n).doubles(n).toArray(), new ArrayStructure1D(n)));
+    }
+
+    @Test
+    public void testBandLU() {
+        // a random band matrix whose small diagonal forces row interchanges, kept small as its condition number
+        // grows quickly with the order
+        final int n = 100, kl = 2, ku = 3;
+        final Random random = new Random(n);
+        final double[] band = new double[n * (kl + ku + 1)];
+        for (int j = 0; j < n; j++) {
+            for (int i = Math.max(0, j - ku); i < Math.min(n, j + kl + 1); i++) {
+                band[ku + i - j + j * (kl + ku + 1)] = i == j ? 0.01 : random.nextDouble() - 0.5;
+            }
+        }
+
+        final DenseGeneralMatrix a = DenseGeneralMatrix.fromBand(band, n, n, kl, ku);
+        final BandLUDecomposition lu = BandLUDecomposition.decompose(a);
+        final DenseVector b = generateVector(n);
+
+        Assert.assertArrayEquals(b.toArray(), a.multiply(lu.solve(b)).toArray(), 1.0e-9);
+        Assert.assertArrayEquals(b.toArray(), a.transpose().multiply(
+                BandLUDecomposition.decompose(a.transpose()).solve(b)).toArray(), 1.0e-9);
+    }
+
+    @Test
+    public void testBandLUDeterminant() {
+        final DenseMatrix a = DenseMatrix.from(new double[][]{{0, 2, 0}, {1, 1, 3}, {0, 4, 5}});
+        Assert.assertEquals(-10.0, BandLUDecomposition.decompose(a, 1, 1).determinant(), 1.0e-12);
+    }
+
+    @Test(expected = SingularMatrixException.class)
+    public void testBandLUSingular() {
+        BandLUDecomposition.decompose(DenseMatrix.from(new double[][]{{1, 2}, {2, 4}}), 1, 1);
+    }
+
+    @Test
+    public void testBandCholesky() {
+        // the second difference operator of a cubic spline, symmetric positive definite and tridiagonal
+        final double[] band = new double[2 * N];
+        for (int j = 0; j < N; j++) {
+            band[2 * j] = 4.0;
+            band[2 * j + 1] = 1.0;
+        }
+
+        for (Triangle triangle : Triangle.values()) {
+            final DenseSymmetricMatrix a = Triangle.Lower == triangle ?
+                    DenseSymmetricMatrix.fromBand(band, N, 1, Triangle.Lower) :
+                    DenseSymmetricMatrix.fromBand(band, N, 1, Triangle.Lower).band(1, Triangle.Upper);
+
+            final BandCholeskyDecomposition cholesky = BandCholeskyDecomposition.decompose(a);
+            final DenseVector b = generateVector(N);
+            Assert.assertArrayEquals(b.toArray(), a.multiply(cholesky.solve(b)).toArray(), 1.0e-12);
+            Assert.assertArrayEquals(b.toArray(), a.multiply(cholesky.solve(b.reshape(N, 1))).toArray(), 1.0e-12);
+        }
+    }
+
+    @Test(expected = NonPositiveDefiniteMatrixException.class)
+    public void testBandCholeskyIndefinite() {
+        BandCholeskyDecomposition.decompose(DenseMatrix.from(new double[][]{{1, 2}, {2, 1}}), 1);
+    }
+}
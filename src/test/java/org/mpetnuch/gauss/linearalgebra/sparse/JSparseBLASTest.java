@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `JSparseBLASTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.linearalgebra.sparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrixBuilder;
+import org.mpetnuch.gauss.matrix.dense.DenseVector;
+import org.mpetnuch.gauss.matrix.sparse.SparseMatrix;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.sparse.CompressedStructure2D.Orientation;
+
+import java.util.Random;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class JSparseBLASTest {
+    private static final int M = 301, N = 203;
+
+    // a small grain size so that the kernels actually split their work
+    private static final JSparseBLAS SPARSE_BLAS = new JSparseBLAS.JSparseBLASBuilder().setGrainSize(64).createJSparseBLAS();
+
+    private static DenseMatrix generateSparse(int m, int n, double density) {
+        final Random random = new Random(m * n);
+        final double[][] data = new double[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                data[i][j] = random.nextDouble() < density ? random.nextDouble() : 0.0;
+            }
+        }
+
+        return DenseMatrix.from(data);
+    }
+
+    private static DenseMatrix generateDense(int m, int n) {
+        return new DenseGeneralMatrix(new ArrayStore2D(new Random(m + n).doubles(m * n).toArray(), new ArrayStructure2D(m, n)));
+    }
+
+    private static DenseVector generateVector(int n) {
+        return new DenseVector(new ArrayStore1D(new Random(n).doubles(n).toArray(), new ArrayStructure1D(n)));
+    }
+
+    private static double[] multiply(SparseMatrix a, DenseVector x) {
+        final double[] y = new double[a.getNumberOfRows()];
+        for (int i = 0; i < y.length; i++) {
+            for (int j = 0; j < x.size(); j++) {
+                y[i] += a.get(i, j) * x.get(j);
+            }
+        }
+
+        return y;
+    }
+
+    private static SparseMatrix[] views(SparseMatrix a) {
+        final SparseMatrix[] views = {a, a.transpose(), a.slice(10, 250, 7, 180), a.transpose().slice(3, 150, 20, 200),
+                a.compact(a.getOrientation().flip())};
+        for (SparseMatrix view : views) {
+            view.setSparseBLAS(SPARSE_BLAS);
+        }
+
+        return views;
+    }
+
+    @Test
+    public void testStore() {
+        final DenseMatrix dense = generateSparse(M, N, 0.05);
+        for (Orientation orientation : Orientation.values()) {
+            final SparseMatrix a = SparseMatrix.from(dense, orientation);
+            Assert.assertArrayEquals(dense.toArray(), a.toArray(), 0.0);
+            Assert.assertArrayEquals(dense.transpose().toArray(), a.transpose().toArray(), 0.0);
+            Assert.assertArrayEquals(dense.slice(10, 250, 7, 180).toArray(), a.slice(10, 250, 7, 180).toArray(), 0.0);
+            Assert.assertArrayEquals(dense.getRow(17).toArray(), a.getRow(17).toArray(), 0.0);
+            Assert.assertArrayEquals(dense.getColumn(17).toArray(), a.getColumn(17).toArray(), 0.0);
+            Assert.assertArrayEquals(a.toArray(), a.compact(orientation.flip()).toArray(), 0.0);
+
+            final double[] stepped = dense.getStore().slice(S(1, 300, 3), S(0, 200, 2)).toArray();
+            Assert.assertArrayEquals(stepped, a.getStore().slice(S(1, 300, 3), S(0, 200, 2)).toArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testDusmv() {
+        final DenseMatrix dense = generateSparse(M, N, 0.05);
+        for (Orientation orientation : Orientation.values()) {
+            for (SparseMatrix a : views(SparseMatrix.from(dense, orientation))) {
+                final DenseVector x = generateVector(a.getNumberOfColumns());
+                Assert.assertArrayEquals(multiply(a, x), a.multiply(x).toArray(), 1.0e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testDusmm() {
+        final DenseMatrix dense = generateSparse(M, N, 0.05);
+        for (Orientation orientation : Orientation.values()) {
+            for (SparseMatrix a : views(SparseMatrix.from(dense, orientation))) {
+                final DenseMatrix b = generateDense(a.getNumberOfColumns(), 13);
+                final double[] expected = a.toDense().multiply(b).toArray();
+                Assert.assertArrayEquals(expected, a.multiply(b).toArray(), 1.0e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testDusmmOutputShape() {
+        final SparseMatrix a = SparseMatrix.from(generateSparse(M, N, 0.05), Orientation.Row);
+        final DenseMatrix b = generateDense(N, 13);
+        for (DenseMatrixBuilder c : new DenseMatrixBuilder[]{new DenseMatrixBuilder(M - 1, 13),
+                new DenseMatrixBuilder(M, 12)}) {
+            try {
+                SPARSE_BLAS.dusmm(1.0, a, b, 0.0, c);
+                Assert.fail();
+            } catch (DimensionMismatchException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DenseDiagonalMatrixTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.dense;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.exception.SingularMatrixException;
+import org.mpetnuch.gauss.store.array.ArrayStore1D;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Michael Petnuch
+ */
+public class DenseDiagonalMatrixTest {
+    private static final int N = 23;
+
+    private static double[][] generateDiagonal(int n) {
+        final Random random = new Random(n);
+        final double[][] data = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            data[i][i] = 1.0 + random.nextDouble();
+        }
+
+        return data;
+    }
+
+    private static DenseMatrix generateDense(int m, int n) {
+        return new DenseGeneralMatrix(new ArrayStore2D(new Random(m * n).doubles(m * n).toArray(), new ArrayStructure2D(m, n)));
+    }
+
+    private static DenseMatrix multiply(DenseMatrix a, DenseMatrix b) {
+        final double[][] c = new double[a.getNumberOfRows()][b.getNumberOfColumns()];
+        for (int i = 0; i < c.length; i++) {
+            for (int j = 0; j < c[i].length; j++) {
+                for (int k = 0; k < b.getNumberOfRows(); k++) {
+                    c[i][j] += a.get(i, k) * b.get(k, j);
+                }
+            }
+        }
+
+        final double[] elements = Arrays.stream(c).flatMapToDouble(Arrays::stream).toArray();
+        return new DenseGeneralMatrix(new ArrayStore2D(elements, new ArrayStructure2D(c.length, c[0].length)));
+    }
+
+    @Test
+    public void testFrom() {
+        final DenseMatrix a = DenseMatrix.from(generateDiagonal(N));
+        Assert.assertTrue(a instanceof DenseDiagonalMatrix);
+        Assert.assertArrayEquals(generateDiagonal(N), a.toArray2D());
+        Assert.assertArrayEquals(generateDiagonal(N)[3], a.getRow(3).toArray(), 0.0);
+        Assert.assertFalse(a.slice(0, 10, 1, 11) instanceof DenseDiagonalMatrix);
+        Assert.assertTrue(a.slice(2, 12, 2, 12) instanceof DenseDiagonalMatrix);
+        Assert.assertEquals(generateDiagonal(N)[3][3], a.slice(2, 12, 2, 12).get(1, 1), 0.0);
+    }
+
+    @Test
+    public void testMultiplyAndSolve() {
+        final DenseDiagonalMatrix d = (DenseDiagonalMatrix) DenseMatrix.from(generateDiagonal(N));
+        final DenseMatrix left = generateDense(7, N), right = generateDense(N, 5);
+
+        Assert.assertArrayEquals(multiply(d, right).toArray(), d.multiply(right).toArray(), 1.0e-15);
+        Assert.assertArrayEquals(multiply(left, d).toArray(), left.multiply(d).toArray(), 1.0e-15);
+        Assert.assertArrayEquals(right.toArray(), d.multiply(d.solve(right)).toArray(), 1.0e-15);
+        Assert.assertArrayEquals(multiply(d, d).toArray(), d.multiply(d).toArray(), 1.0e-15);
+
+        final DenseVector x = new DenseVector(new ArrayStore1D(new Random(1).doubles(N).toArray(), new ArrayStructure1D(N)));
+        Assert.assertArrayEquals(x.toArray(), d.multiply(d.solve(x)).toArray(), 1.0e-15);
+        Assert.assertArrayEquals(x.toArray(), d.inverse().multiply(d.multiply(x)).toArray(), 1.0e-15);
+    }
+
+    @Test(expected = SingularMatrixException.class)
+    public void testSingular() {
+        DenseDiagonalMatrix.fromDiagonal(1.0, 0.0, 2.0).inverse();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `DenseMatrixSerializerTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.dense;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mpetnuch.gauss.matrix.MatrixDiagonalType;
+import org.mpetnuch.gauss.matrix.TriangularMatrixType;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.store.band.BandStore2D;
+import org.mpetnuch.gauss.store.packed.PackedStore2D;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * @author Michael Petnuch
+ */
+public class DenseMatrixSerializerTest {
+    private static final int N = 19;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static double[][] generate(int m, int n, boolean symmetric, boolean upper, boolean lower) {
+        final Random random = new Random(m * n);
+        final double[][] data = new double[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                if ((upper || j <= i) && (lower || j >= i)) {
+                    data[i][j] = symmetric && j < i ? data[j][i] : random.nextDouble();
+                }
+            }
+        }
+
+        return data;
+    }
+
+    private void assertRoundTrip(DenseMatrix matrix, int elementCount) throws IOException {
+        final Path path = folder.newFile().toPath();
+        DenseMatrixSerializer.write(path, matrix);
+        final boolean diagonal = matrix instanceof DenseDiagonalMatrix;
+        final boolean band = !diagonal && matrix.getStore() instanceof BandStore2D;
+        Assert.assertEquals((band ? 24 : 16) + 8L * elementCount, Files.size(path));
+
+        final DenseMatrix read = DenseMatrixSerializer.read(path);
+        Assert.assertEquals(matrix.getClass(), read.getClass());
+        if (band) {
+            Assert.assertTrue(read.getStore() instanceof BandStore2D);
+        } else if (!diagonal && (matrix instanceof DenseSymmetricMatrix || matrix instanceof DenseTriangularMatrix)) {
+            Assert.assertTrue(read.getStore() instanceof PackedStore2D);
+        }
+
+        if (matrix instanceof DenseGeneralMatrix) {
+            Assert.assertEquals(matrix.getStorageOrder(), read.getStorageOrder());
+        }
+
+        Assert.assertArrayEquals(matrix.toArray(), read.toArray(), 0.0);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final DenseMatrix general = DenseMatrix.from(generate(N, N + 4, false, true, true));
+        assertRoundTrip(general, N * (N + 4));
+        assertRoundTrip(general.slice(3, 10, 2, 7), 7 * 5);
+        assertRoundTrip(DenseMatrix.from(general.transpose().toArray(), N, N + 4, StorageOrder.ColumnMajor), N * (N + 4));
+
+        final DenseSymmetricMatrix symmetric = (DenseSymmetricMatrix) DenseMatrix.from(generate(N, N, true, true, true));
+        assertRoundTrip(symmetric, N * (N + 1) / 2);
+        assertRoundTrip(symmetric.pack(Triangle.Upper), N * (N + 1) / 2);
+
+        final DenseTriangularMatrix triangular = (DenseTriangularMatrix) DenseMatrix.from(generate(N, N, false, true, false));
+        Assert.assertEquals(TriangularMatrixType.UpperTriangular, triangular.getTriangularMatrixType());
+        assertRoundTrip(triangular, N * (N + 1) / 2);
+        assertRoundTrip(triangular.transpose(), N * (N + 1) / 2);
+
+        assertRoundTrip(DenseDiagonalMatrix.fromDiagonal(1.0, 1.0, 1.0), 3);
+        assertRoundTrip(DenseDiagonalMatrix.fromDiagonal(new Random(N).doubles(N).toArray()), N);
+    }
+
+    private static int bandCount(int m, int n, int lowerBandwidth, int upperBandwidth) {
+        int count = 0;
+        for (int i = 0; i < m; i++) {
+            count += Math.max(0, Math.min(n, i + upperBandwidth + 1) - Math.max(0, i - lowerBandwidth));
+        }
+
+        return count;
+    }
+
+    @Test
+    public void testBandRoundTrip() throws IOException {
+        final DenseMatrix general = new DenseGeneralMatrix(
+                BandStore2D.band(DenseMatrix.from(generate(N, N + 4, false, true, true)).getStore(), 2, 3));
+        assertRoundTrip(general, bandCount(N, N + 4, 2, 3));
+        assertRoundTrip(general.slice(3, 10, 2, 7), bandCount(7, 5, 1, 4));
+        assertRoundTrip(general.transpose(), bandCount(N + 4, N, 3, 2));
+
+        final DenseMatrix symmetric = DenseMatrix.from(generate(N, N, true, true, true));
+        assertRoundTrip(new DenseSymmetricMatrix(BandStore2D.symmetric(symmetric.getStore(), 3, Triangle.Upper)),
+                bandCount(N, N, 3, 0));
+
+        final DenseMatrix triangular = DenseMatrix.from(generate(N, N, false, true, false));
+        assertRoundTrip(new DenseTriangularMatrix(BandStore2D.triangular(triangular.getStore(), 4, Triangle.Upper),
+                TriangularMatrixType.UpperTriangular, MatrixDiagonalType.Unit), bandCount(N, N, 0, 4));
+        assertRoundTrip(new DenseTriangularMatrix(BandStore2D.triangular(triangular.transpose().getStore(), 0,
+                Triangle.Lower), TriangularMatrixType.LowerTriangular, MatrixDiagonalType.NonUnit), N);
+    }
+
+    @Test
+    public void testJavaSerialization() throws IOException, ClassNotFoundException {
+        final DenseMatrix large = DenseMatrix.from(new double[200 * 200], 200, 200, StorageOrder.RowMajor);
+        final DenseTriangularMatrix triangular = (DenseTriangularMatrix) DenseMatrix.from(generate(N, N, false, false, true));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(large.slice(0, 2, 0, 3));
+            out.writeObject(triangular);
+        }
+
+        Assert.assertTrue(bytes.size() < 1024 + 8 * N * N);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertArrayEquals(new double[6], ((DenseMatrix) in.readObject()).toArray(), 0.0);
+
+            final DenseTriangularMatrix read = (DenseTriangularMatrix) in.readObject();
+            Assert.assertEquals(TriangularMatrixType.LowerTriangular, read.getTriangularMatrixType());
+            Assert.assertEquals(MatrixDiagonalType.NonUnit, read.getMatrixDiagonalType());
+            Assert.assertArrayEquals(triangular.toArray(), read.toArray(), 0.0);
+        }
+    }
+}
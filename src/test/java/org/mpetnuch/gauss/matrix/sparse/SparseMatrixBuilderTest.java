@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `SparseMatrixBuilderTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.matrix.sparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * @author Michael Petnuch
+ */
+public class SparseMatrixBuilderTest {
+    private static final int M = 500, N = 300, THREADS = 8, TRIPLETS = 20000;
+
+    @Test
+    public void testParallelAssembly() {
+        final SparseMatrixBuilder builder = new SparseMatrixBuilder(M, N);
+        final double[][] expected = new double[M][N];
+
+        // every thread records its own random triplets, many of them hitting the same elements
+        IntStream.range(0, THREADS).parallel().forEach(t -> {
+            final Random random = new Random(t);
+            for (int k = 0; k < TRIPLETS; k++) {
+                builder.add(random.nextInt(M), random.nextInt(N / 10) * 10, random.nextInt(100));
+            }
+        });
+
+        for (int t = 0; t < THREADS; t++) {
+            final Random random = new Random(t);
+            for (int k = 0; k < TRIPLETS; k++) {
+                expected[random.nextInt(M)][random.nextInt(N / 10) * 10] += random.nextInt(100);
+            }
+        }
+
+        Assert.assertEquals(THREADS * TRIPLETS, builder.tripletCount());
+        final SparseMatrix matrix = builder.build();
+        Assert.assertArrayEquals(expected, matrix.toArray2D());
+        Assert.assertTrue(matrix.getNonZeroCount() <= M * N / 10);
+
+        // the recording buffers are gone, the built matrix stands in for them
+        Assert.assertEquals(matrix.getNonZeroCount(), builder.tripletCount());
+        Assert.assertSame(matrix, builder.build());
+
+        builder.add(0, 0, 1.0).slice(1, M, 0, N).set(0, 10, -1.0);
+        expected[0][0] += 1.0;
+        expected[1][10] = -1.0;
+        Assert.assertArrayEquals(expected, builder.build().toArray2D());
+    }
+
+    @Test
+    public void testSetAndScale() {
+        final SparseMatrixBuilder builder = new SparseMatrixBuilder(4, 5);
+        builder.add(1, 2, 1.0).add(1, 2, 2.0).set(1, 2, 5.0).add(1, 2, 1.0);
+        builder.set(3, 4, 7.0).add(0, 0, 1.0);
+        builder.slice(1, 4, 2, 5).scale(2.0).add(0, 0, 1.0);
+
+        final double[][] expected = {
+                {1, 0, 0, 0, 0},
+                {0, 0, 13, 0, 0},
+                {0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 14}};
+
+        Assert.assertArrayEquals(expected, builder.build().toArray2D());
+        Assert.assertArrayEquals(new double[][]{{13, 0, 0}, {0, 0, 0}, {0, 0, 14}},
+                builder.slice(1, 4, 2, 5).build().toArray2D());
+    }
+}
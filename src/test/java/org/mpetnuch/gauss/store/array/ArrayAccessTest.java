@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayAccessTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.stream.IntStream;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ArrayAccessTest {
+    @Test
+    public void testIndex() {
+        final ArrayStore2D store = new ArrayStore2D(6, 7, StorageOrder.ColumnMajor, 9);
+        final ArrayStore2D view = store.slice(S(1, 6, 2), S(2, 7)).transpose();
+        final ArrayAccess access = ArrayAccess.write(view);
+
+        Assert.assertTrue(access.isWritable());
+        Assert.assertEquals(2, access.dimension());
+        Assert.assertEquals(5, access.length(0));
+        Assert.assertEquals(3, access.length(1));
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3; j++) {
+                access.array()[access.index(i, j)] = 10 * i + j;
+            }
+        }
+
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3; j++) {
+                Assert.assertEquals(10 * i + j, view.get(i, j), 0.0);
+                Assert.assertEquals(10 * i + j, store.get(2 * j + 1, i + 2), 0.0);
+            }
+        }
+
+        Assert.assertEquals(0.0, store.get(0, 0), 0.0);
+    }
+
+    @Test
+    public void testWritability() {
+        final double[] x = IntStream.range(0, 12).asDoubleStream().toArray();
+        final ArrayStore2D store = new ArrayStore2D(x, new ArrayStructure2D(3, 4));
+
+        final ArrayAccess access = ArrayAccess.read(store.slice(S(1, 3), S(1, 4)));
+        Assert.assertFalse(access.isWritable());
+        Assert.assertEquals(x[10], access.array()[access.index(1, 1)], 0.0);
+
+        try {
+            ArrayAccess.write(store);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
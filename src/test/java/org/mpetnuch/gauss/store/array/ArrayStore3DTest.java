@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ArrayStore3DTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure3D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure4D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+import org.mpetnuch.gauss.structure.array.spliterator.ContiguousStructureUnitStrideDimensionSpliterator;
+
+import java.util.stream.IntStream;
+
+import static org.mpetnuch.gauss.structure.Slice.All;
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ArrayStore3DTest {
+    // checks every index, ordinal and stride of the structure against the general N-D structure
+    private static void assertSameStructure(ArrayStructureAnyD expected, ArrayStructure actual) {
+        Assert.assertArrayEquals(expected.shape(), actual.shape());
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isContiguous(), actual.isContiguous());
+        for (int d = 0; d < expected.dimension(); d++) {
+            Assert.assertEquals(expected.stride(d), actual.stride(d));
+            Assert.assertEquals(expected.backstride(d), actual.backstride(d));
+        }
+
+        for (int ordinal = 0; ordinal < expected.size(); ordinal++) {
+            final int[] indices = expected.indices(ordinal);
+            Assert.assertArrayEquals(indices, actual.indices(ordinal));
+            Assert.assertEquals(ordinal, actual.ordinal(indices));
+            Assert.assertEquals(expected.index(indices), actual.index(indices));
+            Assert.assertEquals(expected.index(ordinal), actual.index(ordinal));
+        }
+
+        if (expected.size() > 0) {
+            Assert.assertEquals(expected.lastIndex(), actual.lastIndex());
+        }
+    }
+
+    @Test
+    public void testStructures() {
+        final ArrayStructureAnyD general3D = new ArrayStructureAnyD(new int[]{4, 6, 5});
+        final ArrayStructure3D structure3D = new ArrayStructure3D(4, 6, 5);
+        assertSameStructure(general3D, structure3D);
+        assertSameStructure(ArrayStructureAnyD.from(general3D.slice(S(1, 4), All(2), S(0, 5, 3))),
+                structure3D.slice(S(1, 4), All(2), S(0, 5, 3)));
+        assertSameStructure(general3D.swapAxis(0, 2), structure3D.swapAxis(0, -1));
+        Assert.assertEquals(structure3D.index(3, 5, 4), structure3D.index(-1, -1, -1));
+
+        final ArrayStructureAnyD general4D = new ArrayStructureAnyD(new int[]{3, 4, 2, 5});
+        final ArrayStructure4D structure4D = new ArrayStructure4D(3, 4, 2, 5);
+        assertSameStructure(general4D, structure4D);
+        assertSameStructure(ArrayStructureAnyD.from(general4D.slice(All(), S(1, 4, 2), All(), S(2, 5))),
+                structure4D.slice(All(), S(1, 4, 2), All(), S(2, 5)));
+        assertSameStructure(general4D.swapAxis(1, 3), structure4D.swapAxis(3, 1));
+
+        try {
+            structure4D.index(0, 4, 0, 0);
+            Assert.fail();
+        } catch (InvalidDimensionRangeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStores() {
+        final double[] x = IntStream.range(0, 120).asDoubleStream().toArray();
+        final ArrayStore cube = new ArrayStore1D(x, new ArrayStructure1D(120))
+                .reshape(4, 6, 5);
+        Assert.assertEquals(ArrayStore3D.class, cube.getClass());
+        Assert.assertEquals(ArrayStore4D.class, cube.reshape(2, 2, 6, 5).getClass());
+        Assert.assertEquals(ArrayStoreAnyD.class, cube.reshape(2, 2, 3, 2, 5).getClass());
+        Assert.assertEquals(ArrayStore3D.class, ArrayStores.allocate(new int[]{2, 3, 4}).getClass());
+
+        final ArrayStore3D view = ((ArrayStore3D) cube).slice(S(1, 4), All(2), S(1, 5)).swapAxis(0, 1);
+        final ArrayStoreAnyD general = new ArrayStoreAnyD(x, new ArrayStructureAnyD(new int[]{4, 6, 5}))
+                .slice(S(1, 4), All(2), S(1, 5)).swapAxis(0, 1);
+        Assert.assertArrayEquals(general.toArray(), view.toArray(), 0.0);
+        Assert.assertArrayEquals(general.toArray(), view.stream().toArray(), 0.0);
+        Assert.assertEquals(general.get(2, 1, 3), view.get(2, 1, 3), 0.0);
+        Assert.assertEquals(ContiguousStructureUnitStrideDimensionSpliterator.class,
+                view.compact().spliterator().getClass());
+
+        final ArrayStore4D tensor = new ArrayStore4D(2, 3, 4, 5);
+        tensor.slice(S(1, 2)).set(0, 2, 3, 4, 7.0);
+        tensor.increment(-1, -1, -1, -1, 1.0);
+        Assert.assertEquals(8.0, tensor.get(1, 2, 3, 4), 0.0);
+        Assert.assertEquals(8.0, tensor.toArray()[119], 0.0);
+
+        try {
+            ((ArrayStore3D) cube).set(0, 0, 0, 1.0);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReshape() {
+        final ArrayStore3D tensor = new ArrayStore3D(4, 5, 6);
+        final double[] array = tensor.array();
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+
+        final ArrayStore[] views = {
+                tensor.reshape(20, 6), tensor.reshape(2, 2, 30), tensor.reshape(1, 120),
+                tensor.slice(S(1, 3), All(), All()).reshape(10, 6),
+                tensor.slice(All(), All(), S(1, 5)).reshape(20, 4),
+                tensor.slice(All(), S(0, 5, 2), All()).reshape(4, 3, 2, 3),
+                tensor.swapAxis(0, 2).swapAxis(0, 2).reshape(2, 2, 5, 1, 6),
+                tensor.reshape(120).reshape(4, 1, 5, 3, 2).reshape(2, 2, 5, 6)};
+        final ArrayStore[] sources = {
+                tensor, tensor, tensor, tensor.slice(S(1, 3), All(), All()), tensor.slice(All(), All(), S(1, 5)),
+                tensor.slice(All(), S(0, 5, 2), All()), tensor, tensor};
+
+        for (int k = 0; k < views.length; k++) {
+            Assert.assertSame(array, ArrayStores.array(views[k]));
+            Assert.assertArrayEquals(sources[k].toArray(), views[k].toArray(), 0.0);
+            Assert.assertTrue(views[k].flags().contains(DataFlag.Writable));
+        }
+
+        // writes through a view land in the tensor
+        ((ArrayStore2D) views[4]).set(7, 2, -1.0);
+        Assert.assertEquals(-1.0, tensor.get(1, 2, 3), 0.0);
+
+        // merging a sliced axis with its neighbour, or reading a transpose in row-major order, needs a copy
+        final ArrayStore[] copies = {
+                tensor.slice(All(), All(), S(1, 5)).reshape(4, 20), tensor.swapAxis(0, 2).reshape(6, 20),
+                tensor.slice(All(), S(0, 5, 2), All()).reshape(4, 18)};
+        final ArrayStore[] originals = {
+                tensor.slice(All(), All(), S(1, 5)), tensor.swapAxis(0, 2), tensor.slice(All(), S(0, 5, 2), All())};
+
+        for (int k = 0; k < copies.length; k++) {
+            Assert.assertNotSame(array, ArrayStores.array(copies[k]));
+            Assert.assertArrayEquals(originals[k].toArray(), copies[k].toArray(), 0.0);
+        }
+
+        final ArrayStore2D matrix = new ArrayStore2D(array, new ArrayStructure2D(4, 30));
+        Assert.assertArrayEquals(new int[]{2, 3, 10}, matrix.slice(S(2, 4), S(0, 30)).reshape(2, 3, 10).structure()
+                .shape());
+        Assert.assertEquals(60.0, matrix.slice(S(2, 4), S(0, 30)).reshape(60).get(0), 0.0);
+        Assert.assertFalse(matrix.reshape(2, 60).flags().contains(DataFlag.Writable));
+    }
+}
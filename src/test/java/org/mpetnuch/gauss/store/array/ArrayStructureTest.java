@@ -19,10 +19,23 @@
 
 package org.mpetnuch.gauss.store.array;
 
+import org.junit.Assert;
 import org.junit.Test;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.store.DataFlag;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
 import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+import org.mpetnuch.gauss.structure.array.spliterator.ArrayStructure1DWithNonUnitStride;
+import org.mpetnuch.gauss.structure.array.spliterator.CoalescedSpliterator;
+import org.mpetnuch.gauss.structure.array.spliterator.ContiguousStructureUnitStrideDimensionSpliterator;
+import org.mpetnuch.gauss.structure.array.spliterator.NonContiguousStructureUnitStrideDimensionSpliterator;
 
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 import static org.mpetnuch.gauss.structure.Slice.All;
 import static org.mpetnuch.gauss.structure.Slice.S;
@@ -31,6 +44,21 @@ import static org.mpetnuch.gauss.structure.Slice.S;
  * @author Michael Petnuch
  */
 public class ArrayStructureTest {
+    // splits the spliterator as far as it goes and visits the pieces in order, some element by element
+    private static void collect(Spliterator.OfDouble spliterator, DoubleStream.Builder builder, int depth) {
+        final Spliterator.OfDouble prefix = depth < 12 ? spliterator.trySplit() : null;
+        if (prefix != null) {
+            collect(prefix, builder, depth + 1);
+            collect(spliterator, builder, depth + 1);
+        } else if (depth % 2 == 0) {
+            spliterator.forEachRemaining(builder);
+        } else {
+            while (spliterator.tryAdvance(builder)) {
+                Assert.assertTrue(spliterator.estimateSize() >= 0);
+            }
+        }
+    }
+
     @Test
     public void testStructure() {
         final double[] x = new double[]{
@@ -78,9 +106,128 @@ public class ArrayStructureTest {
 
         System.out.println();
 
-        final ArrayStore2D storeReshape = store.reshape(8, 3);
+        final ArrayStore2D storeReshape = store.reshape(8, 2);
         for (double[] row : storeReshape.slice(All(2), All(2)).toArray2D()) {
             System.out.println(Arrays.toString(row));
         }
     }
+
+    @Test
+    public void testSpliterators() {
+        final double[] x = IntStream.range(0, 37 * 41).asDoubleStream().toArray();
+        final ArrayStore2D matrix = new ArrayStore2D(x, new ArrayStructure2D(37, 41));
+        final ArrayStore[] stores = {
+                matrix, matrix.slice(S(3, 30), S(5, 40)), matrix.slice(S(1, 36, 3), S(2, 41, 2)), matrix.transpose(),
+                new ArrayStore1D(x, new ArrayStructure1D(x.length)).slice(S(7, 1000, 3)),
+                new ArrayStoreAnyD(x, new ArrayStructureAnyD(new int[]{37, 41})).slice(S(2, 7), S(3, 40))};
+        final Class<?>[] spliterators = {
+                ContiguousStructureUnitStrideDimensionSpliterator.class,
+                NonContiguousStructureUnitStrideDimensionSpliterator.class,
+                CoalescedSpliterator.class, CoalescedSpliterator.class,
+                ArrayStructure1DWithNonUnitStride.class, CoalescedSpliterator.class};
+
+        for (int k = 0; k < stores.length; k++) {
+            final ArrayStore store = stores[k];
+            Assert.assertEquals(spliterators[k], store.spliterator().getClass());
+
+            final int[] shape = store.structure().shape();
+            final double[] expected = new double[store.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = shape.length == 1 ? store.get(i) : store.get(i / shape[1], i % shape[1]);
+            }
+
+            final DoubleStream.Builder builder = DoubleStream.builder();
+            collect(store.spliterator(), builder, 0);
+            Assert.assertArrayEquals(expected, builder.build().toArray(), 0.0);
+            Assert.assertEquals(Arrays.stream(expected).sum(), store.parallelStream().sum(), 1.0e-6);
+        }
+
+        // splits of a row-major slice fall on row boundaries
+        final Spliterator.OfDouble rows = matrix.slice(S(3, 30), S(5, 40)).spliterator();
+        Assert.assertEquals(0, rows.trySplit().estimateSize() % 35);
+    }
+
+    @Test
+    public void testCoalescedIteration() {
+        final double[] x = IntStream.range(0, 3 * 5 * 4 * 6).asDoubleStream().toArray();
+        final ArrayStoreAnyD tensor = new ArrayStoreAnyD(x, new ArrayStructureAnyD(new int[]{3, 5, 4, 6}));
+        final ArrayStoreAnyD[] views = {
+                tensor, tensor.slice(S(1, 3), All(), All(), All()), tensor.slice(All(), S(1, 4), All(), S(1, 5)),
+                tensor.slice(S(0, 3, 2), S(2, 3), All(), All(2)), tensor.swapAxis(1, 3)};
+
+        for (ArrayStoreAnyD view : views) {
+            final int[] shape = view.structure().shape();
+            final double[] expected = new double[view.size()];
+            for (int i = 0; i < expected.length; i++) {
+                final int l = i % shape[3], k = i / shape[3] % shape[2];
+                final int j = i / (shape[3] * shape[2]) % shape[1], h = i / (shape[3] * shape[2] * shape[1]);
+                expected[i] = view.get(h, j, k, l);
+            }
+
+            final DoubleStream.Builder builder = DoubleStream.builder();
+            collect(view.spliterator(), builder, 0);
+            Assert.assertArrayEquals(expected, builder.build().toArray(), 0.0);
+            Assert.assertArrayEquals(expected, view.toArray(), 0.0);
+            Assert.assertArrayEquals(expected, view.stream().toArray(), 0.0);
+
+            final ArrayStoreAnyD compact = view.compact();
+            Assert.assertArrayEquals(shape, compact.structure().shape());
+            Assert.assertTrue(compact.structure().isContiguous());
+            Assert.assertEquals(ContiguousStructureUnitStrideDimensionSpliterator.class,
+                    compact.spliterator().getClass());
+            Assert.assertArrayEquals(expected, compact.toArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testIndex() {
+        final ArrayStructure2D structure = new ArrayStructure2D(5, 7, StorageOrder.ColumnMajor, 9)
+                .slice(S(1, 5), S(2, 7));
+        Assert.assertEquals(structure.index(0, 0), structure.offset());
+        Assert.assertEquals(structure.index(3, 4), structure.index(-1, -1));
+        Assert.assertEquals(structure.index(2, 1), structure.index(-2, 1));
+        Assert.assertEquals(structure.index(3, 4), structure.lastIndex());
+        Assert.assertEquals(structure.index(11), structure.index(2, 1));
+        Assert.assertEquals(structure.row(-1).index(0), structure.index(3, 0));
+        Assert.assertEquals(structure.backstride(-2), structure.backstride(0));
+
+        for (int[] indices : new int[][]{{4, 0}, {0, 5}, {-5, 0}, {0, -6}}) {
+            try {
+                structure.index(indices[0], indices[1]);
+                Assert.fail();
+            } catch (InvalidDimensionRangeException e) {
+                // expected
+            }
+        }
+
+        Assert.assertEquals(-1, new ArrayStructure2D(0, 0).lastIndex());
+    }
+
+    @Test
+    public void testPaddedLeadingDimension() {
+        Assert.assertEquals(10, ArrayStructure2D.paddedLeadingDimension(10));
+        Assert.assertEquals(4104, ArrayStructure2D.paddedLeadingDimension(4096));
+        Assert.assertEquals(4104, ArrayStructure2D.paddedLeadingDimension(4100));
+        Assert.assertEquals(1032, ArrayStructure2D.paddedLeadingDimension(1025));
+
+        for (StorageOrder storageOrder : StorageOrder.values()) {
+            final ArrayStore2D store = ArrayStore2D.padded(100, 128, storageOrder);
+            Assert.assertEquals(storageOrder, store.storageOrder());
+            Assert.assertEquals(StorageOrder.ColumnMajor == storageOrder ? 104 : 136,
+                    store.structure().leadingDimension());
+            Assert.assertFalse(store.flags().contains(DataFlag.Contiguous));
+
+            for (int i = 0; i < 100; i++) {
+                for (int j = 0; j < 128; j++) {
+                    store.set(i, j, i * 128 + j);
+                }
+            }
+
+            final ArrayStore2D compact = store.compact();
+            Assert.assertTrue(compact.flags().contains(DataFlag.Contiguous));
+            Assert.assertEquals(storageOrder, compact.storageOrder());
+            Assert.assertArrayEquals(store.toArray(), compact.toArray(), 0.0);
+            Assert.assertArrayEquals(store.toArray(), store.compact(storageOrder, 130).toArray(), 0.0);
+        }
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ElementwiseOperationsTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.exception.InvalidShapeException;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.mpetnuch.gauss.structure.Slice.All;
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ElementwiseOperationsTest {
+    private static final ElementwiseOperations SERIAL = new ElementwiseOperations.ElementwiseOperationsBuilder()
+            .setParallelThreshold(Integer.MAX_VALUE).createElementwiseOperations();
+    private static final ElementwiseOperations PARALLEL = new ElementwiseOperations.ElementwiseOperationsBuilder()
+            .setPool(new ForkJoinPool(4)).setParallelThreshold(5).createElementwiseOperations();
+
+    private static double[] range(int length) {
+        return IntStream.range(0, length).asDoubleStream().toArray();
+    }
+
+    @Test
+    public void testBroadcasting() {
+        final ArrayStore2D matrix = new ArrayStore2D(range(12), new ArrayStructure2D(3, 4));
+        final ArrayStore1D row = new ArrayStore1D(new double[]{10, 20, 30, 40}, new ArrayStructure1D(4));
+        final ArrayStore2D column = new ArrayStore2D(new double[]{100, 200, 300}, new ArrayStructure2D(3, 1));
+
+        for (ElementwiseOperations operations : new ElementwiseOperations[]{SERIAL, PARALLEL}) {
+            final ArrayStore sum = operations.add(matrix, row);
+            Assert.assertArrayEquals(new int[]{3, 4}, sum.structure().shape());
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 4; j++) {
+                    Assert.assertEquals(matrix.get(i, j) + row.get(j), sum.get(i, j), 0.0);
+                }
+            }
+
+            final ArrayStore outer = operations.multiply(column, row);
+            Assert.assertArrayEquals(new int[]{3, 4}, outer.structure().shape());
+            Assert.assertEquals(300 * 20, outer.get(2, 1), 0.0);
+
+            final ArrayStore quotient = operations.divide(matrix.transpose(), 2.0);
+            Assert.assertArrayEquals(matrix.transpose().stream().map(x -> x / 2.0).toArray(),
+                    quotient.toArray(), 0.0);
+            Assert.assertArrayEquals(matrix.stream().map(Math::exp).toArray(),
+                    operations.apply(Math::exp, matrix).toArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testNDimensional() {
+        final ArrayStoreAnyD a = new ArrayStoreAnyD(range(2 * 3 * 5 * 7), new ArrayStructureAnyD(new int[]{2, 3, 5, 7}));
+        final ArrayStoreAnyD b = new ArrayStoreAnyD(range(4 * 3), new ArrayStructureAnyD(new int[]{4, 1, 3}));
+        final ArrayStoreAnyD view = a.slice(All(), All(), S(1, 4), All(2)).swapAxis(1, 2);
+
+        final ArrayStore expected = SERIAL.subtract(view.compact(), b.swapAxis(0, 2).compact());
+        final ArrayStore actual = PARALLEL.subtract(view, b.swapAxis(0, 2));
+        Assert.assertArrayEquals(new int[]{2, 3, 3, 4}, actual.structure().shape());
+        for (int h = 0; h < 2; h++) {
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    for (int k = 0; k < 4; k++) {
+                        Assert.assertEquals(view.get(h, i, j, k) - b.get(k, 0, i),
+                                actual.get(h, i, j, k), 0.0);
+                    }
+                }
+            }
+        }
+
+        Assert.assertArrayEquals(expected.toArray(), actual.toArray(), 0.0);
+    }
+
+    @Test
+    public void testOutputs() {
+        final ArrayStore2D matrix = new ArrayStore2D(range(20), new ArrayStructure2D(4, 5));
+        final ArrayStore2D out = new ArrayStore2D(5, 4);
+        PARALLEL.apply((x, y) -> x * y, matrix.transpose(), matrix.transpose(), out.transpose().transpose());
+        Assert.assertArrayEquals(matrix.transpose().stream().map(x -> x * x).toArray(), out.toArray(), 0.0);
+
+        final ArrayStoreAnyD target = new ArrayStoreAnyD(4, 5);
+        SERIAL.applyInPlace((x, y) -> x + y, target, matrix);
+        SERIAL.applyInPlace((x, y) -> x + y, target.slice(S(1, 3), All()), matrix.slice(S(0, 1), All()));
+        SERIAL.applyInPlace(x -> -x, target.slice(All(), S(4, 5)));
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 5; j++) {
+                final double expected = matrix.get(i, j) + (i == 1 || i == 2 ? matrix.get(0, j) : 0.0);
+                Assert.assertEquals(j == 4 ? -expected : expected, target.get(i, j), 0.0);
+            }
+        }
+
+        try {
+            SERIAL.add(matrix, new ArrayStore1D(4));
+            Assert.fail();
+        } catch (InvalidShapeException e) {
+            // expected
+        }
+
+        try {
+            SERIAL.applyInPlace(Math::abs, matrix);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
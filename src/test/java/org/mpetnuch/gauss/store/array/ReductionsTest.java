@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ReductionsTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseSymmetricMatrix;
+import org.mpetnuch.gauss.structure.Triangle;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.mpetnuch.gauss.structure.Slice.All;
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ReductionsTest {
+    private static final Reductions SERIAL = new Reductions.ReductionsBuilder()
+            .setParallelThreshold(Integer.MAX_VALUE).createReductions();
+    private static final Reductions PARALLEL = new Reductions.ReductionsBuilder()
+            .setPool(new ForkJoinPool(4)).setParallelThreshold(7).createReductions();
+
+    @Test
+    public void testMatrixReductions() {
+        final double[] x = new Random(7).doubles(23 * 17, -1.0, 1.0).toArray();
+        final ArrayStore2D rowMajor = new ArrayStore2D(x, new ArrayStructure2D(23, 17));
+        final ArrayStore2D[] matrices = {rowMajor, rowMajor.transpose(), rowMajor.slice(3, 20, 2, 15),
+                new ArrayStore2D(x, new ArrayStructure2D(23, 17, StorageOrder.ColumnMajor))};
+
+        for (Reductions reductions : new Reductions[]{SERIAL, PARALLEL}) {
+            for (ArrayStore2D matrix : matrices) {
+                final int m = matrix.rowCount(), n = matrix.columnCount();
+                final ArrayStore columnSums = reductions.sum(matrix, 0), rowMaxima = reductions.max(matrix, 1);
+                final ArrayStore columnMeans = reductions.mean(matrix, 0), rowMinima = reductions.min(matrix, 1);
+                Assert.assertArrayEquals(new int[]{n}, columnSums.structure().shape());
+                Assert.assertArrayEquals(new int[]{m}, rowMaxima.structure().shape());
+
+                double norm1 = 0.0, frobenius = 0.0;
+                for (int j = 0; j < n; j++) {
+                    final double sum = matrix.column(j).stream().sum();
+                    Assert.assertEquals(sum, columnSums.get(j), 1.0e-12);
+                    Assert.assertEquals(sum / m, columnMeans.get(j), 1.0e-12);
+                    norm1 = Math.max(norm1, matrix.column(j).stream().map(Math::abs).sum());
+                }
+
+                double normInf = 0.0;
+                for (int i = 0; i < m; i++) {
+                    Assert.assertEquals(matrix.row(i).stream().max().getAsDouble(), rowMaxima.get(i), 0.0);
+                    Assert.assertEquals(matrix.row(i).stream().min().getAsDouble(), rowMinima.get(i), 0.0);
+                    normInf = Math.max(normInf, matrix.row(i).stream().map(Math::abs).sum());
+                    frobenius += matrix.row(i).stream().map(v -> v * v).sum();
+                }
+
+                Assert.assertEquals(norm1, reductions.norm1(matrix), 1.0e-12);
+                Assert.assertEquals(normInf, reductions.normInf(matrix), 1.0e-12);
+                Assert.assertEquals(Math.sqrt(frobenius), reductions.normFrobenius(matrix), 1.0e-12);
+                Assert.assertEquals(matrix.stream().sum(), reductions.sum(matrix), 1.0e-12);
+                Assert.assertEquals(matrix.stream().max().getAsDouble(), reductions.max(matrix), 0.0);
+            }
+        }
+
+        final DenseMatrix symmetric = DenseSymmetricMatrix.fromPacked(new double[]{1, -2, 3, 4, -5, 6}, 3,
+                Triangle.Lower);
+        Assert.assertEquals(14.0, symmetric.norm1(), 0.0);
+        Assert.assertEquals(14.0, symmetric.normInf(), 0.0);
+        Assert.assertEquals(Math.sqrt(1 + 4 + 9 + 4 + 16 + 25 + 9 + 25 + 36), symmetric.normFrobenius(), 1.0e-12);
+        Assert.assertEquals(SERIAL.norm1(rowMajor), DenseMatrix.from(x, 23, 17, StorageOrder.RowMajor).norm1(), 0.0);
+    }
+
+    @Test
+    public void testAxisReductions() {
+        final double[] x = new Random(11).doubles(4 * 5 * 6 * 3).toArray();
+        final ArrayStoreAnyD tensor = new ArrayStoreAnyD(x, new ArrayStructureAnyD(new int[]{4, 5, 6, 3}))
+                .slice(All(), S(1, 5), All(2), All()).swapAxis(0, 2);
+        final int[] shape = tensor.structure().shape();
+
+        for (int axis = 0; axis < 4; axis++) {
+            final ArrayStore serial = SERIAL.sum(tensor, axis), parallel = PARALLEL.sum(tensor, axis);
+            Assert.assertEquals(3, serial.structure().dimension());
+            final int[] index = new int[4], reduced = new int[3];
+            for (int ordinal = 0; ordinal < tensor.size(); ordinal++) {
+                for (int d = 3, r = ordinal; d >= 0; d--) {
+                    index[d] = r % shape[d];
+                    r /= shape[d];
+                }
+
+                if (index[axis] != 0) {
+                    continue;
+                }
+
+                double expected = 0.0;
+                for (int k = 0; k < shape[axis]; k++) {
+                    index[axis] = k;
+                    expected += tensor.get(index);
+                }
+
+                index[axis] = 0;
+                for (int d = 0, e = 0; d < 4; d++) {
+                    if (d != axis) {
+                        reduced[e++] = index[d];
+                    }
+                }
+
+                Assert.assertEquals(expected, serial.get(reduced), 1.0e-12);
+                Assert.assertEquals(expected, parallel.get(reduced), 1.0e-12);
+            }
+        }
+    }
+}
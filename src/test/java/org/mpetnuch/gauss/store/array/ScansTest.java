@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ScansTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.structure.array.ArrayStructure1D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructureAnyD;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.mpetnuch.gauss.structure.Slice.All;
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ScansTest {
+    private static final Scans SERIAL = new Scans.ScansBuilder()
+            .setParallelThreshold(Integer.MAX_VALUE).createScans();
+    private static final Scans PARALLEL = new Scans.ScansBuilder()
+            .setPool(new ForkJoinPool(4)).setParallelThreshold(3).createScans();
+
+    // scans along the axis one line at a time through get
+    private static void assertScan(ArrayStore store, int axis, DoubleBinaryOperator operator, ArrayStore scan) {
+        final int[] shape = store.structure().shape(), index = new int[shape.length];
+        Assert.assertArrayEquals(shape, scan.structure().shape());
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            for (int d = shape.length - 1, r = ordinal; d >= 0; d--) {
+                index[d] = r % shape[d];
+                r /= shape[d];
+            }
+
+            if (index[axis] != 0) {
+                continue;
+            }
+
+            double running = store.get(index);
+            Assert.assertEquals(running, scan.get(index), 1.0e-12);
+            for (int k = 1; k < shape[axis]; k++) {
+                index[axis] = k;
+                running = operator.applyAsDouble(running, store.get(index));
+                Assert.assertEquals(running, scan.get(index), 1.0e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testScans() {
+        final double[] x = new Random(5).doubles(40 * 9, -1.0, 1.0).toArray();
+        final ArrayStore2D matrix = new ArrayStore2D(x, new ArrayStructure2D(40, 9));
+        final ArrayStore[] stores = {matrix, matrix.transpose(), matrix.slice(3, 37, 1, 8),
+                new ArrayStore2D(x, new ArrayStructure2D(40, 9, StorageOrder.ColumnMajor)),
+                new ArrayStore1D(x, new ArrayStructure1D(x.length)).slice(S(5, 350, 3)),
+                new ArrayStoreAnyD(x, new ArrayStructureAnyD(new int[]{4, 10, 9})).slice(All(), S(1, 9), All(2))
+                        .swapAxis(0, 2)};
+
+        for (Scans scans : new Scans[]{SERIAL, PARALLEL}) {
+            for (ArrayStore store : stores) {
+                for (int axis = 0; axis < store.structure().dimension(); axis++) {
+                    assertScan(store, axis, Double::sum, scans.cumulativeSum(store, axis));
+                    assertScan(store, axis, Math::max, scans.cumulativeMax(store, axis));
+                    assertScan(store, axis, Math::min, scans.cumulativeMin(store, axis));
+                }
+            }
+        }
+
+        final ArrayStore1D ones = new ArrayStore1D(new double[]{1, 2, 3, 4, 5}, new ArrayStructure1D(5));
+        Assert.assertArrayEquals(new double[]{1, 2, 6, 24, 120}, PARALLEL.cumulativeProduct(ones, 0).toArray(), 0.0);
+    }
+
+    @Test
+    public void testInPlace() {
+        final double[] x = new Random(9).doubles(30 * 20).toArray();
+        final ArrayStore2D copy = new ArrayStore2D(x.clone(), new ArrayStructure2D(30, 20));
+        for (Scans scans : new Scans[]{SERIAL, PARALLEL}) {
+            final ArrayStore2D store = new ArrayStore2D(30, 20);
+            for (int i = 0; i < 30; i++) {
+                for (int j = 0; j < 20; j++) {
+                    store.set(i, j, copy.get(i, j));
+                }
+            }
+
+            Assert.assertSame(store, scans.scan(store, 0, Double::sum, store));
+            assertScan(copy, 0, Double::sum, store);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `SelectionsTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.array;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.exception.DimensionMismatchException;
+import org.mpetnuch.gauss.exception.InvalidDimensionRangeException;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.mpetnuch.gauss.structure.Slice.All;
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class SelectionsTest {
+    private static final Selections SERIAL = new Selections.SelectionsBuilder()
+            .setParallelThreshold(Integer.MAX_VALUE).createSelections();
+    private static final Selections PARALLEL = new Selections.SelectionsBuilder()
+            .setPool(new ForkJoinPool(4)).setParallelThreshold(7).createSelections();
+
+    @Test
+    public void testTake() {
+        final double[] x = new Random(11).doubles(41 * 13).toArray();
+        final ArrayStore2D rowMajor = new ArrayStore2D(x, new ArrayStructure2D(41, 13));
+        final ArrayStore2D[] matrices = {rowMajor, rowMajor.transpose(), rowMajor.slice(S(3, 40, 2), S(1, 12)),
+                new ArrayStore2D(x, new ArrayStructure2D(41, 13, StorageOrder.ColumnMajor))};
+        final int[] indices = {5, -1, 0, 5, 2, 10};
+
+        for (Selections selections : new Selections[]{SERIAL, PARALLEL}) {
+            for (ArrayStore2D matrix : matrices) {
+                final int m = matrix.rowCount(), n = matrix.columnCount();
+                final ArrayStore2D rows = (ArrayStore2D) selections.take(matrix, 0, indices);
+                final ArrayStore2D columns = (ArrayStore2D) selections.take(matrix, 1, indices);
+                Assert.assertArrayEquals(new int[]{indices.length, n}, rows.structure().shape());
+                Assert.assertArrayEquals(new int[]{m, indices.length}, columns.structure().shape());
+
+                for (int k = 0; k < indices.length; k++) {
+                    final int i = indices[k] < 0 ? indices[k] + m : indices[k];
+                    final int j = indices[k] < 0 ? indices[k] + n : indices[k];
+                    Assert.assertArrayEquals(matrix.row(i).toArray(), rows.row(k).toArray(), 0.0);
+                    Assert.assertArrayEquals(matrix.column(j).toArray(), columns.column(k).toArray(), 0.0);
+                }
+
+                final boolean[] mask = new boolean[m];
+                IntStream.range(0, m).filter(i -> i % 3 == 1).forEach(i -> mask[i] = true);
+                final ArrayStore selected = selections.compress(matrix, 0, mask);
+                Assert.assertArrayEquals(selections.take(matrix, 0, IntStream.range(0, m)
+                        .filter(i -> i % 3 == 1).toArray()).toArray(), selected.toArray(), 0.0);
+            }
+
+            // the middle axis of a three dimensional store, and of a swapped view of it
+            final ArrayStore3D tensor = (ArrayStore3D) ArrayStore.of(x, 4, 6, 5);
+            for (ArrayStore3D view : new ArrayStore3D[]{tensor, tensor.swapAxis(0, 2)}) {
+                final int[] shape = view.structure().shape();
+                final ArrayStore3D taken = (ArrayStore3D) selections.take(view, 1, 3, 0, -1);
+                Assert.assertArrayEquals(new int[]{shape[0], 3, shape[2]}, taken.structure().shape());
+                for (int i = 0; i < shape[0]; i++) {
+                    for (int l = 0; l < shape[2]; l++) {
+                        Assert.assertEquals(view.get(i, 3, l), taken.get(i, 0, l), 0.0);
+                        Assert.assertEquals(view.get(i, 0, l), taken.get(i, 1, l), 0.0);
+                        Assert.assertEquals(view.get(i, 5, l), taken.get(i, 2, l), 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPut() {
+        final double[] x = new Random(5).doubles(37 * 11).toArray();
+        final ArrayStore2D values = new ArrayStore2D(x, new ArrayStructure2D(37, 11));
+        final int[] rows = IntStream.range(0, 37).map(i -> 2 * i + 1).toArray();
+
+        for (Selections selections : new Selections[]{SERIAL, PARALLEL}) {
+            for (StorageOrder storageOrder : StorageOrder.values()) {
+                final ArrayStore2D target = new ArrayStore2D(75, 11, storageOrder);
+                Assert.assertSame(target, selections.put(target, 0, rows, values));
+                for (int i = 0; i < 75; i++) {
+                    final double[] expected = i % 2 == 1 ? values.row(i / 2).toArray() : new double[11];
+                    Assert.assertArrayEquals(expected, target.row(i).toArray(), 0.0);
+                }
+
+                // putting the masked columns back where compress found them leaves the store unchanged
+                final boolean[] mask = new boolean[11];
+                mask[2] = mask[3] = mask[7] = true;
+                final double[] before = target.toArray();
+                selections.put(target, 1, mask, selections.compress(target, 1, mask));
+                Assert.assertArrayEquals(before, target.toArray(), 0.0);
+
+                final ArrayStore2D slice = target.slice(All(), S(0, 11, 2));
+                selections.put(slice, 1, new int[]{-1}, new ArrayStore2D(75, 1));
+                Assert.assertArrayEquals(new double[75], target.column(10).toArray(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        final ArrayStore2D matrix = new ArrayStore2D(new double[12], new ArrayStructure2D(3, 4));
+        try {
+            SERIAL.take(matrix, 1, 4);
+            Assert.fail();
+        } catch (InvalidDimensionRangeException e) {
+            // expected
+        }
+
+        try {
+            SERIAL.compress(matrix, 0, new boolean[4]);
+            Assert.fail();
+        } catch (DimensionMismatchException e) {
+            // expected
+        }
+
+        try {
+            SERIAL.put(matrix, 0, new int[]{1}, new ArrayStore2D(1, 4));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Assert.assertArrayEquals(new int[]{0, 4}, SERIAL.take(matrix, 0).structure().shape());
+    }
+
+    @Test
+    public void testDenseMatrix() {
+        final DenseMatrix matrix = DenseMatrix.from(new double[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}});
+        Assert.assertArrayEquals(new double[][]{{7, 8, 9}, {1, 2, 3}}, matrix.takeRows(2, 0).toArray2D());
+        Assert.assertArrayEquals(new double[][]{{3, 2}, {6, 5}, {9, 8}}, matrix.takeColumns(-1, 1).toArray2D());
+        Assert.assertArrayEquals(new double[][]{{4, 5, 6}}, matrix.compressRows(new boolean[]{false, true, false})
+                .toArray2D());
+        Assert.assertArrayEquals(new double[][]{{1, 3}, {4, 6}, {7, 9}},
+                matrix.compressColumns(new boolean[]{true, false, true}).toArray2D());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `ChunkedStore2DTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.chunked;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.chunked.ChunkedStructure2D;
+
+import java.util.stream.IntStream;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class ChunkedStore2DTest {
+    private static final int M = 37, N = 23;
+
+    @Test
+    public void testLongIndices() {
+        final ChunkedStructure2D structure = new ChunkedStructure2D(60000, 60000);
+        Assert.assertEquals(3600000000L, structure.longSize());
+        Assert.assertEquals(Integer.MAX_VALUE, structure.size());
+        Assert.assertEquals(3599999999L, structure.index(59999, 59999));
+        Assert.assertEquals(3599999999L, structure.transpose().index(59999, 59999));
+        Assert.assertEquals(59999L * 60000 + 5, structure.slice(S(59990, 60000), S(5, 60000)).index(9, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testArrayOverflow() {
+        new ArrayStructure2D(60000, 60000);
+    }
+
+    @Test
+    public void testChunkedStore() {
+        // chunks of 8 elements, so that rows straddle chunk boundaries
+        final ChunkedStore2D store = new ChunkedStore2D(M, N, 3);
+        final double[] expected = IntStream.range(0, M * N).asDoubleStream().toArray();
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                store.set(i, j, i * N + j);
+            }
+        }
+
+        final ArrayStore2D array = new ArrayStore2D(expected, new ArrayStructure2D(M, N));
+        Assert.assertArrayEquals(expected, store.toArray(), 0.0);
+        Assert.assertArrayEquals(array.transpose().toArray(), store.transpose().toArray(), 0.0);
+        Assert.assertArrayEquals(array.slice(S(3, 30, 2), S(1, 20, 3)).toArray(),
+                store.slice(S(3, 30, 2), S(1, 20, 3)).toArray(), 0.0);
+        Assert.assertArrayEquals(array.column(7).toArray(), store.column(7).toArray(), 0.0);
+        Assert.assertArrayEquals(array.transpose().toArray(), store.transpose().compact().toArray(), 0.0);
+        Assert.assertEquals(array.get(20, 11), store.getOrdinal(20 * N + 11), 0.0);
+
+        Assert.assertEquals(array.stream().sum(), store.parallelStream().sum(), 0.0);
+        Assert.assertEquals(array.slice(S(5, 9), S(2, 21)).stream().sum(),
+                store.slice(S(5, 9), S(2, 21)).parallelStream().sum(), 0.0);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015, Michael Petnuch. All Rights Reserved.
+ *
+ * This file `OffHeapStoreTest.java` is part of Gauss.
+ *
+ * Gauss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mpetnuch.gauss.store.offheap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mpetnuch.gauss.matrix.dense.DenseGeneralMatrix;
+import org.mpetnuch.gauss.matrix.dense.DenseMatrix;
+import org.mpetnuch.gauss.store.array.ArrayStore2D;
+import org.mpetnuch.gauss.structure.array.ArrayStructure2D;
+import org.mpetnuch.gauss.structure.array.StorageOrder;
+
+import java.util.Random;
+
+import static org.mpetnuch.gauss.structure.Slice.S;
+
+/**
+ * @author Michael Petnuch
+ */
+public class OffHeapStoreTest {
+    private static ArrayStore2D generate(int m, int n) {
+        return new ArrayStore2D(new Random(m * n).doubles(m * n).toArray(), new ArrayStructure2D(m, n));
+    }
+
+    @Test
+    public void testViews() {
+        try (OffHeapArena arena = new OffHeapArena()) {
+            final ArrayStore2D array = generate(37, 23);
+            final OffHeapStore2D store = arena.copyOf(array);
+            Assert.assertEquals(37 * 23 * Double.BYTES, arena.allocatedBytes());
+
+            Assert.assertArrayEquals(array.toArray(), store.toArray(), 0.0);
+            Assert.assertArrayEquals(array.transpose().toArray(), store.transpose().toArray(), 0.0);
+            Assert.assertArrayEquals(array.slice(S(3, 30, 2), S(1, 20, 3)).toArray(),
+                    store.slice(S(3, 30, 2), S(1, 20, 3)).toArray(), 0.0);
+            Assert.assertArrayEquals(array.column(7).toArray(), store.column(7).toArray(), 0.0);
+            Assert.assertArrayEquals(array.toArray(), store.reshape(23, 37).toArray(), 0.0);
+            Assert.assertArrayEquals(array.transpose().toArray(), store.transpose().reshape(23 * 37).toArray(), 0.0);
+            Assert.assertEquals(array.stream().sum(), store.parallelStream().sum(), 1.0e-9);
+
+            // views write through to the shared memory
+            store.column(3).set(5, -1.0);
+            Assert.assertEquals(-1.0, store.get(5, 3), 0.0);
+
+            final OffHeapStore2D columnMajor = arena.allocate(4, 3, StorageOrder.ColumnMajor);
+            columnMajor.set(1, 2, 7.0);
+            Assert.assertEquals(StorageOrder.ColumnMajor, columnMajor.compact().storageOrder());
+            Assert.assertEquals(7.0, columnMajor.compact().get(1, 2), 0.0);
+        }
+    }
+
+    @Test
+    public void testDgemm() {
+        final ArrayStore2D a = generate(300, 200), b = generate(200, 100);
+        final DenseMatrix expected = new DenseGeneralMatrix(a).multiply(new DenseGeneralMatrix(b));
+
+        try (OffHeapArena arena = new OffHeapArena()) {
+            final DenseMatrix c = new DenseGeneralMatrix(arena.copyOf(a)).multiply(new DenseGeneralMatrix(arena.copyOf(b)));
+            Assert.assertArrayEquals(expected.toArray(), c.toArray(), 1.0e-10);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedArena() {
+        final OffHeapStore2D store;
+        try (OffHeapArena arena = new OffHeapArena()) {
+            store = arena.allocate(3, 3);
+        }
+
+        store.get(1, 1);
+    }
+}